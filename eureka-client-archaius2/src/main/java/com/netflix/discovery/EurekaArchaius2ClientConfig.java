@@ -213,6 +213,16 @@ public class EurekaArchaius2ClientConfig implements EurekaClientConfig {
         return prefixedConfig.getBoolean(SHOULD_ENFORCE_REGISTRATION_AT_INIT, false);
     }
 
+    @Override
+    public boolean shouldFetchDeltasSinceVersion() {
+        return prefixedConfig.getBoolean(SHOULD_FETCH_DELTAS_SINCE_VERSION_KEY, false);
+    }
+
+    @Override
+    public boolean shouldUsePresetDictionaryEncoding() {
+        return prefixedConfig.getBoolean(SHOULD_USE_PRESET_DICTIONARY_ENCODING_KEY, false);
+    }
+
     @Override
     public String getEncoderName() {
         return prefixedConfig.getString(CLIENT_ENCODER_NAME_KEY, null);
@@ -20,6 +20,7 @@ import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
@@ -32,6 +33,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
@@ -40,6 +43,8 @@ import com.netflix.discovery.shared.Applications;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse.EurekaHttpResponseBuilder;
+import com.netflix.discovery.shared.transport.HeartbeatList;
+import com.netflix.discovery.shared.transport.HeartbeatListResponse;
 import com.netflix.discovery.util.StringUtil;
 import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
 import org.slf4j.Logger;
@@ -59,6 +64,9 @@ public abstract class AbstractJersey2EurekaHttpClient implements EurekaHttpClien
     private final String userName;
     private final String password;
 
+    // Entity tag of the last delta fetched for each set of regions, sent back as If-None-Match on the next fetch
+    private final ConcurrentMap<String, String> deltaEntityTags = new ConcurrentHashMap<>();
+
     public AbstractJersey2EurekaHttpClient(Client jerseyClient, String serviceUrl) {
         this.jerseyClient = jerseyClient;
         this.serviceUrl = serviceUrl;
@@ -157,6 +165,32 @@ public abstract class AbstractJersey2EurekaHttpClient implements EurekaHttpClien
         }
     }
 
+    @Override
+    public EurekaHttpResponse<HeartbeatListResponse> sendHeartBeats(HeartbeatList heartbeats) {
+        String urlPath = "heartbeats/batch";
+        Response response = null;
+        try {
+            Builder requestBuilder = jerseyClient.target(serviceUrl).path(urlPath).request();
+            addExtraProperties(requestBuilder);
+            addExtraHeaders(requestBuilder);
+            response = requestBuilder.accept(MediaType.APPLICATION_JSON_TYPE).post(Entity.json(heartbeats));
+            EurekaHttpResponseBuilder<HeartbeatListResponse> eurekaResponseBuilder =
+                    anEurekaHttpResponse(response.getStatus(), HeartbeatListResponse.class).headers(headersOf(response));
+            if (response.getStatus() == Status.OK.getStatusCode() && response.hasEntity()) {
+                eurekaResponseBuilder.entity(response.readEntity(HeartbeatListResponse.class));
+            }
+            return eurekaResponseBuilder.build();
+        } finally {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Jersey2 HTTP POST {}/{} with {} heartbeats; statusCode={}", serviceUrl, urlPath,
+                        heartbeats.getHeartbeats().size(), response == null ? "N/A" : response.getStatus());
+            }
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
     @Override
     public EurekaHttpResponse<Void> statusUpdate(String appName, String id, InstanceStatus newStatus, InstanceInfo info) {
         String urlPath = "apps/" + appName + '/' + id + "/status";
@@ -206,22 +240,28 @@ public abstract class AbstractJersey2EurekaHttpClient implements EurekaHttpClien
 
     @Override
     public EurekaHttpResponse<Applications> getApplications(String... regions) {
-        return getApplicationsInternal("apps/", regions);
+        return getApplicationsInternal("apps/", regions, null, false);
     }
 
     @Override
     public EurekaHttpResponse<Applications> getDelta(String... regions) {
-        return getApplicationsInternal("apps/delta", regions);
+        return getApplicationsInternal("apps/delta", regions, null, true);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaSince(long version) {
+        // Every request is for a different version, so it is never conditional
+        return getApplicationsInternal("apps/delta", null, Long.toString(version), false);
     }
 
     @Override
     public EurekaHttpResponse<Applications> getVip(String vipAddress, String... regions) {
-        return getApplicationsInternal("vips/" + vipAddress, regions);
+        return getApplicationsInternal("vips/" + vipAddress, regions, null, false);
     }
 
     @Override
     public EurekaHttpResponse<Applications> getSecureVip(String secureVipAddress, String... regions) {
-        return getApplicationsInternal("svips/" + secureVipAddress, regions);
+        return getApplicationsInternal("svips/" + secureVipAddress, regions, null, false);
     }
 
     @Override
@@ -249,22 +289,35 @@ public abstract class AbstractJersey2EurekaHttpClient implements EurekaHttpClien
         }
     }
 
-    private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String[] regions) {
+    private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String[] regions, String since,
+                                                                     boolean conditional) {
         Response response = null;
         try {
             WebTarget webTarget = jerseyClient.target(serviceUrl).path(urlPath);
+            String entityTagKey = "";
             if (regions != null && regions.length > 0) {
-                webTarget = webTarget.queryParam("regions", StringUtil.join(regions));
+                entityTagKey = StringUtil.join(regions);
+                webTarget = webTarget.queryParam("regions", entityTagKey);
+            }
+            if (since != null) {
+                webTarget = webTarget.queryParam("since", since);
             }
             Builder requestBuilder = webTarget.request();
             addExtraProperties(requestBuilder);
             addExtraHeaders(requestBuilder);
+            String entityTag = conditional ? deltaEntityTags.get(entityTagKey) : null;
+            if (entityTag != null) {
+                requestBuilder.header(HttpHeaders.IF_NONE_MATCH, entityTag);
+            }
             response = requestBuilder.accept(MediaType.APPLICATION_JSON_TYPE).get();
 
             Applications applications = null;
             if (response.getStatus() == Status.OK.getStatusCode() && response.hasEntity()) {
                 applications = response.readEntity(Applications.class);
             }
+            if (conditional) {
+                updateEntityTag(entityTagKey, response.getStatus(), response.getHeaderString(HttpHeaders.ETAG));
+            }
             return anEurekaHttpResponse(response.getStatus(), applications).headers(headersOf(response)).build();
         } finally {
             if (logger.isDebugEnabled()) {
@@ -276,6 +329,21 @@ public abstract class AbstractJersey2EurekaHttpClient implements EurekaHttpClien
         }
     }
 
+    /**
+     * Remembers the entity tag of a delta that was fetched, keeps it when the delta was not modified, and forgets
+     * it on any other response.
+     */
+    private void updateEntityTag(String entityTagKey, int statusCode, String entityTag) {
+        if (statusCode == Status.NOT_MODIFIED.getStatusCode()) {
+            return;
+        }
+        if (statusCode == Status.OK.getStatusCode() && entityTag != null) {
+            deltaEntityTags.put(entityTagKey, entityTag);
+        } else {
+            deltaEntityTags.remove(entityTagKey);
+        }
+    }
+
     @Override
     public EurekaHttpResponse<InstanceInfo> getInstance(String id) {
         return getInstanceInternal("instances/" + id);
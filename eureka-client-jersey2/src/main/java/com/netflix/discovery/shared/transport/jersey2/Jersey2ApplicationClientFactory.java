@@ -172,6 +172,9 @@ public class Jersey2ApplicationClientFactory implements TransportClientFactory {
 
             // Add gzip content encoding support
             clientBuilder.register(new GZipEncoder());
+            if (presetDictionaryEncoding) {
+                clientBuilder.register(new Jersey2PresetDictionaryEncoder());
+            }
 
             // always enable client identity headers
             String ip = myInstanceInfo == null ? null : myInstanceInfo.getIPAddr();
@@ -0,0 +1,62 @@
+package com.netflix.discovery.shared.transport.jersey2;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import com.netflix.discovery.shared.transport.PresetDictionaryEncoding;
+import org.glassfish.jersey.spi.ContentEncoder;
+
+/**
+ * Jersey 2 counterpart of the Jersey 1 {@code PresetDictionaryContentEncodingFilter}: it adds the
+ * {@link PresetDictionaryEncoding} content encoding to the Accept-Encoding header, next to gzip, and decodes
+ * responses using it. If requested, it also encodes request entities that have no content encoding yet, which
+ * only servers that understand the encoding can read.
+ */
+public class Jersey2PresetDictionaryEncoder extends ContentEncoder implements ClientRequestFilter {
+
+    private final BooleanSupplier compressRequests;
+
+    public Jersey2PresetDictionaryEncoder() {
+        this(() -> false);
+    }
+
+    public Jersey2PresetDictionaryEncoder(BooleanSupplier compressRequests) {
+        super(PresetDictionaryEncoding.ENCODING);
+        this.compressRequests = compressRequests;
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext) throws IOException {
+        MultivaluedMap<String, Object> headers = requestContext.getHeaders();
+        List<Object> acceptEncoding = headers.get(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            headers.add(HttpHeaders.ACCEPT_ENCODING, PresetDictionaryEncoding.ENCODING);
+            headers.add(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        } else if (!acceptEncoding.contains(PresetDictionaryEncoding.ENCODING)) {
+            acceptEncoding.add(0, PresetDictionaryEncoding.ENCODING);
+        }
+
+        // The entity itself is encoded by the writer interceptor, which follows the Content-Encoding header
+        if (requestContext.hasEntity() && !headers.containsKey(HttpHeaders.CONTENT_ENCODING)
+                && compressRequests.getAsBoolean()) {
+            headers.add(HttpHeaders.CONTENT_ENCODING, PresetDictionaryEncoding.ENCODING);
+        }
+    }
+
+    @Override
+    public InputStream decode(String contentEncoding, InputStream encodedStream) throws IOException {
+        return PresetDictionaryEncoding.newDecompressingStream(encodedStream);
+    }
+
+    @Override
+    public OutputStream encode(String contentEncoding, OutputStream entityStream) throws IOException {
+        return PresetDictionaryEncoding.newCompressingStream(entityStream);
+    }
+}
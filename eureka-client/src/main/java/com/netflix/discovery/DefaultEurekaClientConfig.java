@@ -500,6 +500,18 @@ public class DefaultEurekaClientConfig implements EurekaClientConfig {
                 namespace + SHOULD_ENFORCE_REGISTRATION_AT_INIT, false).get();
     }
 
+    @Override
+    public boolean shouldFetchDeltasSinceVersion() {
+        return configInstance.getBooleanProperty(
+                namespace + SHOULD_FETCH_DELTAS_SINCE_VERSION_KEY, false).get();
+    }
+
+    @Override
+    public boolean shouldUsePresetDictionaryEncoding() {
+        return configInstance.getBooleanProperty(
+                namespace + SHOULD_USE_PRESET_DICTIONARY_ENCODING_KEY, false).get();
+    }
+
     @Override
     public String getEncoderName() {
         return configInstance.getStringProperty(
@@ -27,7 +27,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
@@ -36,7 +35,6 @@ import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -69,6 +67,7 @@ import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.endpoint.EndpointUtils;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.InstanceStatusCounts;
 import com.netflix.discovery.shared.resolver.ClosableResolver;
 import com.netflix.discovery.shared.resolver.aws.ApplicationsResolver;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
@@ -154,6 +153,12 @@ public class DiscoveryClient implements EurekaClient {
     private final PreRegistrationHandler preRegistrationHandler;
     private final AtomicReference<Applications> localRegionApps = new AtomicReference<Applications>();
     private final Lock fetchRegistryUpdateLock = new ReentrantLock();
+    // Instance counts by status of the local and remote region applications they were counted from, kept up to
+    // date by updateDelta; guarded by fetchRegistryUpdateLock
+    private final InstanceStatusCounts localStatusCounts = new InstanceStatusCounts();
+    private final InstanceStatusCounts remoteStatusCounts = new InstanceStatusCounts();
+    private Applications statusCountedApps;
+    private Map<String, Applications> statusCountedRemoteApps;
     // monotonically increasing generation counter to ensure stale threads do not reset registry to an older version
     private final AtomicLong fetchRegistryGeneration;
     private final ApplicationInfoManager applicationInfoManager;
@@ -1048,15 +1053,34 @@ public class DiscoveryClient implements EurekaClient {
         return lastRemoteInstanceStatus;
     }
 
+    /**
+     * Gets the reconcile hash code of the given applications, together with the remote region applications if
+     * they are fetched. The instances are only counted when a new registry was stored since the last call; in
+     * between, the counts are adjusted by {@link #updateDelta(Applications)}. Must be called holding
+     * {@link #fetchRegistryUpdateLock}.
+     */
     private String getReconcileHashCode(Applications applications) {
-        TreeMap<String, AtomicInteger> instanceCountMap = new TreeMap<String, AtomicInteger>();
-        if (isFetchingRemoteRegionRegistries()) {
-            for (Applications remoteApp : remoteRegionVsApps.values()) {
-                remoteApp.populateInstanceCountMap(instanceCountMap);
+        Map<String, Applications> remoteApps = remoteRegionVsApps;
+        if (applications != statusCountedApps || remoteApps != statusCountedRemoteApps) {
+            localStatusCounts.reset();
+            for (Application app : applications.getRegisteredApplications()) {
+                localStatusCounts.add(app);
             }
+            remoteStatusCounts.reset();
+            for (Applications remoteApp : remoteApps.values()) {
+                for (Application app : remoteApp.getRegisteredApplications()) {
+                    remoteStatusCounts.add(app);
+                }
+            }
+            statusCountedApps = applications;
+            statusCountedRemoteApps = remoteApps;
+        }
+        if (!isFetchingRemoteRegionRegistries()) {
+            return localStatusCounts.getReconcileHashCode();
         }
-        applications.populateInstanceCountMap(instanceCountMap);
-        return Applications.getReconcileHashCode(instanceCountMap);
+        InstanceStatusCounts statusCounts = localStatusCounts.copy();
+        statusCounts.add(remoteStatusCounts);
+        return statusCounts.getReconcileHashCode();
     }
 
     /**
@@ -1105,6 +1129,10 @@ public class DiscoveryClient implements EurekaClient {
      *   do reconciliation if reconcileHashCode clash
      * fi
      *
+     * A 304 (Not Modified) response means the delta has already been applied, and nothing is done.
+     * If enabled, only the changes since the version of the local registry are asked for, and a 410 (Gone)
+     * response means they are no longer available and the full registry is fetched.
+     *
      * @return the client response
      * @throws Throwable on error
      */
@@ -1112,7 +1140,21 @@ public class DiscoveryClient implements EurekaClient {
         long currentUpdateGeneration = fetchRegistryGeneration.get();
 
         Applications delta = null;
-        EurekaHttpResponse<Applications> httpResponse = eurekaTransport.queryClient.getDelta(remoteRegionsRef.get());
+        EurekaHttpResponse<Applications> httpResponse;
+        Long sinceVersion = applications.getVersionDelta();
+        if (clientConfig.shouldFetchDeltasSinceVersion() && remoteRegionsRef.get() == null && sinceVersion != null) {
+            httpResponse = eurekaTransport.queryClient.getDeltaSince(sinceVersion);
+            if (httpResponse.getStatusCode() == Status.GONE.getStatusCode()) {
+                logger.info("The changes since registry version {} are no longer available", sinceVersion);
+            }
+        } else {
+            httpResponse = eurekaTransport.queryClient.getDelta(remoteRegionsRef.get());
+        }
+        if (httpResponse.getStatusCode() == Status.NOT_MODIFIED.getStatusCode()) {
+            // The delta is the one applied by the previous fetch, so there is nothing to apply or reconcile
+            logger.debug("The delta has not changed since it was last fetched");
+            return;
+        }
         if (httpResponse.getStatusCode() == Status.OK.getStatusCode()) {
             delta = httpResponse.getEntity();
         }
@@ -1195,8 +1237,8 @@ public class DiscoveryClient implements EurekaClient {
         }
 
         if (fetchRegistryGeneration.compareAndSet(currentUpdateGeneration, currentUpdateGeneration + 1)) {
+            // The full registry carries its own version, which is newer than the delta's
             localRegionApps.set(this.filterAndShuffle(serverApps));
-            getApplications().setVersion(delta.getVersion());
             logger.debug(
                     "The Reconcile hashcodes after complete sync up, client : {}, server : {}.",
                     getApplications().getReconcileHashCode(),
@@ -1216,9 +1258,12 @@ public class DiscoveryClient implements EurekaClient {
      */
     private void updateDelta(Applications delta) {
         int deltaCount = 0;
+        // The counts are only adjusted if they were counted from the registry being updated
+        boolean countStatus = getApplications() == statusCountedApps && remoteRegionVsApps == statusCountedRemoteApps;
         for (Application app : delta.getRegisteredApplications()) {
             for (InstanceInfo instance : app.getInstances()) {
                 Applications applications = getApplications();
+                InstanceStatusCounts statusCounts = localStatusCounts;
                 String instanceRegion = instanceRegionChecker.getInstanceRegion(instance);
                 if (!instanceRegionChecker.isLocalRegion(instanceRegion)) {
                     Applications remoteApps = remoteRegionVsApps.get(instanceRegion);
@@ -1227,6 +1272,7 @@ public class DiscoveryClient implements EurekaClient {
                         remoteRegionVsApps.put(instanceRegion, remoteApps);
                     }
                     applications = remoteApps;
+                    statusCounts = remoteStatusCounts;
                 }
 
                 ++deltaCount;
@@ -1234,22 +1280,34 @@ public class DiscoveryClient implements EurekaClient {
                     Application existingApp = applications.getRegisteredApplications(instance.getAppName());
                     if (existingApp == null) {
                         applications.addApplication(app);
+                        if (countStatus) {
+                            statusCounts.add(app);
+                        }
                     }
                     logger.debug("Added instance {} to the existing apps in region {}", instance.getId(), instanceRegion);
-                    applications.getRegisteredApplications(instance.getAppName()).addInstance(instance);
+                    addInstance(applications.getRegisteredApplications(instance.getAppName()), instance,
+                            countStatus ? statusCounts : null);
                 } else if (ActionType.MODIFIED.equals(instance.getActionType())) {
                     Application existingApp = applications.getRegisteredApplications(instance.getAppName());
                     if (existingApp == null) {
                         applications.addApplication(app);
+                        if (countStatus) {
+                            statusCounts.add(app);
+                        }
                     }
                     logger.debug("Modified instance {} to the existing apps ", instance.getId());
 
-                    applications.getRegisteredApplications(instance.getAppName()).addInstance(instance);
+                    addInstance(applications.getRegisteredApplications(instance.getAppName()), instance,
+                            countStatus ? statusCounts : null);
 
                 } else if (ActionType.DELETED.equals(instance.getActionType())) {
                     Application existingApp = applications.getRegisteredApplications(instance.getAppName());
                     if (existingApp != null) {
                         logger.debug("Deleted instance {} to the existing apps ", instance.getId());
+                        InstanceInfo removed = existingApp.getByInstanceId(instance.getId());
+                        if (countStatus && removed != null) {
+                            statusCounts.decrement(removed.getStatus());
+                        }
                         existingApp.removeInstance(instance);
                         /*
                          * We find all instance list from application(The status of instance status is not only the status is UP but also other status)
@@ -1273,6 +1331,17 @@ public class DiscoveryClient implements EurekaClient {
         }
     }
 
+    private static void addInstance(Application app, InstanceInfo instance, @Nullable InstanceStatusCounts statusCounts) {
+        if (statusCounts != null) {
+            InstanceInfo replaced = app.getByInstanceId(instance.getId());
+            if (replaced != null) {
+                statusCounts.decrement(replaced.getStatus());
+            }
+            statusCounts.increment(instance.getStatus());
+        }
+        app.addInstance(instance);
+    }
+
     /**
      * Initializes all scheduled tasks.
      */
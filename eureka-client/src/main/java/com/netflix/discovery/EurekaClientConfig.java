@@ -568,6 +568,34 @@ public interface EurekaClientConfig {
         return false;
     }
 
+    /**
+     * Indicates whether the client should ask for exactly the changes made since the version of its registry,
+     * rather than for the changes made within the delta retention window of the server.
+     *
+     * <p>
+     * Only the local region registry is versioned, so this has no effect when remote region registries are fetched.
+     * Servers that do not support it return the windowed delta, but a server that does not know the version
+     * of the client, such as one that was not upgraded, makes the client fetch the full registry; it should only
+     * be enabled once all servers support it.
+     * </p>
+     *
+     * @return true to fetch the changes since the version of the registry, false to fetch the windowed delta
+     */
+    default boolean shouldFetchDeltasSinceVersion() {
+        return false;
+    }
+
+    /**
+     * Indicates whether the client should accept responses compressed with a preset deflate dictionary of the
+     * {@link com.netflix.appinfo.InstanceInfo} fields, which makes small responses such as registry deltas
+     * several times smaller than gzip does. Servers that do not support it keep answering with gzip.
+     *
+     * @return true to accept the preset dictionary encoding in addition to gzip, false to accept gzip only
+     */
+    default boolean shouldUsePresetDictionaryEncoding() {
+        return false;
+    }
+
     /**
      * This is a transient config and once the latest codecs are stable, can be removed (as there will only be one)
      *
@@ -26,6 +26,8 @@ final class PropertyBasedClientConfigConstants {
     static final String SHOULD_ONDEMAND_UPDATE_STATUS_KEY = "shouldOnDemandUpdateStatusChange";
     static final String SHOULD_ENFORCE_REGISTRATION_AT_INIT = "shouldEnforceRegistrationAtInit";
     static final String SHOULD_DISABLE_DELTA_KEY = "disableDelta";
+    static final String SHOULD_FETCH_DELTAS_SINCE_VERSION_KEY = "fetchDeltasSinceVersion";
+    static final String SHOULD_USE_PRESET_DICTIONARY_ENCODING_KEY = "usePresetDictionaryEncoding";
     static final String SHOULD_FETCH_REMOTE_REGION_KEY = "fetchRemoteRegionsRegistry";
     static final String SHOULD_FILTER_ONLY_UP_INSTANCES_KEY = "shouldFilterOnlyUpInstances";
     static final String FETCH_SINGLE_VIP_ONLY_KEY = "registryRefreshSingleVipAddress";
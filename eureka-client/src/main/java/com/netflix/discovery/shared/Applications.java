@@ -215,6 +215,27 @@ public class Applications {
         return this.versionDelta;
     }
 
+    /**
+     * Used by the eureka server. Not for external use.
+     *
+     * @param versionDelta
+     *            the delta version the applications are at
+     */
+    @JsonIgnore // Handled directly due to legacy name formatting
+    public void setVersionDelta(Long versionDelta) {
+        this.versionDelta = versionDelta;
+    }
+
+    /**
+     * Gets the delta version the applications are at, from which the changes that follow can be asked for.
+     *
+     * @return the delta version, or null if the server did not send one
+     */
+    @JsonIgnore // Handled directly due to legacy name formatting
+    public Long getVersionDelta() {
+        return this.versionDelta;
+    }
+
     /**
      * Used by the eureka server. Not for external use.
      *
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.discovery.shared;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+
+/**
+ * Running counts of instances by {@link InstanceStatus}, from which the reconcile hash code of a set of
+ * applications can be produced without walking its instances.
+ *
+ * <p>
+ * The owner is responsible for adjusting the counts whenever it adds, removes or changes the status of an
+ * instance. {@link #getReconcileHashCode()} returns the same string as {@link Applications#getReconcileHashCode()}
+ * would for the counted instances.
+ * </p>
+ */
+public class InstanceStatusCounts {
+
+    private static final String STATUS_DELIMITER = "_";
+
+    // The hash code lists statuses in the order of their names
+    private static final InstanceStatus[] STATUSES_BY_NAME = InstanceStatus.values();
+
+    static {
+        Arrays.sort(STATUSES_BY_NAME, new Comparator<InstanceStatus>() {
+            @Override
+            public int compare(InstanceStatus o1, InstanceStatus o2) {
+                return o1.name().compareTo(o2.name());
+            }
+        });
+    }
+
+    private final LongAdder[] counts = new LongAdder[InstanceStatus.values().length];
+
+    public InstanceStatusCounts() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return the counts of the instances of the given application as they are now.
+     */
+    public static InstanceStatusCounts of(Application application) {
+        InstanceStatusCounts result = new InstanceStatusCounts();
+        result.add(application);
+        return result;
+    }
+
+    /**
+     * @return the counts of the instances of all the given applications as they are now.
+     */
+    public static InstanceStatusCounts of(Applications applications) {
+        InstanceStatusCounts result = new InstanceStatusCounts();
+        for (Application application : applications.getRegisteredApplications()) {
+            result.add(application);
+        }
+        return result;
+    }
+
+    public void increment(InstanceStatus status) {
+        counts[status.ordinal()].increment();
+    }
+
+    public void decrement(InstanceStatus status) {
+        counts[status.ordinal()].decrement();
+    }
+
+    public long get(InstanceStatus status) {
+        return counts[status.ordinal()].sum();
+    }
+
+    public void add(Application application) {
+        for (InstanceInfo info : application.getInstancesAsIsFromEureka()) {
+            increment(info.getStatus());
+        }
+    }
+
+    public void add(InstanceStatusCounts other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i].add(other.counts[i].sum());
+        }
+    }
+
+    public void subtract(InstanceStatusCounts other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i].add(-other.counts[i].sum());
+        }
+    }
+
+    public void reset() {
+        for (LongAdder count : counts) {
+            count.reset();
+        }
+    }
+
+    /**
+     * @return a point in time copy of these counts.
+     */
+    public InstanceStatusCounts copy() {
+        InstanceStatusCounts result = new InstanceStatusCounts();
+        result.add(this);
+        return result;
+    }
+
+    /**
+     * Gets the reconciliation hashcode of the counted instances, in the format of
+     * {@link Applications#getReconcileHashCode(java.util.Map)}.
+     */
+    public String getReconcileHashCode() {
+        StringBuilder reconcileHashCode = new StringBuilder(75);
+        for (InstanceStatus status : STATUSES_BY_NAME) {
+            long count = counts[status.ordinal()].sum();
+            if (count > 0) {
+                reconcileHashCode.append(status.name()).append(STATUS_DELIMITER).append(count)
+                        .append(STATUS_DELIMITER);
+            }
+        }
+        return reconcileHashCode.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getReconcileHashCode();
+    }
+}
@@ -42,6 +42,7 @@ public abstract class EurekaClientFactoryBuilder<F, B extends EurekaClientFactor
     protected DecoderWrapper decoderWrapper;
     protected AbstractEurekaIdentity clientIdentity;
     protected HostnameVerifier hostnameVerifier;
+    protected boolean presetDictionaryEncoding;
     
     public B withClientConfig(EurekaClientConfig clientConfig) {
         withClientAccept(EurekaAccept.fromString(clientConfig.getClientDataAccept()));
@@ -52,6 +53,7 @@ public abstract class EurekaClientFactoryBuilder<F, B extends EurekaClientFactor
         withMaxTotalConnections(clientConfig.getEurekaServerTotalConnections());
         withConnectionIdleTimeout(clientConfig.getEurekaConnectionIdleTimeoutSeconds());
         withEncoder(clientConfig.getEncoderName());
+        withPresetDictionaryEncoding(clientConfig.shouldUsePresetDictionaryEncoding());
         return withDecoder(clientConfig.getDecoderName(), clientConfig.getClientDataAccept());
     }
 
@@ -81,6 +83,11 @@ public abstract class EurekaClientFactoryBuilder<F, B extends EurekaClientFactor
         return self();
     }
 
+    public B withPresetDictionaryEncoding(boolean presetDictionaryEncoding) {
+        this.presetDictionaryEncoding = presetDictionaryEncoding;
+        return self();
+    }
+
     public B withConnectionTimeout(int connectionTimeout) {
         this.connectionTimeout = connectionTimeout;
         return self();
@@ -38,6 +38,34 @@ public interface EurekaHttpClient {
      */
     EurekaHttpResponse<InstanceInfo> sendHeartBeat(String appName, String id, InstanceInfo info, InstanceStatus overriddenStatus);
 
+    /**
+     * 批量发送心跳，一次请求续约多个实例，每个心跳的结果按顺序放在返回的列表里
+     * 默认实现对每个心跳调用一次{@link #sendHeartBeat}，支持批量接口的实现可以覆盖这个方法
+     * @param heartbeats
+     * @return
+     */
+    default EurekaHttpResponse<HeartbeatListResponse> sendHeartBeats(HeartbeatList heartbeats) {
+        HeartbeatListResponse batchResponse = new HeartbeatListResponse();
+        for (Heartbeat heartbeat : heartbeats.getHeartbeats()) {
+            InstanceInfo.Builder info = InstanceInfo.Builder.newBuilder()
+                    .setAppName(heartbeat.getAppName())
+                    .setInstanceId(heartbeat.getId());
+            if (heartbeat.getStatus() != null) {
+                info.setStatus(InstanceStatus.toEnum(heartbeat.getStatus()));
+            }
+            if (heartbeat.getLastDirtyTimestamp() != null) {
+                info.setLastDirtyTimestamp(heartbeat.getLastDirtyTimestamp());
+            }
+            InstanceStatus overriddenStatus = heartbeat.getOverriddenStatus() == null
+                    ? null
+                    : InstanceStatus.toEnum(heartbeat.getOverriddenStatus());
+            EurekaHttpResponse<InstanceInfo> response =
+                    sendHeartBeat(heartbeat.getAppName(), heartbeat.getId(), info.build(), overriddenStatus);
+            batchResponse.addResponse(new HeartbeatResponse(response.getStatusCode(), response.getEntity()));
+        }
+        return EurekaHttpResponse.anEurekaHttpResponse(200, batchResponse).build();
+    }
+
     /**
      * 更新服务InstanceStatus状态，服务状态更新
      * @param appName
@@ -73,6 +101,17 @@ public interface EurekaHttpClient {
      */
     EurekaHttpResponse<Applications> getDelta(String... regions);
 
+    /**
+     * 增量获取，只获取指定delta版本之后的变更，版本来自上一次的增量或者全量获取，只针对本地region
+     * 这些变更server已经不再保留时返回410(Gone)，需要重新全量获取
+     * 默认实现忽略版本，调用{@link #getDelta(String...)}返回保留窗口内的增量
+     * @param version
+     * @return
+     */
+    default EurekaHttpResponse<Applications> getDeltaSince(long version) {
+        return getDelta();
+    }
+
     /**
      * 根据vipAddress去获取服务列表
      * @param vipAddress
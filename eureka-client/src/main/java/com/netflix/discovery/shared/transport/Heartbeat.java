@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.discovery.shared.transport;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+
+/**
+ * A single lease renewal in a {@link HeartbeatList}, carrying the same information as the query parameters of
+ * a single heartbeat request.
+ */
+public class Heartbeat {
+    private final String appName;
+    private final String id;
+    private final Long lastDirtyTimestamp;
+    private final String status;
+    private final String overriddenStatus;
+
+    @JsonCreator
+    public Heartbeat(@JsonProperty("appName") String appName,
+                     @JsonProperty("id") String id,
+                     @JsonProperty("lastDirtyTimestamp") Long lastDirtyTimestamp,
+                     @JsonProperty("status") String status,
+                     @JsonProperty("overriddenStatus") String overriddenStatus) {
+        this.appName = appName;
+        this.id = id;
+        this.lastDirtyTimestamp = lastDirtyTimestamp;
+        this.status = status;
+        this.overriddenStatus = overriddenStatus;
+    }
+
+    public static Heartbeat of(InstanceInfo info, @Nullable InstanceStatus overriddenStatus) {
+        return new Heartbeat(
+                info.getAppName(),
+                info.getId(),
+                info.getLastDirtyTimestamp(),
+                info.getStatus() == null ? null : info.getStatus().name(),
+                overriddenStatus == null ? null : overriddenStatus.name()
+        );
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getLastDirtyTimestamp() {
+        return lastDirtyTimestamp;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getOverriddenStatus() {
+        return overriddenStatus;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        Heartbeat that = (Heartbeat) o;
+
+        if (appName != null ? !appName.equals(that.appName) : that.appName != null)
+            return false;
+        if (id != null ? !id.equals(that.id) : that.id != null)
+            return false;
+        if (lastDirtyTimestamp != null ? !lastDirtyTimestamp.equals(that.lastDirtyTimestamp) : that.lastDirtyTimestamp != null)
+            return false;
+        if (status != null ? !status.equals(that.status) : that.status != null)
+            return false;
+        return overriddenStatus != null ? overriddenStatus.equals(that.overriddenStatus) : that.overriddenStatus == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = appName != null ? appName.hashCode() : 0;
+        result = 31 * result + (id != null ? id.hashCode() : 0);
+        result = 31 * result + (lastDirtyTimestamp != null ? lastDirtyTimestamp.hashCode() : 0);
+        result = 31 * result + (status != null ? status.hashCode() : 0);
+        result = 31 * result + (overriddenStatus != null ? overriddenStatus.hashCode() : 0);
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.discovery.shared.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.netflix.discovery.provider.Serializer;
+
+/**
+ * A batch of lease renewals sent in a single request, see {@link EurekaHttpClient#sendHeartBeats(HeartbeatList)}.
+ */
+@Serializer("jackson") // For backwards compatibility with DiscoveryJerseyProvider
+public class HeartbeatList {
+    private final List<Heartbeat> heartbeats;
+
+    public HeartbeatList() {
+        this.heartbeats = new ArrayList<>();
+    }
+
+    @JsonCreator
+    public HeartbeatList(@JsonProperty("heartbeats") List<Heartbeat> heartbeats) {
+        this.heartbeats = heartbeats;
+    }
+
+    public void addHeartbeat(Heartbeat heartbeat) {
+        heartbeats.add(heartbeat);
+    }
+
+    public List<Heartbeat> getHeartbeats() {
+        return heartbeats;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        HeartbeatList that = (HeartbeatList) o;
+
+        return heartbeats != null ? heartbeats.equals(that.heartbeats) : that.heartbeats == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return heartbeats != null ? heartbeats.hashCode() : 0;
+    }
+}
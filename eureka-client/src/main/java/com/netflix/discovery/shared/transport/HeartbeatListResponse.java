@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.discovery.shared.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.netflix.discovery.provider.Serializer;
+
+/**
+ * The results of a {@link HeartbeatList}, in the order of its heartbeats.
+ */
+@Serializer("jackson") // For backwards compatibility with DiscoveryJerseyProvider
+public class HeartbeatListResponse {
+    private final List<HeartbeatResponse> responseList;
+
+    public HeartbeatListResponse() {
+        this.responseList = new ArrayList<>();
+    }
+
+    @JsonCreator
+    public HeartbeatListResponse(@JsonProperty("responseList") List<HeartbeatResponse> responseList) {
+        this.responseList = responseList;
+    }
+
+    public void addResponse(HeartbeatResponse response) {
+        responseList.add(response);
+    }
+
+    public List<HeartbeatResponse> getResponseList() {
+        return responseList;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        HeartbeatListResponse that = (HeartbeatListResponse) o;
+
+        return responseList != null ? responseList.equals(that.responseList) : that.responseList == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return responseList != null ? responseList.hashCode() : 0;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.discovery.shared.transport;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.netflix.appinfo.InstanceInfo;
+
+/**
+ * The result of a single {@link Heartbeat} of a batch, with the status code and entity that a single heartbeat
+ * request would have returned.
+ */
+public class HeartbeatResponse {
+    private final int statusCode;
+    private final InstanceInfo responseEntity;
+
+    @JsonCreator
+    public HeartbeatResponse(@JsonProperty("statusCode") int statusCode,
+                             @JsonProperty("responseEntity") InstanceInfo responseEntity) {
+        this.statusCode = statusCode;
+        this.responseEntity = responseEntity;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public InstanceInfo getResponseEntity() {
+        return responseEntity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        HeartbeatResponse that = (HeartbeatResponse) o;
+
+        if (statusCode != that.statusCode)
+            return false;
+        return responseEntity != null ? responseEntity.equals(that.responseEntity) : that.responseEntity == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = statusCode;
+        result = 31 * result + (responseEntity != null ? responseEntity.hashCode() : 0);
+        return result;
+    }
+}
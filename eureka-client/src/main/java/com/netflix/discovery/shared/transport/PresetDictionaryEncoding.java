@@ -0,0 +1,249 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.discovery.shared.transport;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * A content encoding for the small, repetitive payloads exchanged most often, such as registry deltas and
+ * replication batches. It is zlib deflate with a preset dictionary of the field names and common values of
+ * the JSON and XML encodings of {@link com.netflix.appinfo.InstanceInfo}, so that even the first instance of a
+ * payload is compressed against them, where gzip starts from an empty window.
+ *
+ * <p>
+ * The encoding is negotiated like any other through the Accept-Encoding and Content-Encoding headers. The
+ * dictionary is part of the encoding name, and must never be changed; a new dictionary needs a new name. The
+ * zlib header carries the checksum of the dictionary, so a mismatch is detected instead of producing garbage.
+ * </p>
+ */
+public final class PresetDictionaryEncoding {
+
+    /**
+     * The content coding name, for the Accept-Encoding and Content-Encoding headers.
+     */
+    public static final String ENCODING = "x-eureka-deflate-v1";
+
+    /*
+     * Deflate finds matches closest to the end of the dictionary most cheaply, so the strings that show up in
+     * nearly every payload, the JSON instance fields, come last.
+     */
+    private static final byte[] DICTIONARY = (
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><applications><versions__delta>"
+                    + "</versions__delta><apps__hashcode></apps__hashcode><application><name></name><instance>"
+                    + "<instanceId></instanceId><hostName></hostName><app></app><ipAddr></ipAddr><status>UP</status>"
+                    + "<overriddenstatus>UNKNOWN</overriddenstatus><port enabled=\"true\">8080</port>"
+                    + "<securePort enabled=\"false\">443</securePort><countryId>1</countryId>"
+                    + "<dataCenterInfo class=\"com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo\"><name>MyOwn"
+                    + "</name></dataCenterInfo><leaseInfo><renewalIntervalInSecs>30</renewalIntervalInSecs>"
+                    + "<durationInSecs>90</durationInSecs><registrationTimestamp></registrationTimestamp>"
+                    + "<lastRenewalTimestamp></lastRenewalTimestamp><evictionTimestamp>0</evictionTimestamp>"
+                    + "<serviceUpTimestamp></serviceUpTimestamp></leaseInfo>"
+                    + "<metadata class=\"java.util.Collections$EmptyMap\"/><homePageUrl></homePageUrl>"
+                    + "<statusPageUrl></statusPageUrl><healthCheckUrl></healthCheckUrl><vipAddress></vipAddress>"
+                    + "<secureVipAddress></secureVipAddress>"
+                    + "<isCoordinatingDiscoveryServer>false</isCoordinatingDiscoveryServer>"
+                    + "<lastUpdatedTimestamp></lastUpdatedTimestamp><lastDirtyTimestamp></lastDirtyTimestamp>"
+                    + "<actionType>ADDED</actionType></instance></application></applications>"
+                    + "\"DOWN\",\"STARTING\",\"OUT_OF_SERVICE\",\"DELETED\",\"ADDED\",\"Register\",\"Cancel\","
+                    + "\"StatusUpdate\",\"DeleteStatusOverride\","
+                    + "\"dataCenterInfo\":{\"@class\":\"com.netflix.appinfo.AmazonInfo\",\"name\":\"Amazon\","
+                    + "\"metadata\":{\"public-ipv4\":\"\",\"accountId\":\"\",\"local-hostname\":\"ip-\","
+                    + "\"public-hostname\":\"ec2-\",\"instance-id\":\"i-\",\"local-ipv4\":\"10.\","
+                    + "\"instance-type\":\"\",\"ami-id\":\"ami-\",\"availability-zone\":\"us-east-1\"}},"
+                    + "{\"heartbeats\":[{\"appName\":\"\",\"id\":\"\",\"lastDirtyTimestamp\":,\"status\":\"UP\","
+                    + "\"overriddenStatus\":\"UNKNOWN\"}]}"
+                    + "{\"responseList\":[{\"statusCode\":200,\"responseEntity\":null}]}"
+                    + "{\"replicationList\":[{\"appName\":\"\",\"id\":\"\",\"lastDirtyTimestamp\":,"
+                    + "\"overriddenStatus\":\"UNKNOWN\",\"status\":\"UP\",\"instanceInfo\":null,"
+                    + "\"action\":\"Heartbeat\"}]}"
+                    + "/actuator/info\",\"/actuator/health\",\"MODIFIED\""
+                    + "{\"applications\":{\"versions__delta\":\"\",\"apps__hashcode\":\"UP_\",\"application\":[{"
+                    + "\"name\":\"\",\"instance\":[{\"instanceId\":\"\",\"hostName\":\"\",\"app\":\"\","
+                    + "\"ipAddr\":\"\",\"status\":\"UP\",\"overriddenStatus\":\"UNKNOWN\","
+                    + "\"port\":{\"$\":8080,\"@enabled\":\"true\"},\"securePort\":{\"$\":443,\"@enabled\":\"false\"},"
+                    + "\"countryId\":1,\"dataCenterInfo\":{"
+                    + "\"@class\":\"com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo\",\"name\":\"MyOwn\"},"
+                    + "\"leaseInfo\":{\"renewalIntervalInSecs\":30,\"durationInSecs\":90,\"registrationTimestamp\":,"
+                    + "\"lastRenewalTimestamp\":,\"evictionTimestamp\":0,\"serviceUpTimestamp\":},"
+                    + "\"metadata\":{\"@class\":\"java.util.Collections$EmptyMap\"},\"appGroupName\":\"\","
+                    + "\"homePageUrl\":\"http://\",\"statusPageUrl\":\"http://\",\"healthCheckUrl\":\"http://\","
+                    + "\"secureHealthCheckUrl\":\"https://\",\"vipAddress\":\"\",\"secureVipAddress\":\"\","
+                    + "\"isCoordinatingDiscoveryServer\":\"false\",\"lastUpdatedTimestamp\":\"\","
+                    + "\"lastDirtyTimestamp\":\"\",\"actionType\":\"MODIFIED\",\"asgName\":\"\"}]}]}}"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    private static final long DICTIONARY_ID = dictionaryId();
+
+    private PresetDictionaryEncoding() {
+    }
+
+    /**
+     * @return true if the given Accept-Encoding header value lists this encoding.
+     */
+    public static boolean isAccepted(@Nullable String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String name = coding.trim();
+            int parameters = name.indexOf(';');
+            if (parameters >= 0) {
+                // A zero quality value means the coding is not acceptable
+                if (name.substring(parameters).replace(" ", "").matches(";q=0(\\.0*)?")) {
+                    continue;
+                }
+                name = name.substring(0, parameters).trim();
+            }
+            if (ENCODING.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compresses a complete payload.
+     */
+    public static byte[] compress(byte[] payload) {
+        Deflater deflater = newDeflater();
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, payload.length / 4));
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompresses a complete payload.
+     */
+    public static byte[] decompress(byte[] compressed) throws IOException {
+        try (InputStream in = newDecompressingStream(new ByteArrayInputStream(compressed))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * @return a stream compressing everything written to it into the given stream. Nothing can be written once
+     * the returned stream is {@link DeflaterOutputStream#finish() finished}, which leaves the given stream open,
+     * or closed, which closes it.
+     */
+    public static DeflaterOutputStream newCompressingStream(OutputStream out) {
+        final Deflater deflater = newDeflater();
+        return new DeflaterOutputStream(out, deflater) {
+            @Override
+            public void finish() throws IOException {
+                try {
+                    super.finish();
+                } finally {
+                    deflater.end();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * @return a stream decompressing the given stream.
+     */
+    public static InputStream newDecompressingStream(InputStream in) {
+        return new DictionaryInflaterInputStream(in);
+    }
+
+    private static Deflater newDeflater() {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        deflater.setDictionary(DICTIONARY);
+        return deflater;
+    }
+
+    private static long dictionaryId() {
+        Adler32 adler = new Adler32();
+        adler.update(DICTIONARY);
+        return adler.getValue();
+    }
+
+    /**
+     * {@link InflaterInputStream} ends the stream when the inflater asks for a dictionary; this one provides it
+     * and carries on.
+     */
+    private static final class DictionaryInflaterInputStream extends InflaterInputStream {
+
+        private boolean closed;
+
+        DictionaryInflaterInputStream(InputStream in) {
+            super(in, new Inflater());
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count == -1 && inf.needsDictionary()) {
+                if (inf.getAdler() != DICTIONARY_ID) {
+                    throw new ZipException("Unknown preset dictionary for " + ENCODING + " content");
+                }
+                inf.setDictionary(DICTIONARY);
+                count = super.read(b, off, len);
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    inf.end();
+                }
+            }
+        }
+    }
+}
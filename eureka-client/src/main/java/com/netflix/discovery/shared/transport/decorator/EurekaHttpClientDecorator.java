@@ -22,6 +22,8 @@ import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
+import com.netflix.discovery.shared.transport.HeartbeatList;
+import com.netflix.discovery.shared.transport.HeartbeatListResponse;
 
 /**
  * 装饰者，抽象类，使用装饰器模式为目标eurekaHttpClient包装上新的功能
@@ -39,6 +41,7 @@ public abstract class EurekaHttpClientDecorator implements EurekaHttpClient {
         Register,
         Cancel,
         SendHeartBeat,
+        SendHeartBeats,
         StatusUpdate,
         DeleteStatusOverride,
         GetApplications,
@@ -106,6 +109,21 @@ public abstract class EurekaHttpClientDecorator implements EurekaHttpClient {
         });
     }
 
+    @Override
+    public EurekaHttpResponse<HeartbeatListResponse> sendHeartBeats(final HeartbeatList heartbeats) {
+        return execute(new RequestExecutor<HeartbeatListResponse>() {
+            @Override
+            public EurekaHttpResponse<HeartbeatListResponse> execute(EurekaHttpClient delegate) {
+                return delegate.sendHeartBeats(heartbeats);
+            }
+
+            @Override
+            public RequestType getRequestType() {
+                return RequestType.SendHeartBeats;
+            }
+        });
+    }
+
     @Override
     public EurekaHttpResponse<Void> statusUpdate(final String appName, final String id, final InstanceStatus newStatus, final InstanceInfo info) {
         return execute(new RequestExecutor<Void>() {
@@ -166,6 +184,21 @@ public abstract class EurekaHttpClientDecorator implements EurekaHttpClient {
         });
     }
 
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaSince(final long version) {
+        return execute(new RequestExecutor<Applications>() {
+            @Override
+            public EurekaHttpResponse<Applications> execute(EurekaHttpClient delegate) {
+                return delegate.getDeltaSince(version);
+            }
+
+            @Override
+            public RequestType getRequestType() {
+                return RequestType.GetDelta;
+            }
+        });
+    }
+
     @Override
     public EurekaHttpResponse<Applications> getVip(final String vipAddress, final String... regions) {
         return execute(new RequestExecutor<Applications>() {
@@ -7,6 +7,8 @@ import com.netflix.discovery.shared.Applications;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse.EurekaHttpResponseBuilder;
+import com.netflix.discovery.shared.transport.HeartbeatList;
+import com.netflix.discovery.shared.transport.HeartbeatListResponse;
 import com.netflix.discovery.util.StringUtil;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
@@ -15,6 +17,7 @@ import com.sun.jersey.api.client.WebResource.Builder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response.Status;
@@ -23,6 +26,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.netflix.discovery.shared.transport.EurekaHttpResponse.anEurekaHttpResponse;
 
@@ -41,6 +46,11 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
     protected final Client jerseyClient;
     protected final String serviceUrl;
 
+    /**
+     * 每组regions最近一次拿到的增量的ETag，下次拉取增量时作为If-None-Match发送，增量没变时server返回304
+     */
+    private final ConcurrentMap<String, String> deltaEntityTags = new ConcurrentHashMap<>();
+
     protected AbstractJerseyEurekaHttpClient(Client jerseyClient, String serviceUrl) {
         this.jerseyClient = jerseyClient;
         this.serviceUrl = serviceUrl;
@@ -137,6 +147,34 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
         }
     }
 
+    @Override
+    public EurekaHttpResponse<HeartbeatListResponse> sendHeartBeats(HeartbeatList heartbeats) {
+        String urlPath = "heartbeats/batch";
+        ClientResponse response = null;
+        try {
+            Builder requestBuilder = jerseyClient.resource(serviceUrl).path(urlPath).getRequestBuilder();
+            addExtraHeaders(requestBuilder);
+            response = requestBuilder
+                    .type(MediaType.APPLICATION_JSON_TYPE)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .post(ClientResponse.class, heartbeats);
+            EurekaHttpResponseBuilder<HeartbeatListResponse> eurekaResponseBuilder =
+                    anEurekaHttpResponse(response.getStatus(), HeartbeatListResponse.class).headers(headersOf(response));
+            if (response.getStatus() == Status.OK.getStatusCode() && response.hasEntity()) {
+                eurekaResponseBuilder.entity(response.getEntity(HeartbeatListResponse.class));
+            }
+            return eurekaResponseBuilder.build();
+        } finally {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Jersey HTTP POST {}/{} with {} heartbeats; statusCode={}", serviceUrl, urlPath,
+                        heartbeats.getHeartbeats().size(), response == null ? "N/A" : response.getStatus());
+            }
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
     @Override
     public EurekaHttpResponse<Void> statusUpdate(String appName, String id, InstanceStatus newStatus, InstanceInfo info) {
         String urlPath = "apps/" + appName + '/' + id + "/status";
@@ -184,25 +222,34 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
 
     @Override
     public EurekaHttpResponse<Applications> getApplications(String... regions) {
-        return getApplicationsInternal("apps/", regions);
+        return getApplicationsInternal("apps/", regions, null, false);
     }
 
     @Override
     public EurekaHttpResponse<Applications> getDelta(String... regions) {
-        return getApplicationsInternal("apps/delta", regions);
+        return getApplicationsInternal("apps/delta", regions, null, true);
+    }
+
+    /**
+     * 只获取指定版本之后的增量，不带If-None-Match，因为每次的since版本都不同
+     */
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaSince(long version) {
+        return getApplicationsInternal("apps/delta", null, Long.toString(version), false);
     }
 
     @Override
     public EurekaHttpResponse<Applications> getVip(String vipAddress, String... regions) {
-        return getApplicationsInternal("vips/" + vipAddress, regions);
+        return getApplicationsInternal("vips/" + vipAddress, regions, null, false);
     }
 
     @Override
     public EurekaHttpResponse<Applications> getSecureVip(String secureVipAddress, String... regions) {
-        return getApplicationsInternal("svips/" + secureVipAddress, regions);
+        return getApplicationsInternal("svips/" + secureVipAddress, regions, null, false);
     }
 
-    private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String[] regions) {
+    private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String[] regions, String since,
+                                                                     boolean conditional) {
         ClientResponse response = null;
         String regionsParamValue = null;
         try {
@@ -211,8 +258,16 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
                 regionsParamValue = StringUtil.join(regions);
                 webResource = webResource.queryParam("regions", regionsParamValue);
             }
+            if (since != null) {
+                webResource = webResource.queryParam("since", since);
+            }
             Builder requestBuilder = webResource.getRequestBuilder();
             addExtraHeaders(requestBuilder);
+            String entityTagKey = regionsParamValue == null ? "" : regionsParamValue;
+            String entityTag = conditional ? deltaEntityTags.get(entityTagKey) : null;
+            if (entityTag != null) {
+                requestBuilder.header(HttpHeaders.IF_NONE_MATCH, entityTag);
+            }
             response = requestBuilder.accept(MediaType.APPLICATION_JSON_TYPE).get(ClientResponse.class);
 
             Applications applications = null;
@@ -220,6 +275,9 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
             if (response.getStatus() == Status.OK.getStatusCode() && response.hasEntity()) {
                 applications = response.getEntity(Applications.class);
             }
+            if (conditional) {
+                updateEntityTag(entityTagKey, response.getStatus(), response.getHeaders().getFirst(HttpHeaders.ETAG));
+            }
             return anEurekaHttpResponse(response.getStatus(), Applications.class)
                     .headers(headersOf(response))
                     .entity(applications)
@@ -238,6 +296,20 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
         }
     }
 
+    /**
+     * 200时记住新的ETag，304时保留原来的，其它响应都丢弃
+     */
+    private void updateEntityTag(String entityTagKey, int statusCode, String entityTag) {
+        if (statusCode == Status.NOT_MODIFIED.getStatusCode()) {
+            return;
+        }
+        if (statusCode == Status.OK.getStatusCode() && entityTag != null) {
+            deltaEntityTags.put(entityTagKey, entityTag);
+        } else {
+            deltaEntityTags.remove(entityTagKey);
+        }
+    }
+
     @Override
     public EurekaHttpResponse<Application> getApplication(String appName) {
         String urlPath = "apps/" + appName;
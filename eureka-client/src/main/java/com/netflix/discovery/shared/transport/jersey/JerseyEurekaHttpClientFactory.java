@@ -309,6 +309,9 @@ public class JerseyEurekaHttpClientFactory implements TransportClientFactory {
         private void addFilters(ApacheHttpClient4 discoveryApacheClient) {
             // Add gzip content encoding support
             discoveryApacheClient.addFilter(new GZIPContentEncodingFilter(false));
+            if (presetDictionaryEncoding) {
+                discoveryApacheClient.addFilter(new PresetDictionaryContentEncodingFilter());
+            }
 
             // always enable client identity headers
             String ip = myInstanceInfo == null ? null : myInstanceInfo.getIPAddr();
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.discovery.shared.transport.jersey;
+
+import javax.ws.rs.core.HttpHeaders;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import com.netflix.discovery.shared.transport.PresetDictionaryEncoding;
+import com.sun.jersey.api.client.AbstractClientRequestAdapter;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientRequestAdapter;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Client filter for the {@link PresetDictionaryEncoding} content encoding. It adds the encoding to the
+ * Accept-Encoding header, next to gzip, and decodes responses using it. If requested, it also encodes request
+ * entities that have no content encoding yet, which only servers that understand the encoding can read.
+ */
+public class PresetDictionaryContentEncodingFilter extends ClientFilter {
+
+    private static final String GZIP_ENCODING = "gzip";
+
+    private final BooleanSupplier compressRequests;
+
+    public PresetDictionaryContentEncodingFilter() {
+        this(() -> false);
+    }
+
+    public PresetDictionaryContentEncodingFilter(BooleanSupplier compressRequests) {
+        this.compressRequests = compressRequests;
+    }
+
+    @Override
+    public ClientResponse handle(ClientRequest request) {
+        List<Object> acceptEncoding = request.getHeaders().get(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            // Keep gzip, which the other filters assume when no encoding is listed, as the fallback
+            request.getHeaders().add(HttpHeaders.ACCEPT_ENCODING, PresetDictionaryEncoding.ENCODING);
+            request.getHeaders().add(HttpHeaders.ACCEPT_ENCODING, GZIP_ENCODING);
+        } else if (!acceptEncoding.contains(PresetDictionaryEncoding.ENCODING)) {
+            acceptEncoding.add(0, PresetDictionaryEncoding.ENCODING);
+        }
+
+        if (request.getEntity() != null) {
+            Object requestEncoding = request.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+            if (PresetDictionaryEncoding.ENCODING.equals(requestEncoding)) {
+                request.setAdapter(new Adapter(request.getAdapter()));
+            } else if (requestEncoding == null && compressRequests.getAsBoolean()) {
+                request.getHeaders().add(HttpHeaders.CONTENT_ENCODING, PresetDictionaryEncoding.ENCODING);
+                request.setAdapter(new Adapter(request.getAdapter()));
+            }
+        }
+
+        ClientResponse response = getNext().handle(request);
+
+        String responseEncoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (response.hasEntity() && PresetDictionaryEncoding.ENCODING.equalsIgnoreCase(responseEncoding)) {
+            response.getHeaders().remove(HttpHeaders.CONTENT_ENCODING);
+            response.setEntityInputStream(PresetDictionaryEncoding.newDecompressingStream(response.getEntityInputStream()));
+        }
+        return response;
+    }
+
+    private static final class Adapter extends AbstractClientRequestAdapter {
+        Adapter(ClientRequestAdapter cra) {
+            super(cra);
+        }
+
+        @Override
+        public OutputStream adapt(ClientRequest request, OutputStream out) throws IOException {
+            return PresetDictionaryEncoding.newCompressingStream(getAdapter().adapt(request, out));
+        }
+    }
+}
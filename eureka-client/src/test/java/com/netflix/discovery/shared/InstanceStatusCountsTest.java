@@ -0,0 +1,60 @@
+package com.netflix.discovery.shared;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class InstanceStatusCountsTest {
+
+    @Test
+    public void testHashCodeMatchesApplicationsHashCode() throws Exception {
+        Applications applications = InstanceInfoGenerator.newBuilder(20, 4).build().toApplications();
+        InstanceStatus[] statuses = InstanceStatus.values();
+        int i = 0;
+        for (Application app : applications.getRegisteredApplications()) {
+            for (InstanceInfo instance : app.getInstances()) {
+                instance.setStatusWithoutDirty(statuses[i++ % statuses.length]);
+            }
+        }
+
+        InstanceStatusCounts counts = InstanceStatusCounts.of(applications);
+
+        assertThat(counts.getReconcileHashCode(), is(equalTo(applications.getReconcileHashCode())));
+    }
+
+    @Test
+    public void testZeroCountsAreOmitted() throws Exception {
+        InstanceStatusCounts counts = new InstanceStatusCounts();
+        assertThat(counts.getReconcileHashCode(), is(equalTo("")));
+
+        counts.increment(InstanceStatus.UP);
+        counts.increment(InstanceStatus.UP);
+        counts.increment(InstanceStatus.DOWN);
+        assertThat(counts.getReconcileHashCode(), is(equalTo("DOWN_1_UP_2_")));
+
+        counts.decrement(InstanceStatus.DOWN);
+        assertThat(counts.getReconcileHashCode(), is(equalTo("UP_2_")));
+    }
+
+    @Test
+    public void testAddAndSubtract() throws Exception {
+        InstanceStatusCounts counts = new InstanceStatusCounts();
+        counts.increment(InstanceStatus.UP);
+
+        InstanceStatusCounts other = new InstanceStatusCounts();
+        other.increment(InstanceStatus.UP);
+        other.increment(InstanceStatus.STARTING);
+
+        InstanceStatusCounts sum = counts.copy();
+        sum.add(other);
+        assertThat(sum.getReconcileHashCode(), is(equalTo("STARTING_1_UP_2_")));
+
+        sum.subtract(other);
+        assertThat(sum.getReconcileHashCode(), is(equalTo(counts.getReconcileHashCode())));
+    }
+}
@@ -0,0 +1,76 @@
+package com.netflix.discovery.shared.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class PresetDictionaryEncodingTest {
+
+    @Test
+    public void testSmallDeltaCompressesBetterThanGzip() throws Exception {
+        InstanceInfoGenerator generator = InstanceInfoGenerator.newBuilder(2, 1).build();
+        Applications delta = generator.takeDelta(1);
+        byte[] payload = CodecWrappers.getCodec(CodecWrappers.LegacyJacksonJson.class).encode(delta).getBytes();
+
+        byte[] deflated = PresetDictionaryEncoding.compress(payload);
+
+        assertArrayEquals(payload, PresetDictionaryEncoding.decompress(deflated));
+        assertThat(deflated.length < gzip(payload).length, is(true));
+    }
+
+    @Test
+    public void testStreamsRoundTrip() throws Exception {
+        byte[] payload = CodecWrappers.getCodec(CodecWrappers.LegacyJacksonJson.class)
+                .encode(InstanceInfoGenerator.newBuilder(20, 4).build().toApplications()).getBytes();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream compressing = PresetDictionaryEncoding.newCompressingStream(out)) {
+            compressing.write(payload);
+        }
+
+        assertArrayEquals(payload, PresetDictionaryEncoding.decompress(out.toByteArray()));
+    }
+
+    @Test(expected = ZipException.class)
+    public void testOtherDictionaryIsRejected() throws Exception {
+        Deflater deflater = new Deflater();
+        deflater.setDictionary("some other dictionary".getBytes());
+        deflater.setInput("{\"applications\":{}}".getBytes());
+        deflater.finish();
+        byte[] buffer = new byte[256];
+        int count = deflater.deflate(buffer);
+        deflater.end();
+
+        byte[] deflated = new byte[count];
+        System.arraycopy(buffer, 0, deflated, 0, count);
+        PresetDictionaryEncoding.decompress(deflated);
+    }
+
+    @Test
+    public void testAcceptEncodingParsing() throws Exception {
+        assertThat(PresetDictionaryEncoding.isAccepted(null), is(false));
+        assertThat(PresetDictionaryEncoding.isAccepted("gzip"), is(false));
+        assertThat(PresetDictionaryEncoding.isAccepted(PresetDictionaryEncoding.ENCODING), is(true));
+        assertThat(PresetDictionaryEncoding.isAccepted("gzip, " + PresetDictionaryEncoding.ENCODING + ";q=0.5"), is(true));
+        assertThat(PresetDictionaryEncoding.isAccepted(PresetDictionaryEncoding.ENCODING + ";q=0, gzip"), is(false));
+    }
+
+    private static byte[] gzip(byte[] payload) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(payload);
+        }
+        return out.toByteArray();
+    }
+}
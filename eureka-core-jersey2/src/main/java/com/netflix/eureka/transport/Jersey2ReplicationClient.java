@@ -2,11 +2,14 @@ package com.netflix.eureka.transport;
 
 import static com.netflix.discovery.shared.transport.EurekaHttpResponse.anEurekaHttpResponse;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
 
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
@@ -25,10 +28,12 @@ import com.netflix.discovery.shared.transport.jersey2.AbstractJersey2EurekaHttpC
 import com.netflix.discovery.shared.transport.jersey2.EurekaIdentityHeaderFilter;
 import com.netflix.discovery.shared.transport.jersey2.EurekaJersey2Client;
 import com.netflix.discovery.shared.transport.jersey2.EurekaJersey2ClientImpl;
+import com.netflix.discovery.shared.transport.jersey2.Jersey2PresetDictionaryEncoder;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerIdentity;
 import com.netflix.eureka.cluster.HttpReplicationClient;
 import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.ReplicationBinaryCodec;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
@@ -43,9 +48,17 @@ public class Jersey2ReplicationClient extends AbstractJersey2EurekaHttpClient im
 
     private final EurekaJersey2Client eurekaJersey2Client;
 
+    // Cleared once the peer turns the binary encoding down, so that it is not asked again
+    private volatile boolean useBinaryCodec;
+
     public Jersey2ReplicationClient(EurekaJersey2Client eurekaJersey2Client, String serviceUrl) {
+        this(eurekaJersey2Client, serviceUrl, false);
+    }
+
+    public Jersey2ReplicationClient(EurekaJersey2Client eurekaJersey2Client, String serviceUrl, boolean useBinaryCodec) {
         super(eurekaJersey2Client.getClient(), serviceUrl);
         this.eurekaJersey2Client = eurekaJersey2Client;
+        this.useBinaryCodec = useBinaryCodec;
     }
 
     @Override
@@ -106,8 +119,20 @@ public class Jersey2ReplicationClient extends AbstractJersey2EurekaHttpClient im
         }
     }
 
+    /**
+     * Submits the batch in the {@link ReplicationBinaryCodec binary encoding} if it is enabled, and in JSON
+     * otherwise, or if the peer answers that it does not support the binary encoding.
+     */
     @Override
     public EurekaHttpResponse<ReplicationListResponse> submitBatchUpdates(ReplicationList replicationList) {
+        if (useBinaryCodec) {
+            EurekaHttpResponse<ReplicationListResponse> response = submitBinaryBatchUpdates(replicationList);
+            if (response.getStatusCode() != Status.UNSUPPORTED_MEDIA_TYPE.getStatusCode()) {
+                return response;
+            }
+            logger.info("Peer {} does not support the binary replication encoding; replicating in JSON", serviceUrl);
+            useBinaryCodec = false;
+        }
         Response response = null;
         try {
             response = jerseyClient.target(serviceUrl)
@@ -126,6 +151,30 @@ public class Jersey2ReplicationClient extends AbstractJersey2EurekaHttpClient im
         }
     }
 
+    private EurekaHttpResponse<ReplicationListResponse> submitBinaryBatchUpdates(ReplicationList replicationList) {
+        ReplicationBinaryCodec codec = ReplicationBinaryCodec.getInstance();
+        Response response = null;
+        try {
+            response = jerseyClient.target(serviceUrl)
+                    .path(PeerEurekaNode.BATCH_URL_PATH)
+                    .request(ReplicationBinaryCodec.MEDIA_TYPE_NAME, "application/json;q=0.5")
+                    .post(Entity.entity(codec.toBytes(replicationList), ReplicationBinaryCodec.MEDIA_TYPE));
+            if (!isSuccess(response.getStatus())) {
+                return anEurekaHttpResponse(response.getStatus(), ReplicationListResponse.class).build();
+            }
+            ReplicationListResponse batchResponse = ReplicationBinaryCodec.isMediaType(response.getMediaType())
+                    ? codec.decode(response.readEntity(InputStream.class), ReplicationListResponse.class)
+                    : response.readEntity(ReplicationListResponse.class);
+            return anEurekaHttpResponse(response.getStatus(), batchResponse).type(response.getMediaType()).build();
+        } catch (IOException e) {
+            throw new ProcessingException(e);
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
     @Override
     public void shutdown() {
         super.shutdown();
@@ -174,11 +223,13 @@ public class Jersey2ReplicationClient extends AbstractJersey2EurekaHttpClient im
 
         Client jerseyApacheClient = jerseyClient.getClient();
         jerseyApacheClient.register(new Jersey2DynamicGZIPContentEncodingFilter(config));
+        jerseyApacheClient.register(new Jersey2PresetDictionaryEncoder(
+                config::shouldEnableReplicatedRequestPresetDictionaryCompression));
 
         EurekaServerIdentity identity = new EurekaServerIdentity(ip);
         jerseyApacheClient.register(new EurekaIdentityHeaderFilter(identity));
 
-        return new Jersey2ReplicationClient(jerseyClient, serviceUrl);
+        return new Jersey2ReplicationClient(jerseyClient, serviceUrl, config.shouldUseBinaryReplicationCodec());
     }
 
     private static boolean isSuccess(int statusCode) {
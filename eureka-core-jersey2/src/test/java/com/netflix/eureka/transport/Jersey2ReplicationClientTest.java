@@ -14,6 +14,10 @@ import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.eureka.DefaultEurekaServerConfig;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.ReplicationBinaryCodec;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
 import com.netflix.eureka.resources.DefaultServerCodecs;
 import com.netflix.eureka.resources.ServerCodecs;
@@ -23,12 +27,15 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.mockserver.client.server.MockServerClient;
 import org.mockserver.junit.MockServerRule;
+import org.mockserver.verify.VerificationTimes;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
 import static org.mockserver.model.Header.header;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
@@ -136,6 +143,79 @@ public class Jersey2ReplicationClientTest {
         assertThat(response.getEntity(), is(notNullValue()));
     }
 
+    @Test
+    public void testBatchReplicationInBinaryEncoding() throws Exception {
+        ReplicationList replicationList = new ReplicationList(
+                ClusterSampleData.newReplicationInstanceOf(Action.Heartbeat, instanceInfo));
+        ReplicationListResponse batchResponse = new ReplicationListResponse();
+        batchResponse.addResponse(ClusterSampleData.newReplicationInstanceResponse(true));
+
+        serverMockClient.when(
+                request()
+                        .withMethod("POST")
+                        .withHeader(header("Content-Type", ReplicationBinaryCodec.MEDIA_TYPE_NAME))
+                        .withPath("/eureka/v2/" + PeerEurekaNode.BATCH_URL_PATH)
+        ).respond(
+                response()
+                        .withStatusCode(200)
+                        .withHeader(header("Content-Type", ReplicationBinaryCodec.MEDIA_TYPE_NAME))
+                        .withBody(ReplicationBinaryCodec.getInstance().toBytes(batchResponse))
+        );
+
+        Jersey2ReplicationClient binaryClient = createBinaryReplicationClient();
+        try {
+            EurekaHttpResponse<ReplicationListResponse> response = binaryClient.submitBatchUpdates(replicationList);
+            assertThat(response.getStatusCode(), is(equalTo(200)));
+            assertThat(response.getEntity(), is(equalTo(batchResponse)));
+        } finally {
+            binaryClient.shutdown();
+        }
+    }
+
+    @Test
+    public void testBatchReplicationFallsBackToJsonWhenBinaryEncodingIsNotSupported() throws Exception {
+        ReplicationList replicationList = new ReplicationList(
+                ClusterSampleData.newReplicationInstanceOf(Action.Heartbeat, instanceInfo));
+        ReplicationListResponse batchResponse = new ReplicationListResponse();
+        batchResponse.addResponse(ClusterSampleData.newReplicationInstanceResponse(false));
+
+        serverMockClient.when(
+                request()
+                        .withMethod("POST")
+                        .withHeader(header("Content-Type", ReplicationBinaryCodec.MEDIA_TYPE_NAME))
+                        .withPath("/eureka/v2/" + PeerEurekaNode.BATCH_URL_PATH)
+        ).respond(
+                response().withStatusCode(Status.UNSUPPORTED_MEDIA_TYPE.getStatusCode())
+        );
+        serverMockClient.when(
+                request()
+                        .withMethod("POST")
+                        .withHeader(header("Content-Type", MediaType.APPLICATION_JSON))
+                        .withPath("/eureka/v2/" + PeerEurekaNode.BATCH_URL_PATH)
+        ).respond(
+                response()
+                        .withStatusCode(200)
+                        .withHeader(header("Content-Type", MediaType.APPLICATION_JSON))
+                        .withBody(EurekaJacksonCodec.getInstance().writeToString(batchResponse))
+        );
+
+        Jersey2ReplicationClient binaryClient = createBinaryReplicationClient();
+        try {
+            for (int i = 0; i < 2; i++) {
+                EurekaHttpResponse<ReplicationListResponse> response = binaryClient.submitBatchUpdates(replicationList);
+                assertThat(response.getStatusCode(), is(equalTo(200)));
+                assertThat(response.getEntity(), is(equalTo(batchResponse)));
+            }
+            // Once turned down, the binary encoding is not tried again
+            serverMockClient.verify(
+                    request().withHeader(header("Content-Type", ReplicationBinaryCodec.MEDIA_TYPE_NAME)),
+                    VerificationTimes.once()
+            );
+        } finally {
+            binaryClient.shutdown();
+        }
+    }
+
     @Test
     public void testAsgStatusUpdateReplication() throws Exception {
         serverMockClient.when(
@@ -181,6 +261,14 @@ public class Jersey2ReplicationClientTest {
         assertThat(response.getStatusCode(), is(equalTo(204)));
     }
 
+    private Jersey2ReplicationClient createBinaryReplicationClient() {
+        EurekaServerConfig binaryConfig = spy(new DefaultEurekaServerConfig());
+        doReturn(true).when(binaryConfig).shouldUseBinaryReplicationCodec();
+        return Jersey2ReplicationClient.createReplicationClient(
+                binaryConfig, serverCodecs, "http://localhost:" + serverMockRule.getHttpPort() + "/eureka/v2"
+        );
+    }
+
     private static byte[] toGzippedJson(InstanceInfo remoteInfo) throws IOException {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         GZIPOutputStream gos = new GZIPOutputStream(bos);
@@ -87,6 +87,10 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
     private final DynamicIntProperty rateLimiterRegistryFetchAverageRate = configInstance.getIntProperty(namespace + "rateLimiter.registryFetchAverageRate", 500);
     private final DynamicIntProperty rateLimiterFullFetchAverageRate = configInstance.getIntProperty(namespace + "rateLimiter.fullFetchAverageRate", 100);
 
+    private final DynamicStringSetProperty responseCacheWarmUpEntities =
+            new DynamicStringSetProperty(namespace + "responseCacheWarmUpEntities",
+                    new HashSet<String>(Arrays.asList("ALL_APPS", "ALL_APPS_DELTA")));
+
     private final DynamicStringProperty listAutoScalingGroupsRoleName =
             configInstance.getStringProperty(namespace + "listAutoScalingGroupsRoleName", "ListAutoScalingGroups");
 
@@ -247,6 +251,36 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
                 namespace + "enableReplicatedRequestCompression", false).get();
     }
 
+    @Override
+    public boolean shouldEnableReplicatedRequestPresetDictionaryCompression() {
+        return configInstance.getBooleanProperty(
+                namespace + "enableReplicatedRequestPresetDictionaryCompression", false).get();
+    }
+
+    @Override
+    public boolean shouldUseBinaryReplicationCodec() {
+        return configInstance.getBooleanProperty(
+                namespace + "useBinaryReplicationCodec", false).get();
+    }
+
+    @Override
+    public long getHeartbeatReplicationDigestIntervalMs() {
+        return configInstance.getIntProperty(
+                namespace + "heartbeatReplicationDigestIntervalMs", 0).get();
+    }
+
+    @Override
+    public int getPeerReplicationBatchSize() {
+        return configInstance.getIntProperty(
+                namespace + "peerReplicationBatchSize", 250).get();
+    }
+
+    @Override
+    public int getPeerReplicationWindowSize() {
+        return configInstance.getIntProperty(
+                namespace + "peerReplicationWindowSize", 0).get();
+    }
+
     @Override
     public int getNumberOfReplicationRetries() {
         return configInstance.getIntProperty(
@@ -357,6 +391,53 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
                 namespace + "shouldUseReadOnlyResponseCache", true).get();
     }
 
+    @Override
+    public boolean shouldUseApplicationFragmentCache() {
+        return configInstance.getBooleanProperty(
+                namespace + "shouldUseApplicationFragmentCache", false).get();
+    }
+
+    @Override
+    public boolean shouldRegenerateResponseCacheInBackground() {
+        return configInstance.getBooleanProperty(
+                namespace + "shouldRegenerateResponseCacheInBackground", false).get();
+    }
+
+    @Override
+    public int getResponseCacheRegenerationThreads() {
+        return configInstance.getIntProperty(
+                namespace + "responseCacheRegenerationThreads", 2).get();
+    }
+
+    @Override
+    public long getResponseCacheInvalidationCoalescingMs() {
+        return configInstance.getIntProperty(
+                namespace + "responseCacheInvalidationCoalescingMs", 0).get();
+    }
+
+    @Override
+    public boolean shouldWarmUpResponseCache() {
+        return configInstance.getBooleanProperty(
+                namespace + "shouldWarmUpResponseCache", false).get();
+    }
+
+    @Override
+    public Set<String> getResponseCacheWarmUpEntities() {
+        return responseCacheWarmUpEntities.get();
+    }
+
+    @Override
+    public String getResponseCacheKeysFile() {
+        return configInstance.getStringProperty(
+                namespace + "responseCacheKeysFile", "").get();
+    }
+
+    @Override
+    public boolean shouldUseOffHeapResponseCache() {
+        return configInstance.getBooleanProperty(
+                namespace + "shouldUseOffHeapResponseCache", false).get();
+    }
+
     @Override
     public boolean shouldDisableDelta() {
         return configInstance.getBooleanProperty(namespace + "disableDelta",
@@ -407,6 +488,24 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
                 namespace + "registrySyncRetryWaitMs", 30 * 1000).get();
     }
 
+    @Override
+    public String getRegistrySnapshotFile() {
+        return configInstance.getStringProperty(
+                namespace + "registrySnapshotFile", "").get();
+    }
+
+    @Override
+    public long getRegistrySnapshotIntervalMs() {
+        return configInstance.getLongProperty(
+                namespace + "registrySnapshotIntervalMs", 30 * 1000).get();
+    }
+
+    @Override
+    public long getRegistrySnapshotMaxAgeMs() {
+        return configInstance.getLongProperty(
+                namespace + "registrySnapshotMaxAgeMs", 5 * 60 * 1000).get();
+    }
+
     @Override
     public int getMaxElementsInPeerReplicationPool() {
         return configInstance.getIntProperty(
@@ -432,6 +531,18 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
                 namespace + "maxThreadsForPeerReplication", 20).get();
     }
 
+    @Override
+    public int getMaxThreadsForReplicationBatchApplication() {
+        return configInstance.getIntProperty(
+                namespace + "maxThreadsForReplicationBatchApplication", 0).get();
+    }
+
+    @Override
+    public boolean shouldUseLockFreePeerReplicationDispatcher() {
+        return configInstance.getBooleanProperty(
+                namespace + "useLockFreePeerReplicationDispatcher", false).get();
+    }
+
     @Override
     public int getMaxTimeForReplication() {
         return configInstance.getIntProperty(
@@ -164,6 +164,53 @@ public interface EurekaServerConfig {
      */
     boolean shouldEnableReplicatedRequestCompression();
 
+    /**
+     * If set to true, the replicated data sent in the request will be compressed with a preset deflate dictionary
+     * of the instance fields rather than with gzip, which makes small batches several times smaller. All peers
+     * must understand the encoding, so it should only be enabled once they all run a version that does.
+     * Replication responses are compressed this way regardless, whenever the peer lists the encoding in its
+     * "Accept-Encoding" header.
+     */
+    boolean shouldEnableReplicatedRequestPresetDictionaryCompression();
+
+    /**
+     * If set to true, replication batches are sent in the compact binary encoding of
+     * {@link com.netflix.eureka.cluster.protocol.ReplicationBinaryCodec}, and the peers are asked to answer in it.
+     * A peer that does not understand the encoding answers with 415, after which batches are sent to it as JSON.
+     */
+    boolean shouldUseBinaryReplicationCodec();
+
+    /**
+     * Gets the time for which the renewals of instances are collected before they are replicated to the peers
+     * together, as a digest of the instance ids and timestamps sent in a few batches per peer, instead of with a
+     * replication task per renewal and peer. A peer that does not have an instance, or has a different version
+     * of it, gets or sends the full instance as with single heartbeats. 0 replicates each renewal as it happens.
+     *
+     * @return time in milliseconds.
+     */
+    long getHeartbeatReplicationDigestIntervalMs();
+
+    /**
+     * Gets the maximum number of replication events sent to a peer in a single batch request. Larger batches
+     * take fewer round trips to the peer for the same number of events, which matters most for peers with a high
+     * round trip time, at the cost of larger requests and retries.
+     *
+     * @return the maximum number of events per batch.
+     */
+    int getPeerReplicationBatchSize();
+
+    /**
+     * Gets the maximum number of batch requests in flight to a peer at once. A batch is sent as soon as there is
+     * room in this window, without waiting for the previous ones to be acknowledged, and each batch is
+     * acknowledged and retried on its own. With a high round trip time to the peer, a wider window sends more
+     * events per round trip. 0 sends the batches from the replication threads instead, one at a time per thread,
+     * see {@link #getMaxThreadsForPeerReplication()}. Ignored with the lock-free dispatcher, see
+     * {@link #shouldUseLockFreePeerReplicationDispatcher()}.
+     *
+     * @return the maximum number of batches in flight, or 0 to send them from the replication threads.
+     */
+    int getPeerReplicationWindowSize();
+
     /**
      * Get the number of times the replication events should be retried with
      * peers.
@@ -320,6 +367,79 @@ public interface EurekaServerConfig {
      */
     boolean shouldUseReadOnlyResponseCache();
 
+    /**
+     * Indicates whether the payload of all applications is assembled from a cache of the encoded form of each
+     * application, so that only the applications that changed are encoded again when the payload is regenerated.
+     * Disabled by default: the payload is spliced from text cut out of encoded documents, and it is only compared
+     * with a full encoding the first time it is assembled for each key.
+     *
+     * @return true if the application fragment cache is to be used
+     */
+    boolean shouldUseApplicationFragmentCache();
+
+    /**
+     * Indicates whether invalidated {@link com.netflix.eureka.registry.ResponseCache} entries are regenerated in
+     * the background. The previous payload keeps being served until the new one is ready, instead of the next
+     * request generating it while all other requests for the same payload wait.
+     *
+     * @return true if invalidated entries are to be regenerated in the background
+     */
+    boolean shouldRegenerateResponseCacheInBackground();
+
+    /**
+     * Get the number of threads regenerating invalidated response cache entries, see
+     * {@link #shouldRegenerateResponseCacheInBackground()}.
+     *
+     * @return the number of regeneration threads.
+     */
+    int getResponseCacheRegenerationThreads();
+
+    /**
+     * Gets the time for which invalidations of the {@link com.netflix.eureka.registry.ResponseCache} are
+     * collected before they are applied together, so that a burst of registrations or cancellations invalidates
+     * each entry once. The cached payloads lag behind the registry by up to this time; 0 applies each
+     * invalidation as it happens.
+     *
+     * @return time in milliseconds.
+     */
+    long getResponseCacheInvalidationCoalescingMs();
+
+    /**
+     * Indicates whether the {@link com.netflix.eureka.registry.ResponseCache} is warmed up before the server
+     * reports UP, by generating the payloads of {@link #getResponseCacheWarmUpEntities()} and of the keys
+     * requested from the previous run of the server, see {@link #getResponseCacheKeysFile()}. Otherwise the first
+     * wave of client fetches after a restart all miss the cache at once.
+     *
+     * @return true if the response cache is to be warmed up
+     */
+    boolean shouldWarmUpResponseCache();
+
+    /**
+     * Get the names of the application entries of the response cache, such as {@code ALL_APPS},
+     * {@code ALL_APPS_DELTA} or an application name, whose payloads are generated in every format, version and
+     * codec when the cache is warmed up, see {@link #shouldWarmUpResponseCache()}.
+     *
+     * @return the entry names.
+     */
+    Set<String> getResponseCacheWarmUpEntities();
+
+    /**
+     * Get the file to which the server writes the keys of the response cache requested by clients when it shuts
+     * down, and from which it reads the keys to warm the cache up with on the next start, see
+     * {@link #shouldWarmUpResponseCache()}. An empty value disables the file.
+     *
+     * @return the path of the response cache keys file, or an empty string if it is disabled
+     */
+    String getResponseCacheKeysFile();
+
+    /**
+     * Indicates whether the {@link com.netflix.eureka.registry.ResponseCache} holds the encoded and compressed
+     * payloads in direct buffers outside of the heap, and writes them to the responses from there.
+     *
+     * @return true if the payloads are to be held off heap
+     */
+    boolean shouldUseOffHeapResponseCache();
+
     /**
      * Checks to see if the delta information can be served to client or not.
      * <p>
@@ -392,6 +512,30 @@ public interface EurekaServerConfig {
      */
     long getRegistrySyncRetryWaitMs();
 
+    /**
+     * Get the file to which the server periodically writes a snapshot of its local registry, and from which it
+     * restores its registry on startup before syncing with its peers. An empty value disables snapshots.
+     *
+     * @return the path of the registry snapshot file, or an empty string if snapshots are disabled
+     */
+    String getRegistrySnapshotFile();
+
+    /**
+     * Get the interval with which the registry snapshot is written, see {@link #getRegistrySnapshotFile()}.
+     * A final snapshot is also written on shutdown.
+     *
+     * @return the time in milliseconds.
+     */
+    long getRegistrySnapshotIntervalMs();
+
+    /**
+     * Get the maximum age of a registry snapshot that is restored on startup. Older snapshots are ignored, as
+     * most of their instances would have renewed with other servers or gone away in the meantime.
+     *
+     * @return the time in milliseconds.
+     */
+    long getRegistrySnapshotMaxAgeMs();
+
     /**
      * Get the maximum number of replication events that can be allowed to back
      * up in the replication pool. This replication pool is responsible for all
@@ -427,6 +571,24 @@ public interface EurekaServerConfig {
      */
     int getMaxThreadsForPeerReplication();
 
+    /**
+     * Get the number of threads on which the items of a replication batch received from a peer are applied to
+     * the registry. The batch is split by application, and the items of each application are applied in order
+     * on one of the threads. 0 applies the whole batch on the request thread.
+     *
+     * @return number of threads, or 0 to apply replication batches on the request thread.
+     */
+    int getMaxThreadsForReplicationBatchApplication();
+
+    /**
+     * If set to true, the replication tasks of each peer are batched by a dispatcher that hands them to the
+     * replication threads through a lock-free ring buffer, and sends a batch as soon as it is full, instead of
+     * through an acceptor thread that only sends a batch once its oldest task has waited for the batching delay.
+     *
+     * @return true to use the lock-free dispatcher, false otherwise.
+     */
+    boolean shouldUseLockFreePeerReplicationDispatcher();
+
     /**
      * Get the minimum number of available peer replication instances
      * for this instance to be considered healthy. The design of eureka allows
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.eureka;
+
+import javax.ws.rs.core.HttpHeaders;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+
+import com.netflix.discovery.shared.transport.PresetDictionaryEncoding;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+/**
+ * Jersey container filter for the {@link PresetDictionaryEncoding} content encoding. It decodes request entities
+ * using it, such as replication batches, and encodes response entities for clients that accept it.
+ *
+ * <p>
+ * It has to be listed before Jersey's {@code GZIPContentEncodingFilter} in the response filters, so that it gets
+ * to encode the responses that gzip would otherwise. Responses that already have a content encoding, such as
+ * the payloads served precompressed from the response cache, are left as they are.
+ * </p>
+ */
+public class PresetDictionaryContentEncodingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    @Override
+    public ContainerRequest filter(ContainerRequest request) {
+        String contentEncoding = request.getRequestHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (contentEncoding != null && PresetDictionaryEncoding.ENCODING.equalsIgnoreCase(contentEncoding.trim())) {
+            request.getRequestHeaders().remove(HttpHeaders.CONTENT_ENCODING);
+            request.setEntityInputStream(PresetDictionaryEncoding.newDecompressingStream(request.getEntityInputStream()));
+        }
+        return request;
+    }
+
+    @Override
+    public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+        if (response.getEntity() != null
+                && !response.getHttpHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)
+                && PresetDictionaryEncoding.isAccepted(request.getHeaderValue(HttpHeaders.ACCEPT_ENCODING))) {
+            response.getHttpHeaders().add(HttpHeaders.CONTENT_ENCODING, PresetDictionaryEncoding.ENCODING);
+            response.setContainerResponseWriter(new Adapter(response.getContainerResponseWriter()));
+        }
+        return response;
+    }
+
+    private static final class Adapter implements ContainerResponseWriter {
+
+        private final ContainerResponseWriter crw;
+        private DeflaterOutputStream out;
+
+        Adapter(ContainerResponseWriter crw) {
+            this.crw = crw;
+        }
+
+        @Override
+        public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response) throws IOException {
+            out = PresetDictionaryEncoding.newCompressingStream(crw.writeStatusAndHeaders(-1, response));
+            return out;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.finish();
+            crw.finish();
+        }
+    }
+}
@@ -39,7 +39,7 @@ public class DynamicGZIPContentEncodingFilter extends ClientFilter {
             Object requestEncoding = request.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
             if (GZIP_ENCODING.equals(requestEncoding)) {
                 request.setAdapter(new GzipAdapter(request.getAdapter()));
-            } else if (isCompressionEnabled()) {
+            } else if (requestEncoding == null && isCompressionEnabled()) {
                 request.getHeaders().add(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
                 request.setAdapter(new GzipAdapter(request.getAdapter()));
             }
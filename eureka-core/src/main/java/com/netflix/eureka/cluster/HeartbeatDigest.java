@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+
+import static com.netflix.eureka.cluster.protocol.ReplicationInstance.ReplicationInstanceBuilder.aReplicationInstance;
+
+/**
+ * The instances renewed over a short window, to be replicated to every peer at once rather than with a
+ * replication task per renewal and peer.
+ *
+ * <p>
+ * The digest holds a heartbeat per instance, grouped by application, with the id, the last dirty timestamp
+ * and the statuses of the instance but not the instance itself. It is built once and shared by all peers;
+ * the full {@link InstanceInfo} is only sent to a peer that does not know the instance.
+ * </p>
+ */
+public final class HeartbeatDigest {
+
+    private final List<InstanceInfo> instances;
+    private final List<ReplicationInstance> heartbeats;
+
+    private HeartbeatDigest(List<InstanceInfo> instances, List<ReplicationInstance> heartbeats) {
+        this.instances = instances;
+        this.heartbeats = heartbeats;
+    }
+
+    public int size() {
+        return instances.size();
+    }
+
+    public boolean isEmpty() {
+        return instances.isEmpty();
+    }
+
+    /**
+     * @return the renewed instances, in the order of the heartbeats of {@link #toReplicationList()}.
+     */
+    public List<InstanceInfo> getInstances() {
+        return instances;
+    }
+
+    public ReplicationList toReplicationList() {
+        return new ReplicationList(heartbeats);
+    }
+
+    /**
+     * Splits the digest into digests of at most the given number of heartbeats, without copying them.
+     */
+    List<HeartbeatDigest> split(int maxSize) {
+        if (instances.size() <= maxSize) {
+            return Collections.singletonList(this);
+        }
+        List<HeartbeatDigest> parts = new ArrayList<>((instances.size() + maxSize - 1) / maxSize);
+        for (int from = 0; from < instances.size(); from += maxSize) {
+            int to = Math.min(from + maxSize, instances.size());
+            parts.add(new HeartbeatDigest(instances.subList(from, to), heartbeats.subList(from, to)));
+        }
+        return parts;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private static final Comparator<Renewal> APP_NAME_COMPARATOR = new Comparator<Renewal>() {
+            @Override
+            public int compare(Renewal l, Renewal r) {
+                return l.info.getAppName().compareTo(r.info.getAppName());
+            }
+        };
+
+        private final List<Renewal> renewals = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder add(InstanceInfo info, InstanceStatus overriddenStatus) {
+            renewals.add(new Renewal(info, overriddenStatus));
+            return this;
+        }
+
+        public HeartbeatDigest build() {
+            Collections.sort(renewals, APP_NAME_COMPARATOR);
+
+            List<InstanceInfo> instances = new ArrayList<>(renewals.size());
+            List<ReplicationInstance> heartbeats = new ArrayList<>(renewals.size());
+            for (Renewal renewal : renewals) {
+                InstanceInfo info = renewal.info;
+                instances.add(info);
+                heartbeats.add(aReplicationInstance()
+                        .withAppName(info.getAppName())
+                        .withId(info.getId())
+                        .withLastDirtyTimestamp(info.getLastDirtyTimestamp())
+                        .withOverriddenStatus(renewal.overriddenStatus == null ? null : renewal.overriddenStatus.name())
+                        .withStatus(info.getStatus() == null ? null : info.getStatus().name())
+                        .withAction(Action.Heartbeat)
+                        .build());
+            }
+            return new HeartbeatDigest(Collections.unmodifiableList(instances), Collections.unmodifiableList(heartbeats));
+        }
+    }
+
+    private static final class Renewal {
+        private final InstanceInfo info;
+        private final InstanceStatus overriddenStatus;
+
+        private Renewal(InstanceInfo info, InstanceStatus overriddenStatus) {
+            this.info = info;
+            this.overriddenStatus = overriddenStatus;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.cluster;
+
+import java.util.List;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.transport.EurekaHttpResponse;
+import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replicates a {@link HeartbeatDigest} to a peer as a single batch. The batch is retried as a whole on network
+ * errors and congestion, and the instances the peer fails to renew are handed to
+ * {@link #handleFailure(InstanceInfo, int, Object)} one by one, like the failures of a heartbeat task.
+ */
+public abstract class HeartbeatDigestReplicationTask extends ReplicationTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeartbeatDigestReplicationTask.class);
+
+    private final HeartbeatDigest digest;
+
+    private volatile ReplicationListResponse response;
+
+    protected HeartbeatDigestReplicationTask(String peerNodeName, HeartbeatDigest digest) {
+        super(peerNodeName, Action.Heartbeat);
+        this.digest = digest;
+    }
+
+    @Override
+    public String getTaskName() {
+        return "digest[" + digest.size() + "]:" + action + '@' + peerNodeName;
+    }
+
+    public String getTaskName(InstanceInfo info) {
+        return info.getAppName() + '/' + info.getId() + ':' + action + '@' + peerNodeName;
+    }
+
+    public HeartbeatDigest getDigest() {
+        return digest;
+    }
+
+    @Override
+    public EurekaHttpResponse<ReplicationListResponse> execute() throws Throwable {
+        EurekaHttpResponse<ReplicationListResponse> httpResponse = submit(digest.toReplicationList());
+        response = httpResponse.getEntity();
+        return httpResponse;
+    }
+
+    protected abstract EurekaHttpResponse<ReplicationListResponse> submit(ReplicationList replicationList) throws Throwable;
+
+    @Override
+    public void handleSuccess() {
+        List<ReplicationInstanceResponse> responseList = response == null ? null : response.getResponseList();
+        if (responseList == null || responseList.size() != digest.size()) {
+            // This should ideally never happen unless there is a bug in the software.
+            logger.error("{}: batch response size different from the digest size; skipping response analysis",
+                    getTaskName());
+            return;
+        }
+        List<InstanceInfo> instances = digest.getInstances();
+        for (int i = 0; i < instances.size(); i++) {
+            ReplicationInstanceResponse instanceResponse = responseList.get(i);
+            int statusCode = instanceResponse.getStatusCode();
+            if (statusCode >= 200 && statusCode < 300) {
+                continue;
+            }
+            InstanceInfo info = instances.get(i);
+            logger.warn("The replication of task {} failed with response code {}", getTaskName(info), statusCode);
+            try {
+                handleFailure(info, statusCode, instanceResponse.getResponseEntity());
+            } catch (Throwable e) {
+                logger.error("Replication task {} error handler failure", getTaskName(info), e);
+            }
+        }
+    }
+
+    /**
+     * Handles the failure of the heartbeat of a single instance of the digest.
+     */
+    protected abstract void handleFailure(InstanceInfo info, int statusCode, Object responseEntity) throws Throwable;
+}
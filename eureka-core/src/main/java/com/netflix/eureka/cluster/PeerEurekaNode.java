@@ -18,11 +18,14 @@ package com.netflix.eureka.cluster;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.lease.Lease;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
@@ -63,7 +66,7 @@ public class PeerEurekaNode {
     private static final long MAX_BATCHING_DELAY_MS = 500;
 
     /**
-     * Maximum batch size for batched requests.
+     * Maximum batch size for batched requests, unless another one is configured.
      */
     private static final int BATCH_SIZE = 250;
 
@@ -76,6 +79,7 @@ public class PeerEurekaNode {
     private final String serviceUrl;
     private final EurekaServerConfig config;
     private final long maxProcessingDelayMs;
+    private final int batchSize;
     private final PeerAwareInstanceRegistry registry;
     private final String targetHost;
     private final HttpReplicationClient replicationClient;
@@ -83,8 +87,10 @@ public class PeerEurekaNode {
     private final TaskDispatcher<String, ReplicationTask> batchingDispatcher;
     private final TaskDispatcher<String, ReplicationTask> nonBatchingDispatcher;
 
+    private final AtomicLong heartbeatDigestSequence = new AtomicLong();
+
     public PeerEurekaNode(PeerAwareInstanceRegistry registry, String targetHost, String serviceUrl, HttpReplicationClient replicationClient, EurekaServerConfig config) {
-        this(registry, targetHost, serviceUrl, replicationClient, config, BATCH_SIZE, MAX_BATCHING_DELAY_MS, RETRY_SLEEP_TIME_MS, SERVER_UNAVAILABLE_SLEEP_TIME_MS);
+        this(registry, targetHost, serviceUrl, replicationClient, config, batchSizeOf(config), MAX_BATCHING_DELAY_MS, RETRY_SLEEP_TIME_MS, SERVER_UNAVAILABLE_SLEEP_TIME_MS);
     }
 
     /* For testing */ PeerEurekaNode(PeerAwareInstanceRegistry registry, String targetHost, String serviceUrl,
@@ -98,10 +104,11 @@ public class PeerEurekaNode {
         this.serviceUrl = serviceUrl;
         this.config = config;
         this.maxProcessingDelayMs = config.getMaxTimeForReplication();
+        this.batchSize = batchSize;
 
         String batcherName = getBatcherName();
         ReplicationTaskProcessor taskProcessor = new ReplicationTaskProcessor(targetHost, replicationClient);
-        this.batchingDispatcher = TaskDispatchers.createBatchingTaskDispatcher(
+        this.batchingDispatcher = createBatchingDispatcher(
                 batcherName,
                 config.getMaxElementsInPeerReplicationPool(),
                 batchSize,
@@ -208,25 +215,43 @@ public class PeerEurekaNode {
             @Override
             public void handleFailure(int statusCode, Object responseEntity) throws Throwable {
                 super.handleFailure(statusCode, responseEntity);
-                if (statusCode == 404) {
-                    logger.warn("{}: missing entry.", getTaskName());
-                    if (info != null) {
-                        logger.warn("{}: cannot find instance id {} and hence replicating the instance with status {}",
-                                getTaskName(), info.getId(), info.getStatus());
-                        register(info);
-                    }
-                } else if (config.shouldSyncWhenTimestampDiffers()) {
-                    InstanceInfo peerInstanceInfo = (InstanceInfo) responseEntity;
-                    if (peerInstanceInfo != null) {
-                        syncInstancesIfTimestampDiffers(appName, id, info, peerInstanceInfo);
-                    }
-                }
+                handleHeartbeatFailure(getTaskName(), appName, id, info, statusCode, responseEntity);
             }
         };
         long expiryTime = System.currentTimeMillis() + getLeaseRenewalOf(info);
         batchingDispatcher.process(taskId("heartbeat", info), replicationTask, expiryTime);
     }
 
+    /**
+     * Send the heartbeats of all the instances of a {@link HeartbeatDigest} to the node represented by this
+     * class, in batches of instance ids and timestamps. The instances the node does not have are registered with
+     * it again, and those it has a different version of are handled like the failures of a single heartbeat.
+     *
+     * @param digest
+     *            the instances renewed since the previous digest.
+     */
+    public void heartbeats(final HeartbeatDigest digest) {
+        long expiryTime = System.currentTimeMillis() + maxProcessingDelayMs;
+        for (HeartbeatDigest part : digest.split(batchSize)) {
+            nonBatchingDispatcher.process(
+                    "heartbeatDigest#" + heartbeatDigestSequence.incrementAndGet(),
+                    new HeartbeatDigestReplicationTask(targetHost, part) {
+                        @Override
+                        protected EurekaHttpResponse<ReplicationListResponse> submit(ReplicationList replicationList) {
+                            return replicationClient.submitBatchUpdates(replicationList);
+                        }
+
+                        @Override
+                        protected void handleFailure(InstanceInfo info, int statusCode, Object responseEntity) throws Throwable {
+                            handleHeartbeatFailure(getTaskName(info), info.getAppName(), info.getId(), info,
+                                    statusCode, responseEntity);
+                        }
+                    },
+                    expiryTime
+            );
+        }
+    }
+
     /**
      * Send the status information of of the ASG represented by the instance.
      *
@@ -352,6 +377,27 @@ public class PeerEurekaNode {
         replicationClient.shutdown();
     }
 
+    /**
+     * Registers the instance with the peer again if it does not have it, or takes the instance from the peer if
+     * the peer has a different version of it.
+     */
+    private void handleHeartbeatFailure(String taskName, String appName, String id, InstanceInfo info,
+                                        int statusCode, Object responseEntity) throws Throwable {
+        if (statusCode == 404) {
+            logger.warn("{}: missing entry.", taskName);
+            if (info != null) {
+                logger.warn("{}: cannot find instance id {} and hence replicating the instance with status {}",
+                        taskName, info.getId(), info.getStatus());
+                register(info);
+            }
+        } else if (config.shouldSyncWhenTimestampDiffers()) {
+            InstanceInfo peerInstanceInfo = (InstanceInfo) responseEntity;
+            if (peerInstanceInfo != null) {
+                syncInstancesIfTimestampDiffers(appName, id, info, peerInstanceInfo);
+            }
+        }
+    }
+
     /**
      * Synchronize {@link InstanceInfo} information if the timestamp between
      * this node and the peer eureka nodes vary.
@@ -383,6 +429,32 @@ public class PeerEurekaNode {
         return "target_" + batcherName;
     }
 
+    private TaskDispatcher<String, ReplicationTask> createBatchingDispatcher(String batcherName,
+                                                                         int maxBufferSize,
+                                                                         int workloadSize,
+                                                                         int workerCount,
+                                                                         long maxBatchingDelayMs,
+                                                                         long serverUnavailableSleepTimeMs,
+                                                                         long retrySleepTimeMs,
+                                                                         ReplicationTaskProcessor taskProcessor) {
+        if (config.shouldUseLockFreePeerReplicationDispatcher()) {
+            return TaskDispatchers.createRingBufferBatchingTaskDispatcher(batcherName, maxBufferSize, workloadSize,
+                    workerCount, maxBatchingDelayMs, serverUnavailableSleepTimeMs, retrySleepTimeMs, taskProcessor);
+        }
+        int windowSize = config.getPeerReplicationWindowSize();
+        if (windowSize > 0) {
+            return TaskDispatchers.createWindowedBatchingTaskDispatcher(batcherName, maxBufferSize, workloadSize,
+                    windowSize, maxBatchingDelayMs, serverUnavailableSleepTimeMs, retrySleepTimeMs, taskProcessor);
+        }
+        return TaskDispatchers.createBatchingTaskDispatcher(batcherName, maxBufferSize, workloadSize,
+                workerCount, maxBatchingDelayMs, serverUnavailableSleepTimeMs, retrySleepTimeMs, taskProcessor);
+    }
+
+    private static int batchSizeOf(EurekaServerConfig config) {
+        int batchSize = config.getPeerReplicationBatchSize();
+        return batchSize > 0 ? batchSize : BATCH_SIZE;
+    }
+
     private static String taskId(String requestType, String appName, String id) {
         return requestType + '#' + appName + '/' + id;
     }
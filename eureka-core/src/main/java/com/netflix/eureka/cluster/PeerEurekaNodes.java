@@ -9,10 +9,14 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.netflix.appinfo.ApplicationInfoManager;
 import com.netflix.appinfo.InstanceInfo;
@@ -45,6 +49,8 @@ public class PeerEurekaNodes {
     private volatile Set<String> peerEurekaNodeUrls = Collections.emptySet();
 
     private ScheduledExecutorService taskExecutor;
+    // Null if replication batches are applied on the request thread
+    private volatile ExecutorService replicationBatchExecutor;
 
     @Inject
     public PeerEurekaNodes(
@@ -68,6 +74,14 @@ public class PeerEurekaNodes {
         return peerEurekaNodes;
     }
     
+    /**
+     * @return the executor on which the replication batches received from the peers are applied, or null if they
+     * are applied on the request thread.
+     */
+    public ExecutorService getReplicationBatchExecutor() {
+        return replicationBatchExecutor;
+    }
+
     public int getMinNumberOfAvailablePeers() {
         return serverConfig.getHealthStatusMinNumberOfAvailablePeers();
     }
@@ -83,6 +97,27 @@ public class PeerEurekaNodes {
                     }
                 }
         );
+        int batchThreads = serverConfig.getMaxThreadsForReplicationBatchApplication();
+        if (batchThreads > 0) {
+            ThreadPoolExecutor batchExecutor = new ThreadPoolExecutor(
+                    batchThreads, batchThreads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(batchThreads * 4),
+                    new ThreadFactory() {
+                        private final AtomicInteger threadNumber = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "Eureka-ReplicationBatchApplier-" + threadNumber.getAndIncrement());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    },
+                    // Once all threads are busy, or after shutdown, request threads apply their partitions themselves
+                    (task, executor) -> task.run()
+            );
+            batchExecutor.allowCoreThreadTimeOut(true);
+            replicationBatchExecutor = batchExecutor;
+        }
         try {
             updatePeerEurekaNodes(resolvePeerUrls());
             Runnable peersUpdateTask = new Runnable() {
@@ -112,6 +147,9 @@ public class PeerEurekaNodes {
 
     public void shutdown() {
         taskExecutor.shutdown();
+        if (replicationBatchExecutor != null) {
+            replicationBatchExecutor.shutdown();
+        }
         List<PeerEurekaNode> toRemove = this.peerEurekaNodes;
 
         this.peerEurekaNodes = Collections.emptyList();
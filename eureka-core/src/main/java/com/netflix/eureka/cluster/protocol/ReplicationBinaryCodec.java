@@ -0,0 +1,387 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.cluster.protocol;
+
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+
+/**
+ * A compact binary encoding of the replication batches exchanged between peers, {@link ReplicationList} and
+ * {@link ReplicationListResponse}, negotiated through the {@link #MEDIA_TYPE} content type.
+ *
+ * <p>
+ * A message starts with a magic number, the format version and the message type, followed by the item count
+ * and the items. Strings are written once per message and referred to by their index in the message afterwards,
+ * so that the application name and status of the heartbeats of one application cost a byte or two each. The
+ * actions and the usual instance statuses are written as their index in tables that are part of the format, and
+ * the last dirty timestamps as varints of the difference with the previous one in the message. The rare full
+ * instances, of registrations and conflict responses, are embedded in their JSON encoding.
+ * </p>
+ *
+ * <p>
+ * The format must never change incompatibly, including the order of the tables; a new format needs a new
+ * version and media type.
+ * </p>
+ */
+public final class ReplicationBinaryCodec implements CodecWrapper {
+
+    public static final String MEDIA_TYPE_NAME = "application/x-eureka-replication-v1";
+    public static final MediaType MEDIA_TYPE = new MediaType("application", "x-eureka-replication-v1");
+
+    private static final short MAGIC = 0x4552;  // "ER"
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte REPLICATION_LIST = 1;
+    private static final byte REPLICATION_LIST_RESPONSE = 2;
+
+    private static final Action[] ACTIONS = {
+            Action.Heartbeat, Action.Register, Action.Cancel, Action.StatusUpdate, Action.DeleteStatusOverride
+    };
+    private static final String[] STATUSES = {"UP", "DOWN", "STARTING", "OUT_OF_SERVICE", "UNKNOWN"};
+    // Followed by the status as a string, for statuses missing from the table
+    private static final int OTHER_STATUS = 0x7F;
+
+    private static final int HAS_TIMESTAMP = 1;
+    private static final int HAS_INSTANCE = 1 << 1;
+
+    private static final ReplicationBinaryCodec INSTANCE = new ReplicationBinaryCodec();
+
+    private final CodecWrapper instanceCodec = CodecWrappers.getCodec(CodecWrappers.LegacyJacksonJson.class);
+
+    private ReplicationBinaryCodec() {
+    }
+
+    /**
+     * @return the codec, which the server registers with {@link CodecWrappers} under its name, see
+     * {@link com.netflix.eureka.resources.DefaultServerCodecs}.
+     */
+    public static ReplicationBinaryCodec getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return true if the given media type is the one of this encoding, whatever its parameters.
+     */
+    public static boolean isMediaType(MediaType mediaType) {
+        return mediaType != null
+                && MEDIA_TYPE.getType().equalsIgnoreCase(mediaType.getType())
+                && MEDIA_TYPE.getSubtype().equalsIgnoreCase(mediaType.getSubtype());
+    }
+
+    @Override
+    public String codecName() {
+        return CodecWrappers.getCodecName(getClass());
+    }
+
+    @Override
+    public boolean support(MediaType mediaType) {
+        return isMediaType(mediaType);
+    }
+
+    /**
+     * Encodes the object to a string of one character per byte, for the callers that need text.
+     */
+    @Override
+    public <T> String encode(T object) throws IOException {
+        return new String(toBytes(object), StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public <T> void encode(T object, OutputStream outputStream) throws IOException {
+        outputStream.write(toBytes(object));
+    }
+
+    @Override
+    public <T> T decode(String textValue, Class<T> type) throws IOException {
+        return fromBytes(textValue.getBytes(StandardCharsets.ISO_8859_1), type);
+    }
+
+    @Override
+    public <T> T decode(InputStream inputStream, Class<T> type) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+        byte[] chunk = new byte[4096];
+        int count;
+        while ((count = inputStream.read(chunk)) != -1) {
+            buffer.write(chunk, 0, count);
+        }
+        return fromBytes(buffer.toByteArray(), type);
+    }
+
+    public byte[] toBytes(Object object) throws IOException {
+        Writer writer = new Writer();
+        if (object instanceof ReplicationList) {
+            List<ReplicationInstance> items = ((ReplicationList) object).getReplicationList();
+            writer.writeHeader(REPLICATION_LIST, items.size());
+            for (ReplicationInstance item : items) {
+                writer.writeReplicationInstance(item);
+            }
+        } else if (object instanceof ReplicationListResponse) {
+            List<ReplicationInstanceResponse> items = ((ReplicationListResponse) object).getResponseList();
+            writer.writeHeader(REPLICATION_LIST_RESPONSE, items.size());
+            for (ReplicationInstanceResponse item : items) {
+                writer.writeReplicationInstanceResponse(item);
+            }
+        } else {
+            throw new IOException("Cannot encode " + (object == null ? null : object.getClass().getName())
+                    + " with " + codecName());
+        }
+        return writer.toByteArray();
+    }
+
+    public <T> T fromBytes(byte[] bytes, Class<T> type) throws IOException {
+        Reader reader = new Reader(ByteBuffer.wrap(bytes));
+        try {
+            if (type == ReplicationList.class) {
+                int count = reader.readHeader(REPLICATION_LIST);
+                List<ReplicationInstance> items = new ArrayList<>(Math.min(count, bytes.length));
+                for (int i = 0; i < count; i++) {
+                    items.add(reader.readReplicationInstance());
+                }
+                return type.cast(new ReplicationList(items));
+            }
+            if (type == ReplicationListResponse.class) {
+                int count = reader.readHeader(REPLICATION_LIST_RESPONSE);
+                List<ReplicationInstanceResponse> items = new ArrayList<>(Math.min(count, bytes.length));
+                for (int i = 0; i < count; i++) {
+                    items.add(reader.readReplicationInstanceResponse());
+                }
+                return type.cast(new ReplicationListResponse(items));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException
+                | IllegalArgumentException e) {
+            throw new IOException("Invalid " + MEDIA_TYPE_NAME + " content", e);
+        }
+        throw new IOException("Cannot decode " + type.getName() + " with " + codecName());
+    }
+
+    private final class Writer {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        private final Map<String, Integer> strings = new HashMap<>();
+        private long lastTimestamp;
+
+        void writeHeader(byte messageType, int count) {
+            out.write(MAGIC >>> 8);
+            out.write(MAGIC & 0xFF);
+            out.write(FORMAT_VERSION);
+            out.write(messageType);
+            writeVarLong(count);
+        }
+
+        void writeReplicationInstance(ReplicationInstance item) throws IOException {
+            Long timestamp = item.getLastDirtyTimestamp();
+            out.write((timestamp == null ? 0 : HAS_TIMESTAMP) | (item.getInstanceInfo() == null ? 0 : HAS_INSTANCE));
+            writeAction(item.getAction());
+            writeString(item.getAppName());
+            writeString(item.getId());
+            if (timestamp != null) {
+                long delta = timestamp - lastTimestamp;
+                writeVarLong((delta << 1) ^ (delta >> 63));
+                lastTimestamp = timestamp;
+            }
+            writeStatus(item.getOverriddenStatus());
+            writeStatus(item.getStatus());
+            if (item.getInstanceInfo() != null) {
+                writeInstance(item.getInstanceInfo());
+            }
+        }
+
+        void writeReplicationInstanceResponse(ReplicationInstanceResponse item) throws IOException {
+            out.write(item.getResponseEntity() == null ? 0 : HAS_INSTANCE);
+            writeVarLong(item.getStatusCode());
+            if (item.getResponseEntity() != null) {
+                writeInstance(item.getResponseEntity());
+            }
+        }
+
+        private void writeAction(Action action) throws IOException {
+            int index = action == null ? -1 : indexOf(ACTIONS, action);
+            if (action != null && index < 0) {
+                throw new IOException("Cannot encode replication action " + action + " with " + codecName());
+            }
+            out.write(index + 1);
+        }
+
+        private void writeStatus(String status) {
+            if (status == null) {
+                out.write(0);
+                return;
+            }
+            int index = indexOf(STATUSES, status);
+            if (index >= 0) {
+                out.write(index + 1);
+            } else {
+                out.write(OTHER_STATUS);
+                writeString(status);
+            }
+        }
+
+        /**
+         * Writes 0 for null, the index in the message shifted left once for a string written before, or else the
+         * length shifted left once with the lowest bit set, followed by the UTF-8 bytes.
+         */
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeVarLong((index + 1L) << 1);
+                return;
+            }
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(((long) bytes.length << 1) | 1);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        private void writeInstance(InstanceInfo instance) throws IOException {
+            byte[] bytes = instanceCodec.encode(instance).getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    private final class Reader {
+
+        private final ByteBuffer in;
+        private final List<String> strings = new ArrayList<>();
+        private long lastTimestamp;
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        int readHeader(byte expectedType) throws IOException {
+            if (in.getShort() != MAGIC) {
+                throw new IOException("Not " + MEDIA_TYPE_NAME + " content");
+            }
+            byte formatVersion = in.get();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported replication format version " + formatVersion);
+            }
+            byte messageType = in.get();
+            if (messageType != expectedType) {
+                throw new IOException("Unexpected replication message type " + messageType);
+            }
+            return (int) readVarLong();
+        }
+
+        ReplicationInstance readReplicationInstance() throws IOException {
+            int flags = in.get();
+            int action = in.get();
+            String appName = readString();
+            String id = readString();
+            Long timestamp = null;
+            if ((flags & HAS_TIMESTAMP) != 0) {
+                long zigZag = readVarLong();
+                timestamp = lastTimestamp + ((zigZag >>> 1) ^ -(zigZag & 1));
+                lastTimestamp = timestamp;
+            }
+            String overriddenStatus = readStatus();
+            String status = readStatus();
+            InstanceInfo instance = (flags & HAS_INSTANCE) != 0 ? readInstance() : null;
+            return new ReplicationInstance(appName, id, timestamp, overriddenStatus, status, instance,
+                    action == 0 ? null : ACTIONS[action - 1]);
+        }
+
+        ReplicationInstanceResponse readReplicationInstanceResponse() throws IOException {
+            int flags = in.get();
+            int statusCode = (int) readVarLong();
+            InstanceInfo instance = (flags & HAS_INSTANCE) != 0 ? readInstance() : null;
+            return new ReplicationInstanceResponse(statusCode, instance);
+        }
+
+        private String readStatus() {
+            int status = in.get() & 0xFF;
+            if (status == 0) {
+                return null;
+            }
+            return status == OTHER_STATUS ? readString() : STATUSES[status - 1];
+        }
+
+        private String readString() {
+            long value = readVarLong();
+            if (value == 0) {
+                return null;
+            }
+            if ((value & 1) == 0) {
+                return strings.get((int) (value >>> 1) - 1);
+            }
+            byte[] bytes = new byte[(int) (value >>> 1)];
+            in.get(bytes);
+            String result = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(result);
+            return result;
+        }
+
+        private InstanceInfo readInstance() throws IOException {
+            byte[] bytes = new byte[(int) readVarLong()];
+            in.get(bytes);
+            return instanceCodec.decode(new ByteArrayInputStream(bytes), InstanceInfo.class);
+        }
+
+        private long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.get();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+    }
+
+    private static <T> int indexOf(T[] table, T value) {
+        for (int i = 0; i < table.length; i++) {
+            if (table[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.cluster.protocol;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads and writes the replication batches in the {@link ReplicationBinaryCodec} encoding, for both Jersey 1 and
+ * Jersey 2 servers, which pick it up when scanning the {@code com.netflix} packages for providers.
+ */
+@Provider
+@Produces(ReplicationBinaryCodec.MEDIA_TYPE_NAME)
+@Consumes(ReplicationBinaryCodec.MEDIA_TYPE_NAME)
+public class ReplicationBinaryJerseyProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationBinaryJerseyProvider.class);
+
+    private final ReplicationBinaryCodec codec = ReplicationBinaryCodec.getInstance();
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return isSupported(type, mediaType);
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        try {
+            return codec.decode(entityStream, type);
+        } catch (IOException e) {
+            logger.debug("Cannot parse request body", e);
+            throw new WebApplicationException(e, Response.status(400).build());
+        }
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return isSupported(type, mediaType);
+    }
+
+    @Override
+    public long getSize(Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        codec.encode(o, entityStream);
+    }
+
+    private static boolean isSupported(Class<?> type, MediaType mediaType) {
+        return (type == ReplicationList.class || type == ReplicationListResponse.class)
+                && ReplicationBinaryCodec.isMediaType(mediaType);
+    }
+}
@@ -111,6 +111,14 @@ public class Lease<T> {
         return (evictionTimestamp > 0 || System.currentTimeMillis() > (lastUpdateTimestamp + duration + additionalLeaseMs));
     }
 
+    /**
+     * Gets the milliseconds since epoch after which the lease is expired, unless it is renewed before. Any
+     * additional lease time passed to {@link #isExpired(long)} comes on top of this.
+     */
+    public long getExpirationTimestamp() {
+        return lastUpdateTimestamp + duration;
+    }
+
     /**
      * Gets the milliseconds since epoch when the lease was registered.
      *
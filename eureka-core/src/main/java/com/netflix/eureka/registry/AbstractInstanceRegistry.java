@@ -17,14 +17,17 @@
 package com.netflix.eureka.registry;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.AbstractQueue;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
@@ -33,13 +36,12 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.google.common.cache.CacheBuilder;
 import com.netflix.appinfo.InstanceInfo;
@@ -49,9 +51,11 @@ import com.netflix.appinfo.LeaseInfo;
 import com.netflix.discovery.EurekaClientConfig;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.InstanceStatusCounts;
 import com.netflix.discovery.shared.Pair;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.lease.Lease;
+import com.netflix.eureka.registry.RecentlyChangedLog.RecentlyChangedItem;
 import com.netflix.eureka.registry.rule.InstanceStatusOverrideRule;
 import com.netflix.eureka.resources.ServerCodecs;
 import com.netflix.eureka.util.MeasuredRate;
@@ -77,6 +81,11 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     private static final Logger logger = LoggerFactory.getLogger(AbstractInstanceRegistry.class);
 
     private static final String[] EMPTY_STR_ARRAY = new String[0];
+    private static final int MAX_OPTIMISTIC_DELTA_READS = 3;
+    private static final int WRITE_LOCK_STRIPES = 64;
+    private static final long LEASE_EXPIRY_TICK_MS = 1000;
+    // A revolution covers the default renewal expiry of twice the 90 second lease duration with room to spare
+    private static final int LEASE_EXPIRY_TICKS_PER_WHEEL = 512;
     private final ConcurrentHashMap<String, Map<String, Lease<InstanceInfo>>> registry
             = new ConcurrentHashMap<String, Map<String, Lease<InstanceInfo>>>();
     protected Map<String, RemoteRegionRegistry> regionNameVSRemoteRegistry = new HashMap<String, RemoteRegionRegistry>();
@@ -88,12 +97,41 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     // CircularQueues here for debugging/statistics purposes only
     private final CircularQueue<Pair<Long, String>> recentRegisteredQueue;
     private final CircularQueue<Pair<Long, String>> recentCanceledQueue;
-    private ConcurrentLinkedQueue<RecentlyChangedItem> recentlyChangedQueue = new ConcurrentLinkedQueue<RecentlyChangedItem>();
-
-    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-    private final Lock read = readWriteLock.readLock();
-    private final Lock write = readWriteLock.writeLock();
-    protected final Object lock = new Object();
+    private final RecentlyChangedLog recentlyChangedLog = new RecentlyChangedLog();
+    // Index of the leases by expiration time for the eviction task, with one second slots
+    private final LeaseExpiryWheel<InstanceInfo> leaseExpiryWheel =
+            new LeaseExpiryWheel<InstanceInfo>(LEASE_EXPIRY_TICK_MS, LEASE_EXPIRY_TICKS_PER_WHEEL);
+
+    // Registry writes lock the stripe of their application, so writes to one application are serialized while
+    // writes to different applications do not contend. All stripes are only locked together by delta reads that
+    // could not get a consistent view optimistically, see readDeltaConsistently(..)
+    private final ReentrantLock[] writeLocks;
+
+    // Local leases by instance id and by each of their VIP and secure VIP addresses, maintained by register and
+    // cancel. Instance ids are only unique within an application, hence a set of leases per id.
+    private final ConcurrentMap<String, Set<Lease<InstanceInfo>>> idIndex =
+            new ConcurrentHashMap<String, Set<Lease<InstanceInfo>>>();
+    private final ConcurrentMap<String, Set<Lease<InstanceInfo>>> vipIndex =
+            new ConcurrentHashMap<String, Set<Lease<InstanceInfo>>>();
+    private final ConcurrentMap<String, Set<Lease<InstanceInfo>>> secureVipIndex =
+            new ConcurrentHashMap<String, Set<Lease<InstanceInfo>>>();
+    // The keys each lease was indexed under. An instance can be changed in place after it is indexed, so a lease
+    // is removed from the indexes by these keys rather than by the current ones of its holder.
+    private final ConcurrentMap<Lease<InstanceInfo>, IndexKeys> leaseIndexKeys =
+            new ConcurrentHashMap<Lease<InstanceInfo>, IndexKeys>();
+
+    // Copy-on-write view of the local registry. Writes only mark their application as dirty; the next read
+    // rebuilds the dirty applications and publishes a new snapshot, unchanged applications are reused as-is.
+    // The instance counts by status are adjusted by the same rebuild, so the reconcile hash code never needs
+    // a walk over all instances. Renewals change neither the applications nor the counts, so they only mark
+    // their application as renewed, and the next read refreshes the lease info of its instances in place.
+    private final ConcurrentMap<String, Application> localApplications = new ConcurrentHashMap<String, Application>();
+    private final Map<String, InstanceStatusCounts> localApplicationStatusCounts = new HashMap<String, InstanceStatusCounts>();
+    private final InstanceStatusCounts localStatusCounts = new InstanceStatusCounts();
+    private final Set<String> dirtyApplications = ConcurrentHashMap.newKeySet();
+    private final Set<String> renewedApplications = ConcurrentHashMap.newKeySet();
+    private final Object snapshotLock = new Object();
+    private volatile LocalSnapshot localSnapshot;
 
     private Timer deltaRetentionTimer = new Timer("Eureka-DeltaRetentionTimer", true);
     private Timer evictionTimer = new Timer("Eureka-EvictionTimer", true);
@@ -104,6 +142,10 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     protected String[] allKnownRemoteRegions = EMPTY_STR_ARRAY;
     protected volatile int numberOfRenewsPerMinThreshold;
     protected volatile int expectedNumberOfClientsSendingRenews;
+    // Registrations and cancels update the count atomically without a registry wide lock, so that registrations
+    // of different applications do not contend on it
+    private static final AtomicIntegerFieldUpdater<AbstractInstanceRegistry> EXPECTED_NUMBER_OF_CLIENTS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(AbstractInstanceRegistry.class, "expectedNumberOfClientsSendingRenews");
 
     protected final EurekaServerConfig serverConfig;
     protected final EurekaClientConfig clientConfig;
@@ -119,6 +161,10 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         this.serverCodecs = serverCodecs;
         this.recentCanceledQueue = new CircularQueue<Pair<Long, String>>(1000);
         this.recentRegisteredQueue = new CircularQueue<Pair<Long, String>>(1000);
+        this.writeLocks = new ReentrantLock[WRITE_LOCK_STRIPES];
+        for (int i = 0; i < writeLocks.length; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
 
         this.renewsLastMin = new MeasuredRate(1000 * 60 * 1);
 
@@ -175,8 +221,50 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         overriddenInstanceStatusMap.clear();
         recentCanceledQueue.clear();
         recentRegisteredQueue.clear();
-        recentlyChangedQueue.clear();
+        recentlyChangedLog.clear();
         registry.clear();
+        leaseExpiryWheel.clear();
+        idIndex.clear();
+        vipIndex.clear();
+        secureVipIndex.clear();
+        leaseIndexKeys.clear();
+        synchronized (snapshotLock) {
+            dirtyApplications.clear();
+            renewedApplications.clear();
+            localApplications.clear();
+            localApplicationStatusCounts.clear();
+            localStatusCounts.reset();
+            localSnapshot = null;
+        }
+    }
+
+    /**
+     * Writes the local registry, its explicitly overridden statuses and the latest delta version to the given
+     * snapshot file.
+     */
+    void writeRegistrySnapshot(RegistrySnapshotFile snapshotFile) throws IOException {
+        long deltaVersion = recentlyChangedLog.getLatestVersion();
+        List<InstanceInfo> instances = new ArrayList<InstanceInfo>();
+        for (Map<String, Lease<InstanceInfo>> leaseMap : registry.values()) {
+            for (Lease<InstanceInfo> lease : leaseMap.values()) {
+                instances.add(decorateInstanceInfo(lease));
+            }
+        }
+        snapshotFile.write(deltaVersion, instances, new HashMap<String, InstanceStatus>(overriddenInstanceStatusMap));
+    }
+
+    /**
+     * Continues the delta versions after the version of a restored registry snapshot, so versions handed out
+     * before a restart are not handed out again for different changes. Peers may already replicate to this
+     * server while it restores, so all registry writes are held off while the log restarts.
+     */
+    void restartDeltaVersionsAfter(long deltaVersion) {
+        lockAllWrites();
+        try {
+            recentlyChangedLog.restartAfter(deltaVersion);
+        } finally {
+            unlockAllWrites();
+        }
     }
 
     // for server info use
@@ -191,8 +279,10 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      * @see com.netflix.eureka.lease.LeaseManager#register(java.lang.Object, int, boolean)
      */
     public void register(InstanceInfo registrant, int leaseDuration, boolean isReplication) {
+        final String appName = registrant.getAppName();
+        boolean newRegistration = false;
         try {
-            read.lock();
+            beginWrite(appName);
             Map<String, Lease<InstanceInfo>> gMap = registry.get(registrant.getAppName());
             REGISTER.increment(isReplication);
             if (gMap == null) {
@@ -219,20 +309,18 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 }
             } else {
                 // The lease does not exist and hence it is a new registration
-                synchronized (lock) {
-                    if (this.expectedNumberOfClientsSendingRenews > 0) {
-                        // Since the client wants to register it, increase the number of clients sending renews
-                        this.expectedNumberOfClientsSendingRenews = this.expectedNumberOfClientsSendingRenews + 1;
-                        updateRenewsPerMinThreshold();
-                    }
-                }
+                newRegistration = true;
                 logger.debug("No previous lease information found; it is new registration");
             }
             Lease<InstanceInfo> lease = new Lease<InstanceInfo>(registrant, leaseDuration);
             if (existingLease != null) {
                 lease.setServiceUpTimestamp(existingLease.getServiceUpTimestamp());
             }
-            gMap.put(registrant.getId(), lease);
+            putLease(gMap, lease);
+            if (existingLease != null) {
+                removeFromIndexes(existingLease);
+            }
+            addToIndexes(lease);
             recentRegisteredQueue.add(new Pair<Long, String>(
                     System.currentTimeMillis(),
                     registrant.getAppName() + "(" + registrant.getId() + ")"));
@@ -260,13 +348,18 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 lease.serviceUp();
             }
             registrant.setActionType(ActionType.ADDED);
-            recentlyChangedQueue.add(new RecentlyChangedItem(lease));
+            recentlyChangedLog.append(lease);
             registrant.setLastUpdatedTimestamp();
             invalidateCache(registrant.getAppName(), registrant.getVIPAddress(), registrant.getSecureVipAddress());
             logger.info("Registered instance {}/{} with status {} (replication={})",
                     registrant.getAppName(), registrant.getId(), registrant.getStatus(), isReplication);
         } finally {
-            read.unlock();
+            endWrite(appName);
+        }
+
+        // Since the client wants to register it, increase the number of clients sending renews
+        if (newRegistration && EXPECTED_NUMBER_OF_CLIENTS_UPDATER.getAndUpdate(this, n -> n > 0 ? n + 1 : n) > 0) {
+            updateRenewsPerMinThreshold();
         }
     }
 
@@ -296,7 +389,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      */
     protected boolean internalCancel(String appName, String id, boolean isReplication) {
         try {
-            read.lock();
+            beginWrite(appName);
             CANCEL.increment(isReplication);
             Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
             Lease<InstanceInfo> leaseToCancel = null;
@@ -314,12 +407,13 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 return false;
             } else {
                 leaseToCancel.cancel();
+                removeFromIndexes(leaseToCancel);
                 InstanceInfo instanceInfo = leaseToCancel.getHolder();
                 String vip = null;
                 String svip = null;
                 if (instanceInfo != null) {
                     instanceInfo.setActionType(ActionType.DELETED);
-                    recentlyChangedQueue.add(new RecentlyChangedItem(leaseToCancel));
+                    recentlyChangedLog.append(leaseToCancel);
                     instanceInfo.setLastUpdatedTimestamp();
                     vip = instanceInfo.getVIPAddress();
                     svip = instanceInfo.getSecureVipAddress();
@@ -328,15 +422,12 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 logger.info("Cancelled instance {}/{} (replication={})", appName, id, isReplication);
             }
         } finally {
-            read.unlock();
+            endWrite(appName);
         }
 
-        synchronized (lock) {
-            if (this.expectedNumberOfClientsSendingRenews > 0) {
-                // Since the client wants to cancel it, reduce the number of clients to send renews.
-                this.expectedNumberOfClientsSendingRenews = this.expectedNumberOfClientsSendingRenews - 1;
-                updateRenewsPerMinThreshold();
-            }
+        // Since the client wants to cancel it, reduce the number of clients to send renews.
+        if (EXPECTED_NUMBER_OF_CLIENTS_UPDATER.getAndUpdate(this, n -> n > 0 ? n - 1 : n) > 0) {
+            updateRenewsPerMinThreshold();
         }
 
         return true;
@@ -378,11 +469,15 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                                     instanceInfo.getOverriddenStatus().name(),
                                     instanceInfo.getId());
                     instanceInfo.setStatusWithoutDirty(overriddenInstanceStatus);
-
+                    dirtyApplications.add(appName);
                 }
             }
             renewsLastMin.increment();
             leaseToRenew.renew();
+            // Checked first, as most renewals find their application already marked
+            if (!renewedApplications.contains(appName)) {
+                renewedApplications.add(appName);
+            }
             return true;
         }
     }
@@ -463,7 +558,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                                 InstanceStatus newStatus, String lastDirtyTimestamp,
                                 boolean isReplication) {
         try {
-            read.lock();
+            beginWrite(appName);
             STATUS_UPDATE.increment(isReplication);
             Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
             Lease<InstanceInfo> lease = null;
@@ -501,14 +596,14 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                         info.setLastDirtyTimestamp(replicaDirtyTimestamp);
                     }
                     info.setActionType(ActionType.MODIFIED);
-                    recentlyChangedQueue.add(new RecentlyChangedItem(lease));
+                    recentlyChangedLog.append(lease);
                     info.setLastUpdatedTimestamp();
                     invalidateCache(appName, info.getVIPAddress(), info.getSecureVipAddress());
                 }
                 return true;
             }
         } finally {
-            read.unlock();
+            endWrite(appName);
         }
     }
 
@@ -529,7 +624,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                                         String lastDirtyTimestamp,
                                         boolean isReplication) {
         try {
-            read.lock();
+            beginWrite(appName);
             STATUS_OVERRIDE_DELETE.increment(isReplication);
             Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
             Lease<InstanceInfo> lease = null;
@@ -562,14 +657,14 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                         info.setLastDirtyTimestamp(replicaDirtyTimestamp);
                     }
                     info.setActionType(ActionType.MODIFIED);
-                    recentlyChangedQueue.add(new RecentlyChangedItem(lease));
+                    recentlyChangedLog.append(lease);
                     info.setLastUpdatedTimestamp();
                     invalidateCache(appName, info.getVIPAddress(), info.getSecureVipAddress());
                 }
                 return true;
             }
         } finally {
-            read.unlock();
+            endWrite(appName);
         }
     }
 
@@ -594,16 +689,18 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         // We collect first all expired items, to evict them in random order. For large eviction sets,
         // if we do not that, we might wipe out whole apps before self preservation kicks in. By randomizing it,
         // the impact should be evenly distributed across all applications.
+        // Only the leases due according to the expiry wheel are looked at; the ones that are not expired yet once
+        // the additional lease time is taken into account go back to the wheel.
         List<Lease<InstanceInfo>> expiredLeases = new ArrayList<>();
-        for (Entry<String, Map<String, Lease<InstanceInfo>>> groupEntry : registry.entrySet()) {
-            Map<String, Lease<InstanceInfo>> leaseMap = groupEntry.getValue();
-            if (leaseMap != null) {
-                for (Entry<String, Lease<InstanceInfo>> leaseEntry : leaseMap.entrySet()) {
-                    Lease<InstanceInfo> lease = leaseEntry.getValue();
-                    if (lease.isExpired(additionalLeaseMs) && lease.getHolder() != null) {
-                        expiredLeases.add(lease);
-                    }
-                }
+        for (Lease<InstanceInfo> lease : leaseExpiryWheel.pollExpired(System.currentTimeMillis())) {
+            if (lease.getHolder() == null || !isCurrentLease(lease)) {
+                // Cancelled or replaced by a new registration since it was scheduled
+                continue;
+            }
+            if (lease.isExpired(additionalLeaseMs)) {
+                expiredLeases.add(lease);
+            } else {
+                leaseExpiryWheel.schedule(lease);
             }
         }
 
@@ -631,8 +728,88 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 internalCancel(appName, id, false);
             }
         }
+        // Leases spared by self preservation are looked at again on the next run
+        for (int i = Math.max(toEvict, 0); i < expiredLeases.size(); i++) {
+            leaseExpiryWheel.schedule(expiredLeases.get(i));
+        }
+    }
+
+    /**
+     * Puts the lease in the lease map of its application and schedules its expiry. All leases enter the registry
+     * through here, so that none is left out of the eviction.
+     */
+    private void putLease(Map<String, Lease<InstanceInfo>> leaseMap, Lease<InstanceInfo> lease) {
+        leaseMap.put(lease.getHolder().getId(), lease);
+        leaseExpiryWheel.schedule(lease);
+    }
+
+    private boolean isCurrentLease(Lease<InstanceInfo> lease) {
+        Map<String, Lease<InstanceInfo>> leaseMap = registry.get(lease.getHolder().getAppName());
+        return leaseMap != null && leaseMap.get(lease.getHolder().getId()) == lease;
+    }
+
+    private void addToIndexes(Lease<InstanceInfo> lease) {
+        InstanceInfo info = lease.getHolder();
+        if (info != null) {
+            IndexKeys keys = new IndexKeys(info.getId(), info.getVIPAddress(), info.getSecureVipAddress());
+            leaseIndexKeys.put(lease, keys);
+            addToIndex(idIndex, keys.id, lease);
+            addToVipIndex(vipIndex, keys.vipAddresses, lease);
+            addToVipIndex(secureVipIndex, keys.secureVipAddresses, lease);
+        }
+    }
+
+    private void removeFromIndexes(Lease<InstanceInfo> lease) {
+        IndexKeys keys = leaseIndexKeys.remove(lease);
+        if (keys != null) {
+            removeFromIndex(idIndex, keys.id, lease);
+            removeFromVipIndex(vipIndex, keys.vipAddresses, lease);
+            removeFromVipIndex(secureVipIndex, keys.secureVipAddresses, lease);
+        }
+    }
+
+    private static void addToVipIndex(ConcurrentMap<String, Set<Lease<InstanceInfo>>> index,
+                                      @Nullable String vipAddresses, Lease<InstanceInfo> lease) {
+        if (vipAddresses != null) {
+            for (String vipAddress : vipAddresses.split(",")) {
+                addToIndex(index, vipAddress, lease);
+            }
+        }
     }
 
+    private static void removeFromVipIndex(ConcurrentMap<String, Set<Lease<InstanceInfo>>> index,
+                                           @Nullable String vipAddresses, Lease<InstanceInfo> lease) {
+        if (vipAddresses != null) {
+            for (String vipAddress : vipAddresses.split(",")) {
+                removeFromIndex(index, vipAddress, lease);
+            }
+        }
+    }
+
+    private static void addToIndex(ConcurrentMap<String, Set<Lease<InstanceInfo>>> index,
+                                   @Nullable String key, final Lease<InstanceInfo> lease) {
+        if (key == null) {
+            return;
+        }
+        // The set is created and removed atomically with its mapping, so no lease is added to a set that is no
+        // longer in the index
+        index.compute(key, (k, leases) -> {
+            Set<Lease<InstanceInfo>> result = leases == null ? ConcurrentHashMap.newKeySet() : leases;
+            result.add(lease);
+            return result;
+        });
+    }
+
+    private static void removeFromIndex(ConcurrentMap<String, Set<Lease<InstanceInfo>>> index,
+                                        @Nullable String key, final Lease<InstanceInfo> lease) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, leases) -> {
+            leases.remove(lease);
+            return leases.isEmpty() ? null : leases;
+        });
+    }
 
     /**
      * Returns the given app that is in this instance only, falling back to other regions transparently only
@@ -744,54 +921,66 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         } else {
             GET_ALL_CACHE_MISS.increment();
         }
-        Applications apps = new Applications();
-        apps.setVersion(1L);
-        for (Entry<String, Map<String, Lease<InstanceInfo>>> entry : registry.entrySet()) {
-            Application app = null;
-
-            if (entry.getValue() != null) {
-                for (Entry<String, Lease<InstanceInfo>> stringLeaseEntry : entry.getValue().entrySet()) {
-                    Lease<InstanceInfo> lease = stringLeaseEntry.getValue();
-                    if (app == null) {
-                        app = new Application(lease.getHolder().getAppName());
-                    }
-                    app.addInstance(decorateInstanceInfo(lease));
-                }
-            }
-            if (app != null) {
-                apps.addApplication(app);
-            }
+        LocalSnapshot snapshot = getLocalSnapshot();
+        Applications localApps = snapshot.applications;
+        if (!includeRemoteRegion) {
+            return localApps;
         }
-        if (includeRemoteRegion) {
-            for (String remoteRegion : remoteRegions) {
-                RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
-                if (null != remoteRegistry) {
-                    Applications remoteApps = remoteRegistry.getApplications();
-                    for (Application application : remoteApps.getRegisteredApplications()) {
-                        if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
-                            logger.info("Application {}  fetched from the remote region {}",
-                                    application.getName(), remoteRegion);
-
-                            Application appInstanceTillNow = apps.getRegisteredApplications(application.getName());
-                            if (appInstanceTillNow == null) {
-                                appInstanceTillNow = new Application(application.getName());
-                                apps.addApplication(appInstanceTillNow);
+
+        // The local snapshot is shared, so applications that get remote instances merged into them are copied.
+        Map<String, Application> mergedApps = new HashMap<String, Application>();
+        InstanceStatusCounts statusCounts = snapshot.statusCounts.copy();
+        for (String remoteRegion : remoteRegions) {
+            RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
+            if (null != remoteRegistry) {
+                Applications remoteApps = remoteRegistry.getApplications();
+                for (Application application : remoteApps.getRegisteredApplications()) {
+                    if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
+                        logger.info("Application {}  fetched from the remote region {}",
+                                application.getName(), remoteRegion);
+
+                        String mergedName = application.getName().toUpperCase(Locale.ROOT);
+                        Application appInstanceTillNow = mergedApps.get(mergedName);
+                        if (appInstanceTillNow == null) {
+                            appInstanceTillNow = new Application(application.getName());
+                            Application localApp = localApps.getRegisteredApplications(application.getName());
+                            if (localApp != null) {
+                                for (InstanceInfo instanceInfo : localApp.getInstancesAsIsFromEureka()) {
+                                    appInstanceTillNow.addInstance(instanceInfo);
+                                }
                             }
-                            for (InstanceInfo instanceInfo : application.getInstances()) {
-                                appInstanceTillNow.addInstance(instanceInfo);
+                            mergedApps.put(mergedName, appInstanceTillNow);
+                        }
+                        for (InstanceInfo instanceInfo : application.getInstances()) {
+                            InstanceInfo replaced = appInstanceTillNow.getByInstanceId(instanceInfo.getId());
+                            if (replaced != null) {
+                                statusCounts.decrement(replaced.getStatus());
                             }
-                        } else {
-                            logger.debug("Application {} not fetched from the remote region {} as there exists a "
-                                            + "whitelist and this app is not in the whitelist.",
-                                    application.getName(), remoteRegion);
+                            appInstanceTillNow.addInstance(instanceInfo);
+                            statusCounts.increment(instanceInfo.getStatus());
                         }
+                    } else {
+                        logger.debug("Application {} not fetched from the remote region {} as there exists a "
+                                        + "whitelist and this app is not in the whitelist.",
+                                application.getName(), remoteRegion);
                     }
-                } else {
-                    logger.warn("No remote registry available for the remote region {}", remoteRegion);
                 }
+            } else {
+                logger.warn("No remote registry available for the remote region {}", remoteRegion);
             }
         }
-        apps.setAppsHashCode(apps.getReconcileHashCode());
+
+        Applications apps = new Applications();
+        apps.setVersion(1L);
+        for (Application localApp : localApps.getRegisteredApplications()) {
+            if (!mergedApps.containsKey(localApp.getName().toUpperCase(Locale.ROOT))) {
+                apps.addApplication(localApp);
+            }
+        }
+        for (Application mergedApp : mergedApps.values()) {
+            apps.addApplication(mergedApp);
+        }
+        apps.setAppsHashCode(statusCounts.getReconcileHashCode());
         return apps;
     }
 
@@ -803,6 +992,73 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         return null == whiteList || whiteList.contains(appName);
     }
 
+    /**
+     * Get the applications with instances that have the given VIP address among their
+     * {@link InstanceInfo#getVIPAddress() VIP addresses}, falling back to other regions if allowed in the Eureka
+     * config. The local instances are looked up from an index, so the cost is proportional to the number of
+     * matching instances rather than to the size of the registry.
+     */
+    public Applications getApplicationsByVipAddress(String vipAddress) {
+        return getApplicationsForVip(vipIndex, vipAddress, false);
+    }
+
+    /**
+     * Same as {@link #getApplicationsByVipAddress(String)} for the
+     * {@link InstanceInfo#getSecureVipAddress() secure VIP addresses} of instances.
+     */
+    public Applications getApplicationsBySecureVipAddress(String secureVipAddress) {
+        return getApplicationsForVip(secureVipIndex, secureVipAddress, true);
+    }
+
+    private Applications getApplicationsForVip(ConcurrentMap<String, Set<Lease<InstanceInfo>>> index,
+                                               String vipAddress, boolean secure) {
+        Map<String, Application> appsByName = new HashMap<String, Application>();
+        Set<Lease<InstanceInfo>> leases = index.get(vipAddress);
+        if (leases != null) {
+            for (Lease<InstanceInfo> lease : leases) {
+                InstanceInfo info = decorateInstanceInfo(lease);
+                getOrAddApplication(appsByName, info.getAppName()).addInstance(info);
+            }
+        }
+
+        if (!serverConfig.disableTransparentFallbackToOtherRegion()) {
+            for (String remoteRegion : allKnownRemoteRegions) {
+                RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
+                if (remoteRegistry == null) {
+                    continue;
+                }
+                for (Application application : remoteRegistry.getApplications().getRegisteredApplications()) {
+                    if (!shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
+                        continue;
+                    }
+                    for (InstanceInfo info : application.getInstances()) {
+                        String vipAddresses = secure ? info.getSecureVipAddress() : info.getVIPAddress();
+                        if (vipAddresses != null && Arrays.asList(vipAddresses.split(",")).contains(vipAddress)) {
+                            getOrAddApplication(appsByName, application.getName()).addInstance(info);
+                        }
+                    }
+                }
+            }
+        }
+
+        Applications apps = new Applications();
+        for (Application app : appsByName.values()) {
+            apps.addApplication(app);
+        }
+        apps.setAppsHashCode(apps.getReconcileHashCode());
+        return apps;
+    }
+
+    private static Application getOrAddApplication(Map<String, Application> appsByName, String appName) {
+        String key = appName.toUpperCase(Locale.ROOT);
+        Application app = appsByName.get(key);
+        if (app == null) {
+            app = new Application(appName);
+            appsByName.put(key, app);
+        }
+        return app;
+    }
+
     /**
      * Get the registry information about all {@link Applications}.
      *
@@ -818,42 +1074,133 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     @Deprecated
     public Applications getApplications(boolean includeRemoteRegion) {
         GET_ALL_CACHE_MISS.increment();
+        LocalSnapshot snapshot = getLocalSnapshot();
+        Applications localApps = snapshot.applications;
+        if (!includeRemoteRegion) {
+            return localApps;
+        }
+
+        InstanceStatusCounts statusCounts = snapshot.statusCounts.copy();
         Applications apps = new Applications();
         apps.setVersion(1L);
-        for (Entry<String, Map<String, Lease<InstanceInfo>>> entry : registry.entrySet()) {
-            Application app = null;
-
-            if (entry.getValue() != null) {
-                for (Entry<String, Lease<InstanceInfo>> stringLeaseEntry : entry.getValue().entrySet()) {
-
-                    Lease<InstanceInfo> lease = stringLeaseEntry.getValue();
-
-                    if (app == null) {
-                        app = new Application(lease.getHolder().getAppName());
-                    }
+        for (Application localApp : localApps.getRegisteredApplications()) {
+            apps.addApplication(localApp);
+        }
+        for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
+            Applications applications = remoteRegistry.getApplications();
+            for (Application application : applications
+                    .getRegisteredApplications()) {
+                Application appInLocalRegistry = apps
+                        .getRegisteredApplications(application.getName());
+                if (appInLocalRegistry == null) {
+                    apps.addApplication(application);
+                    statusCounts.add(application);
+                }
+            }
+        }
+        apps.setAppsHashCode(statusCounts.getReconcileHashCode());
+        return apps;
+    }
 
-                    app.addInstance(decorateInstanceInfo(lease));
+    /**
+     * Returns the snapshot of all applications in the local region. Only the applications changed since the
+     * previous snapshot are rebuilt from their leases; if nothing changed the previous snapshot is returned.
+     * The lease info of the instances of applications renewed since the previous call is refreshed in place.
+     *
+     * <p>
+     * The returned snapshot is shared between callers and must not be modified. It is not immutable though: its
+     * instances are the registered {@link InstanceInfo} objects, which status updates and renewals change in
+     * place, as they did before the snapshot was kept.
+     * </p>
+     */
+    private LocalSnapshot getLocalSnapshot() {
+        LocalSnapshot snapshot = localSnapshot;
+        if (snapshot != null && dirtyApplications.isEmpty() && renewedApplications.isEmpty()) {
+            return snapshot;
+        }
+        synchronized (snapshotLock) {
+            refreshRenewedApplications();
+            snapshot = localSnapshot;
+            if (snapshot != null && dirtyApplications.isEmpty()) {
+                return snapshot;
+            }
+            // Each name is removed before its application is rebuilt, so a write racing with the rebuild marks
+            // the application dirty again and is picked up by the next snapshot.
+            for (Iterator<String> it = dirtyApplications.iterator(); it.hasNext(); ) {
+                String appName = it.next();
+                it.remove();
+                rebuildLocalApplication(appName);
+            }
+            if (snapshot == null) {
+                for (String appName : registry.keySet()) {
+                    rebuildLocalApplication(appName);
                 }
             }
-            if (app != null) {
+            Applications apps = new Applications();
+            apps.setVersion(1L);
+            for (Application app : localApplications.values()) {
                 apps.addApplication(app);
             }
+            InstanceStatusCounts statusCounts = localStatusCounts.copy();
+            apps.setAppsHashCode(statusCounts.getReconcileHashCode());
+            snapshot = new LocalSnapshot(apps, statusCounts);
+            localSnapshot = snapshot;
+            return snapshot;
         }
-        if (includeRemoteRegion) {
-            for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
-                Applications applications = remoteRegistry.getApplications();
-                for (Application application : applications
-                        .getRegisteredApplications()) {
-                    Application appInLocalRegistry = apps
-                            .getRegisteredApplications(application.getName());
-                    if (appInLocalRegistry == null) {
-                        apps.addApplication(application);
-                    }
+    }
+
+    /**
+     * Refreshes the lease info, such as the last renewal timestamp, of the instances of the applications renewed
+     * since the previous call. Must be called holding the snapshot lock.
+     */
+    private void refreshRenewedApplications() {
+        for (Iterator<String> it = renewedApplications.iterator(); it.hasNext(); ) {
+            String appName = it.next();
+            it.remove();
+            Map<String, Lease<InstanceInfo>> leaseMap = registry.get(appName);
+            if (leaseMap != null) {
+                for (Lease<InstanceInfo> lease : leaseMap.values()) {
+                    decorateInstanceInfo(lease);
                 }
             }
         }
-        apps.setAppsHashCode(apps.getReconcileHashCode());
-        return apps;
+    }
+
+    /**
+     * Rebuilds the given application from its leases and moves the status counts from what the application was
+     * counted with in the previous snapshot to what it has now. Must be called holding the snapshot lock.
+     */
+    private void rebuildLocalApplication(String appName) {
+        InstanceStatusCounts previousCounts = localApplicationStatusCounts.remove(appName);
+        if (previousCounts != null) {
+            localStatusCounts.subtract(previousCounts);
+        }
+        Application app = buildLocalApplication(appName);
+        if (app == null) {
+            localApplications.remove(appName);
+        } else {
+            // Counted from the built application, as the lease holders may change status at any time
+            InstanceStatusCounts counts = InstanceStatusCounts.of(app);
+            localApplicationStatusCounts.put(appName, counts);
+            localStatusCounts.add(counts);
+            localApplications.put(appName, app);
+        }
+    }
+
+    @Nullable
+    private Application buildLocalApplication(String appName) {
+        Map<String, Lease<InstanceInfo>> leaseMap = registry.get(appName);
+        if (leaseMap == null) {
+            return null;
+        }
+        Application app = null;
+        for (Lease<InstanceInfo> lease : leaseMap.values()) {
+            if (app == null) {
+                app = new Application(lease.getHolder().getAppName());
+            }
+            app.addInstance(decorateInstanceInfo(lease));
+        }
+        return app;
     }
 
     /**
@@ -871,53 +1218,36 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     @Deprecated
     public Applications getApplicationDeltas() {
         GET_ALL_CACHE_MISS_DELTA.increment();
-        Applications apps = new Applications();
-        apps.setVersion(responseCache.getVersionDelta().get());
-        Map<String, Application> applicationInstancesMap = new HashMap<String, Application>();
-        try {
-            write.lock();
-            Iterator<RecentlyChangedItem> iter = this.recentlyChangedQueue.iterator();
-            logger.debug("The number of elements in the delta queue is : {}",
-                    this.recentlyChangedQueue.size());
-            while (iter.hasNext()) {
-                Lease<InstanceInfo> lease = iter.next().getLeaseInfo();
-                InstanceInfo instanceInfo = lease.getHolder();
-                logger.debug(
-                        "The instance id {} is found with status {} and actiontype {}",
-                        instanceInfo.getId(), instanceInfo.getStatus().name(), instanceInfo.getActionType().name());
-                Application app = applicationInstancesMap.get(instanceInfo
-                        .getAppName());
-                if (app == null) {
-                    app = new Application(instanceInfo.getAppName());
-                    applicationInstancesMap.put(instanceInfo.getAppName(), app);
-                    apps.addApplication(app);
-                }
-                app.addInstance(new InstanceInfo(decorateInstanceInfo(lease)));
-            }
-
-            boolean disableTransparentFallback = serverConfig.disableTransparentFallbackToOtherRegion();
-
-            if (!disableTransparentFallback) {
-                Applications allAppsInLocalRegion = getApplications(false);
-
-                for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
-                    Applications applications = remoteRegistry.getApplicationDeltas();
-                    for (Application application : applications.getRegisteredApplications()) {
-                        Application appInLocalRegistry =
-                                allAppsInLocalRegion.getRegisteredApplications(application.getName());
-                        if (appInLocalRegistry == null) {
-                            apps.addApplication(application);
+        final long deltaVersion = responseCache.getVersionDelta().get();
+        return readDeltaConsistently(new DeltaReader() {
+            @Override
+            public Applications read(long upToVersion) {
+                Applications apps = new Applications();
+                apps.setVersionDelta(deltaVersion);
+                addLocalChanges(apps, recentlyChangedLog.getWatermark(), upToVersion);
+
+                boolean disableTransparentFallback = serverConfig.disableTransparentFallbackToOtherRegion();
+
+                if (!disableTransparentFallback) {
+                    Applications allAppsInLocalRegion = getApplications(false);
+
+                    for (RemoteRegionRegistry remoteRegistry : regionNameVSRemoteRegistry.values()) {
+                        Applications applications = remoteRegistry.getApplicationDeltas();
+                        for (Application application : applications.getRegisteredApplications()) {
+                            Application appInLocalRegistry =
+                                    allAppsInLocalRegion.getRegisteredApplications(application.getName());
+                            if (appInLocalRegistry == null) {
+                                apps.addApplication(application);
+                            }
                         }
                     }
                 }
-            }
 
-            Applications allApps = getApplications(!disableTransparentFallback);
-            apps.setAppsHashCode(allApps.getReconcileHashCode());
-            return apps;
-        } finally {
-            write.unlock();
-        }
+                Applications allApps = getApplications(!disableTransparentFallback);
+                apps.setAppsHashCode(allApps.getAppsHashCode());
+                return apps;
+            }
+        });
     }
 
     /**
@@ -951,29 +1281,16 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
             GET_ALL_CACHE_MISS_DELTA.increment();
         }
 
-        Applications apps = new Applications();
-        apps.setVersion(responseCache.getVersionDeltaWithRegions().get());
-        Map<String, Application> applicationInstancesMap = new HashMap<String, Application>();
-        try {
-            write.lock();
-            Iterator<RecentlyChangedItem> iter = this.recentlyChangedQueue.iterator();
-            logger.debug("The number of elements in the delta queue is :{}", this.recentlyChangedQueue.size());
-            while (iter.hasNext()) {
-                Lease<InstanceInfo> lease = iter.next().getLeaseInfo();
-                InstanceInfo instanceInfo = lease.getHolder();
-                logger.debug("The instance id {} is found with status {} and actiontype {}",
-                        instanceInfo.getId(), instanceInfo.getStatus().name(), instanceInfo.getActionType().name());
-                Application app = applicationInstancesMap.get(instanceInfo.getAppName());
-                if (app == null) {
-                    app = new Application(instanceInfo.getAppName());
-                    applicationInstancesMap.put(instanceInfo.getAppName(), app);
-                    apps.addApplication(app);
-                }
-                app.addInstance(new InstanceInfo(decorateInstanceInfo(lease)));
-            }
+        final String[] regions = remoteRegions;
+        final long deltaVersion = responseCache.getVersionDeltaWithRegions().get();
+        return readDeltaConsistently(new DeltaReader() {
+            @Override
+            public Applications read(long upToVersion) {
+                Applications apps = new Applications();
+                apps.setVersionDelta(deltaVersion);
+                addLocalChanges(apps, recentlyChangedLog.getWatermark(), upToVersion);
 
-            if (includeRemoteRegion) {
-                for (String remoteRegion : remoteRegions) {
+                for (String remoteRegion : regions) {
                     RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
                     if (null != remoteRegistry) {
                         Applications remoteAppsDelta = remoteRegistry.getApplicationDeltas();
@@ -994,13 +1311,149 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                         }
                     }
                 }
+
+                Applications allApps = getApplicationsFromMultipleRegions(regions);
+                apps.setAppsHashCode(allApps.getAppsHashCode());
+                return apps;
             }
+        });
+    }
+
+    /**
+     * Clients can ask for the changes since a delta version if the registry they get is the local region only.
+     * Remote region changes are not versioned, so with the transparent fallback to remote regions only the windowed
+     * delta can be served.
+     */
+    @Override
+    public boolean isDeltaSinceVersionSupported() {
+        return serverConfig.disableTransparentFallbackToOtherRegion() || allKnownRemoteRegions.length == 0;
+    }
 
-            Applications allApps = getApplicationsFromMultipleRegions(remoteRegions);
-            apps.setAppsHashCode(allApps.getReconcileHashCode());
-            return apps;
+    /**
+     * Gets the same applications as {@link #getApplications()}, with the delta version of the last change they
+     * reflect, from which clients can ask for the changes that follow with {@link #getApplicationDeltasSince(long)}.
+     */
+    public Applications getApplicationsWithDeltaVersion() {
+        if (!isDeltaSinceVersionSupported()) {
+            return getApplications();
+        }
+        return readDeltaConsistently(new DeltaReader() {
+            @Override
+            public Applications read(long upToVersion) {
+                // The applications are shared, so their version is set on a copy
+                Applications apps = getApplications();
+                return new Applications(apps.getAppsHashCode(), recentlyChangedLog.toDeltaVersion(upToVersion),
+                        apps.getRegisteredApplications());
+            }
+        });
+    }
+
+    /**
+     * Gets exactly the local region changes that were made after the given delta version, which was handed out
+     * with a previous delta or with {@link #getApplicationsWithDeltaVersion()}. The returned delta has the
+     * version of its last change, so the next delta can be asked for from there.
+     *
+     * @return the changes after the given version, or null if they are no longer all retained, or if the version
+     * was not handed out by this registry.
+     */
+    @Nullable
+    public Applications getApplicationDeltasSince(long deltaVersion) {
+        final long sinceVersion = recentlyChangedLog.fromDeltaVersion(deltaVersion);
+        if (sinceVersion < 0 || !isDeltaSinceVersionSupported()) {
+            return null;
+        }
+        GET_ALL_CACHE_MISS_DELTA.increment();
+        return readDeltaConsistently(new DeltaReader() {
+            @Override
+            public Applications read(long upToVersion) {
+                if (sinceVersion > upToVersion) {
+                    return null;
+                }
+                Applications apps = new Applications();
+                apps.setVersionDelta(recentlyChangedLog.toDeltaVersion(upToVersion));
+                addLocalChanges(apps, sinceVersion, upToVersion);
+                // Checked last, as changes trimmed while they were read are silently skipped
+                if (recentlyChangedLog.getWatermark() > sinceVersion) {
+                    return null;
+                }
+                apps.setAppsHashCode(getApplications().getAppsHashCode());
+                return apps;
+            }
+        });
+    }
+
+    /**
+     * Adds the local region changes recorded in the recently changed log, after the first and up to and including
+     * the second given version, to the delta.
+     */
+    private void addLocalChanges(Applications apps, long afterVersion, long upToVersion) {
+        Map<String, Application> applicationInstancesMap = new HashMap<String, Application>();
+        Iterator<RecentlyChangedItem> iter = recentlyChangedLog.iterator(afterVersion, upToVersion);
+        logger.debug("The number of elements in the delta queue is : {}", recentlyChangedLog.size());
+        while (iter.hasNext()) {
+            Lease<InstanceInfo> lease = iter.next().getLeaseInfo();
+            InstanceInfo instanceInfo = lease.getHolder();
+            logger.debug("The instance id {} is found with status {} and actiontype {}",
+                    instanceInfo.getId(), instanceInfo.getStatus().name(), instanceInfo.getActionType().name());
+            Application app = applicationInstancesMap.get(instanceInfo.getAppName());
+            if (app == null) {
+                app = new Application(instanceInfo.getAppName());
+                applicationInstancesMap.put(instanceInfo.getAppName(), app);
+                apps.addApplication(app);
+            }
+            app.addInstance(new InstanceInfo(decorateInstanceInfo(lease)));
+        }
+    }
+
+    /**
+     * Reads a delta without blocking registry writes. The delta and its reconcile hash code must describe the
+     * same registry state, so the read is repeated if any write was in progress or completed while it ran. If
+     * that keeps happening, the read falls back to holding the write lock, which holds off all writes.
+     */
+    private Applications readDeltaConsistently(DeltaReader reader) {
+        for (int i = 0; i < MAX_OPTIMISTIC_DELTA_READS; i++) {
+            if (isWriteInProgress()) {
+                Thread.yield();
+                continue;
+            }
+            long upToVersion = recentlyChangedLog.getLatestVersion();
+            Applications delta = reader.read(upToVersion);
+            if (!isWriteInProgress() && recentlyChangedLog.getLatestVersion() == upToVersion) {
+                return delta;
+            }
+        }
+        DELTA_LOCKED_READ.increment();
+        lockAllWrites();
+        try {
+            return reader.read(recentlyChangedLog.getLatestVersion());
         } finally {
-            write.unlock();
+            unlockAllWrites();
+        }
+    }
+
+    private interface DeltaReader {
+        Applications read(long upToVersion);
+    }
+
+    private static final class IndexKeys {
+        private final String id;
+        private final String vipAddresses;
+        private final String secureVipAddresses;
+
+        private IndexKeys(String id, @Nullable String vipAddresses, @Nullable String secureVipAddresses) {
+            this.id = id;
+            this.vipAddresses = vipAddresses;
+            this.secureVipAddresses = secureVipAddresses;
+        }
+    }
+
+    private static final class LocalSnapshot {
+        private final Applications applications;
+        private final InstanceStatusCounts statusCounts;
+
+        private LocalSnapshot(Applications applications, InstanceStatusCounts statusCounts) {
+            this.applications = applications;
+            this.statusCounts = statusCounts;
         }
     }
 
@@ -1074,20 +1527,12 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     public List<InstanceInfo> getInstancesById(String id, boolean includeRemoteRegions) {
         List<InstanceInfo> list = new ArrayList<InstanceInfo>();
 
-        for (Iterator<Entry<String, Map<String, Lease<InstanceInfo>>>> iter =
-                     registry.entrySet().iterator(); iter.hasNext(); ) {
-
-            Map<String, Lease<InstanceInfo>> leaseMap = iter.next().getValue();
-            if (leaseMap != null) {
-                Lease<InstanceInfo> lease = leaseMap.get(id);
-
-                if (lease == null || (isLeaseExpirationEnabled() && lease.isExpired())) {
+        Set<Lease<InstanceInfo>> leases = idIndex.get(id);
+        if (leases != null) {
+            for (Lease<InstanceInfo> lease : leases) {
+                if (lease.getHolder() == null || (isLeaseExpirationEnabled() && lease.isExpired())) {
                     continue;
                 }
-
-                if (list == Collections.EMPTY_LIST) {
-                    list = new ArrayList<InstanceInfo>();
-                }
                 list.add(decorateInstanceInfo(lease));
             }
         }
@@ -1180,33 +1625,59 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         return list;
     }
 
-    private void invalidateCache(String appName, @Nullable String vipAddress, @Nullable String secureVipAddress) {
-        // invalidate cache
-        responseCache.invalidate(appName, vipAddress, secureVipAddress);
+    private void beginWrite(String appName) {
+        writeLockOf(appName).lock();
     }
 
-    protected void updateRenewsPerMinThreshold() {
-        this.numberOfRenewsPerMinThreshold = (int) (this.expectedNumberOfClientsSendingRenews
-                * (60.0 / serverConfig.getExpectedClientRenewalIntervalSeconds())
-                * serverConfig.getRenewalPercentThreshold());
+    private void endWrite(String appName) {
+        writeLockOf(appName).unlock();
     }
 
-    private static final class RecentlyChangedItem {
-        private long lastUpdateTime;
-        private Lease<InstanceInfo> leaseInfo;
-
-        public RecentlyChangedItem(Lease<InstanceInfo> lease) {
-            this.leaseInfo = lease;
-            lastUpdateTime = System.currentTimeMillis();
+    private void lockAllWrites() {
+        // Writers only ever hold a single stripe, so taking all of them in order cannot deadlock
+        for (ReentrantLock writeLock : writeLocks) {
+            writeLock.lock();
         }
+    }
 
-        public long getLastUpdateTime() {
-            return this.lastUpdateTime;
+    private void unlockAllWrites() {
+        for (int i = writeLocks.length - 1; i >= 0; i--) {
+            writeLocks[i].unlock();
         }
+    }
 
-        public Lease<InstanceInfo> getLeaseInfo() {
-            return this.leaseInfo;
+    private ReentrantLock writeLockOf(String appName) {
+        int hash = appName.hashCode();
+        // Spread the higher bits, as application names often only differ in their last characters
+        hash ^= (hash >>> 16);
+        return writeLocks[(hash & 0x7fffffff) % writeLocks.length];
+    }
+
+    private boolean isWriteInProgress() {
+        for (ReentrantLock writeLock : writeLocks) {
+            if (writeLock.isLocked()) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    private void invalidateCache(String appName, @Nullable String vipAddress, @Nullable String secureVipAddress) {
+        dirtyApplications.add(appName);
+        // invalidate cache
+        responseCache.invalidate(appName, vipAddress, secureVipAddress);
+    }
+
+    protected void updateRenewsPerMinThreshold() {
+        // Recompute until the threshold was written for the current count, so that a concurrent update computed
+        // from an older count cannot be the last one written
+        int expectedNumberOfClients;
+        do {
+            expectedNumberOfClients = this.expectedNumberOfClientsSendingRenews;
+            this.numberOfRenewsPerMinThreshold = (int) (expectedNumberOfClients
+                    * (60.0 / serverConfig.getExpectedClientRenewalIntervalSeconds())
+                    * serverConfig.getRenewalPercentThreshold());
+        } while (expectedNumberOfClients != this.expectedNumberOfClientsSendingRenews);
     }
 
     protected void postInit() {
@@ -1342,15 +1813,9 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
 
             @Override
             public void run() {
-                Iterator<RecentlyChangedItem> it = recentlyChangedQueue.iterator();
-                while (it.hasNext()) {
-                    if (it.next().getLastUpdateTime() <
-                            System.currentTimeMillis() - serverConfig.getRetentionTimeInMSInDeltaQueue()) {
-                        it.remove();
-                    } else {
-                        break;
-                    }
-                }
+                long watermark = recentlyChangedLog.trimOlderThan(
+                        System.currentTimeMillis() - serverConfig.getRetentionTimeInMSInDeltaQueue());
+                logger.debug("Delta retention watermark moved to version {}", watermark);
             }
 
         };
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.registry;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.netflix.discovery.converters.wrappers.EncoderWrapper;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.resources.ServerCodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of the encoded form of each application, from which the payload of all applications is assembled
+ * without encoding the applications that did not change.
+ *
+ * <p>
+ * The fragments are cut out of an {@link Applications} holding just the one application, and are kept per
+ * response cache key, that is per format, codec and version. The surrounding document and the separator between
+ * applications are taken from the current applications header with the smallest application encoded twice.
+ * Each fragment is also kept deflated on its own, so the gzipped payload is a concatenation of cached deflate
+ * blocks with only the small surrounding parts compressed on each assembly.
+ * </p>
+ *
+ * <p>
+ * The first payload assembled for a key is compared with the payload encoded in full; if they differ, which
+ * can only happen with a codec that does not lay out the applications as independent elements, the key falls
+ * back to full encoding for good.
+ * </p>
+ */
+final class ApplicationFragmentCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationFragmentCache.class);
+
+    private static final String APPLICATION_ELEMENT = "application";
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final ServerCodecs serverCodecs;
+    private final long fragmentExpiryMs;
+
+    private final ConcurrentMap<Key, Encoding> encodings = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    // The generation at which each application was last invalidated
+    private final ConcurrentMap<String, Long> invalidations = new ConcurrentHashMap<>();
+
+    ApplicationFragmentCache(EurekaServerConfig serverConfig, ServerCodecs serverCodecs) {
+        this.serverCodecs = serverCodecs;
+        this.fragmentExpiryMs = TimeUnit.SECONDS.toMillis(serverConfig.getResponseCacheAutoExpirationInSeconds());
+    }
+
+    /**
+     * @return the current generation, which must be taken before the registry is read for {@link #assemble}.
+     */
+    long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Drops the fragments of the given application, after it changed in the registry.
+     */
+    void invalidate(String appName) {
+        long invalidatedAt = generation.incrementAndGet();
+        invalidations.merge(appName.toUpperCase(Locale.ROOT), invalidatedAt, Math::max);
+    }
+
+    /**
+     * Assembles the payload of the given applications for the given key.
+     *
+     * @param generation the generation taken before the applications were read from the registry
+     * @return the payload, or null if it must be encoded in full.
+     */
+    @Nullable
+    Payload assemble(Key key, Applications apps, long generation) {
+        List<Application> registered = apps.getRegisteredApplications();
+        if (registered.isEmpty()) {
+            return null;
+        }
+        Encoding encoding = encodings.computeIfAbsent(key, k -> new Encoding());
+        if (encoding.unsupported) {
+            return null;
+        }
+        EncoderWrapper encoder = serverCodecs.getEncoder(key.getType(), key.getEurekaAccept());
+        try {
+            Application smallest = registered.get(0);
+            for (Application app : registered) {
+                if (app.size() < smallest.size()) {
+                    smallest = app;
+                }
+            }
+            String template = encoder.encode(
+                    new Applications(apps.getAppsHashCode(), apps.getVersionDelta(), Arrays.asList(smallest, smallest)));
+            int[] layout = locateApplications(key.getType(), template);
+            if (layout.length != 4) {
+                return unsupported(key, encoding);
+            }
+            String separator = template.substring(layout[1], layout[2]);
+            byte[] deflatedSeparator = deflate(separator.getBytes(), false);
+
+            StringBuilder payload = new StringBuilder(template.length() * registered.size());
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream(template.length() * registered.size() / 4);
+            gzipped.write(GZIP_HEADER);
+            String prefix = template.substring(0, layout[0]);
+            payload.append(prefix);
+            gzipped.write(deflate(prefix.getBytes(), false));
+            for (int i = 0; i < registered.size(); i++) {
+                if (i > 0) {
+                    payload.append(separator);
+                    gzipped.write(deflatedSeparator);
+                }
+                Fragment fragment = getFragment(key, encoding, encoder, apps, registered.get(i), generation);
+                payload.append(fragment.encoded);
+                gzipped.write(fragment.deflated);
+            }
+            String suffix = template.substring(layout[3]);
+            payload.append(suffix);
+            gzipped.write(deflate(suffix.getBytes(), true));
+
+            String result = payload.toString();
+            if (!encoding.verified) {
+                if (!result.equals(encoder.encode(apps))) {
+                    return unsupported(key, encoding);
+                }
+                encoding.verified = true;
+            }
+
+            byte[] rawBytes = result.getBytes();
+            CRC32 crc = new CRC32();
+            crc.update(rawBytes);
+            writeIntLE(gzipped, (int) crc.getValue());
+            writeIntLE(gzipped, rawBytes.length);
+
+            if (encoding.fragments.size() > registered.size()) {
+                pruneFragments(encoding, registered);
+            }
+            return new Payload(result, gzipped.toByteArray());
+        } catch (Exception e) {
+            logger.error("Failed to assemble the payload for all apps from application fragments", e);
+            return null;
+        }
+    }
+
+    private Fragment getFragment(Key key, Encoding encoding, EncoderWrapper encoder, Applications apps,
+                                 Application app, long generation) throws IOException {
+        String name = app.getName().toUpperCase(Locale.ROOT);
+        Fragment fragment = encoding.fragments.get(name);
+        Long invalidatedAt = invalidations.get(name);
+        long now = System.currentTimeMillis();
+        if (fragment != null && (invalidatedAt == null || fragment.generation >= invalidatedAt)
+                && fragment.expiryTime > now) {
+            return fragment;
+        }
+        String encoded = encoder.encode(
+                new Applications(apps.getAppsHashCode(), apps.getVersionDelta(), Collections.singletonList(app)));
+        int[] range = locateApplications(key.getType(), encoded);
+        if (range.length != 2) {
+            throw new IllegalStateException("Cannot locate application " + name + " in its encoded form");
+        }
+        String text = encoded.substring(range[0], range[1]);
+        fragment = new Fragment(text, deflate(text.getBytes(), false), generation, now + fragmentExpiryMs);
+        encoding.fragments.put(name, fragment);
+        return fragment;
+    }
+
+    private static void pruneFragments(Encoding encoding, List<Application> registered) {
+        Set<String> names = new HashSet<>();
+        for (Application app : registered) {
+            names.add(app.getName().toUpperCase(Locale.ROOT));
+        }
+        encoding.fragments.keySet().retainAll(names);
+    }
+
+    private static Payload unsupported(Key key, Encoding encoding) {
+        logger.warn("Application fragments do not reproduce the payload of {}; encoding all applications in full",
+                key.toStringCompact());
+        encoding.unsupported = true;
+        return null;
+    }
+
+    /**
+     * @return the start and end offsets of each application element directly inside the applications element.
+     */
+    static int[] locateApplications(Key.KeyType type, String encoded) throws IOException {
+        return type == Key.KeyType.JSON ? locateJsonApplications(encoded) : locateXmlApplications(encoded);
+    }
+
+    private static int[] locateJsonApplications(String json) throws IOException {
+        List<Integer> offsets = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            int depth = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                    depth++;
+                } else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+                    depth--;
+                } else if (token == JsonToken.FIELD_NAME && depth <= 2
+                        && APPLICATION_ELEMENT.equals(parser.getCurrentName())) {
+                    if (parser.nextToken() != JsonToken.START_ARRAY) {
+                        break;
+                    }
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        offsets.add((int) parser.getTokenLocation().getCharOffset());
+                        parser.skipChildren();
+                        offsets.add((int) parser.getTokenLocation().getCharOffset() + 1);
+                    }
+                    break;
+                }
+            }
+        }
+        return toArray(offsets);
+    }
+
+    private static int[] locateXmlApplications(String xml) {
+        List<Integer> offsets = new ArrayList<>();
+        int depth = 0;
+        int start = -1;
+        int i = 0;
+        while ((i = xml.indexOf('<', i)) >= 0) {
+            if (xml.startsWith("<?", i)) {
+                i = skipPast(xml, i, "?>");
+            } else if (xml.startsWith("<!--", i)) {
+                i = skipPast(xml, i, "-->");
+            } else if (xml.startsWith("<![CDATA[", i)) {
+                i = skipPast(xml, i, "]]>");
+            } else if (xml.startsWith("<!", i)) {
+                i = skipPast(xml, i, ">");
+            } else {
+                int end = tagEnd(xml, i);
+                if (xml.charAt(i + 1) == '/') {
+                    depth--;
+                    if (depth == 1 && start >= 0) {
+                        offsets.add(start);
+                        offsets.add(end + 1);
+                        start = -1;
+                    }
+                } else {
+                    boolean selfClosing = xml.charAt(end - 1) == '/';
+                    if (depth == 1 && isElement(xml, i + 1, APPLICATION_ELEMENT)) {
+                        if (selfClosing) {
+                            offsets.add(i);
+                            offsets.add(end + 1);
+                        } else {
+                            start = i;
+                        }
+                    }
+                    if (!selfClosing) {
+                        depth++;
+                    }
+                }
+                i = end + 1;
+            }
+        }
+        return toArray(offsets);
+    }
+
+    private static int skipPast(String xml, int from, String terminator) {
+        int end = xml.indexOf(terminator, from);
+        if (end < 0) {
+            throw new IllegalArgumentException("Unterminated XML construct at offset " + from);
+        }
+        return end + terminator.length();
+    }
+
+    private static int tagEnd(String xml, int from) {
+        char quote = 0;
+        for (int i = from + 1; i < xml.length(); i++) {
+            char c = xml.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated XML tag at offset " + from);
+    }
+
+    private static boolean isElement(String xml, int nameStart, String name) {
+        int nameEnd = nameStart + name.length();
+        if (!xml.startsWith(name, nameStart) || nameEnd >= xml.length()) {
+            return false;
+        }
+        char next = xml.charAt(nameEnd);
+        return next == '>' || next == '/' || Character.isWhitespace(next);
+    }
+
+    private static int[] toArray(List<Integer> offsets) {
+        int[] result = new int[offsets.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = offsets.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Deflates the given bytes into raw deflate blocks that can be concatenated with other blocks; only the
+     * last part of a stream is finished.
+     */
+    private static byte[] deflate(byte[] bytes, boolean finish) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(bytes);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 16);
+            byte[] buffer = new byte[8192];
+            if (finish) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int count;
+                do {
+                    count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, count);
+                } while (count == buffer.length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    static final class Payload {
+        private final String payload;
+        private final byte[] gzipped;
+
+        Payload(String payload, byte[] gzipped) {
+            this.payload = payload;
+            this.gzipped = gzipped;
+        }
+
+        String getPayload() {
+            return payload;
+        }
+
+        byte[] getGzipped() {
+            return gzipped;
+        }
+    }
+
+    private static final class Encoding {
+        private final ConcurrentMap<String, Fragment> fragments = new ConcurrentHashMap<>();
+        private volatile boolean verified;
+        private volatile boolean unsupported;
+    }
+
+    private static final class Fragment {
+        private final String encoded;
+        private final byte[] deflated;
+        private final long generation;
+        private final long expiryTime;
+
+        Fragment(String encoded, byte[] deflated, long generation, long expiryTime) {
+            this.encoded = encoded;
+            this.deflated = deflated;
+            this.generation = generation;
+            this.expiryTime = expiryTime;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.registry;
+
+import javax.annotation.Nullable;
+
+/**
+ * A payload served from the {@link ResponseCache}, together with the entity tag of the cached value it was read
+ * from, or the indication that the cached value still matches the entity tag the client already holds.
+ */
+public final class CachedPayload {
+
+    @Nullable
+    private final Object entity;
+    @Nullable
+    private final String entityTag;
+    private final boolean notModified;
+
+    private CachedPayload(@Nullable Object entity, @Nullable String entityTag, boolean notModified) {
+        this.entity = entity;
+        this.entityTag = entityTag;
+        this.notModified = notModified;
+    }
+
+    /**
+     * @return the response entity, which is null when {@link #isNotModified()}.
+     */
+    @Nullable
+    public Object getEntity() {
+        return entity;
+    }
+
+    /**
+     * @return the opaque, strong entity tag of the payload, or null if the cache does not tag its payloads.
+     */
+    @Nullable
+    public String getEntityTag() {
+        return entityTag;
+    }
+
+    /**
+     * @return true if the entity tag matched the client's If-None-Match header, and no entity is to be sent.
+     */
+    public boolean isNotModified() {
+        return notModified;
+    }
+
+    public static CachedPayload of(Object entity, @Nullable String entityTag) {
+        return new CachedPayload(entity, entityTag, false);
+    }
+
+    public static CachedPayload notModified(String entityTag) {
+        return new CachedPayload(null, entityTag, true);
+    }
+
+    /**
+     * Checks an If-None-Match header value, a comma separated list of entity tags or "*", against an entity tag.
+     * Weak tags are compared by their opaque value, as If-None-Match calls for the weak comparison.
+     */
+    static boolean matches(String ifNoneMatch, String entityTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag)) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                tag = tag.substring(1, tag.length() - 1);
+            }
+            if (tag.equals(entityTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
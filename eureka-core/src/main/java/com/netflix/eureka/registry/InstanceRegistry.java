@@ -70,6 +70,15 @@ public interface InstanceRegistry extends LeaseManager<InstanceInfo>, LookupServ
      */
     InstanceInfo getInstanceByAppAndId(String appName, String id, boolean includeRemoteRegions);
 
+    /**
+     * Checks whether clients can ask for the changes made since a delta version they got with a previous delta
+     * or with the full registry, instead of the changes made in the delta retention window.
+     * @return true if supported, false by default
+     */
+    default boolean isDeltaSinceVersionSupported() {
+        return false;
+    }
+
     void clearRegistry();
 
     void initializedResponseCache();
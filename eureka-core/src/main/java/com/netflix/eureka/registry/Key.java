@@ -19,8 +19,14 @@ public class Key {
         Application, VIP, SVIP
     }
 
+    /**
+     * The delta version of keys that are not for the changes since a delta version.
+     */
+    public static final long NO_DELTA_VERSION = -1;
+
     private final String entityName;
     private final String[] regions;
+    private final long deltaSinceVersion;
     private final KeyType requestType;
     private final Version requestVersion;
     private final String hashKey;
@@ -32,14 +38,29 @@ public class Key {
     }
 
     public Key(EntityType entityType, String entityName, KeyType type, Version v, EurekaAccept eurekaAccept, @Nullable String[] regions) {
+        this(entityType, entityName, type, v, eurekaAccept, regions, NO_DELTA_VERSION);
+    }
+
+    /**
+     * Creates the key of the changes made since the given delta version, see
+     * {@link AbstractInstanceRegistry#getApplicationDeltasSince(long)}.
+     */
+    public Key(EntityType entityType, String entityName, KeyType type, Version v, EurekaAccept eurekaAccept, long deltaSinceVersion) {
+        this(entityType, entityName, type, v, eurekaAccept, null, deltaSinceVersion);
+    }
+
+    private Key(EntityType entityType, String entityName, KeyType type, Version v, EurekaAccept eurekaAccept,
+                @Nullable String[] regions, long deltaSinceVersion) {
         this.regions = regions;
+        this.deltaSinceVersion = deltaSinceVersion;
         this.entityType = entityType;
         this.entityName = entityName;
         this.requestType = type;
         this.requestVersion = v;
         this.eurekaAccept = eurekaAccept;
         hashKey = this.entityType + this.entityName + (null != this.regions ? Arrays.toString(this.regions) : "")
-                + requestType.name() + requestVersion.name() + this.eurekaAccept.name();
+                + requestType.name() + requestVersion.name() + this.eurekaAccept.name()
+                + (NO_DELTA_VERSION != this.deltaSinceVersion ? "@" + this.deltaSinceVersion : "");
     }
 
     public String getName() {
@@ -50,6 +71,15 @@ public class Key {
         return hashKey;
     }
 
+    /**
+     * @return the part of the {@link #getHashKey() hash key} that identifies the registry data of this key, which
+     * is the same whatever the format, version and codec the data is encoded with.
+     */
+    public String getEntityKey() {
+        return entityType + entityName + (null != regions ? Arrays.toString(regions) : "")
+                + (NO_DELTA_VERSION != deltaSinceVersion ? "@" + deltaSinceVersion : "");
+    }
+
     public KeyType getType() {
         return requestType;
     }
@@ -74,6 +104,14 @@ public class Key {
         return regions;
     }
 
+    public boolean hasDeltaSinceVersion() {
+        return NO_DELTA_VERSION != deltaSinceVersion;
+    }
+
+    public long getDeltaSinceVersion() {
+        return deltaSinceVersion;
+    }
+
     public Key cloneWithoutRegions() {
         return new Key(entityType, entityName, requestType, requestVersion, eurekaAccept);
     }
@@ -99,6 +137,9 @@ public class Key {
         if(regions != null) {
             sb.append(", regions=").append(Arrays.toString(regions));
         }
+        if (hasDeltaSinceVersion()) {
+            sb.append(", since=").append(deltaSinceVersion);
+        }
         sb.append('}');
         return sb.toString();
     }
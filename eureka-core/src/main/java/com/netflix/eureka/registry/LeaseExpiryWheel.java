@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.registry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.netflix.eureka.lease.Lease;
+
+/**
+ * A hashed timing wheel indexing leases by their {@link Lease#getExpirationTimestamp() expiration time}, so the
+ * eviction task only has to look at the leases that are due instead of the whole registry.
+ *
+ * <p>
+ * Renewals do not touch the wheel. A lease stays in the slot of the expiration time it had when it was scheduled,
+ * and when that slot comes due a renewed lease is moved to the slot of its new expiration time. Every lease is
+ * therefore looked at about once per lease duration, however often it renews. Leases that expire more than one
+ * revolution ahead stay in their slot until the revolution they belong to.
+ * </p>
+ *
+ * <p>
+ * Leases are added concurrently by registrations; polling is expected to happen from a single thread. Leases are
+ * added under the read lock and polled under the write lock, so a lease is never added to a slot that a concurrent
+ * poll has already passed, where it would wait a whole revolution.
+ * </p>
+ */
+final class LeaseExpiryWheel<T> {
+
+    private final long tickMs;
+    private final List<Set<Lease<T>>> slots;
+    private final AtomicInteger size = new AtomicInteger();
+    private final ReadWriteLock pollLock = new ReentrantReadWriteLock();
+    // Highest tick of which all expired leases have been polled
+    private volatile long lastPolledTick;
+
+    LeaseExpiryWheel(long tickMs, int ticksPerWheel) {
+        this.tickMs = tickMs;
+        this.slots = new ArrayList<>(ticksPerWheel);
+        for (int i = 0; i < ticksPerWheel; i++) {
+            slots.add(ConcurrentHashMap.<Lease<T>>newKeySet());
+        }
+        this.lastPolledTick = System.currentTimeMillis() / tickMs - 1;
+    }
+
+    /**
+     * Adds the lease to the slot of its current expiration time. A lease that is already due is added to the
+     * next slot to be polled.
+     */
+    void schedule(Lease<T> lease) {
+        pollLock.readLock().lock();
+        try {
+            long tick = Math.max(lease.getExpirationTimestamp() / tickMs, lastPolledTick + 1);
+            if (slotOf(tick).add(lease)) {
+                size.incrementAndGet();
+            }
+        } finally {
+            pollLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the leases that expired before the last full tick preceding {@code now}. Renewed
+     * leases found on the way are moved to the slot of their new expiration time.
+     */
+    List<Lease<T>> pollExpired(long now) {
+        List<Lease<T>> expired = new ArrayList<>();
+        long currentTick = now / tickMs - 1;
+        pollLock.writeLock().lock();
+        try {
+            long fromTick = lastPolledTick + 1;
+            if (currentTick < fromTick) {
+                return expired;
+            }
+            if (currentTick - fromTick >= slots.size()) {
+                // Not polled for more than a revolution; every slot has to be looked at once
+                fromTick = currentTick - slots.size() + 1;
+            }
+            for (long tick = fromTick; tick <= currentTick; tick++) {
+                Set<Lease<T>> slot = slotOf(tick);
+                for (Iterator<Lease<T>> it = slot.iterator(); it.hasNext(); ) {
+                    Lease<T> lease = it.next();
+                    long expirationTick = lease.getExpirationTimestamp() / tickMs;
+                    if (expirationTick <= currentTick) {
+                        it.remove();
+                        size.decrementAndGet();
+                        expired.add(lease);
+                    } else {
+                        Set<Lease<T>> expirationSlot = slotOf(expirationTick);
+                        if (expirationSlot != slot) {
+                            it.remove();
+                            expirationSlot.add(lease);
+                        }
+                    }
+                }
+            }
+            lastPolledTick = currentTick;
+        } finally {
+            pollLock.writeLock().unlock();
+        }
+        return expired;
+    }
+
+    /**
+     * @return the number of scheduled leases, including the leases that were cancelled or replaced after they
+     * were scheduled and have not come due yet.
+     */
+    int size() {
+        return size.get();
+    }
+
+    void clear() {
+        for (Set<Lease<T>> slot : slots) {
+            slot.clear();
+        }
+        size.set(0);
+    }
+
+    private Set<Lease<T>> slotOf(long tick) {
+        return slots.get((int) (tick % slots.size()));
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.registry;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The encoded and gzipped bytes of a cached payload, held in direct buffers outside of the heap.
+ *
+ * <p>
+ * A payload is reference counted. It is created with one reference, owned by the cache that created it; every
+ * other holder, such as another cache or a response being written, must {@link #retain()} it before use and
+ * {@link #release()} it when done. When the last reference is released, the bytes are no longer accounted in
+ * the off-heap total and the buffers are freed right away, rather than whenever the garbage collector gets to
+ * their owning objects. Only if the JVM does not allow that are they left to the garbage collector.
+ * </p>
+ */
+final class OffHeapPayload {
+
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapPayload.class);
+
+    private static final int WRITE_CHUNK_SIZE = 64 * 1024;
+
+    @Nullable
+    private static final BufferFreer BUFFER_FREER = createBufferFreer();
+
+    private final ByteBuffer encoded;
+    @Nullable
+    private final ByteBuffer gzipped;
+    private final AtomicLong offHeapBytes;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    OffHeapPayload(byte[] encoded, @Nullable byte[] gzipped, AtomicLong offHeapBytes) {
+        this.encoded = toDirectBuffer(encoded);
+        this.gzipped = gzipped == null ? null : toDirectBuffer(gzipped);
+        this.offHeapBytes = offHeapBytes;
+        offHeapBytes.addAndGet(size());
+    }
+
+    /**
+     * Adds a reference to this payload.
+     *
+     * @return false if the payload has already been released by all its holders and must not be used.
+     */
+    boolean retain() {
+        while (true) {
+            int current = references.get();
+            if (current == 0) {
+                return false;
+            }
+            if (references.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drops a reference to this payload, and frees its buffers if it was the last one.
+     */
+    void release() {
+        int remaining = references.decrementAndGet();
+        if (remaining == 0) {
+            offHeapBytes.addAndGet(-size());
+            free(encoded);
+            if (gzipped != null) {
+                free(gzipped);
+            }
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Off-heap payload released more often than retained");
+        }
+    }
+
+    boolean hasGzipped() {
+        return gzipped != null;
+    }
+
+    /**
+     * @return a heap copy of the encoded bytes.
+     */
+    byte[] getEncoded() {
+        return copyOf(encoded);
+    }
+
+    /**
+     * @return a heap copy of the gzipped bytes, or null if the payload could not be compressed.
+     */
+    @Nullable
+    byte[] getGzipped() {
+        return gzipped == null ? null : copyOf(gzipped);
+    }
+
+    /**
+     * Writes the encoded or gzipped bytes to the given stream. Output streams only take heap arrays, so the bytes
+     * are copied through a small heap buffer; the payload as a whole is never copied to the heap.
+     */
+    void writeTo(OutputStream outputStream, boolean compressed) throws IOException {
+        ByteBuffer source = readable(compressed ? gzipped : encoded);
+        byte[] chunk = new byte[Math.min(source.remaining(), WRITE_CHUNK_SIZE)];
+        while (source.hasRemaining()) {
+            int length = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, length);
+            outputStream.write(chunk, 0, length);
+        }
+    }
+
+    private int size() {
+        return encoded.capacity() + (gzipped == null ? 0 : gzipped.capacity());
+    }
+
+    /**
+     * @return a view of the buffer to read from, which guards against use after the buffer was freed, as that
+     * would crash the JVM rather than fail.
+     */
+    private ByteBuffer readable(ByteBuffer buffer) {
+        if (references.get() <= 0) {
+            throw new IllegalStateException("Off-heap payload used after it was released");
+        }
+        return buffer.duplicate();
+    }
+
+    private static ByteBuffer toDirectBuffer(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    private byte[] copyOf(ByteBuffer buffer) {
+        ByteBuffer source = readable(buffer);
+        byte[] bytes = new byte[source.remaining()];
+        source.get(bytes);
+        return bytes;
+    }
+
+    private static void free(ByteBuffer buffer) {
+        if (BUFFER_FREER == null) {
+            return;
+        }
+        try {
+            BUFFER_FREER.free(buffer);
+        } catch (Exception e) {
+            logger.warn("Cannot free an off-heap payload buffer; leaving it to the garbage collector", e);
+        }
+    }
+
+    /**
+     * Frees direct buffers with Unsafe.invokeCleaner on Java 9 and later, or with the buffer's own cleaner on
+     * Java 8, neither of which is public API.
+     */
+    @Nullable
+    private static BufferFreer createBufferFreer() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                return buffer -> {
+                    Object bufferCleaner = cleaner.invoke(buffer);
+                    if (bufferCleaner != null) {
+                        clean.invoke(bufferCleaner);
+                    }
+                };
+            }
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (Exception e) {
+            logger.warn("Cannot free off-heap payload buffers explicitly; they are left to the garbage collector", e);
+            return null;
+        }
+    }
+
+    private interface BufferFreer {
+        void free(ByteBuffer buffer) throws Exception;
+    }
+}
@@ -16,19 +16,29 @@
 
 package com.netflix.eureka.registry;
 
+import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.netflix.appinfo.AmazonInfo;
 import com.netflix.appinfo.AmazonInfo.MetaDataKey;
 import com.netflix.appinfo.ApplicationInfoManager;
 import com.netflix.appinfo.DataCenterInfo;
 import com.netflix.appinfo.DataCenterInfo.Name;
+import com.netflix.appinfo.EurekaAccept;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.appinfo.LeaseInfo;
@@ -44,6 +54,7 @@ import com.netflix.eureka.registry.rule.OverrideExistsRule;
 import com.netflix.eureka.resources.CurrentRequestVersion;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.Version;
+import com.netflix.eureka.cluster.HeartbeatDigest;
 import com.netflix.eureka.cluster.PeerEurekaNode;
 import com.netflix.eureka.cluster.PeerEurekaNodes;
 import com.netflix.eureka.lease.Lease;
@@ -124,6 +135,20 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
     private Timer timer = new Timer(
             "ReplicaAwareInstanceRegistry - RenewalThresholdUpdater", true);
 
+    // Null if registry snapshots are disabled
+    private final RegistrySnapshotFile registrySnapshotFile;
+    private final AtomicBoolean registrySnapshotRestored = new AtomicBoolean();
+    private final com.netflix.servo.monitor.Timer writeRegistrySnapshotTimer =
+            Monitors.newTimer("write-registry-snapshot");
+
+    // Null if the response cache keys are not kept across restarts
+    private final ResponseCacheKeysFile responseCacheKeysFile;
+
+    // Null unless heartbeats are replicated in digests. Maps the "appName/id" key of each instance renewed since
+    // the previous digest to its application name.
+    private final ConcurrentMap<String, String> pendingHeartbeats;
+    private final Timer heartbeatDigestTimer;
+
     @Inject
     public PeerAwareInstanceRegistryImpl(
             EurekaServerConfig serverConfig,
@@ -134,6 +159,21 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
         super(serverConfig, clientConfig, serverCodecs);
         this.eurekaClient = eurekaClient;
         this.numberOfReplicationsLastMin = new MeasuredRate(1000 * 60 * 1);
+        String snapshotFileName = serverConfig.getRegistrySnapshotFile();
+        this.registrySnapshotFile = snapshotFileName == null || snapshotFileName.isEmpty()
+                ? null
+                : new RegistrySnapshotFile(new File(snapshotFileName));
+        String keysFileName = serverConfig.getResponseCacheKeysFile();
+        this.responseCacheKeysFile = keysFileName == null || keysFileName.isEmpty()
+                ? null
+                : new ResponseCacheKeysFile(new File(keysFileName));
+        if (serverConfig.getHeartbeatReplicationDigestIntervalMs() > 0) {
+            this.pendingHeartbeats = new ConcurrentHashMap<>();
+            this.heartbeatDigestTimer = new Timer("Eureka-HeartbeatDigestReplicator", true);
+        } else {
+            this.pendingHeartbeats = null;
+            this.heartbeatDigestTimer = null;
+        }
         // We first check if the instance is STARTING or DOWN, then we check explicit overrides,
         // then we check the status of a potentially existing lease.
         this.instanceStatusOverrideRule = new FirstMatchWinsCompositeRule(new DownOrStartingRule(),
@@ -151,6 +191,8 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
         this.peerEurekaNodes = peerEurekaNodes;
         initializedResponseCache();
         scheduleRenewalThresholdUpdateTask();
+        scheduleRegistrySnapshotTask();
+        scheduleHeartbeatDigestTask();
         initRemoteRegionRegistry();
 
         try {
@@ -177,6 +219,11 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
         }
         numberOfReplicationsLastMin.stop();
         timer.cancel();
+        if (heartbeatDigestTimer != null) {
+            heartbeatDigestTimer.cancel();
+        }
+        writeRegistrySnapshot();
+        writeResponseCacheKeys();
 
         super.shutdown();
     }
@@ -198,13 +245,126 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
                 serverConfig.getRenewalThresholdUpdateIntervalMs());
     }
 
+    /**
+     * Schedule the task that writes the registry snapshot periodically, if registry snapshots are enabled.
+     */
+    private void scheduleRegistrySnapshotTask() {
+        if (registrySnapshotFile == null) {
+            return;
+        }
+        timer.schedule(new TimerTask() {
+                           @Override
+                           public void run() {
+                               writeRegistrySnapshot();
+                           }
+                       }, serverConfig.getRegistrySnapshotIntervalMs(),
+                serverConfig.getRegistrySnapshotIntervalMs());
+    }
+
+    /**
+     * Schedule the task that replicates the renewals collected since its previous run, if heartbeats are
+     * replicated in digests.
+     */
+    private void scheduleHeartbeatDigestTask() {
+        if (heartbeatDigestTimer == null) {
+            return;
+        }
+        heartbeatDigestTimer.schedule(new TimerTask() {
+                                          @Override
+                                          public void run() {
+                                              replicateHeartbeatDigest();
+                                          }
+                                      }, serverConfig.getHeartbeatReplicationDigestIntervalMs(),
+                serverConfig.getHeartbeatReplicationDigestIntervalMs());
+    }
+
+    /**
+     * Replicates the renewals collected since the previous digest to all the peers. Each instance is looked
+     * up once for all of them, and those cancelled or expired since their renewal are left out.
+     */
+    @VisibleForTesting
+    void replicateHeartbeatDigest() {
+        try {
+            if (pendingHeartbeats.isEmpty()) {
+                return;
+            }
+            HeartbeatDigest.Builder digestBuilder = HeartbeatDigest.newBuilder();
+            for (Iterator<Map.Entry<String, String>> it = pendingHeartbeats.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, String> entry = it.next();
+                it.remove();
+                String appName = entry.getValue();
+                String id = entry.getKey().substring(appName.length() + 1);
+                InstanceInfo info = getInstanceByAppAndId(appName, id, false);
+                if (info != null) {
+                    digestBuilder.add(info, overriddenInstanceStatusMap.get(id));
+                }
+            }
+            HeartbeatDigest digest = digestBuilder.build();
+            if (digest.isEmpty()) {
+                return;
+            }
+            for (final PeerEurekaNode node : peerEurekaNodes.getPeerEurekaNodes()) {
+                if (peerEurekaNodes.isThisMyUrl(node.getServiceUrl())) {
+                    continue;
+                }
+                try {
+                    node.heartbeats(digest);
+                } catch (Throwable e) {
+                    logger.error("Cannot replicate the heartbeat digest to {}", node.getServiceUrl(), e);
+                }
+            }
+        } catch (Throwable e) {
+            logger.error("Cannot replicate the heartbeat digest", e);
+        }
+    }
+
+    private void writeRegistrySnapshot() {
+        // Until the registry has been synced up, the snapshot on disk is better than what is in memory
+        if (registrySnapshotFile == null || !registrySnapshotRestored.get()) {
+            return;
+        }
+        try {
+            Stopwatch tracer = writeRegistrySnapshotTimer.start();
+            try {
+                writeRegistrySnapshot(registrySnapshotFile);
+            } finally {
+                tracer.stop();
+            }
+        } catch (Throwable e) {
+            logger.error("Cannot write the registry snapshot", e);
+        }
+    }
+
+    private void writeResponseCacheKeys() {
+        if (responseCacheKeysFile == null || responseCache == null) {
+            return;
+        }
+        try {
+            responseCacheKeysFile.write(responseCache.getRequestedKeys());
+        } catch (Throwable e) {
+            logger.error("Cannot write the response cache keys", e);
+        }
+    }
+
     /**
      * Populates the registry information from a peer eureka node. This
      * operation fails over to other nodes until the list is exhausted if the
      * communication fails.
+     *
+     * <p>
+     * If registry snapshots are enabled, the first sync up restores the registry from a recent enough snapshot
+     * first. The registry is then reconciled with whatever the peers have at the time, without waiting for
+     * them if they have nothing yet, and renewals and replication bring it up to date from there.
+     * </p>
      */
     @Override
     public int syncUp() {
+        int restored = restoreRegistrySnapshot();
+        if (restored > 0) {
+            syncUpFromPeers();
+            return (int) getLocalRegistrySize();
+        }
+
         // Copy entire entry from neighboring DS node
         int count = 0;
 
@@ -217,20 +377,67 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
                     break;
                 }
             }
-            Applications apps = eurekaClient.getApplications();
-            for (Application app : apps.getRegisteredApplications()) {
-                for (InstanceInfo instance : app.getInstances()) {
-                    try {
-                        if (isRegisterable(instance)) {
-                            register(instance, instance.getLeaseInfo().getDurationInSecs(), true);
-                            count++;
-                        }
-                    } catch (Throwable t) {
-                        logger.error("During DS init copy", t);
+            count = syncUpFromPeers();
+        }
+        return count;
+    }
+
+    private int syncUpFromPeers() {
+        int count = 0;
+        Applications apps = eurekaClient.getApplications();
+        for (Application app : apps.getRegisteredApplications()) {
+            for (InstanceInfo instance : app.getInstances()) {
+                try {
+                    if (isRegisterable(instance)) {
+                        register(instance, instance.getLeaseInfo().getDurationInSecs(), true);
+                        count++;
                     }
+                } catch (Throwable t) {
+                    logger.error("During DS init copy", t);
+                }
+            }
+        }
+        return count;
+    }
+
+    private int restoreRegistrySnapshot() {
+        // Only restore on startup; later sync ups start over from an empty registry on purpose
+        if (registrySnapshotFile == null || !registrySnapshotRestored.compareAndSet(false, true)) {
+            return 0;
+        }
+        long startTime = System.currentTimeMillis();
+        RegistrySnapshotFile.Snapshot snapshot;
+        try {
+            snapshot = registrySnapshotFile.read();
+        } catch (Throwable e) {
+            logger.error("Cannot read the registry snapshot", e);
+            return 0;
+        }
+        if (snapshot == null) {
+            return 0;
+        }
+        long age = startTime - snapshot.getCreatedTimestamp();
+        if (age > serverConfig.getRegistrySnapshotMaxAgeMs()) {
+            logger.info("Ignoring registry snapshot taken {} ms ago", age);
+            return 0;
+        }
+
+        restartDeltaVersionsAfter(snapshot.getDeltaVersion());
+        int count = 0;
+        for (InstanceInfo instance : snapshot.getInstances()) {
+            try {
+                if (isRegisterable(instance)) {
+                    LeaseInfo leaseInfo = instance.getLeaseInfo();
+                    register(instance, leaseInfo == null
+                            ? Lease.DEFAULT_DURATION_IN_SECS : leaseInfo.getDurationInSecs(), true);
+                    count++;
                 }
+            } catch (Throwable t) {
+                logger.error("During registry snapshot restore", t);
             }
         }
+        logger.info("Restored {} instances from a registry snapshot taken {} ms ago in {} ms",
+                count, age, System.currentTimeMillis() - startTime);
         return count;
     }
 
@@ -251,11 +458,45 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
             logger.info("Priming AWS connections for all replicas..");
             primeAwsReplicas(applicationInfoManager);
         }
+        if (serverConfig.shouldWarmUpResponseCache()) {
+            warmUpResponseCache();
+        }
         logger.info("Changing status to UP");
         applicationInfoManager.setInstanceStatus(InstanceStatus.UP);
         super.postInit();
     }
 
+    /**
+     * Generates the payloads of the response cache that are requested first when the server takes traffic, so
+     * that the clients do not all miss the cache at once: every format, version and codec of the configured
+     * {@link EurekaServerConfig#getResponseCacheWarmUpEntities() entries}, and the keys requested from the
+     * previous run, if it left a {@link EurekaServerConfig#getResponseCacheKeysFile() keys file}.
+     */
+    @VisibleForTesting
+    void warmUpResponseCache() {
+        Set<Key> keys = new LinkedHashSet<Key>();
+        for (String entityName : serverConfig.getResponseCacheWarmUpEntities()) {
+            for (Key.KeyType keyType : Key.KeyType.values()) {
+                for (Version version : Version.values()) {
+                    for (EurekaAccept eurekaAccept : EurekaAccept.values()) {
+                        keys.add(new Key(Key.EntityType.Application, entityName, keyType, version, eurekaAccept));
+                    }
+                }
+            }
+        }
+        if (responseCacheKeysFile != null) {
+            try {
+                keys.addAll(responseCacheKeysFile.read());
+            } catch (Throwable e) {
+                logger.error("Cannot read the response cache keys", e);
+            }
+        }
+        long startTime = System.currentTimeMillis();
+        int generated = responseCache.warmUp(keys);
+        logger.info("Warmed up the response cache with {} of {} payloads in {} ms",
+                generated, keys.size(), System.currentTimeMillis() - startTime);
+    }
+
     /**
      * Prime connections for Aws replicas.
      * <p>
@@ -522,14 +763,12 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
                     }
                 }
             }
-            synchronized (lock) {
-                // Update threshold only if the threshold is greater than the
-                // current expected threshold or if self preservation is disabled.
-                if ((count) > (serverConfig.getRenewalPercentThreshold() * expectedNumberOfClientsSendingRenews)
-                        || (!this.isSelfPreservationModeEnabled())) {
-                    this.expectedNumberOfClientsSendingRenews = count;
-                    updateRenewsPerMinThreshold();
-                }
+            // Update threshold only if the threshold is greater than the
+            // current expected threshold or if self preservation is disabled.
+            if ((count) > (serverConfig.getRenewalPercentThreshold() * expectedNumberOfClientsSendingRenews)
+                    || (!this.isSelfPreservationModeEnabled())) {
+                this.expectedNumberOfClientsSendingRenews = count;
+                updateRenewsPerMinThreshold();
             }
             logger.info("Current renewal threshold is : {}", numberOfRenewsPerMinThreshold);
         } catch (Throwable e) {
@@ -562,6 +801,17 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
         return numberOfReplicationsLastMin.getCount();
     }
 
+    /**
+     * Gets the number of instances renewed since the previous heartbeat digest, if heartbeats are replicated in
+     * digests.
+     */
+    @com.netflix.servo.annotations.Monitor(name = "numOfPendingHeartbeatReplications",
+            description = "Number of renewals waiting for the next heartbeat digest",
+            type = com.netflix.servo.annotations.DataSourceType.GAUGE)
+    public int getNumOfPendingHeartbeatReplications() {
+        return pendingHeartbeats == null ? 0 : pendingHeartbeats.size();
+    }
+
     /**
      * Checks if the number of renewals is lesser than threshold.
      *
@@ -620,6 +870,11 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
             if (peerEurekaNodes == Collections.EMPTY_LIST || isReplication) {
                 return;
             }
+            // Renewals are replicated with the next heartbeat digest, if there is one
+            if (action == Action.Heartbeat && pendingHeartbeats != null) {
+                pendingHeartbeats.put(appName + '/' + id, appName);
+                return;
+            }
 
             for (final PeerEurekaNode node : peerEurekaNodes.getPeerEurekaNodes()) {
                 // If the url represents this host, do not replicate to yourself.
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.registry;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.eureka.lease.Lease;
+
+/**
+ * An append-only, versioned log of the registry changes that make up the delta view of the registry.
+ *
+ * <p>
+ * Every appended change is assigned a version exactly one greater than the change before it, so the
+ * log can be scanned from any version without locking while writers keep appending. Appends are a
+ * single CAS on the tail of a linked list. Old changes are dropped from the head by moving the version
+ * watermark forward; readers that are still walking trimmed entries are not affected.
+ * </p>
+ *
+ * <p>
+ * Versions handed out to clients as delta versions are qualified with a random epoch of the log, so that a
+ * delta version handed out by another server, or by this one before a restart, is not mistaken for a version
+ * of this log.
+ * </p>
+ */
+final class RecentlyChangedLog {
+
+    private static final int VERSION_BITS = 47;
+    private static final long VERSION_MASK = (1L << VERSION_BITS) - 1;
+
+    private final long epoch = ThreadLocalRandom.current().nextLong(1, 1L << (Long.SIZE - 1 - VERSION_BITS));
+    private final AtomicReference<RecentlyChangedItem> tail;
+    private volatile RecentlyChangedItem head;
+
+    RecentlyChangedLog() {
+        RecentlyChangedItem sentinel = new RecentlyChangedItem(null, 0);
+        this.head = sentinel;
+        this.tail = new AtomicReference<>(sentinel);
+    }
+
+    /**
+     * Appends a change of the given lease to the log.
+     *
+     * @return the version assigned to the change.
+     */
+    long append(Lease<InstanceInfo> lease) {
+        RecentlyChangedItem item = new RecentlyChangedItem(lease, System.currentTimeMillis());
+        while (true) {
+            RecentlyChangedItem last = tail.get();
+            RecentlyChangedItem next = last.next.get();
+            if (next != null) {
+                // Another writer linked its item but has not moved the tail yet; help it along.
+                tail.compareAndSet(last, next);
+                continue;
+            }
+            item.version = last.version + 1;
+            if (last.next.compareAndSet(null, item)) {
+                tail.compareAndSet(last, item);
+                return item.version;
+            }
+        }
+    }
+
+    /**
+     * @return the version of the most recently appended change, or the watermark if the log is empty.
+     */
+    long getLatestVersion() {
+        RecentlyChangedItem last = tail.get();
+        RecentlyChangedItem next;
+        while ((next = last.next.get()) != null) {
+            last = next;
+        }
+        return last.version;
+    }
+
+    /**
+     * @return the version watermark; all changes up to and including this version have been trimmed.
+     */
+    long getWatermark() {
+        return head.version;
+    }
+
+    /**
+     * @return the delta version handed out to clients for the given version of this log.
+     */
+    long toDeltaVersion(long version) {
+        return (epoch << VERSION_BITS) | version;
+    }
+
+    /**
+     * @return the version of this log for the given delta version, or -1 if it was not handed out by this log.
+     */
+    long fromDeltaVersion(long deltaVersion) {
+        if (deltaVersion < 0 || (deltaVersion >>> VERSION_BITS) != epoch) {
+            return -1;
+        }
+        return deltaVersion & VERSION_MASK;
+    }
+
+    /**
+     * @return the number of changes currently retained in the log.
+     */
+    int size() {
+        return (int) (getLatestVersion() - getWatermark());
+    }
+
+    /**
+     * Returns an iterator over the changes with a version greater than {@code afterVersion} and not greater
+     * than {@code upToVersion}, in version order. Changes that have already been trimmed are skipped.
+     */
+    Iterator<RecentlyChangedItem> iterator(long afterVersion, final long upToVersion) {
+        RecentlyChangedItem start = head;
+        while (start.version < afterVersion) {
+            RecentlyChangedItem next = start.next.get();
+            if (next == null) {
+                break;
+            }
+            start = next;
+        }
+        final RecentlyChangedItem first = start;
+        return new Iterator<RecentlyChangedItem>() {
+            private RecentlyChangedItem current = first;
+
+            @Override
+            public boolean hasNext() {
+                RecentlyChangedItem next = current.next.get();
+                return next != null && next.version <= upToVersion;
+            }
+
+            @Override
+            public RecentlyChangedItem next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                current = current.next.get();
+                return current;
+            }
+        };
+    }
+
+    /**
+     * Moves the version watermark past all changes recorded before the given time.
+     *
+     * @return the new watermark.
+     */
+    synchronized long trimOlderThan(long timestamp) {
+        RecentlyChangedItem first = head;
+        RecentlyChangedItem next;
+        while ((next = first.next.get()) != null && next.getLastUpdateTime() < timestamp) {
+            first = next;
+        }
+        head = first;
+        return first.version;
+    }
+
+    /**
+     * Drops all changes from the log. Versions keep increasing from where they were.
+     */
+    synchronized void clear() {
+        RecentlyChangedItem last = tail.get();
+        RecentlyChangedItem next;
+        while ((next = last.next.get()) != null) {
+            last = next;
+        }
+        head = last;
+    }
+
+    /**
+     * Drops all changes from the log and continues versions after the given version, if it is ahead of the
+     * latest version. Used when restoring a registry that was saved with its delta version; must not be called
+     * concurrently with {@link #append(Lease)}.
+     */
+    synchronized void restartAfter(long version) {
+        clear();
+        if (version > head.version) {
+            RecentlyChangedItem sentinel = new RecentlyChangedItem(null, 0);
+            sentinel.version = version;
+            head = sentinel;
+            tail.set(sentinel);
+        }
+    }
+
+    static final class RecentlyChangedItem {
+        private final long lastUpdateTime;
+        private final Lease<InstanceInfo> leaseInfo;
+        private final AtomicReference<RecentlyChangedItem> next = new AtomicReference<>();
+        // Written once by the appending thread before the item is published through 'next'
+        private long version;
+
+        RecentlyChangedItem(Lease<InstanceInfo> lease, long lastUpdateTime) {
+            this.leaseInfo = lease;
+            this.lastUpdateTime = lastUpdateTime;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public long getLastUpdateTime() {
+            return this.lastUpdateTime;
+        }
+
+        public Lease<InstanceInfo> getLeaseInfo() {
+            return this.leaseInfo;
+        }
+    }
+}
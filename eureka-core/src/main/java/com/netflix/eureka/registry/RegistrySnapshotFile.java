@@ -0,0 +1,416 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.registry;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.netflix.appinfo.AmazonInfo;
+import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.ActionType;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.appinfo.InstanceInfo.PortType;
+import com.netflix.appinfo.LeaseInfo;
+import com.netflix.appinfo.MyDataCenterInfo;
+
+/**
+ * A file holding a point in time copy of the local registry, from which a restarted server can restore its
+ * registry without waiting for its peers.
+ *
+ * <p>
+ * The file starts with a fixed header (magic number, format version, creation time, latest delta version and
+ * instance count), followed by one binary record per instance. Numbers are zig-zag varints, enums are ordinals
+ * and each distinct string is written once, with later occurrences referring back to it, so the application
+ * names, VIP addresses and metadata keys shared by many instances cost a byte or two. The file is written to a
+ * temporary file next to it and moved in place, so a crash while writing leaves the previous snapshot intact.
+ * Both writes and reads go through a memory mapping of the whole file.
+ * </p>
+ */
+final class RegistrySnapshotFile {
+
+    private static final int MAGIC = 0x45525353;  // "ERSS"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+
+    private static final int UNSECURE_PORT_ENABLED = 1;
+    private static final int SECURE_PORT_ENABLED = 1 << 1;
+    private static final int COORDINATING_DISCOVERY_SERVER = 1 << 2;
+    private static final int HAS_LEASE_INFO = 1 << 3;
+    private static final int HAS_LAST_DIRTY_TIMESTAMP = 1 << 4;
+
+    private static final InstanceStatus[] STATUSES = InstanceStatus.values();
+    private static final ActionType[] ACTION_TYPES = ActionType.values();
+    private static final DataCenterInfo.Name[] DATA_CENTER_NAMES = DataCenterInfo.Name.values();
+
+    private final Path path;
+
+    RegistrySnapshotFile(File file) {
+        this.path = file.toPath();
+    }
+
+    /**
+     * Replaces the snapshot with the given instances and their explicitly overridden statuses, by instance id.
+     */
+    void write(long deltaVersion, List<InstanceInfo> instances, Map<String, InstanceStatus> overriddenStatuses)
+            throws IOException {
+        Writer writer = new Writer();
+        for (InstanceInfo instance : instances) {
+            writer.writeStatus(overriddenStatuses.get(instance.getId()));
+            writer.writeInstance(instance);
+        }
+        byte[] records = writer.toByteArray();
+
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + records.length);
+            out.putInt(MAGIC);
+            out.putInt(FORMAT_VERSION);
+            out.putLong(System.currentTimeMillis());
+            out.putLong(deltaVersion);
+            out.putInt(instances.size());
+            out.put(records);
+            out.force();
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the snapshot, or null if there is no snapshot file. The explicitly overridden statuses are set on
+     * the returned instances.
+     * @throws IOException if the file cannot be read or is not a valid snapshot.
+     */
+    @Nullable
+    Snapshot read() throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC) {
+                throw new IOException("Not a registry snapshot: " + path);
+            }
+            int formatVersion = in.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported registry snapshot format " + formatVersion + ": " + path);
+            }
+            long createdTimestamp = in.getLong();
+            long deltaVersion = in.getLong();
+            int count = in.getInt();
+
+            Reader reader = new Reader(in);
+            List<InstanceInfo> instances = new ArrayList<InstanceInfo>(count);
+            for (int i = 0; i < count; i++) {
+                InstanceStatus overriddenStatus = reader.readStatus();
+                InstanceInfo instance = reader.readInstance();
+                if (overriddenStatus != null) {
+                    instance.setOverriddenStatus(overriddenStatus);
+                }
+                instances.add(instance);
+            }
+            return new Snapshot(createdTimestamp, deltaVersion, instances);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Truncated or corrupt registry snapshot: " + path, e);
+        }
+    }
+
+    static final class Snapshot {
+        private final long createdTimestamp;
+        private final long deltaVersion;
+        private final List<InstanceInfo> instances;
+
+        Snapshot(long createdTimestamp, long deltaVersion, List<InstanceInfo> instances) {
+            this.createdTimestamp = createdTimestamp;
+            this.deltaVersion = deltaVersion;
+            this.instances = instances;
+        }
+
+        long getCreatedTimestamp() {
+            return createdTimestamp;
+        }
+
+        long getDeltaVersion() {
+            return deltaVersion;
+        }
+
+        List<InstanceInfo> getInstances() {
+            return instances;
+        }
+    }
+
+    private static final class Writer {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        @SuppressWarnings("deprecation")
+        void writeInstance(InstanceInfo instance) {
+            LeaseInfo leaseInfo = instance.getLeaseInfo();
+            Long lastDirtyTimestamp = instance.getLastDirtyTimestamp();
+            int flags = (instance.isPortEnabled(PortType.UNSECURE) ? UNSECURE_PORT_ENABLED : 0)
+                    | (instance.isPortEnabled(PortType.SECURE) ? SECURE_PORT_ENABLED : 0)
+                    | (Boolean.TRUE.equals(instance.isCoordinatingDiscoveryServer()) ? COORDINATING_DISCOVERY_SERVER : 0)
+                    | (leaseInfo == null ? 0 : HAS_LEASE_INFO)
+                    | (lastDirtyTimestamp == null ? 0 : HAS_LAST_DIRTY_TIMESTAMP);
+            out.write(flags);
+
+            writeString(instance.getInstanceId());
+            writeString(instance.getAppName());
+            writeString(instance.getAppGroupName());
+            writeString(instance.getHostName());
+            writeString(instance.getIPAddr());
+            writeString(instance.getSID());
+            writeStatus(instance.getStatus());
+            writeStatus(instance.getOverriddenStatus());
+            writeVarLong(instance.getPort());
+            writeVarLong(instance.getSecurePort());
+            writeVarLong(instance.getCountryId());
+            writeString(instance.getHomePageUrl());
+            writeString(instance.getStatusPageUrl());
+            writeString(instance.getHealthCheckUrl());
+            writeString(instance.getSecureHealthCheckUrl());
+            writeString(instance.getVIPAddress());
+            writeString(instance.getSecureVipAddress());
+            writeString(instance.getASGName());
+            writeVarLong(instance.getLastUpdatedTimestamp());
+            if (lastDirtyTimestamp != null) {
+                writeVarLong(lastDirtyTimestamp);
+            }
+            writeOrdinal(instance.getActionType());
+            writeDataCenterInfo(instance.getDataCenterInfo());
+            if (leaseInfo != null) {
+                writeVarLong(leaseInfo.getRenewalIntervalInSecs());
+                writeVarLong(leaseInfo.getDurationInSecs());
+                writeVarLong(leaseInfo.getRegistrationTimestamp());
+                writeVarLong(leaseInfo.getRenewalTimestamp());
+                writeVarLong(leaseInfo.getEvictionTimestamp());
+                writeVarLong(leaseInfo.getServiceUpTimestamp());
+            }
+            writeMap(instance.getMetadata());
+        }
+
+        void writeStatus(InstanceStatus status) {
+            writeOrdinal(status);
+        }
+
+        private void writeOrdinal(Enum<?> value) {
+            out.write(value == null ? 0 : value.ordinal() + 1);
+        }
+
+        private void writeDataCenterInfo(DataCenterInfo dataCenterInfo) {
+            writeOrdinal(dataCenterInfo == null ? null : dataCenterInfo.getName());
+            if (dataCenterInfo instanceof AmazonInfo) {
+                writeMap(((AmazonInfo) dataCenterInfo).getMetadata());
+            }
+        }
+
+        /**
+         * Writes 0 for null, or else the number of entries plus one, followed by the keys and values.
+         */
+        private void writeMap(Map<String, String> map) {
+            if (map == null) {
+                writeUnsignedVarLong(0);
+                return;
+            }
+            writeUnsignedVarLong(map.size() + 1L);
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+
+        /**
+         * Writes 0 for null, the index in the file shifted left once for a string written before, or else the
+         * length shifted left once with the lowest bit set, followed by the UTF-8 bytes.
+         */
+        private void writeString(String value) {
+            if (value == null) {
+                writeUnsignedVarLong(0);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeUnsignedVarLong((index + 1L) << 1);
+                return;
+            }
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsignedVarLong(((long) bytes.length << 1) | 1);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        private void writeVarLong(long value) {
+            writeUnsignedVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeUnsignedVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    private static final class Reader {
+
+        private static final Function<String, String> NO_INTERNING = s -> s;
+
+        private final ByteBuffer in;
+        private final List<String> strings = new ArrayList<>();
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        @SuppressWarnings("deprecation")
+        InstanceInfo readInstance() {
+            // The string table already shares repeated values, so the builder does not need to intern them
+            InstanceInfo.Builder builder = InstanceInfo.Builder.newBuilder(NO_INTERNING);
+            int flags = in.get() & 0xFF;
+
+            builder.setInstanceId(readString());
+            builder.setAppNameForDeser(readString());
+            builder.setAppGroupNameForDeser(readString());
+            builder.setHostName(readString());
+            builder.setIPAddr(readString());
+            builder.setSID(readString());
+            builder.setStatus(readStatus());
+            builder.setOverriddenStatus(readStatus());
+            builder.setPort((int) readVarLong());
+            builder.setSecurePort((int) readVarLong());
+            builder.setCountryId((int) readVarLong());
+            builder.enablePort(PortType.UNSECURE, (flags & UNSECURE_PORT_ENABLED) != 0);
+            builder.enablePort(PortType.SECURE, (flags & SECURE_PORT_ENABLED) != 0);
+            builder.setHomePageUrlForDeser(readString());
+            builder.setStatusPageUrlForDeser(readString());
+            builder.setHealthCheckUrlsForDeser(readString(), readString());
+            builder.setVIPAddressDeser(readString());
+            builder.setSecureVIPAddressDeser(readString());
+            builder.setASGName(readString());
+            builder.setIsCoordinatingDiscoveryServer((flags & COORDINATING_DISCOVERY_SERVER) != 0);
+            builder.setLastUpdatedTimestamp(readVarLong());
+            if ((flags & HAS_LAST_DIRTY_TIMESTAMP) != 0) {
+                builder.setLastDirtyTimestamp(readVarLong());
+            }
+            builder.setActionType(readOrdinal(ACTION_TYPES));
+            builder.setDataCenterInfo(readDataCenterInfo());
+            if ((flags & HAS_LEASE_INFO) != 0) {
+                builder.setLeaseInfo(LeaseInfo.Builder.newBuilder()
+                        .setRenewalIntervalInSecs((int) readVarLong())
+                        .setDurationInSecs((int) readVarLong())
+                        .setRegistrationTimestamp(readVarLong())
+                        .setRenewalTimestamp(readVarLong())
+                        .setEvictionTimestamp(readVarLong())
+                        .setServiceUpTimestamp(readVarLong())
+                        .build());
+            }
+            Map<String, String> metadata = readMap();
+            if (metadata != null) {
+                builder.setMetadata(Collections.synchronizedMap(metadata));
+            }
+            return builder.build();
+        }
+
+        InstanceStatus readStatus() {
+            return readOrdinal(STATUSES);
+        }
+
+        private <T> T readOrdinal(T[] values) {
+            int ordinal = in.get() & 0xFF;
+            return ordinal == 0 ? null : values[ordinal - 1];
+        }
+
+        private DataCenterInfo readDataCenterInfo() {
+            DataCenterInfo.Name name = readOrdinal(DATA_CENTER_NAMES);
+            if (name == null) {
+                return null;
+            }
+            if (name == DataCenterInfo.Name.Amazon) {
+                return new AmazonInfo(name.name(), readMap());
+            }
+            return new MyDataCenterInfo(name);
+        }
+
+        private Map<String, String> readMap() {
+            long size = readUnsignedVarLong();
+            if (size == 0) {
+                return null;
+            }
+            Map<String, String> map = new LinkedHashMap<>();
+            for (long i = 1; i < size; i++) {
+                map.put(readString(), readString());
+            }
+            return map;
+        }
+
+        private String readString() {
+            long value = readUnsignedVarLong();
+            if (value == 0) {
+                return null;
+            }
+            if ((value & 1) == 0) {
+                return strings.get((int) (value >>> 1) - 1);
+            }
+            byte[] bytes = new byte[(int) (value >>> 1)];
+            in.get(bytes);
+            String result = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(result);
+            return result;
+        }
+
+        private long readVarLong() {
+            long value = readUnsignedVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readUnsignedVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.get();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+    }
+}
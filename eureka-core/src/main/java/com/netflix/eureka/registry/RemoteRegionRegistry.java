@@ -17,6 +17,7 @@ package com.netflix.eureka.registry;
 
 import javax.inject.Inject;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.Status;
 import java.net.InetAddress;
 import java.net.URL;
 import java.net.UnknownHostException;
@@ -74,6 +75,9 @@ import org.slf4j.LoggerFactory;
 public class RemoteRegionRegistry implements LookupService<String> {
     private static final Logger logger = LoggerFactory.getLogger(RemoteRegionRegistry.class);
 
+    // Returned in place of a delta the remote region answered with 304 (Not Modified)
+    private static final Applications NOT_MODIFIED_DELTA = new Applications();
+
     private final ApacheHttpClient4 discoveryApacheClient;
     private final EurekaJerseyClient discoveryJerseyClient;
     private final com.netflix.servo.monitor.Timer fetchRegistryTimer;
@@ -246,6 +250,10 @@ public class RemoteRegionRegistry implements LookupService<String> {
         long currGeneration = fetchRegistryGeneration.get();
         Applications delta = fetchRemoteRegistry(true);
 
+        if (delta == NOT_MODIFIED_DELTA) {
+            logger.debug("The delta from {} has not changed since it was last applied", this.remoteRegionURL);
+            return true;
+        }
         if (delta == null) {
             logger.error("The delta is null for some reason. Not storing this information");
         } else if (fetchRegistryGeneration.compareAndSet(currGeneration, currGeneration + 1)) {
@@ -376,7 +384,8 @@ public class RemoteRegionRegistry implements LookupService<String> {
     /**
      * Fetch registry information from the remote region.
      * @param delta - true, if the fetch needs to get deltas, false otherwise
-     * @return - response which has information about the data.
+     * @return - response which has information about the data, or {@link #NOT_MODIFIED_DELTA} if the delta is
+     *           the one that was applied last.
      */
     private Applications fetchRemoteRegistry(boolean delta) {
         logger.info("Getting instance registry info from the eureka server : {} , delta : {}", this.remoteRegionURL, delta);
@@ -389,6 +398,9 @@ public class RemoteRegionRegistry implements LookupService<String> {
                     logger.debug("Got the data successfully : {}", httpStatus);
                     return httpResponse.getEntity();
                 }
+                if (delta && httpStatus == Status.NOT_MODIFIED.getStatusCode()) {
+                    return NOT_MODIFIED_DELTA;
+                }
                 logger.warn("Cannot get the data from {} : {}", this.remoteRegionURL, httpStatus);
             } catch (Throwable t) {
                 logger.error("Can't get a response from {}", this.remoteRegionURL, t);
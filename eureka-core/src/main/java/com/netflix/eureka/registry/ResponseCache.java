@@ -1,6 +1,9 @@
 package com.netflix.eureka.registry;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -36,6 +39,71 @@ public interface ResponseCache {
      */
     byte[] getGZIP(Key key);
 
+    /**
+     * Get the cached payload as a response entity, which is either the payload itself or an entity that writes
+     * the payload to the response as it is stored in the cache.
+     *
+     * <p>
+     * The entity and its entity tag are read from the same cached value. If the tag matches the given
+     * If-None-Match header, no entity is returned and the payload is {@link CachedPayload#isNotModified()}.
+     * </p>
+     *
+     * @param key the key for which the cached information needs to be obtained.
+     * @param gzipped whether the compressed or the uncompressed payload is to be returned.
+     * @param ifNoneMatch the If-None-Match header of the request, if any.
+     * @return the payload, or null if there is no payload for the key.
+     */
+    @Nullable
+    default CachedPayload getPayload(Key key, boolean gzipped, @Nullable String ifNoneMatch) {
+        Object entity = gzipped ? getGZIP(key) : get(key);
+        return entity == null ? null : CachedPayload.of(entity, null);
+    }
+
+    /**
+     * Get the cached payload compressed with the
+     * {@link com.netflix.discovery.shared.transport.PresetDictionaryEncoding preset dictionary encoding}, which
+     * is only kept for the small payloads that are fetched most often, such as deltas.
+     *
+     * @param key the key for which the cached information needs to be obtained.
+     * @param ifNoneMatch the If-None-Match header of the request, if any.
+     * @return the payload, or null if the payload is not kept in that encoding and has to be served as gzip.
+     */
+    @Nullable
+    default CachedPayload getPresetDictionaryPayload(Key key, @Nullable String ifNoneMatch) {
+        return null;
+    }
+
+    /**
+     * Get the metrics of this cache, such as its hit ratio and the time spent generating payloads, as nested maps
+     * of plain values that can be written as JSON.
+     *
+     * @return the metrics, or an empty map if this cache does not collect any.
+     */
+    default Map<String, Object> getMetricsSnapshot() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Generates the payloads of the given keys ahead of the requests for them, such as before the server starts
+     * taking traffic.
+     *
+     * @param keys the keys whose payloads are to be generated.
+     * @return the number of payloads generated.
+     */
+    default int warmUp(Collection<Key> keys) {
+        return 0;
+    }
+
+    /**
+     * Get the keys the payloads of which have been requested and are kept up to date by this cache, from which
+     * the next run of the server learns what to {@link #warmUp(Collection) warm up}.
+     *
+     * @return the keys, or an empty collection if this cache does not track them.
+     */
+    default Collection<Key> getRequestedKeys() {
+        return Collections.emptyList();
+    }
+
     /**
      * Performs a shutdown of this cache by stopping internal threads and unregistering
      * Servo monitors.
@@ -19,17 +19,30 @@ package com.netflix.eureka.registry;
 import javax.annotation.Nullable;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Supplier;
@@ -40,11 +53,13 @@ import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.appinfo.EurekaAccept;
-import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.converters.wrappers.EncoderWrapper;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.transport.PresetDictionaryEncoding;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.Version;
 import com.netflix.eureka.resources.CurrentRequestVersion;
@@ -71,6 +86,29 @@ import org.slf4j.LoggerFactory;
  * formats and for multiple versions too.
  * </p>
  *
+ * <p>
+ * The payloads of the same registry data in different formats, versions and codecs are encoded from one
+ * snapshot of the data, taken by the first of them generated after an invalidation.
+ * </p>
+ *
+ * <p>
+ * Invalidated entries are either dropped and generated again by the next request, or, if
+ * {@link EurekaServerConfig#shouldRegenerateResponseCacheInBackground()} is set, regenerated on a small
+ * pool of threads while the previous payload keeps being served.
+ * </p>
+ *
+ * <p>
+ * If {@link EurekaServerConfig#shouldUseOffHeapResponseCache()} is set, the encoded and compressed payloads are
+ * held in direct buffers, see {@link OffHeapPayload}, and copied to the responses from there in small chunks. Each
+ * of the two cache levels then holds a reference to the payloads it caches, as does every response while it is
+ * being written.
+ * </p>
+ *
+ * <p>
+ * Lookups, payload generations and compressions are measured per kind of payload, see
+ * {@link ResponseCacheMetrics}, and published to servo and the {@code /serverinfo/responsecache} endpoint.
+ * </p>
+ *
  * @author Karthik Ranganathan, Greg Kim
  */
 public class ResponseCacheImpl implements ResponseCache {
@@ -85,6 +123,9 @@ public class ResponseCacheImpl implements ResponseCache {
     private static final AtomicLong versionDeltaWithRegionsLegacy = new AtomicLong(0);
 
     private static final String EMPTY_PAYLOAD = "";
+    // Stands for the registry data of keys that have none, such as unknown applications, in a snapshot cycle
+    private static final Object NO_SNAPSHOT = new Object();
+    static final String GZIP_ENCODING = "gzip";
     private final java.util.Timer timer = new java.util.Timer("Eureka-CacheFillTimer", true);
     private final AtomicLong versionDelta = new AtomicLong(0);
     private final AtomicLong versionDeltaWithRegions = new AtomicLong(0);
@@ -96,6 +137,7 @@ public class ResponseCacheImpl implements ResponseCache {
     private final Timer serializeOneApptimer = Monitors.newTimer("serialize-one");
     private final Timer serializeViptimer = Monitors.newTimer("serialize-one-vip");
     private final Timer compressPayloadTimer = Monitors.newTimer("compress-payload");
+    private final ResponseCacheMetrics metrics = new ResponseCacheMetrics();
 
     /**
      * This map holds mapping of keys without regions to a list of keys with region (provided by clients)
@@ -103,6 +145,7 @@ public class ResponseCacheImpl implements ResponseCache {
      * requested by clients, we use this mapping to get all the keys with regions to be invalidated.
      * If we do not do this, any cached user requests containing region keys will not be invalidated and will stick
      * around till expiry. Github issue: https://github.com/Netflix/eureka/issues/118
+     * Keys of the changes since a delta version are mapped from the delta key without a version the same way.
      */
     private final Multimap<Key, Key> regionSpecificKeys =
             Multimaps.newListMultimap(new ConcurrentHashMap<Key, Collection<Key>>(), new Supplier<List<Key>>() {
@@ -114,8 +157,47 @@ public class ResponseCacheImpl implements ResponseCache {
 
     private final ConcurrentMap<Key, Value> readOnlyCacheMap = new ConcurrentHashMap<Key, Value>();
 
+    /**
+     * Applications and VIP addresses to invalidate on the next tick of the invalidation timer, or null if each
+     * invalidation is applied as it happens.
+     */
+    @Nullable
+    private final Set<String> pendingApplications;
+    @Nullable
+    private final Set<String> pendingVipAddresses;
+    @Nullable
+    private final Set<String> pendingSecureVipAddresses;
+    @Nullable
+    private final java.util.Timer invalidationTimer;
+
+    /**
+     * The registry data taken for the keys generated since the last invalidation, which the keys of the same data
+     * in other formats, versions and codecs are encoded from. A cycle also ends after the read only cache update
+     * interval, as changes in remote regions do not invalidate the cache.
+     */
+    private volatile SnapshotCycle snapshotCycle = new SnapshotCycle(-1, 0);
+    private final AtomicLong invalidationCount = new AtomicLong(0);
+    private final long snapshotCycleMs;
+    // Keys invalidated since the read only cache last took their payload, mapped to the first invalidation since then
+    private final ConcurrentMap<Key, Long> readOnlyStaleSince = new ConcurrentHashMap<Key, Long>();
+
+    /**
+     * Keys waiting for or being regenerated in the background, mapped to the sequence number of their latest
+     * invalidation. At most one regeneration per key is queued or running; a key invalidated again while it is
+     * being regenerated is regenerated once more when the running regeneration completes.
+     */
+    private final ConcurrentMap<Key, Long> regenerationRequests = new ConcurrentHashMap<Key, Long>();
+    private final AtomicLong regenerationSequence = new AtomicLong(0);
+    @Nullable
+    private final ThreadPoolExecutor regenerationExecutor;
+    // Total size of the off-heap payloads, or null if the payloads are held on heap
+    @Nullable
+    private final AtomicLong offHeapBytes;
+
     private final LoadingCache<Key, Value> readWriteCacheMap;
     private final boolean shouldUseReadOnlyResponseCache;
+    @Nullable
+    private final ApplicationFragmentCache applicationFragmentCache;
     private final AbstractInstanceRegistry registry;
     private final EurekaServerConfig serverConfig;
     private final ServerCodecs serverCodecs;
@@ -125,8 +207,47 @@ public class ResponseCacheImpl implements ResponseCache {
         this.serverCodecs = serverCodecs;
         this.shouldUseReadOnlyResponseCache = serverConfig.shouldUseReadOnlyResponseCache();
         this.registry = registry;
+        this.applicationFragmentCache = serverConfig.shouldUseApplicationFragmentCache()
+                ? new ApplicationFragmentCache(serverConfig, serverCodecs)
+                : null;
+        this.offHeapBytes = serverConfig.shouldUseOffHeapResponseCache() ? new AtomicLong(0) : null;
+        long invalidationCoalescingMs = serverConfig.getResponseCacheInvalidationCoalescingMs();
+        if (invalidationCoalescingMs > 0) {
+            this.pendingApplications = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            this.pendingVipAddresses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            this.pendingSecureVipAddresses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            this.invalidationTimer = new java.util.Timer("Eureka-CacheInvalidationTimer", true);
+            this.invalidationTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    try {
+                        flushInvalidations();
+                    } catch (Throwable th) {
+                        logger.error("Error while invalidating the response cache", th);
+                    }
+                }
+            }, invalidationCoalescingMs, invalidationCoalescingMs);
+        } else {
+            this.pendingApplications = null;
+            this.pendingVipAddresses = null;
+            this.pendingSecureVipAddresses = null;
+            this.invalidationTimer = null;
+        }
+        if (serverConfig.shouldRegenerateResponseCacheInBackground()) {
+            int threads = serverConfig.getResponseCacheRegenerationThreads();
+            this.regenerationExecutor = new ThreadPoolExecutor(
+                    threads, threads, 0, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(serverConfig.getInitialCapacityOfResponseCache()),
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("Eureka-CacheRegenerator-%d")
+                            .setDaemon(true)
+                            .build());
+        } else {
+            this.regenerationExecutor = null;
+        }
 
         long responseCacheUpdateIntervalMs = serverConfig.getResponseCacheUpdateIntervalMs();
+        this.snapshotCycleMs = responseCacheUpdateIntervalMs;
         this.readWriteCacheMap =
                 CacheBuilder.newBuilder().initialCapacity(serverConfig.getInitialCapacityOfResponseCache())
                         .expireAfterWrite(serverConfig.getResponseCacheAutoExpirationInSeconds(), TimeUnit.SECONDS)
@@ -134,21 +255,23 @@ public class ResponseCacheImpl implements ResponseCache {
                             @Override
                             public void onRemoval(RemovalNotification<Key, Value> notification) {
                                 Key removedKey = notification.getKey();
-                                if (removedKey.hasRegions()) {
+                                if (removedKey.hasRegions() || removedKey.hasDeltaSinceVersion()) {
                                     Key cloneWithNoRegions = removedKey.cloneWithoutRegions();
                                     regionSpecificKeys.remove(cloneWithNoRegions, removedKey);
                                 }
+                                if (notification.getValue() != null) {
+                                    notification.getValue().release();
+                                }
                             }
                         })
                         .build(new CacheLoader<Key, Value>() {
                             @Override
                             public Value load(Key key) throws Exception {
-                                if (key.hasRegions()) {
+                                if (key.hasRegions() || key.hasDeltaSinceVersion()) {
                                     Key cloneWithNoRegions = key.cloneWithoutRegions();
                                     regionSpecificKeys.put(cloneWithNoRegions, key);
                                 }
-                                Value value = generatePayload(key);
-                                return value;
+                                return generatePayload(key);
                             }
                         });
 
@@ -181,7 +304,7 @@ public class ResponseCacheImpl implements ResponseCache {
                         Value cacheValue = readWriteCacheMap.get(key);
                         Value currentCacheValue = readOnlyCacheMap.get(key);
                         if (cacheValue != currentCacheValue) {
-                            readOnlyCacheMap.put(key, cacheValue);
+                            putReadOnly(key, cacheValue, false);
                         }
                     } catch (Throwable th) {
                         logger.error("Error while updating the client cache from response cache for key {}", key.toStringCompact(), th);
@@ -206,16 +329,20 @@ public class ResponseCacheImpl implements ResponseCache {
      * @return payload which contains information about the applications.
      */
     public String get(final Key key) {
-        return get(key, shouldUseReadOnlyResponseCache);
+        return get(key, useReadOnlyCacheFor(key));
     }
 
     @VisibleForTesting
     String get(final Key key, boolean useReadOnlyCache) {
-        Value payload = getValue(key, useReadOnlyCache);
-        if (payload == null || payload.getPayload().equals(EMPTY_PAYLOAD)) {
+        Value payload = acquireValue(key, useReadOnlyCache);
+        if (payload == null) {
             return null;
-        } else {
-            return payload.getPayload();
+        }
+        try {
+            String result = payload.getPayload();
+            return result.equals(EMPTY_PAYLOAD) ? null : result;
+        } finally {
+            payload.release();
         }
     }
 
@@ -229,44 +356,228 @@ public class ResponseCacheImpl implements ResponseCache {
      *         applications.
      */
     public byte[] getGZIP(Key key) {
-        Value payload = getValue(key, shouldUseReadOnlyResponseCache);
+        Value payload = acquireValue(key, useReadOnlyCacheFor(key));
         if (payload == null) {
             return null;
         }
-        return payload.getGzipped();
+        try {
+            return payload.getGzipped();
+        } finally {
+            payload.release();
+        }
+    }
+
+    /**
+     * Get the cached payload as a response entity, tagged with the content hash of the cached value. Off-heap
+     * payloads are returned as an entity that copies them from their direct buffers as it is written. The entity
+     * holds no reference to the payload, so one that is never written leaks nothing; it takes one for the time
+     * it is written, and if the payload was freed in between, it writes the value now cached for the key instead.
+     */
+    @Override
+    public CachedPayload getPayload(final Key key, final boolean gzipped, @Nullable String ifNoneMatch) {
+        final Value payload = acquireValue(key, useReadOnlyCacheFor(key));
+        if (payload == null) {
+            return null;
+        }
+        try {
+            String entityTag = payload.getEntityTag(gzipped ? GZIP_ENCODING : null);
+            if (entityTag != null && ifNoneMatch != null && CachedPayload.matches(ifNoneMatch, entityTag)) {
+                return CachedPayload.notModified(entityTag);
+            }
+            if (payload.getOffHeapPayload() == null) {
+                Object entity = gzipped ? payload.getGzipped() : payload.getPayload();
+                return entity == null || EMPTY_PAYLOAD.equals(entity) ? null : CachedPayload.of(entity, entityTag);
+            }
+            if (entityTag == null) {
+                return null;
+            }
+            StreamingOutput entity = new StreamingOutput() {
+                @Override
+                public void write(OutputStream output) throws IOException {
+                    Value current = payload.retain() ? payload : acquireValue(key, useReadOnlyCacheFor(key));
+                    if (current == null) {
+                        throw new IOException("No cached payload left for " + key.getName());
+                    }
+                    try {
+                        writePayload(current, output, gzipped);
+                    } finally {
+                        current.release();
+                    }
+                }
+            };
+            return CachedPayload.of(entity, entityTag);
+        } finally {
+            payload.release();
+        }
+    }
+
+    private static void writePayload(Value payload, OutputStream output, boolean gzipped) throws IOException {
+        OffHeapPayload offHeapPayload = payload.getOffHeapPayload();
+        if (offHeapPayload != null && (!gzipped || offHeapPayload.hasGzipped())) {
+            offHeapPayload.writeTo(output, gzipped);
+            return;
+        }
+        byte[] bytes = gzipped ? payload.getGzipped() : payload.getPayload().getBytes();
+        if (bytes == null) {
+            throw new IOException("No gzipped payload cached");
+        }
+        output.write(bytes);
+    }
+
+    @Override
+    public CachedPayload getPresetDictionaryPayload(Key key, @Nullable String ifNoneMatch) {
+        Value payload = acquireValue(key, useReadOnlyCacheFor(key));
+        if (payload == null) {
+            return null;
+        }
+        try {
+            String entityTag = payload.getEntityTag(PresetDictionaryEncoding.ENCODING);
+            if (entityTag == null) {
+                return null;
+            }
+            if (ifNoneMatch != null && CachedPayload.matches(ifNoneMatch, entityTag)) {
+                return CachedPayload.notModified(entityTag);
+            }
+            return CachedPayload.of(payload.getPresetDictionaryDeflated(), entityTag);
+        } finally {
+            payload.release();
+        }
+    }
+
+    /**
+     * Generates the payloads of the given keys in both cache levels, one key after the other, so that the
+     * payloads of a key in its other formats and versions are encoded from the same registry snapshot.
+     */
+    @Override
+    public int warmUp(Collection<Key> keys) {
+        int generated = 0;
+        for (Key key : keys) {
+            try {
+                CurrentRequestVersion.set(key.getVersion());
+                if (getValue(key, useReadOnlyCacheFor(key)) != null) {
+                    generated++;
+                }
+            } finally {
+                CurrentRequestVersion.remove();
+            }
+        }
+        return generated;
+    }
+
+    /**
+     * Get the keys held by either cache level, but for those of the changes since a delta version. The read only
+     * cache keeps every key it was ever asked for, and refreshes it on each update interval anyway.
+     */
+    @Override
+    public Collection<Key> getRequestedKeys() {
+        Set<Key> keys = new LinkedHashSet<Key>(readOnlyCacheMap.keySet());
+        keys.addAll(readWriteCacheMap.asMap().keySet());
+        for (Iterator<Key> it = keys.iterator(); it.hasNext(); ) {
+            if (it.next().hasDeltaSinceVersion()) {
+                it.remove();
+            }
+        }
+        return keys;
     }
 
     @Override
     public void stop() {
         timer.cancel();
+        if (invalidationTimer != null) {
+            invalidationTimer.cancel();
+        }
+        metrics.shutdown();
+        if (regenerationExecutor != null) {
+            regenerationExecutor.shutdownNow();
+        }
+        if (offHeapBytes != null) {
+            readWriteCacheMap.invalidateAll();
+            for (Key key : readOnlyCacheMap.keySet()) {
+                Value value = readOnlyCacheMap.remove(key);
+                if (value != null) {
+                    value.release();
+                }
+            }
+        }
         Monitors.unregisterObject(this);
     }
 
     /**
-     * Invalidate the cache of a particular application.
+     * Invalidate the cache of a particular application. With
+     * {@link EurekaServerConfig#getResponseCacheInvalidationCoalescingMs()} set, the invalidation is only recorded,
+     * and applied with all others recorded until the next tick of the invalidation timer.
      *
      * @param appName the application name of the application.
      */
     @Override
     public void invalidate(String appName, @Nullable String vipAddress, @Nullable String secureVipAddress) {
+        if (pendingApplications != null) {
+            pendingApplications.add(appName);
+            if (null != vipAddress) {
+                pendingVipAddresses.add(vipAddress);
+            }
+            if (null != secureVipAddress) {
+                pendingSecureVipAddresses.add(secureVipAddress);
+            }
+            return;
+        }
+        invalidate(
+                Collections.singletonList(appName),
+                null == vipAddress ? Collections.<String>emptyList() : Collections.singletonList(vipAddress),
+                null == secureVipAddress ? Collections.<String>emptyList() : Collections.singletonList(secureVipAddress)
+        );
+    }
+
+    /**
+     * Applies the invalidations recorded since the previous tick of the invalidation timer, invalidating each
+     * key once however many changes were recorded for it.
+     */
+    @VisibleForTesting
+    void flushInvalidations() {
+        List<String> appNames = drain(pendingApplications);
+        List<String> vipAddresses = drain(pendingVipAddresses);
+        List<String> secureVipAddresses = drain(pendingSecureVipAddresses);
+        if (!appNames.isEmpty() || !vipAddresses.isEmpty() || !secureVipAddresses.isEmpty()) {
+            invalidate(appNames, vipAddresses, secureVipAddresses);
+        }
+    }
+
+    private static List<String> drain(Set<String> pending) {
+        List<String> drained = new ArrayList<String>();
+        for (Iterator<String> it = pending.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    private void invalidate(Collection<String> appNames, Collection<String> vipAddresses,
+                            Collection<String> secureVipAddresses) {
+        if (applicationFragmentCache != null) {
+            for (String appName : appNames) {
+                applicationFragmentCache.invalidate(appName);
+            }
+        }
+        Set<Key> keys = new LinkedHashSet<Key>();
         for (Key.KeyType type : Key.KeyType.values()) {
             for (Version v : Version.values()) {
-                invalidate(
-                        new Key(Key.EntityType.Application, appName, type, v, EurekaAccept.full),
-                        new Key(Key.EntityType.Application, appName, type, v, EurekaAccept.compact),
-                        new Key(Key.EntityType.Application, ALL_APPS, type, v, EurekaAccept.full),
-                        new Key(Key.EntityType.Application, ALL_APPS, type, v, EurekaAccept.compact),
-                        new Key(Key.EntityType.Application, ALL_APPS_DELTA, type, v, EurekaAccept.full),
-                        new Key(Key.EntityType.Application, ALL_APPS_DELTA, type, v, EurekaAccept.compact)
-                );
-                if (null != vipAddress) {
-                    invalidate(new Key(Key.EntityType.VIP, vipAddress, type, v, EurekaAccept.full));
+                for (String appName : appNames) {
+                    keys.add(new Key(Key.EntityType.Application, appName, type, v, EurekaAccept.full));
+                    keys.add(new Key(Key.EntityType.Application, appName, type, v, EurekaAccept.compact));
+                }
+                keys.add(new Key(Key.EntityType.Application, ALL_APPS, type, v, EurekaAccept.full));
+                keys.add(new Key(Key.EntityType.Application, ALL_APPS, type, v, EurekaAccept.compact));
+                keys.add(new Key(Key.EntityType.Application, ALL_APPS_DELTA, type, v, EurekaAccept.full));
+                keys.add(new Key(Key.EntityType.Application, ALL_APPS_DELTA, type, v, EurekaAccept.compact));
+                for (String vipAddress : vipAddresses) {
+                    keys.add(new Key(Key.EntityType.VIP, vipAddress, type, v, EurekaAccept.full));
                 }
-                if (null != secureVipAddress) {
-                    invalidate(new Key(Key.EntityType.SVIP, secureVipAddress, type, v, EurekaAccept.full));
+                for (String secureVipAddress : secureVipAddresses) {
+                    keys.add(new Key(Key.EntityType.SVIP, secureVipAddress, type, v, EurekaAccept.full));
                 }
             }
         }
+        invalidate(keys.toArray(new Key[keys.size()]));
     }
 
     /**
@@ -275,20 +586,108 @@ public class ResponseCacheImpl implements ResponseCache {
      * @param keys the list of keys for which the cache information needs to be invalidated.
      */
     public void invalidate(Key... keys) {
+        // Before the keys are dropped, so that they are generated again from new snapshots
+        invalidationCount.incrementAndGet();
         for (Key key : keys) {
             logger.debug("Invalidating the response cache key : {} {} {} {}, {}",
                     key.getEntityType(), key.getName(), key.getVersion(), key.getType(), key.getEurekaAccept());
 
-            readWriteCacheMap.invalidate(key);
+            invalidateOrRegenerate(key);
             Collection<Key> keysWithRegions = regionSpecificKeys.get(key);
             if (null != keysWithRegions && !keysWithRegions.isEmpty()) {
                 for (Key keysWithRegion : keysWithRegions) {
                     logger.debug("Invalidating the response cache key : {} {} {} {} {}",
                             key.getEntityType(), key.getName(), key.getVersion(), key.getType(), key.getEurekaAccept());
-                    readWriteCacheMap.invalidate(keysWithRegion);
+                    if (keysWithRegion.hasDeltaSinceVersion()) {
+                        // Clients move on to the version of the delta they got, so the same key is rarely asked again
+                        readWriteCacheMap.invalidate(keysWithRegion);
+                    } else {
+                        invalidateOrRegenerate(keysWithRegion);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the cached payload of the given key or, with background regeneration, schedules its regeneration and
+     * keeps serving the cached payload until the new one replaces it.
+     */
+    private void invalidateOrRegenerate(final Key key) {
+        if (shouldUseReadOnlyResponseCache && readOnlyCacheMap.containsKey(key)) {
+            readOnlyStaleSince.putIfAbsent(key, System.currentTimeMillis());
+        }
+        if (regenerationExecutor == null || readWriteCacheMap.getIfPresent(key) == null) {
+            readWriteCacheMap.invalidate(key);
+            return;
+        }
+        if (regenerationRequests.put(key, regenerationSequence.incrementAndGet()) == null) {
+            scheduleRegeneration(key);
+        }
+    }
+
+    private void scheduleRegeneration(final Key key) {
+        try {
+            regenerationExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    regenerate(key);
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Cannot schedule the regeneration of response cache key {}; invalidating it", key.toStringCompact());
+            regenerationRequests.remove(key);
+            readWriteCacheMap.invalidate(key);
+        }
+    }
+
+    private void regenerate(Key key) {
+        Long sequence = regenerationRequests.get(key);
+        try {
+            CurrentRequestVersion.set(key.getVersion());
+            Value value = generatePayload(key);
+            // Only replace a cached payload; if it expired in the meantime, the next request loads it
+            if (readWriteCacheMap.asMap().replace(key, value) == null) {
+                value.release();
+            } else if (shouldUseReadOnlyResponseCache) {
+                putReadOnly(key, value, true);
             }
+        } catch (Throwable th) {
+            logger.error("Error while regenerating the response cache key {}; invalidating it", key.toStringCompact(), th);
+            readWriteCacheMap.invalidate(key);
+        } finally {
+            CurrentRequestVersion.remove();
+        }
+        if (!regenerationRequests.remove(key, sequence)) {
+            // Invalidated again while it was being generated
+            scheduleRegeneration(key);
+        }
+    }
+
+    /**
+     * Waits until the regenerations scheduled so far have completed, by occupying every regeneration thread with
+     * a task queued after them.
+     */
+    @VisibleForTesting
+    void awaitRegenerations() throws InterruptedException {
+        int threads = regenerationExecutor.getMaximumPoolSize();
+        final CountDownLatch started = new CountDownLatch(threads);
+        final CountDownLatch completed = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            regenerationExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        started.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    completed.countDown();
+                }
+            });
         }
+        completed.await();
     }
 
     /**
@@ -345,6 +744,67 @@ public class ResponseCacheImpl implements ResponseCache {
         return readWriteCacheMap.asMap().size();
     }
 
+    /**
+     * Get the total size of the payloads held off heap.
+     *
+     * @return the number of bytes held in direct buffers, 0 if the payloads are held on heap.
+     */
+    @Monitor(name = "responseCacheOffHeapBytes", type = DataSourceType.GAUGE)
+    public long getOffHeapBytes() {
+        return offHeapBytes == null ? 0 : offHeapBytes.get();
+    }
+
+    /**
+     * Get the number of items in the read only response cache.
+     *
+     * @return the number of items in the read only cache, 0 if it is not used.
+     */
+    @Monitor(name = "responseCacheReadOnlySize", type = DataSourceType.GAUGE)
+    public int getReadOnlySize() {
+        return readOnlyCacheMap.size();
+    }
+
+    /**
+     * Get the number of items of the read only response cache that are still served after being invalidated.
+     *
+     * @return the number of stale items in the read only cache.
+     */
+    @Monitor(name = "responseCacheReadOnlyStaleSize", type = DataSourceType.GAUGE)
+    public int getReadOnlyStaleSize() {
+        return readOnlyStaleSince.size();
+    }
+
+    /**
+     * Get the number of applications whose invalidation waits for the next tick of the invalidation timer.
+     *
+     * @return the number of applications to invalidate, 0 if invalidations are not coalesced.
+     */
+    @Monitor(name = "responseCachePendingInvalidations", type = DataSourceType.GAUGE)
+    public int getPendingInvalidations() {
+        return pendingApplications == null ? 0 : pendingApplications.size();
+    }
+
+    /**
+     * Get the metrics of the cache, see {@link ResponseCacheMetrics}, with the current size of both cache levels
+     * and the age of the oldest invalidated item still served by the read only cache.
+     */
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        long oldestStaleSince = Long.MAX_VALUE;
+        for (Long staleSince : readOnlyStaleSince.values()) {
+            oldestStaleSince = Math.min(oldestStaleSince, staleSince);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("readWriteSize", getCurrentSize());
+        result.put("readOnlySize", getReadOnlySize());
+        result.put("readOnlyStaleSize", getReadOnlyStaleSize());
+        result.put("readOnlyMaxStalenessMs",
+                oldestStaleSince == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldestStaleSince);
+        result.put("offHeapBytes", getOffHeapBytes());
+        result.putAll(metrics.snapshot());
+        return result;
+    }
+
     /**
      * Get the payload in both compressed and uncompressed form.
      */
@@ -355,13 +815,14 @@ public class ResponseCacheImpl implements ResponseCache {
             if (useReadOnlyCache) {
                 final Value currentPayload = readOnlyCacheMap.get(key);
                 if (currentPayload != null) {
+                    metrics.readOnlyHit(key);
                     payload = currentPayload;
                 } else {
-                    payload = readWriteCacheMap.get(key);
-                    readOnlyCacheMap.put(key, payload);
+                    payload = getReadWriteValue(key);
+                    putReadOnly(key, payload, false);
                 }
             } else {
-                payload = readWriteCacheMap.get(key);
+                payload = getReadWriteValue(key);
             }
         } catch (Throwable t) {
             logger.error("Cannot get value for key : {}", key, t);
@@ -369,6 +830,61 @@ public class ResponseCacheImpl implements ResponseCache {
         return payload;
     }
 
+    private Value getReadWriteValue(Key key) throws ExecutionException {
+        Value payload = readWriteCacheMap.getIfPresent(key);
+        if (payload != null) {
+            metrics.readWriteHit(key);
+            return payload;
+        }
+        metrics.miss(key);
+        return readWriteCacheMap.get(key);
+    }
+
+    /**
+     * Keys of the changes since a delta version are only held in the read/write cache, as the read only cache
+     * keeps refreshing every key it ever held.
+     */
+    private boolean useReadOnlyCacheFor(Key key) {
+        return shouldUseReadOnlyResponseCache && !key.hasDeltaSinceVersion();
+    }
+
+    /**
+     * Get the payload and retain it, so that it stays usable until it is released.
+     */
+    @Nullable
+    private Value acquireValue(Key key, boolean useReadOnlyCache) {
+        // A payload can only fail to be retained if it was just replaced in both cache levels
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Value payload = getValue(key, useReadOnlyCache);
+            if (payload == null || payload.retain()) {
+                return payload;
+            }
+        }
+        logger.error("Cannot retain the payload for key : {}", key);
+        return null;
+    }
+
+    /**
+     * Put the payload in the read only cache, which holds its own reference to it.
+     */
+    private void putReadOnly(Key key, Value value, boolean onlyIfPresent) {
+        if (!value.retain()) {
+            return;
+        }
+        Value previous = onlyIfPresent ? readOnlyCacheMap.replace(key, value) : readOnlyCacheMap.put(key, value);
+        if (previous != null) {
+            previous.release();
+            Long staleSince = readOnlyStaleSince.get(key);
+            // Invalidations after the payload was generated are still pending
+            if (staleSince != null && staleSince <= value.getGeneratedAt()
+                    && readOnlyStaleSince.remove(key, staleSince)) {
+                metrics.readOnlyStale(System.currentTimeMillis() - staleSince);
+            }
+        } else if (onlyIfPresent) {
+            value.release();
+        }
+    }
+
     /**
      * Generate pay load with both JSON and XML formats for all applications.
      */
@@ -409,6 +925,8 @@ public class ResponseCacheImpl implements ResponseCache {
      */
     private Value generatePayload(Key key) {
         Stopwatch tracer = null;
+        long startNanos = System.nanoTime();
+        Value value = null;
         try {
             String payload;
             switch (key.getEntityType()) {
@@ -418,129 +936,333 @@ public class ResponseCacheImpl implements ResponseCache {
                     if (ALL_APPS.equals(key.getName())) {
                         if (isRemoteRegionRequested) {
                             tracer = serializeAllAppsWithRemoteRegionTimer.start();
-                            payload = getPayLoad(key, registry.getApplicationsFromMultipleRegions(key.getRegions()));
+                            payload = getPayLoad(key, (Applications) getSnapshot(key));
                         } else {
                             tracer = serializeAllAppsTimer.start();
-                            payload = getPayLoad(key, registry.getApplications());
+                            // The registry already shares a snapshot of the local applications between callers
+                            if (applicationFragmentCache != null) {
+                                value = getAssembledValue(key);
+                                return value;
+                            }
+                            payload = getPayLoad(key, registry.getApplicationsWithDeltaVersion());
                         }
                     } else if (ALL_APPS_DELTA.equals(key.getName())) {
-                        if (isRemoteRegionRequested) {
+                        if (key.hasDeltaSinceVersion()) {
+                            tracer = serializeDeltaAppsTimer.start();
+                            Applications delta = (Applications) getSnapshot(key);
+                            payload = delta == null ? EMPTY_PAYLOAD : getPayLoad(key, delta);
+                        } else if (isRemoteRegionRequested) {
                             tracer = serializeDeltaAppsWithRemoteRegionTimer.start();
-                            versionDeltaWithRegions.incrementAndGet();
-                            versionDeltaWithRegionsLegacy.incrementAndGet();
-                            payload = getPayLoad(key,
-                                    registry.getApplicationDeltasFromMultipleRegions(key.getRegions()));
+                            payload = getPayLoad(key, (Applications) getSnapshot(key));
                         } else {
                             tracer = serializeDeltaAppsTimer.start();
-                            versionDelta.incrementAndGet();
-                            versionDeltaLegacy.incrementAndGet();
-                            payload = getPayLoad(key, registry.getApplicationDeltas());
+                            payload = getPayLoad(key, (Applications) getSnapshot(key));
                         }
                     } else {
                         tracer = serializeOneApptimer.start();
-                        payload = getPayLoad(key, registry.getApplication(key.getName()));
+                        payload = getPayLoad(key, (Application) getSnapshot(key));
                     }
                     break;
                 case VIP:
                 case SVIP:
                     tracer = serializeViptimer.start();
-                    payload = getPayLoad(key, getApplicationsForVip(key, registry));
+                    payload = getPayLoad(key, (Applications) getSnapshot(key));
                     break;
                 default:
                     logger.error("Unidentified entity type: {} found in the cache key.", key.getEntityType());
                     payload = "";
                     break;
             }
-            return new Value(payload);
+            if (ALL_APPS_DELTA.equals(key.getName())) {
+                // Deltas are small and fetched by every client on every refresh, which is where the preset
+                // dictionary makes the most difference over gzip
+                value = new Value(payload, compress(payload), true);
+            } else {
+                value = new Value(payload);
+            }
+            return value;
         } finally {
             if (tracer != null) {
                 tracer.stop();
             }
+            if (value != null) {
+                metrics.generated(key, System.nanoTime() - startNanos,
+                        value.getPayloadBytes(), value.getGzippedBytes());
+            }
+        }
+    }
+
+    /**
+     * Get the registry data of the given key from the current snapshot cycle, taking it from the registry if no
+     * key of the same data was generated in this cycle yet.
+     */
+    @Nullable
+    private Object getSnapshot(Key key) {
+        SnapshotCycle cycle = getSnapshotCycle();
+        String entityKey = key.getEntityKey();
+        Object snapshot = cycle.snapshots.get(entityKey);
+        if (snapshot == null) {
+            metrics.snapshotTaken();
+            Object taken = takeSnapshot(key);
+            snapshot = cycle.snapshots.putIfAbsent(entityKey, taken == null ? NO_SNAPSHOT : taken);
+            if (snapshot == null) {
+                return taken;
+            }
+        } else {
+            metrics.snapshotReused();
+        }
+        return snapshot == NO_SNAPSHOT ? null : snapshot;
+    }
+
+    private SnapshotCycle getSnapshotCycle() {
+        // Read first, so that a cycle never holds snapshots taken before an invalidation it counts
+        long invalidations = invalidationCount.get();
+        long now = System.currentTimeMillis();
+        SnapshotCycle cycle = snapshotCycle;
+        if (cycle.invalidations != invalidations || now - cycle.startedAt >= snapshotCycleMs) {
+            cycle = new SnapshotCycle(invalidations, now);
+            snapshotCycle = cycle;
+        }
+        return cycle;
+    }
+
+    @Nullable
+    private Object takeSnapshot(Key key) {
+        switch (key.getEntityType()) {
+            case Application:
+                if (ALL_APPS.equals(key.getName())) {
+                    return registry.getApplicationsFromMultipleRegions(key.getRegions());
+                }
+                if (ALL_APPS_DELTA.equals(key.getName())) {
+                    if (key.hasDeltaSinceVersion()) {
+                        return registry.getApplicationDeltasSince(key.getDeltaSinceVersion());
+                    }
+                    if (key.hasRegions()) {
+                        versionDeltaWithRegions.incrementAndGet();
+                        versionDeltaWithRegionsLegacy.incrementAndGet();
+                        return registry.getApplicationDeltasFromMultipleRegions(key.getRegions());
+                    }
+                    versionDelta.incrementAndGet();
+                    versionDeltaLegacy.incrementAndGet();
+                    return registry.getApplicationDeltas();
+                }
+                return registry.getApplication(key.getName());
+            case VIP:
+            case SVIP:
+                return getApplicationsForVip(key, registry);
+            default:
+                return null;
         }
     }
 
+    /*
+     * Generate pay load for all applications, re-encoding only the applications that changed since they were
+     * last encoded.
+     */
+    private Value getAssembledValue(Key key) {
+        long generation = applicationFragmentCache.getGeneration();
+        Applications apps = registry.getApplicationsWithDeltaVersion();
+        ApplicationFragmentCache.Payload assembled = applicationFragmentCache.assemble(key, apps, generation);
+        if (assembled == null) {
+            return new Value(getPayLoad(key, apps));
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("New application cache entry {} with apps hashcode {}", key.toStringCompact(), apps.getAppsHashCode());
+        }
+        return new Value(assembled.getPayload(), assembled.getGzipped());
+    }
+
     private static Applications getApplicationsForVip(Key key, AbstractInstanceRegistry registry) {
         logger.debug(
                 "Retrieving applications from registry for key : {} {} {} {}",
                 key.getEntityType(), key.getName(), key.getVersion(), key.getType());
-        Applications toReturn = new Applications();
-        Applications applications = registry.getApplications();
-        for (Application application : applications.getRegisteredApplications()) {
-            Application appToAdd = null;
-            for (InstanceInfo instanceInfo : application.getInstances()) {
-                String vipAddress;
-                if (Key.EntityType.VIP.equals(key.getEntityType())) {
-                    vipAddress = instanceInfo.getVIPAddress();
-                } else if (Key.EntityType.SVIP.equals(key.getEntityType())) {
-                    vipAddress = instanceInfo.getSecureVipAddress();
-                } else {
-                    // should not happen, but just in case.
-                    continue;
-                }
-
-                if (null != vipAddress) {
-                    String[] vipAddresses = vipAddress.split(",");
-                    Arrays.sort(vipAddresses);
-                    if (Arrays.binarySearch(vipAddresses, key.getName()) >= 0) {
-                        if (null == appToAdd) {
-                            appToAdd = new Application(application.getName());
-                            toReturn.addApplication(appToAdd);
-                        }
-                        appToAdd.addInstance(instanceInfo);
-                    }
-                }
-            }
+        Applications toReturn;
+        if (Key.EntityType.VIP.equals(key.getEntityType())) {
+            toReturn = registry.getApplicationsByVipAddress(key.getName());
+        } else if (Key.EntityType.SVIP.equals(key.getEntityType())) {
+            toReturn = registry.getApplicationsBySecureVipAddress(key.getName());
+        } else {
+            // should not happen, but just in case.
+            toReturn = new Applications();
+            toReturn.setAppsHashCode(toReturn.getReconcileHashCode());
         }
-        toReturn.setAppsHashCode(toReturn.getReconcileHashCode());
         logger.debug(
                 "Retrieved applications from registry for key : {} {} {} {}, reconcile hashcode: {}",
                 key.getEntityType(), key.getName(), key.getVersion(), key.getType(),
-                toReturn.getReconcileHashCode());
+                toReturn.getAppsHashCode());
         return toReturn;
     }
 
+    private static final class SnapshotCycle {
+        private final long invalidations;
+        private final long startedAt;
+        // Keyed by Key#getEntityKey()
+        private final ConcurrentMap<String, Object> snapshots = new ConcurrentHashMap<String, Object>();
+
+        SnapshotCycle(long invalidations, long startedAt) {
+            this.invalidations = invalidations;
+            this.startedAt = startedAt;
+        }
+    }
+
     /**
      * The class that stores payload in both compressed and uncompressed form.
      *
      */
     public class Value {
         private final String payload;
-        private byte[] gzipped;
+        private final byte[] gzipped;
+        @Nullable
+        private final OffHeapPayload offHeapPayload;
+        @Nullable
+        private final String entityTag;
+        private final boolean presetDictionaryEncoded;
+        // Computed on the first request that accepts the encoding, and kept on the heap even with off-heap
+        // payloads, as it is only offered for small payloads
+        @Nullable
+        private volatile byte[] presetDictionaryDeflated;
+        private final int payloadBytes;
+        private final int gzippedBytes;
+        private final long generatedAt = System.currentTimeMillis();
 
         public Value(String payload) {
-            this.payload = payload;
-            if (!EMPTY_PAYLOAD.equals(payload)) {
-                Stopwatch tracer = compressPayloadTimer.start();
-                try {
-                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
-                    GZIPOutputStream out = new GZIPOutputStream(bos);
-                    byte[] rawBytes = payload.getBytes();
-                    out.write(rawBytes);
-                    // Finish creation of gzip file
-                    out.finish();
-                    out.close();
-                    bos.close();
-                    gzipped = bos.toByteArray();
-                } catch (IOException e) {
-                    gzipped = null;
-                } finally {
-                    if (tracer != null) {
-                        tracer.stop();
-                    }
-                }
+            this(payload, compress(payload));
+        }
+
+        Value(String payload, byte[] gzipped) {
+            this(payload, gzipped, false);
+        }
+
+        Value(String payload, byte[] gzipped, boolean presetDictionaryEncoded) {
+            byte[] encoded = EMPTY_PAYLOAD.equals(payload) ? null : payload.getBytes();
+            this.entityTag = encoded == null ? null : Hashing.murmur3_128().hashBytes(encoded).toString();
+            this.presetDictionaryEncoded = presetDictionaryEncoded && encoded != null;
+            this.payloadBytes = encoded == null ? 0 : encoded.length;
+            this.gzippedBytes = gzipped == null ? 0 : gzipped.length;
+            if (offHeapBytes != null && encoded != null) {
+                this.offHeapPayload = new OffHeapPayload(encoded, gzipped, offHeapBytes);
+                this.payload = null;
+                this.gzipped = null;
             } else {
-                gzipped = null;
+                this.offHeapPayload = null;
+                this.payload = payload;
+                this.gzipped = gzipped;
             }
         }
 
         public String getPayload() {
-            return payload;
+            return offHeapPayload == null ? payload : new String(offHeapPayload.getEncoded());
         }
 
         public byte[] getGzipped() {
-            return gzipped;
+            return offHeapPayload == null ? gzipped : offHeapPayload.getGzipped();
         }
 
+        int getPayloadBytes() {
+            return payloadBytes;
+        }
+
+        int getGzippedBytes() {
+            return gzippedBytes;
+        }
+
+        long getGeneratedAt() {
+            return generatedAt;
+        }
+
+        /**
+         * @return the payload compressed with the preset dictionary, or null if it is not kept in that encoding.
+         */
+        @Nullable
+        byte[] getPresetDictionaryDeflated() {
+            if (!presetDictionaryEncoded) {
+                return null;
+            }
+            byte[] deflated = presetDictionaryDeflated;
+            if (deflated == null) {
+                synchronized (this) {
+                    deflated = presetDictionaryDeflated;
+                    if (deflated == null) {
+                        deflated = compressWithPresetDictionary(getPayload());
+                        presetDictionaryDeflated = deflated;
+                    }
+                }
+            }
+            return deflated;
+        }
+
+        /**
+         * @return the entity tag of the representation in the given content encoding, null for the uncompressed
+         * one, or null if there is no such representation.
+         */
+        @Nullable
+        String getEntityTag(@Nullable String contentEncoding) {
+            if (entityTag == null || contentEncoding == null) {
+                return entityTag;
+            }
+            if (GZIP_ENCODING.equals(contentEncoding)) {
+                boolean hasGzipped = offHeapPayload == null ? gzipped != null : offHeapPayload.hasGzipped();
+                return hasGzipped ? entityTag + "-" + contentEncoding : null;
+            }
+            if (PresetDictionaryEncoding.ENCODING.equals(contentEncoding)) {
+                return presetDictionaryEncoded ? entityTag + "-" + contentEncoding : null;
+            }
+            return null;
+        }
+
+        @Nullable
+        OffHeapPayload getOffHeapPayload() {
+            return offHeapPayload;
+        }
+
+        boolean retain() {
+            return offHeapPayload == null || offHeapPayload.retain();
+        }
+
+        void release() {
+            if (offHeapPayload != null) {
+                offHeapPayload.release();
+            }
+        }
+    }
+
+    private byte[] compressWithPresetDictionary(String payload) {
+        Stopwatch tracer = compressPayloadTimer.start();
+        long startNanos = System.nanoTime();
+        try {
+            return PresetDictionaryEncoding.compress(payload.getBytes());
+        } finally {
+            metrics.compressed(PresetDictionaryEncoding.ENCODING, System.nanoTime() - startNanos);
+            if (tracer != null) {
+                tracer.stop();
+            }
+        }
+    }
+
+    private byte[] compress(String payload) {
+        if (EMPTY_PAYLOAD.equals(payload)) {
+            return null;
+        }
+        Stopwatch tracer = compressPayloadTimer.start();
+        long startNanos = System.nanoTime();
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            GZIPOutputStream out = new GZIPOutputStream(bos);
+            byte[] rawBytes = payload.getBytes();
+            out.write(rawBytes);
+            // Finish creation of gzip file
+            out.finish();
+            out.close();
+            bos.close();
+            return bos.toByteArray();
+        } catch (IOException e) {
+            return null;
+        } finally {
+            metrics.compressed(GZIP_ENCODING, System.nanoTime() - startNanos);
+            if (tracer != null) {
+                tracer.stop();
+            }
+        }
     }
 
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.registry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.netflix.appinfo.EurekaAccept;
+import com.netflix.eureka.Version;
+
+/**
+ * A file holding the keys of the {@link ResponseCache} requested by clients, from which a restarted server learns
+ * which payloads to generate before it takes traffic.
+ *
+ * <p>
+ * The file is a line of text per key, with the tab separated entity type, format, version, codec, comma
+ * separated remote regions and entity name, which comes last as it is the only field that could hold a comma.
+ * Like {@link RegistrySnapshotFile}, it is written to a temporary file next to it and moved in place.
+ * </p>
+ */
+final class ResponseCacheKeysFile {
+
+    private static final String HEADER = "# eureka response cache keys v1";
+    private static final String FIELD_SEPARATOR = "\t";
+    private static final int FIELD_COUNT = 6;
+
+    private final Path path;
+
+    ResponseCacheKeysFile(File file) {
+        this.path = file.toPath();
+    }
+
+    /**
+     * Replaces the file with the given keys. Keys of the changes since a delta version are left out, as those
+     * versions mean nothing to the next run.
+     */
+    void write(Collection<Key> keys) throws IOException {
+        List<String> lines = new ArrayList<String>(keys.size() + 1);
+        lines.add(HEADER);
+        for (Key key : keys) {
+            if (key.hasDeltaSinceVersion()) {
+                continue;
+            }
+            lines.add(key.getEntityType().name() + FIELD_SEPARATOR
+                    + key.getType().name() + FIELD_SEPARATOR
+                    + key.getVersion().name() + FIELD_SEPARATOR
+                    + key.getEurekaAccept().name() + FIELD_SEPARATOR
+                    + (key.hasRegions() ? String.join(",", key.getRegions()) : "") + FIELD_SEPARATOR
+                    + key.getName());
+        }
+
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmpPath, lines, StandardCharsets.UTF_8);
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the keys, or an empty list if there is no keys file.
+     * @throws IOException if the file cannot be read or is not a valid keys file.
+     */
+    List<Key> read() throws IOException {
+        if (!Files.exists(path)) {
+            return Collections.emptyList();
+        }
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+            throw new IOException("Not a response cache keys file: " + path);
+        }
+        List<Key> keys = new ArrayList<Key>(lines.size() - 1);
+        for (int i = 1; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(FIELD_SEPARATOR, FIELD_COUNT);
+            if (fields.length != FIELD_COUNT || fields[5].isEmpty()) {
+                throw new IOException("Invalid response cache key at line " + (i + 1) + ": " + path);
+            }
+            try {
+                keys.add(new Key(
+                        Key.EntityType.valueOf(fields[0]),
+                        fields[5],
+                        Key.KeyType.valueOf(fields[1]),
+                        Version.valueOf(fields[2]),
+                        EurekaAccept.valueOf(fields[3]),
+                        fields[4].isEmpty() ? null : fields[4].split(",")));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid response cache key at line " + (i + 1) + ": " + path, e);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.registry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.netflix.appinfo.EurekaAccept;
+import com.netflix.discovery.shared.transport.PresetDictionaryEncoding;
+import com.netflix.discovery.util.ServoUtil;
+import com.netflix.eureka.Names;
+import com.netflix.servo.monitor.BasicCounter;
+import com.netflix.servo.monitor.BucketConfig;
+import com.netflix.servo.monitor.BucketTimer;
+import com.netflix.servo.monitor.LongGauge;
+import com.netflix.servo.monitor.Monitor;
+import com.netflix.servo.monitor.MonitorConfig;
+
+/**
+ * Metrics of the {@link ResponseCacheImpl response cache}: lookups, payload generations and payload sizes per
+ * kind of payload, format and codec, how often generations share registry snapshots, the time spent compressing
+ * payloads, and how long the read only cache keeps serving payloads that were invalidated in the read/write
+ * cache.
+ *
+ * <p>
+ * The metrics are published to servo, under the {@code eurekaServer.responseCache.} prefix with the kind of
+ * payload, format and codec as tags, and as a JSON friendly snapshot through {@link #snapshot()}. The counters
+ * and histograms in the snapshot count from the creation of the cache, while servo publishes them per polling
+ * interval.
+ * </p>
+ */
+final class ResponseCacheMetrics {
+
+    /**
+     * The kinds of payloads, which are the {@link Key.EntityType entity types} with the payloads of all
+     * applications and of the deltas told apart from those of single applications.
+     */
+    enum PayloadType {
+        ALL_APPS, ALL_APPS_DELTA, Application, VIP, SVIP;
+
+        static PayloadType of(Key key) {
+            switch (key.getEntityType()) {
+                case VIP:
+                    return VIP;
+                case SVIP:
+                    return SVIP;
+                default:
+                    if (ResponseCacheImpl.ALL_APPS.equals(key.getName())) {
+                        return ALL_APPS;
+                    }
+                    return ResponseCacheImpl.ALL_APPS_DELTA.equals(key.getName()) ? ALL_APPS_DELTA : Application;
+            }
+        }
+    }
+
+    private static final String METRIC_PREFIX = Names.METRIC_PREFIX + "responseCache.";
+
+    // Upper bounds of the histogram buckets; most payloads are generated and compressed in under a millisecond
+    private static final long[] LATENCY_BUCKETS_MICROS =
+            {100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000, 1000000};
+    private static final long[] STALENESS_BUCKETS_MS = {100, 500, 1000, 5000, 10000, 30000, 60000, 120000, 300000};
+
+    private final AtomicReferenceArray<KeyMetrics> keyMetrics = new AtomicReferenceArray<>(
+            PayloadType.values().length * Key.KeyType.values().length * EurekaAccept.values().length);
+
+    private final Histogram gzipCompression =
+            newLatencyHistogram("compression", "encoding", ResponseCacheImpl.GZIP_ENCODING);
+    private final Histogram presetDictionaryCompression =
+            newLatencyHistogram("compression", "encoding", PresetDictionaryEncoding.ENCODING);
+    private final Histogram readOnlyStaleness =
+            new Histogram("readOnlyStaleness", TimeUnit.MILLISECONDS, STALENESS_BUCKETS_MS);
+    private final BasicCounter snapshotsTaken =
+            new BasicCounter(monitorConfig("registrySnapshots", "result", "taken").build());
+    private final BasicCounter snapshotsReused =
+            new BasicCounter(monitorConfig("registrySnapshots", "result", "reused").build());
+
+    ResponseCacheMetrics() {
+        ServoUtil.register(snapshotsTaken);
+        ServoUtil.register(snapshotsReused);
+        gzipCompression.register();
+        presetDictionaryCompression.register();
+        readOnlyStaleness.register();
+    }
+
+    /**
+     * Records a lookup answered by the read only cache.
+     */
+    void readOnlyHit(Key key) {
+        getKeyMetrics(key).readOnlyHits.increment();
+    }
+
+    /**
+     * Records a lookup answered by the read/write cache.
+     */
+    void readWriteHit(Key key) {
+        getKeyMetrics(key).readWriteHits.increment();
+    }
+
+    /**
+     * Records a lookup that had to wait for its payload to be generated.
+     */
+    void miss(Key key) {
+        getKeyMetrics(key).misses.increment();
+    }
+
+    /**
+     * Records the generation of a payload, including its compression, and the sizes of the payload.
+     */
+    void generated(Key key, long durationNanos, int payloadBytes, int gzippedBytes) {
+        KeyMetrics metrics = getKeyMetrics(key);
+        metrics.generation.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+        metrics.payloadBytes.set((long) payloadBytes);
+        metrics.gzippedBytes.set((long) gzippedBytes);
+    }
+
+    /**
+     * Records a payload generation that took its registry data from the registry.
+     */
+    void snapshotTaken() {
+        snapshotsTaken.increment();
+    }
+
+    /**
+     * Records a payload generation that reused the registry data taken for another format, version or codec.
+     */
+    void snapshotReused() {
+        snapshotsReused.increment();
+    }
+
+    /**
+     * Records the compression of a payload in the given content encoding.
+     */
+    void compressed(String contentEncoding, long durationNanos) {
+        Histogram histogram = PresetDictionaryEncoding.ENCODING.equals(contentEncoding)
+                ? presetDictionaryCompression
+                : gzipCompression;
+        histogram.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+    }
+
+    /**
+     * Records how long the read only cache served a payload after it was first invalidated.
+     */
+    void readOnlyStale(long stalenessMs) {
+        readOnlyStaleness.record(stalenessMs);
+    }
+
+    /**
+     * @return the metrics as nested maps of plain values, ready to be written as JSON. Kinds of payloads that
+     * were never looked up or generated are left out.
+     */
+    Map<String, Object> snapshot() {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        for (int i = 0; i < keyMetrics.length(); i++) {
+            KeyMetrics metrics = keyMetrics.get(i);
+            if (metrics != null) {
+                keys.add(metrics.snapshot());
+            }
+        }
+        Map<String, Object> compression = new LinkedHashMap<>();
+        compression.put(ResponseCacheImpl.GZIP_ENCODING, gzipCompression.snapshot());
+        compression.put(PresetDictionaryEncoding.ENCODING, presetDictionaryCompression.snapshot());
+
+        Map<String, Object> snapshots = new LinkedHashMap<>();
+        snapshots.put("taken", snapshotsTaken.getValue(0).longValue());
+        snapshots.put("reused", snapshotsReused.getValue(0).longValue());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("keys", keys);
+        result.put("registrySnapshots", snapshots);
+        result.put("compressionMicros", compression);
+        result.put("readOnlyStalenessMs", readOnlyStaleness.snapshot());
+        return result;
+    }
+
+    void shutdown() {
+        for (int i = 0; i < keyMetrics.length(); i++) {
+            KeyMetrics metrics = keyMetrics.get(i);
+            if (metrics != null) {
+                metrics.shutdown();
+            }
+        }
+        ServoUtil.unregister(snapshotsTaken, snapshotsReused);
+        gzipCompression.shutdown();
+        presetDictionaryCompression.shutdown();
+        readOnlyStaleness.shutdown();
+    }
+
+    private KeyMetrics getKeyMetrics(Key key) {
+        PayloadType payloadType = PayloadType.of(key);
+        int index = (payloadType.ordinal() * Key.KeyType.values().length + key.getType().ordinal())
+                * EurekaAccept.values().length + key.getEurekaAccept().ordinal();
+        KeyMetrics metrics = keyMetrics.get(index);
+        if (metrics == null) {
+            KeyMetrics created = new KeyMetrics(payloadType, key.getType(), key.getEurekaAccept());
+            if (keyMetrics.compareAndSet(index, null, created)) {
+                created.register();
+                metrics = created;
+            } else {
+                metrics = keyMetrics.get(index);
+            }
+        }
+        return metrics;
+    }
+
+    private static Histogram newLatencyHistogram(String name, String... tags) {
+        return new Histogram(name, TimeUnit.MICROSECONDS, LATENCY_BUCKETS_MICROS, tags);
+    }
+
+    private static MonitorConfig.Builder monitorConfig(String name, String... tags) {
+        MonitorConfig.Builder builder = MonitorConfig.builder(METRIC_PREFIX + name);
+        for (int i = 0; i < tags.length; i += 2) {
+            builder.withTag(tags[i], tags[i + 1]);
+        }
+        return builder;
+    }
+
+    private static final class KeyMetrics {
+
+        private final String[] tags;
+        private final BasicCounter readOnlyHits;
+        private final BasicCounter readWriteHits;
+        private final BasicCounter misses;
+        private final Histogram generation;
+        private final LongGauge payloadBytes;
+        private final LongGauge gzippedBytes;
+
+        KeyMetrics(PayloadType payloadType, Key.KeyType keyType, EurekaAccept eurekaAccept) {
+            this.tags = new String[]{
+                    "payload", payloadType.name(), "type", keyType.name(), "accept", eurekaAccept.name()
+            };
+            this.readOnlyHits = new BasicCounter(monitorConfig("lookups", with("result", "readOnlyHit")).build());
+            this.readWriteHits = new BasicCounter(monitorConfig("lookups", with("result", "readWriteHit")).build());
+            this.misses = new BasicCounter(monitorConfig("lookups", with("result", "miss")).build());
+            this.generation = newLatencyHistogram("generation", tags);
+            this.payloadBytes = new LongGauge(monitorConfig("payloadBytes", tags).build());
+            this.gzippedBytes = new LongGauge(monitorConfig("gzippedPayloadBytes", tags).build());
+        }
+
+        private String[] with(String tag, String value) {
+            String[] result = new String[tags.length + 2];
+            System.arraycopy(tags, 0, result, 0, tags.length);
+            result[tags.length] = tag;
+            result[tags.length + 1] = value;
+            return result;
+        }
+
+        void register() {
+            for (Monitor<?> monitor : monitors()) {
+                ServoUtil.register(monitor);
+            }
+            generation.register();
+        }
+
+        void shutdown() {
+            ServoUtil.unregister(monitors());
+            generation.shutdown();
+        }
+
+        private Monitor<?>[] monitors() {
+            return new Monitor<?>[]{readOnlyHits, readWriteHits, misses, payloadBytes, gzippedBytes};
+        }
+
+        Map<String, Object> snapshot() {
+            long readOnly = readOnlyHits.getValue(0).longValue();
+            long readWrite = readWriteHits.getValue(0).longValue();
+            long missed = misses.getValue(0).longValue();
+            long lookups = readOnly + readWrite + missed;
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            for (int i = 0; i < tags.length; i += 2) {
+                result.put(tags[i], tags[i + 1]);
+            }
+            result.put("readOnlyHits", readOnly);
+            result.put("readWriteHits", readWrite);
+            result.put("misses", missed);
+            result.put("hitRatio", lookups == 0 ? 0.0 : (double) (readOnly + readWrite) / lookups);
+            result.put("generationMicros", generation.snapshot());
+            result.put("payloadBytes", payloadBytes.getNumber().get());
+            result.put("gzippedPayloadBytes", gzippedBytes.getNumber().get());
+            return result;
+        }
+    }
+
+    /**
+     * A histogram with fixed buckets, published to servo as a {@link BucketTimer} and kept in full for the
+     * snapshots.
+     */
+    private static final class Histogram {
+
+        private final TimeUnit unit;
+        private final long[] buckets;
+        private final BucketTimer timer;
+        // One more count than buckets, for the values above the last bucket
+        private final AtomicLongArray counts;
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(String name, TimeUnit unit, long[] buckets, String... tags) {
+            this.unit = unit;
+            this.buckets = buckets;
+            this.timer = new BucketTimer(
+                    monitorConfig(name, tags).build(),
+                    new BucketConfig.Builder().withTimeUnit(unit).withBuckets(buckets).build(),
+                    unit
+            );
+            this.counts = new AtomicLongArray(buckets.length + 1);
+        }
+
+        void register() {
+            ServoUtil.register(timer);
+        }
+
+        void shutdown() {
+            ServoUtil.unregister(timer);
+        }
+
+        void record(long value) {
+            timer.record(value, unit);
+            int bucket = 0;
+            while (bucket < buckets.length && value > buckets[bucket]) {
+                bucket++;
+            }
+            counts.incrementAndGet(bucket);
+            total.addAndGet(value);
+            long currentMax;
+            do {
+                currentMax = max.get();
+            } while (value > currentMax && !max.compareAndSet(currentMax, value));
+        }
+
+        Map<String, Object> snapshot() {
+            long count = 0;
+            // Keyed by the upper bound of each bucket
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i <= buckets.length; i++) {
+                long bucketCount = counts.get(i);
+                histogram.put(i < buckets.length ? "le" + buckets[i] : "gt" + buckets[buckets.length - 1], bucketCount);
+                count += bucketCount;
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("count", count);
+            result.put("total", total.get());
+            result.put("max", max.get());
+            result.put("buckets", histogram);
+            return result;
+        }
+    }
+}
@@ -16,12 +16,15 @@
 
 package com.netflix.eureka.resources;
 
+import javax.annotation.Nullable;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Response;
 
 import com.netflix.appinfo.EurekaAccept;
 import com.netflix.eureka.EurekaServerContext;
 import com.netflix.eureka.EurekaServerContextHolder;
 import com.netflix.eureka.Version;
+import com.netflix.eureka.registry.CachedPayload;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import com.netflix.eureka.registry.ResponseCache;
 import com.netflix.eureka.registry.Key;
@@ -51,6 +54,16 @@ abstract class AbstractVIPResource {
 
     protected Response getVipResponse(String version, String entityName, String acceptHeader,
                                       EurekaAccept eurekaAccept, Key.EntityType entityType) {
+        return getVipResponse(version, entityName, acceptHeader, eurekaAccept, entityType, null);
+    }
+
+    /**
+     * Gets the instances of a VIP/SVIP, or 304 (Not Modified) if they still match the entity tag in the
+     * If-None-Match header.
+     */
+    protected Response getVipResponse(String version, String entityName, String acceptHeader,
+                                      EurekaAccept eurekaAccept, Key.EntityType entityType,
+                                      @Nullable String ifNoneMatch) {
         if (!registry.shouldAllowAccess(false)) {
             return Response.status(Response.Status.FORBIDDEN).build();
         }
@@ -68,12 +81,19 @@ abstract class AbstractVIPResource {
                 eurekaAccept
         );
 
-        String payLoad = responseCache.get(cacheKey);
+        CachedPayload payLoad = responseCache.getPayload(cacheKey, false, ifNoneMatch);
         CurrentRequestVersion.remove();
 
-        if (payLoad != null) {
+        if (payLoad != null && payLoad.isNotModified()) {
+            logger.debug("Not Modified: {}", entityName);
+            return Response.notModified(new EntityTag(payLoad.getEntityTag())).build();
+        } else if (payLoad != null) {
             logger.debug("Found: {}", entityName);
-            return Response.ok(payLoad).build();
+            Response.ResponseBuilder builder = Response.ok(payLoad.getEntity());
+            if (payLoad.getEntityTag() != null) {
+                builder.tag(new EntityTag(payLoad.getEntityTag()));
+            }
+            return builder.build();
         } else {
             logger.debug("Not Found: {}", entityName);
             return Response.status(Response.Status.NOT_FOUND).build();
@@ -32,6 +32,7 @@ import com.netflix.appinfo.EurekaAccept;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.UniqueIdentifier;
 import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.registry.CachedPayload;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import com.netflix.eureka.Version;
 import com.netflix.eureka.cluster.PeerEurekaNode;
@@ -106,12 +107,12 @@ public class ApplicationResource {
                 EurekaAccept.fromString(eurekaAccept)
         );
 
-        String payLoad = responseCache.get(cacheKey);
+        CachedPayload payLoad = responseCache.getPayload(cacheKey, false, null);
         CurrentRequestVersion.remove();
 
         if (payLoad != null) {
             logger.debug("Found: {}", appName);
-            return Response.ok(payLoad).build();
+            return Response.ok(payLoad.getEntity()).build();
         } else {
             logger.debug("Not Found: {}", appName);
             return Response.status(Status.NOT_FOUND).build();
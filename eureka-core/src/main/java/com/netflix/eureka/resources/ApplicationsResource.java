@@ -25,6 +25,8 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -32,9 +34,11 @@ import javax.ws.rs.core.UriInfo;
 import java.util.Arrays;
 
 import com.netflix.appinfo.EurekaAccept;
+import com.netflix.discovery.shared.transport.PresetDictionaryEncoding;
 import com.netflix.eureka.EurekaServerContext;
 import com.netflix.eureka.EurekaServerContextHolder;
 import com.netflix.eureka.registry.AbstractInstanceRegistry;
+import com.netflix.eureka.registry.CachedPayload;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import com.netflix.eureka.Version;
@@ -98,6 +102,16 @@ public class ApplicationsResource {
         }
     }
 
+    /**
+     * Get information about all {@link com.netflix.discovery.shared.Applications}, without a conditional request.
+     *
+     * @see #getContainers(String, String, String, String, UriInfo, String, String)
+     */
+    public Response getContainers(String version, String acceptHeader, String acceptEncoding, String eurekaAccept,
+                                  UriInfo uriInfo, @Nullable String regionsStr) {
+        return getContainers(version, acceptHeader, acceptEncoding, eurekaAccept, uriInfo, regionsStr, null);
+    }
+
     /**
      * Get information about all {@link com.netflix.discovery.shared.Applications}.
      *
@@ -109,9 +123,10 @@ public class ApplicationsResource {
      * @param regionsStr A comma separated list of remote regions from which the instances will also be returned.
      *                   The applications returned from the remote region can be limited to the applications
      *                   returned by {@link EurekaServerConfig#getRemoteRegionAppWhitelist(String)}
+     * @param ifNoneMatch the entity tag of the registry information the client already has, if any.
      *
      * @return a response containing information about all {@link com.netflix.discovery.shared.Applications}
-     *         from the {@link AbstractInstanceRegistry}.
+     *         from the {@link AbstractInstanceRegistry}, or 304 (Not Modified) if it has not changed.
      */
     @GET
     public Response getContainers(@PathParam("version") String version,
@@ -119,7 +134,8 @@ public class ApplicationsResource {
                                   @HeaderParam(HEADER_ACCEPT_ENCODING) String acceptEncoding,
                                   @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept,
                                   @Context UriInfo uriInfo,
-                                  @Nullable @QueryParam("regions") String regionsStr) {
+                                  @Nullable @QueryParam("regions") String regionsStr,
+                                  @Nullable @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
 
         boolean isRemoteRegionRequested = null != regionsStr && !regionsStr.isEmpty();
         String[] regions = null;
@@ -150,20 +166,23 @@ public class ApplicationsResource {
                 keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept), regions
         );
 
-        Response response;
-        if (acceptEncoding != null && acceptEncoding.contains(HEADER_GZIP_VALUE)) {
-            response = Response.ok(responseCache.getGZIP(cacheKey))
-                    .header(HEADER_CONTENT_ENCODING, HEADER_GZIP_VALUE)
-                    .header(HEADER_CONTENT_TYPE, returnMediaType)
-                    .build();
-        } else {
-            response = Response.ok(responseCache.get(cacheKey))
-                    .build();
-        }
+        Response response = getCachedResponse(cacheKey, acceptEncoding, returnMediaType, ifNoneMatch);
         CurrentRequestVersion.remove();
         return response;
     }
 
+    /**
+     * Get information about all delta changes in {@link com.netflix.discovery.shared.Applications}, without a
+     * conditional request and from the oldest retained change.
+     *
+     * @see #getContainerDifferential(String, String, String, String, UriInfo, String, String, String)
+     */
+    public Response getContainerDifferential(String version, String acceptHeader, String acceptEncoding,
+                                             String eurekaAccept, UriInfo uriInfo, @Nullable String regionsStr) {
+        return getContainerDifferential(version, acceptHeader, acceptEncoding, eurekaAccept, uriInfo, regionsStr,
+                null, null);
+    }
+
     /**
      * Get information about all delta changes in {@link com.netflix.discovery.shared.Applications}.
      *
@@ -189,8 +208,11 @@ public class ApplicationsResource {
      * @param acceptEncoding the accept header to indicate whether to serve compressed or uncompressed data.
      * @param eurekaAccept an eureka accept extension, see {@link com.netflix.appinfo.EurekaAccept}
      * @param uriInfo  the {@link java.net.URI} information of the request made.
+     * @param ifNoneMatch the entity tag of the delta the client has already applied, if any.
+     * @param sinceStr the delta version of the registry information the client has, if any. Only the changes
+     *                 made after it are returned, or 410 (Gone) if they are no longer available.
      * @return response containing the delta information of the
-     *         {@link AbstractInstanceRegistry}.
+     *         {@link AbstractInstanceRegistry}, or 304 (Not Modified) if it has not changed.
      */
     @Path("delta")
     @GET
@@ -199,7 +221,9 @@ public class ApplicationsResource {
             @HeaderParam(HEADER_ACCEPT) String acceptHeader,
             @HeaderParam(HEADER_ACCEPT_ENCODING) String acceptEncoding,
             @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept,
-            @Context UriInfo uriInfo, @Nullable @QueryParam("regions") String regionsStr) {
+            @Context UriInfo uriInfo, @Nullable @QueryParam("regions") String regionsStr,
+            @Nullable @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @Nullable @QueryParam("since") String sinceStr) {
 
         boolean isRemoteRegionRequested = null != regionsStr && !regionsStr.isEmpty();
 
@@ -226,23 +250,84 @@ public class ApplicationsResource {
             returnMediaType = MediaType.APPLICATION_XML;
         }
 
+        // The changes since a version are only versioned for the local region, so with remote regions the
+        // version is ignored and the changes in the retention window are returned as before
+        if (sinceStr != null && !isRemoteRegionRequested && registry.isDeltaSinceVersionSupported()) {
+            try {
+                return getDeltaSince(Long.parseLong(sinceStr), keyType, eurekaAccept, acceptEncoding,
+                        returnMediaType, ifNoneMatch);
+            } catch (NumberFormatException e) {
+                return Response.status(Status.BAD_REQUEST).build();
+            } finally {
+                CurrentRequestVersion.remove();
+            }
+        }
+
         Key cacheKey = new Key(Key.EntityType.Application,
                 ResponseCacheImpl.ALL_APPS_DELTA,
                 keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept), regions
         );
 
-        final Response response;
-
-        if (acceptEncoding != null && acceptEncoding.contains(HEADER_GZIP_VALUE)) {
-             response = Response.ok(responseCache.getGZIP(cacheKey))
-                    .header(HEADER_CONTENT_ENCODING, HEADER_GZIP_VALUE)
-                    .header(HEADER_CONTENT_TYPE, returnMediaType)
-                    .build();
-        } else {
-            response = Response.ok(responseCache.get(cacheKey)).build();
-        }
+        final Response response = getCachedResponse(cacheKey, acceptEncoding, returnMediaType, ifNoneMatch);
 
         CurrentRequestVersion.remove();
         return response;
     }
+
+    /**
+     * Gets exactly the changes made after the given delta version, or 410 (Gone) if they are no longer all
+     * retained or the version was not handed out by this server, in which case the client has to fetch the
+     * full registry again.
+     */
+    private Response getDeltaSince(long sinceVersion, KeyType keyType, String eurekaAccept, String acceptEncoding,
+                                   String returnMediaType, @Nullable String ifNoneMatch) {
+        if (sinceVersion < 0) {
+            return Response.status(Status.GONE).build();
+        }
+        Key cacheKey = new Key(Key.EntityType.Application,
+                ResponseCacheImpl.ALL_APPS_DELTA,
+                keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept), sinceVersion
+        );
+        Response response = getCachedResponse(cacheKey, acceptEncoding, returnMediaType, ifNoneMatch);
+        if (response.getStatus() == Status.OK.getStatusCode() && response.getEntity() == null) {
+            return Response.status(Status.GONE).build();
+        }
+        return response;
+    }
+
+    /**
+     * Builds the response for a cached payload, compressed if the client accepts it, with the preset dictionary
+     * encoding if the client accepts it and the cache keeps the payload in it, or else with gzip. The response
+     * carries the entity tag of the payload, and is 304 (Not Modified) without a body if the tag matches the
+     * client's If-None-Match header.
+     */
+    private Response getCachedResponse(Key cacheKey, String acceptEncoding, String returnMediaType,
+                                       @Nullable String ifNoneMatch) {
+        if (PresetDictionaryEncoding.isAccepted(acceptEncoding)) {
+            CachedPayload payload = responseCache.getPresetDictionaryPayload(cacheKey, ifNoneMatch);
+            if (payload != null) {
+                return toResponse(payload, PresetDictionaryEncoding.ENCODING, returnMediaType);
+            }
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains(HEADER_GZIP_VALUE);
+        return toResponse(responseCache.getPayload(cacheKey, gzip, ifNoneMatch),
+                gzip ? HEADER_GZIP_VALUE : null, returnMediaType);
+    }
+
+    private static Response toResponse(@Nullable CachedPayload payload, @Nullable String contentEncoding,
+                                       String returnMediaType) {
+        if (payload != null && payload.isNotModified()) {
+            return Response.notModified(new EntityTag(payload.getEntityTag())).build();
+        }
+
+        Response.ResponseBuilder builder = Response.ok(payload == null ? null : payload.getEntity());
+        if (contentEncoding != null) {
+            builder.header(HEADER_CONTENT_ENCODING, contentEncoding)
+                    .header(HEADER_CONTENT_TYPE, returnMediaType);
+        }
+        if (payload != null && payload.getEntityTag() != null) {
+            builder.tag(new EntityTag(payload.getEntityTag()));
+        }
+        return builder.build();
+    }
 }
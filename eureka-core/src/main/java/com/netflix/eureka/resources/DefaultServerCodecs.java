@@ -5,6 +5,7 @@ import com.netflix.discovery.converters.wrappers.CodecWrapper;
 import com.netflix.discovery.converters.wrappers.CodecWrappers;
 import com.netflix.discovery.converters.wrappers.EncoderWrapper;
 import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.cluster.protocol.ReplicationBinaryCodec;
 import com.netflix.eureka.registry.Key;
 
 import javax.inject.Inject;
@@ -50,6 +51,8 @@ public class DefaultServerCodecs implements ServerCodecs {
         this.compactJsonCodec = compactJsonCodec;
         this.fullXmlCodec = fullXmlCodec;
         this.compactXmlCodec = compactXmlCodec;
+        // The replication encoding lives in the server, out of reach of the client side codec lookup
+        CodecWrappers.registerWrapper(ReplicationBinaryCodec.getInstance());
     }
 
     @Override
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.resources;
+
+import javax.inject.Inject;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.transport.Heartbeat;
+import com.netflix.discovery.shared.transport.HeartbeatList;
+import com.netflix.discovery.shared.transport.HeartbeatListResponse;
+import com.netflix.discovery.shared.transport.HeartbeatResponse;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.EurekaServerContext;
+import com.netflix.eureka.EurekaServerContextHolder;
+import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A <em>jersey</em> resource that renews the leases of many instances in a single request, for hosts that run
+ * many registered processes or sidecars that register on behalf of others.
+ *
+ * @see InstanceResource#renewLease(String, String, String, String)
+ */
+@Path("/{version}/heartbeats")
+@Produces({"application/xml", "application/json"})
+public class HeartbeatResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeartbeatResource.class);
+
+    private final EurekaServerConfig serverConfig;
+    private final PeerAwareInstanceRegistry registry;
+
+    @Inject
+    HeartbeatResource(EurekaServerContext server) {
+        this.serverConfig = server.getServerConfig();
+        this.registry = server.getRegistry();
+    }
+
+    public HeartbeatResource() {
+        this(EurekaServerContextHolder.getInstance().getServerContext());
+    }
+
+    /**
+     * Renews the leases of a batch of instances.
+     *
+     * <p>
+     * Every heartbeat is handled exactly as a single heartbeat request would be, and the
+     * {@link HeartbeatListResponse} holds the status code and entity of each one, in the order of the batch.
+     * </p>
+     *
+     * @param isReplication
+     *            a header parameter containing information whether this is replicated from other nodes.
+     * @param heartbeatList
+     *            the heartbeats to process.
+     * @return a batched response containing the responses of the individual heartbeats.
+     */
+    @Path("batch")
+    @POST
+    public Response batchHeartbeat(@HeaderParam(PeerEurekaNode.HEADER_REPLICATION) String isReplication,
+                                   HeartbeatList heartbeatList) {
+        try {
+            HeartbeatListResponse batchResponse = new HeartbeatListResponse();
+            for (Heartbeat heartbeat : heartbeatList.getHeartbeats()) {
+                try {
+                    batchResponse.addResponse(renew(isReplication, heartbeat));
+                } catch (Exception e) {
+                    batchResponse.addResponse(new HeartbeatResponse(Status.INTERNAL_SERVER_ERROR.getStatusCode(), null));
+                    logger.error("Heartbeat processing failed for batch item {}/{}",
+                            heartbeat.getAppName(), heartbeat.getId(), e);
+                }
+            }
+            return Response.ok(batchResponse).build();
+        } catch (Throwable e) {
+            logger.error("Cannot execute batch heartbeat request", e);
+            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private HeartbeatResponse renew(String isReplication, Heartbeat heartbeat) {
+        ApplicationResource applicationResource =
+                new ApplicationResource(heartbeat.getAppName(), serverConfig, registry);
+        InstanceResource resource =
+                new InstanceResource(applicationResource, heartbeat.getId(), serverConfig, registry);
+        Long lastDirtyTimestamp = heartbeat.getLastDirtyTimestamp();
+        Response response = resource.renewLease(isReplication, heartbeat.getOverriddenStatus(), heartbeat.getStatus(),
+                lastDirtyTimestamp == null ? null : lastDirtyTimestamp.toString());
+        InstanceInfo entity = response.getEntity() instanceof InstanceInfo ? (InstanceInfo) response.getEntity() : null;
+        return new HeartbeatResponse(response.getStatus(), entity);
+    }
+}
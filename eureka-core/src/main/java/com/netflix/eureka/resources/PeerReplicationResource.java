@@ -22,11 +22,22 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.eureka.EurekaServerContext;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerContextHolder;
+import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.cluster.protocol.ReplicationBinaryCodec;
 import com.netflix.eureka.cluster.protocol.ReplicationInstance;
 import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
 import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse.Builder;
@@ -43,7 +54,7 @@ import org.slf4j.LoggerFactory;
  *
  */
 @Path("/{version}/peerreplication")
-@Produces({"application/xml", "application/json"})
+@Produces({"application/xml", "application/json", ReplicationBinaryCodec.MEDIA_TYPE_NAME})
 public class PeerReplicationResource {
 
     private static final Logger logger = LoggerFactory.getLogger(PeerReplicationResource.class);
@@ -52,11 +63,15 @@ public class PeerReplicationResource {
 
     private final EurekaServerConfig serverConfig;
     private final PeerAwareInstanceRegistry registry;
+    // Null if the batches are applied on the request thread
+    private final ExecutorService batchExecutor;
 
     @Inject
     PeerReplicationResource(EurekaServerContext server) {
         this.serverConfig = server.getServerConfig();
         this.registry = server.getRegistry();
+        PeerEurekaNodes peerEurekaNodes = server.getPeerEurekaNodes();
+        this.batchExecutor = peerEurekaNodes == null ? null : peerEurekaNodes.getReplicationBatchExecutor();
     }
 
     public PeerReplicationResource() {
@@ -70,6 +85,12 @@ public class PeerReplicationResource {
      *  The batched events are delegated to underlying resources to generate a
      *  {@link ReplicationListResponse} containing the individual responses to the batched events
      * </p>
+     * <p>
+     *  If replication batches are applied on several threads, the events are split by application, and the
+     *  events of each application are applied in the order of the batch on one thread. The events of an
+     *  instance are therefore never reordered, while the applications, whose registry updates do not contend
+     *  with each other, are applied concurrently.
+     * </p>
      *
      * @param replicationList
      *            The List of replication events from peer eureka nodes
@@ -79,25 +100,90 @@ public class PeerReplicationResource {
     @POST
     public Response batchReplication(ReplicationList replicationList) {
         try {
-            ReplicationListResponse batchResponse = new ReplicationListResponse();
-            for (ReplicationInstance instanceInfo : replicationList.getReplicationList()) {
-                try {
-                    batchResponse.addResponse(dispatch(instanceInfo));
-                } catch (Exception e) {
-                    batchResponse.addResponse(new ReplicationInstanceResponse(Status.INTERNAL_SERVER_ERROR.getStatusCode(), null));
-                    logger.error("{} request processing failed for batch item {}/{}",
-                            instanceInfo.getAction(), instanceInfo.getAppName(), instanceInfo.getId(), e);
-                }
+            List<ReplicationInstance> replications = replicationList.getReplicationList();
+            ReplicationInstanceResponse[] responses = new ReplicationInstanceResponse[replications.size()];
+            if (batchExecutor == null) {
+                dispatch(replications, null, responses);
+            } else {
+                dispatchByApplication(replications, responses);
             }
-            return Response.ok(batchResponse).build();
+            return Response.ok(new ReplicationListResponse(Arrays.asList(responses))).build();
         } catch (Throwable e) {
             logger.error("Cannot execute batch Request", e);
             return Response.status(Status.INTERNAL_SERVER_ERROR).build();
         }
     }
 
-    private ReplicationInstanceResponse dispatch(ReplicationInstance instanceInfo) {
-        ApplicationResource applicationResource = createApplicationResource(instanceInfo);
+    private void dispatchByApplication(List<ReplicationInstance> replications,
+                                       ReplicationInstanceResponse[] responses) throws InterruptedException {
+        Map<String, List<Integer>> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < replications.size(); i++) {
+            String appName = replications.get(i).getAppName();
+            List<Integer> partition = partitions.get(appName);
+            if (partition == null) {
+                partition = new ArrayList<>();
+                partitions.put(appName, partition);
+            }
+            partition.add(i);
+        }
+        if (partitions.size() == 1) {
+            dispatch(replications, null, responses);
+            return;
+        }
+
+        // The request thread applies the first partition while the executor applies the others
+        List<Future<?>> futures = new ArrayList<>(partitions.size() - 1);
+        List<Integer> firstPartition = null;
+        for (final List<Integer> partition : partitions.values()) {
+            if (firstPartition == null) {
+                firstPartition = partition;
+            } else {
+                futures.add(batchExecutor.submit(() -> dispatch(replications, partition, responses)));
+            }
+        }
+        dispatch(replications, firstPartition, responses);
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // Not expected, as dispatch handles the failures of each item
+                logger.error("Cannot apply a partition of the batch", e);
+            }
+        }
+        for (int i = 0; i < responses.length; i++) {
+            if (responses[i] == null) {
+                responses[i] = new ReplicationInstanceResponse(Status.INTERNAL_SERVER_ERROR.getStatusCode(), null);
+            }
+        }
+    }
+
+    /**
+     * Applies the given items of the batch in order, or all of them if no indexes are given, and stores their
+     * responses at the same indexes. The resource of each application is created once for all its items.
+     */
+    private void dispatch(List<ReplicationInstance> replications, List<Integer> indexes,
+                          ReplicationInstanceResponse[] responses) {
+        Map<String, ApplicationResource> applicationResources = new HashMap<>();
+        int count = indexes == null ? replications.size() : indexes.size();
+        for (int i = 0; i < count; i++) {
+            int index = indexes == null ? i : indexes.get(i);
+            ReplicationInstance instanceInfo = replications.get(index);
+            try {
+                ApplicationResource applicationResource = applicationResources.get(instanceInfo.getAppName());
+                if (applicationResource == null) {
+                    applicationResource = createApplicationResource(instanceInfo);
+                    applicationResources.put(instanceInfo.getAppName(), applicationResource);
+                }
+                responses[index] = dispatch(instanceInfo, applicationResource);
+            } catch (Exception e) {
+                responses[index] = new ReplicationInstanceResponse(Status.INTERNAL_SERVER_ERROR.getStatusCode(), null);
+                logger.error("{} request processing failed for batch item {}/{}",
+                        instanceInfo.getAction(), instanceInfo.getAppName(), instanceInfo.getId(), e);
+            }
+        }
+    }
+
+    private ReplicationInstanceResponse dispatch(ReplicationInstance instanceInfo, ApplicationResource applicationResource) {
         InstanceResource resource = createInstanceResource(instanceInfo, applicationResource);
 
         String lastDirtyTimestamp = toString(instanceInfo.getLastDirtyTimestamp());
@@ -27,6 +27,7 @@ import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 /**
@@ -48,14 +49,19 @@ public class SecureVIPResource extends AbstractVIPResource {
         this(EurekaServerContextHolder.getInstance().getServerContext());
     }
 
+    public Response statusUpdate(String version, String svipAddress, String acceptHeader, String eurekaAccept) {
+        return statusUpdate(version, svipAddress, acceptHeader, eurekaAccept, null);
+    }
+
     @GET
     @Path("{svipAddress}")
     public Response statusUpdate(@PathParam("version") String version,
                                  @PathParam("svipAddress") String svipAddress,
                                  @HeaderParam("Accept") final String acceptHeader,
-                                 @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept) {
+                                 @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept,
+                                 @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
         return getVipResponse(version, svipAddress, acceptHeader,
-                EurekaAccept.fromString(eurekaAccept), Key.EntityType.SVIP);
+                EurekaAccept.fromString(eurekaAccept), Key.EntityType.SVIP, ifNoneMatch);
     }
 
 }
@@ -39,4 +39,14 @@ public class ServerInfoResource {
         String responseStr = objectMapper.writeValueAsString(result);
         return Response.ok(responseStr).build();
     }
+
+    @GET
+    @Path("responsecache")
+    public Response getResponseCacheMetrics() throws Exception {
+        Map<String, Object> result = registry.getResponseCache().getMetricsSnapshot();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        String responseStr = objectMapper.writeValueAsString(result);
+        return Response.ok(responseStr).build();
+    }
 }
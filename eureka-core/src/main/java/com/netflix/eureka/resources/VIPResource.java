@@ -27,6 +27,7 @@ import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 /**
@@ -48,14 +49,19 @@ public class VIPResource extends AbstractVIPResource {
         this(EurekaServerContextHolder.getInstance().getServerContext());
     }
 
+    public Response statusUpdate(String version, String vipAddress, String acceptHeader, String eurekaAccept) {
+        return statusUpdate(version, vipAddress, acceptHeader, eurekaAccept, null);
+    }
+
     @GET
     @Path("{vipAddress}")
     public Response statusUpdate(@PathParam("version") String version,
                                  @PathParam("vipAddress") String vipAddress,
                                  @HeaderParam("Accept") final String acceptHeader,
-                                 @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept) {
+                                 @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept,
+                                 @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
         return getVipResponse(version, vipAddress, acceptHeader,
-                EurekaAccept.fromString(eurekaAccept), Key.EntityType.VIP);
+                EurekaAccept.fromString(eurekaAccept), Key.EntityType.VIP, ifNoneMatch);
     }
 
 }
@@ -2,6 +2,7 @@ package com.netflix.eureka.transport;
 
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response.Status;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -14,15 +15,18 @@ import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.discovery.shared.transport.jersey.AbstractJerseyEurekaHttpClient;
 import com.netflix.discovery.shared.transport.jersey.EurekaJerseyClient;
 import com.netflix.discovery.shared.transport.jersey.EurekaJerseyClientImpl.EurekaJerseyClientBuilder;
+import com.netflix.discovery.shared.transport.jersey.PresetDictionaryContentEncodingFilter;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerIdentity;
 import com.netflix.eureka.cluster.DynamicGZIPContentEncodingFilter;
 import com.netflix.eureka.cluster.HttpReplicationClient;
 import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.ReplicationBinaryCodec;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
 import com.netflix.eureka.resources.ServerCodecs;
+import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.WebResource.Builder;
@@ -43,10 +47,18 @@ public class JerseyReplicationClient extends AbstractJerseyEurekaHttpClient impl
     private final EurekaJerseyClient jerseyClient;
     private final ApacheHttpClient4 jerseyApacheClient;
 
+    // Cleared once the peer turns the binary encoding down, so that it is not asked again
+    private volatile boolean useBinaryCodec;
+
     public JerseyReplicationClient(EurekaJerseyClient jerseyClient, String serviceUrl) {
+        this(jerseyClient, serviceUrl, false);
+    }
+
+    public JerseyReplicationClient(EurekaJerseyClient jerseyClient, String serviceUrl, boolean useBinaryCodec) {
         super(jerseyClient.getClient(), serviceUrl);
         this.jerseyClient = jerseyClient;
         this.jerseyApacheClient = jerseyClient.getClient();
+        this.useBinaryCodec = useBinaryCodec;
     }
 
     @Override
@@ -106,8 +118,20 @@ public class JerseyReplicationClient extends AbstractJerseyEurekaHttpClient impl
         }
     }
 
+    /**
+     * Submits the batch in the {@link ReplicationBinaryCodec binary encoding} if it is enabled, and in JSON
+     * otherwise, or if the peer answers that it does not support the binary encoding.
+     */
     @Override
     public EurekaHttpResponse<ReplicationListResponse> submitBatchUpdates(ReplicationList replicationList) {
+        if (useBinaryCodec) {
+            EurekaHttpResponse<ReplicationListResponse> response = submitBinaryBatchUpdates(replicationList);
+            if (response.getStatusCode() != Status.UNSUPPORTED_MEDIA_TYPE.getStatusCode()) {
+                return response;
+            }
+            logger.info("Peer {} does not support the binary replication encoding; replicating in JSON", serviceUrl);
+            useBinaryCodec = false;
+        }
         ClientResponse response = null;
         try {
             response = jerseyApacheClient.resource(serviceUrl)
@@ -127,6 +151,31 @@ public class JerseyReplicationClient extends AbstractJerseyEurekaHttpClient impl
         }
     }
 
+    private EurekaHttpResponse<ReplicationListResponse> submitBinaryBatchUpdates(ReplicationList replicationList) {
+        ReplicationBinaryCodec codec = ReplicationBinaryCodec.getInstance();
+        ClientResponse response = null;
+        try {
+            response = jerseyApacheClient.resource(serviceUrl)
+                    .path(PeerEurekaNode.BATCH_URL_PATH)
+                    .accept(ReplicationBinaryCodec.MEDIA_TYPE_NAME, "application/json;q=0.5")
+                    .type(ReplicationBinaryCodec.MEDIA_TYPE)
+                    .post(ClientResponse.class, codec.toBytes(replicationList));
+            if (!isSuccess(response.getStatus())) {
+                return anEurekaHttpResponse(response.getStatus(), ReplicationListResponse.class).build();
+            }
+            ReplicationListResponse batchResponse = ReplicationBinaryCodec.isMediaType(response.getType())
+                    ? codec.decode(response.getEntityInputStream(), ReplicationListResponse.class)
+                    : response.getEntity(ReplicationListResponse.class);
+            return anEurekaHttpResponse(response.getStatus(), batchResponse).type(response.getType()).build();
+        } catch (IOException e) {
+            throw new ClientHandlerException(e);
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
     public void addReplicationClientFilter(ClientFilter clientFilter) {
         jerseyApacheClient.addFilter(clientFilter);
     }
@@ -179,11 +228,14 @@ public class JerseyReplicationClient extends AbstractJerseyEurekaHttpClient impl
 
         ApacheHttpClient4 jerseyApacheClient = jerseyClient.getClient();
         jerseyApacheClient.addFilter(new DynamicGZIPContentEncodingFilter(config));
+        // Added last so that it runs first, and gets to encode the request before gzip would
+        jerseyApacheClient.addFilter(new PresetDictionaryContentEncodingFilter(
+                config::shouldEnableReplicatedRequestPresetDictionaryCompression));
 
         EurekaServerIdentity identity = new EurekaServerIdentity(ip);
         jerseyApacheClient.addFilter(new EurekaIdentityHeaderFilter(identity));
 
-        return new JerseyReplicationClient(jerseyClient, serviceUrl);
+        return new JerseyReplicationClient(jerseyClient, serviceUrl, config.shouldUseBinaryReplicationCodec());
     }
 
     private static boolean isSuccess(int statusCode) {
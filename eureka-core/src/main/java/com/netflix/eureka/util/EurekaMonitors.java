@@ -49,6 +49,8 @@ public enum EurekaMonitors {
             "Number of total registry with remote region queries seen since startup"),
     GET_ALL_WITH_REMOTE_REGIONS_CACHE_MISS_DELTA("getAllWithRemoteRegionCacheMissDeltaCounter",
             "Number of total registry queries for delta with remote region seen since startup"),
+    DELTA_LOCKED_READ("deltaLockedReadCounter",
+            "Number of delta cache misses that had to block registry writes to get a consistent view"),
     GET_ALL_DELTA("getAllDeltaCounter", "Number of total deltas since startup"),
     GET_ALL_DELTA_WITH_REMOTE_REGIONS("getAllDeltaWithRemoteRegionCounter",
             "Number of total deltas with remote regions since startup"),
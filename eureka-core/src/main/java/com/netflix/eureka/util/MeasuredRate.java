@@ -15,25 +15,27 @@
  */
 package com.netflix.eureka.util;
 
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.atomic.AtomicLong;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Utility class for getting a count in last X milliseconds.
  *
+ * <p>
+ * The sample interval is split into a number of buckets (6 by default), so the count slides forward one bucket
+ * at a time instead of once per interval. Buckets are picked by the wall clock and recycled lazily by the first
+ * increment that lands in them after they expire, so no timer thread is needed. Each bucket counts with a
+ * {@link LongAdder}, which keeps concurrent increments from contending on a single value.
+ * </p>
+ *
  * @author Karthik Ranganathan,Greg Kim
  */
 public class MeasuredRate {
-    private static final Logger logger = LoggerFactory.getLogger(MeasuredRate.class);
-    private final AtomicLong lastBucket = new AtomicLong(0);
-    private final AtomicLong currentBucket = new AtomicLong(0);
+    private static final int DEFAULT_BUCKETS = 6;
 
-    private final long sampleInterval;
-    private final Timer timer;
+    private final long bucketInterval;
+    private final int bucketCount;
+    // One spare bucket, which fills while the previous 'bucketCount' complete ones are reported
+    private final Bucket[] buckets;
 
     private volatile boolean isActive;
 
@@ -41,48 +43,82 @@ public class MeasuredRate {
      * @param sampleInterval in milliseconds
      */
     public MeasuredRate(long sampleInterval) {
-        this.sampleInterval = sampleInterval;
-        this.timer = new Timer("Eureka-MeasureRateTimer", true);
-        this.isActive = false;
+        this(sampleInterval, DEFAULT_BUCKETS);
     }
 
-    public synchronized void start() {
-        if (!isActive) {
-            timer.schedule(new TimerTask() {
-
-                @Override
-                public void run() {
-                    try {
-                        // Zero out the current bucket.
-                        lastBucket.set(currentBucket.getAndSet(0));
-                    } catch (Throwable e) {
-                        logger.error("Cannot reset the Measured Rate", e);
-                    }
-                }
-            }, sampleInterval, sampleInterval);
-
-            isActive = true;
+    /**
+     * @param sampleInterval in milliseconds
+     * @param bucketCount number of buckets the sample interval is split into
+     */
+    public MeasuredRate(long sampleInterval, int bucketCount) {
+        if (bucketCount < 1 || sampleInterval < bucketCount) {
+            throw new IllegalArgumentException("Invalid sample interval " + sampleInterval
+                    + " for " + bucketCount + " buckets");
         }
+        this.bucketInterval = sampleInterval / bucketCount;
+        this.bucketCount = bucketCount;
+        this.buckets = new Bucket[bucketCount + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.isActive = false;
     }
 
-    public synchronized void stop() {
-        if (isActive) {
-            timer.cancel();
-            isActive = false;
-        }
+    public void start() {
+        isActive = true;
+    }
+
+    public void stop() {
+        isActive = false;
     }
 
     /**
-     * Returns the count in the last sample interval.
+     * Returns the count in the last sample interval, made up of the most recent complete buckets, or 0 if the
+     * rate is not started.
      */
     public long getCount() {
-        return lastBucket.get();
+        if (!isActive) {
+            return 0;
+        }
+        long current = currentTimeMillis() / bucketInterval;
+        long count = 0;
+        for (Bucket bucket : buckets) {
+            long epoch = bucket.epoch;
+            if (epoch < current && epoch >= current - bucketCount) {
+                count += bucket.count.sum();
+            }
+        }
+        return count;
     }
 
     /**
-     * Increments the count in the current sample interval.
+     * Increments the count in the current bucket.
      */
     public void increment() {
-        currentBucket.incrementAndGet();
+        long current = currentTimeMillis() / bucketInterval;
+        Bucket bucket = buckets[(int) (current % buckets.length)];
+        if (bucket.epoch != current) {
+            synchronized (bucket) {
+                if (bucket.epoch != current) {
+                    bucket.reset(current);
+                }
+            }
+        }
+        bucket.count.increment();
+    }
+
+    /* visible for testing */ long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private static final class Bucket {
+        private final LongAdder count = new LongAdder();
+        // Index of the bucket interval this bucket is currently counting, since the epoch
+        private volatile long epoch = -1;
+
+        void reset(long newEpoch) {
+            count.reset();
+            epoch = newEpoch;
+        }
     }
 }
@@ -0,0 +1,543 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.netflix.eureka.util.batcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.netflix.eureka.util.batcher.TaskExecutors.TaskExecutorMetrics;
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.netflix.eureka.Names.METRIC_REPLICATION_PREFIX;
+
+/**
+ * A batching {@link TaskDispatcher} without an acceptor thread. Clients publish their tasks to a bounded
+ * multi-producer ring buffer with a single compare-and-set, and the workers take turns at draining it into the
+ * pending tasks and cutting the next batch, which the worker that cut it processes right away.
+ *
+ * <h3>Leader and followers</h3>
+ * One worker at a time is the leader: it owns the ring buffer consumer side and the pending tasks, which are
+ * therefore never accessed concurrently. Once it has a batch, it hands the leadership over to the next idle worker
+ * and processes the batch. While no batch is due, the leader parks until the oldest pending task has waited for the
+ * maximum batching delay, or until the clients have published enough tasks for a full batch, in which case the
+ * client publishing the last of them wakes it up.
+ *
+ * <h3>Semantics</h3>
+ * The tasks are deduplicated by id, expired, re-processed and throttled by a {@link TrafficShaper} as with the
+ * {@link AcceptorExecutor}. A batch is dispatched as soon as it is full, or once its oldest task has waited for
+ * the maximum batching delay. When the ring buffer is full, the newest tasks are dropped, and when the pending
+ * tasks are, the oldest ones; both are counted as queue overflows.
+ */
+class RingBufferTaskDispatcher<ID, T> implements TaskDispatcher<ID, T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RingBufferTaskDispatcher.class);
+
+    /**
+     * Maximum time the leader waits for new tasks while there are none pending.
+     */
+    private static final long IDLE_WAIT_TIME_MS = 1000;
+
+    private final String id;
+    private final int maxBatchingSize;
+    private final long maxBatchingDelay;
+    private final TaskProcessor<T> processor;
+
+    private final TaskRingBuffer<TaskHolder<ID, T>> ringBuffer;
+    private final Queue<List<TaskHolder<ID, T>>> reprocessQueue = new ConcurrentLinkedQueue<>();
+    private final TrafficShaper trafficShaper;
+
+    // Owned by the leader
+    private final ReentrantLock leaderLock = new ReentrantLock(true);
+    private final PendingTasks<ID, T> pendingTasks;
+
+    private volatile Thread parkedLeader;
+    private volatile int wakeUpThreshold = 1;
+
+    private final AtomicBoolean isShutdown = new AtomicBoolean();
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private final TaskExecutorMetrics executorMetrics;
+
+    /*
+     * Metrics
+     */
+    private final AtomicLong acceptedTasks = new AtomicLong();
+    private final AtomicLong replayedTasks = new AtomicLong();
+    private final AtomicLong rejectedTasks = new AtomicLong();
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "expiredTasks", description = "Number of expired tasks", type = DataSourceType.COUNTER)
+    volatile long expiredTasks;
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "overriddenTasks", description = "Number of overridden tasks", type = DataSourceType.COUNTER)
+    volatile long overriddenTasks;
+
+    volatile long pendingOverflows;
+
+    RingBufferTaskDispatcher(String id,
+                             int maxBufferSize,
+                             int maxBatchingSize,
+                             int workerCount,
+                             long maxBatchingDelay,
+                             long congestionRetryDelayMs,
+                             long networkFailureRetryMs,
+                             TaskProcessor<T> processor) {
+        this.id = id;
+        this.maxBatchingSize = maxBatchingSize;
+        this.maxBatchingDelay = maxBatchingDelay;
+        this.processor = processor;
+        this.ringBuffer = new TaskRingBuffer<>(maxBufferSize);
+        this.pendingTasks = new PendingTasks<>(maxBufferSize);
+        this.trafficShaper = new TrafficShaper(congestionRetryDelayMs, networkFailureRetryMs);
+
+        this.executorMetrics = new TaskExecutorMetrics(id);
+        try {
+            Monitors.registerObject(id, this);
+        } catch (Throwable e) {
+            logger.warn("Cannot register servo monitor for this object", e);
+        }
+
+        ThreadGroup threadGroup = new ThreadGroup("eurekaTaskExecutors");
+        for (int i = 0; i < workerCount; i++) {
+            Thread workerThread = new Thread(threadGroup, new WorkerRunnable(), "TaskBatchingWorker-" + id + '-' + i);
+            workerThreads.add(workerThread);
+            workerThread.setDaemon(true);
+            workerThread.start();
+        }
+    }
+
+    @Override
+    public void process(ID id, T task, long expiryTime) {
+        if (!ringBuffer.offer(new TaskHolder<ID, T>(id, task, expiryTime))) {
+            rejectedTasks.incrementAndGet();
+            return;
+        }
+        acceptedTasks.incrementAndGet();
+        Thread leader = parkedLeader;
+        if (leader != null && ringBuffer.size() >= wakeUpThreshold) {
+            LockSupport.unpark(leader);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (isShutdown.compareAndSet(false, true)) {
+            Monitors.unregisterObject(id, this);
+            Monitors.unregisterObject(id, executorMetrics);
+            for (Thread workerThread : workerThreads) {
+                workerThread.interrupt();
+            }
+        }
+    }
+
+    private void reprocess(List<TaskHolder<ID, T>> holders, ProcessingResult processingResult) {
+        reprocessQueue.add(holders);
+        replayedTasks.addAndGet(holders.size());
+        trafficShaper.registerFailure(processingResult);
+        Thread leader = parkedLeader;
+        if (leader != null) {
+            LockSupport.unpark(leader);
+        }
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "acceptedTasks", description = "Number of accepted tasks", type = DataSourceType.COUNTER)
+    public long getAcceptedTasks() {
+        return acceptedTasks.get();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "replayedTasks", description = "Number of replayedTasks tasks", type = DataSourceType.COUNTER)
+    public long getReplayedTasks() {
+        return replayedTasks.get();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "queueOverflows", description = "Number of queue overflows", type = DataSourceType.COUNTER)
+    public long getQueueOverflows() {
+        return rejectedTasks.get() + pendingOverflows;
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "acceptorQueueSize", description = "Number of tasks waiting in the acceptor queue", type = DataSourceType.GAUGE)
+    public long getAcceptorQueueSize() {
+        return ringBuffer.size();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "queueSize", description = "Task queue size", type = DataSourceType.GAUGE)
+    public long getQueueSize() {
+        return pendingTasks.size;
+    }
+
+    class WorkerRunnable implements Runnable {
+        @Override
+        public void run() {
+            try {
+                while (!isShutdown.get()) {
+                    List<TaskHolder<ID, T>> holders;
+                    leaderLock.lockInterruptibly();
+                    try {
+                        holders = awaitBatch();
+                    } finally {
+                        leaderLock.unlock();
+                    }
+                    if (holders == null) {
+                        return;
+                    }
+                    executorMetrics.registerExpiryTimes(holders);
+                    process(holders);
+                }
+            } catch (InterruptedException e) {
+                // Ignore
+            } catch (Throwable e) {
+                // Safe-guard, so we never exit this loop in an uncontrolled way.
+                logger.warn("Discovery WorkerThread error", e);
+            }
+        }
+
+        private void process(List<TaskHolder<ID, T>> holders) {
+            List<T> tasks = new ArrayList<>(holders.size());
+            for (TaskHolder<ID, T> holder : holders) {
+                tasks.add(holder.getTask());
+            }
+            ProcessingResult result = processor.process(tasks);
+            switch (result) {
+                case Success:
+                    break;
+                case Congestion:
+                case TransientError:
+                    reprocess(holders, result);
+                    break;
+                case PermanentError:
+                    logger.warn("Discarding {} tasks of {} due to permanent error", holders.size(), Thread.currentThread().getName());
+            }
+            executorMetrics.registerTaskResult(result, tasks.size());
+        }
+
+        /**
+         * Returns the next batch once it is due, or null if the dispatcher is shut down first.
+         */
+        private List<TaskHolder<ID, T>> awaitBatch() {
+            while (!isShutdown.get()) {
+                drainReprocessQueue();
+                drainRingBuffer();
+
+                long now = System.currentTimeMillis();
+                long waitTime = trafficShaper.transmissionDelay();
+                if (waitTime <= 0) {
+                    waitTime = timeToNextBatch(now);
+                    if (waitTime <= 0) {
+                        List<TaskHolder<ID, T>> holders = pollBatch(now);
+                        if (!holders.isEmpty()) {
+                            return holders;
+                        }
+                        continue;
+                    }
+                }
+
+                // The first task is always signalled, so that the leader only waits for its batching delay
+                wakeUpThreshold = pendingTasks.size == 0 ? 1 : Math.max(1, maxBatchingSize - pendingTasks.size);
+                parkedLeader = Thread.currentThread();
+                try {
+                    // Re-checked once the clients can see the parked leader, so that no wake up is lost
+                    if (ringBuffer.size() < wakeUpThreshold && reprocessQueue.isEmpty()) {
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(waitTime));
+                    }
+                } finally {
+                    parkedLeader = null;
+                }
+                if (Thread.interrupted()) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        private void drainRingBuffer() {
+            TaskHolder<ID, T> holder;
+            while ((holder = ringBuffer.poll()) != null) {
+                if (pendingTasks.replace(holder)) {
+                    overriddenTasks++;
+                    continue;
+                }
+                if (pendingTasks.isFull()) {
+                    pendingTasks.pollFirst();
+                    pendingOverflows++;
+                }
+                pendingTasks.addLast(holder);
+            }
+        }
+
+        private void drainReprocessQueue() {
+            long now = System.currentTimeMillis();
+            List<TaskHolder<ID, T>> holders;
+            while ((holders = reprocessQueue.poll()) != null) {
+                // Put back at the head of the pending tasks in their original order
+                for (int i = holders.size() - 1; i >= 0; i--) {
+                    TaskHolder<ID, T> holder = holders.get(i);
+                    if (holder.getExpiryTime() <= now) {
+                        expiredTasks++;
+                    } else if (pendingTasks.contains(holder.getId())) {
+                        overriddenTasks++;
+                    } else if (pendingTasks.isFull()) {
+                        pendingOverflows++;
+                    } else {
+                        pendingTasks.addFirst(holder);
+                    }
+                }
+            }
+        }
+
+        private long timeToNextBatch(long now) {
+            TaskHolder<ID, T> oldest = pendingTasks.peekFirst();
+            if (oldest == null) {
+                return IDLE_WAIT_TIME_MS;
+            }
+            if (pendingTasks.size >= maxBatchingSize || pendingTasks.isFull()) {
+                return 0;
+            }
+            return oldest.getSubmitTimestamp() + maxBatchingDelay - now;
+        }
+
+        private List<TaskHolder<ID, T>> pollBatch(long now) {
+            List<TaskHolder<ID, T>> holders = new ArrayList<>(Math.min(maxBatchingSize, pendingTasks.size));
+            while (holders.size() < maxBatchingSize && pendingTasks.size > 0) {
+                TaskHolder<ID, T> holder = pendingTasks.pollFirst();
+                if (holder.getExpiryTime() > now) {
+                    holders.add(holder);
+                } else {
+                    expiredTasks++;
+                }
+            }
+            return holders;
+        }
+    }
+
+    /**
+     * A bounded array queue for many producers and a single consumer. A producer claims a slot by incrementing
+     * the producer index with a compare-and-set, and then publishes its element to it; the consumer takes the
+     * elements in the order of their slots, waiting for the producer of a slot that is claimed but not yet
+     * published.
+     */
+    static final class TaskRingBuffer<E> {
+
+        private final AtomicReferenceArray<E> buffer;
+        private final int capacity;
+        private final int mask;
+        private final AtomicLong producerIndex = new AtomicLong();
+        private final AtomicLong consumerIndex = new AtomicLong();
+
+        TaskRingBuffer(int minCapacity) {
+            this.capacity = powerOfTwoAtLeast(minCapacity);
+            this.mask = capacity - 1;
+            this.buffer = new AtomicReferenceArray<>(capacity);
+        }
+
+        /**
+         * @return false if the buffer is full.
+         */
+        boolean offer(E element) {
+            long index;
+            do {
+                index = producerIndex.get();
+                if (index - consumerIndex.get() >= capacity) {
+                    return false;
+                }
+            } while (!producerIndex.compareAndSet(index, index + 1));
+            buffer.lazySet((int) index & mask, element);
+            return true;
+        }
+
+        /**
+         * Must only be called by one thread at a time.
+         */
+        E poll() {
+            long index = consumerIndex.get();
+            int offset = (int) index & mask;
+            E element = buffer.get(offset);
+            if (element == null) {
+                if (index == producerIndex.get()) {
+                    return null;
+                }
+                // The slot is claimed, and is about to be published
+                while ((element = buffer.get(offset)) == null) {
+                    Thread.yield();
+                }
+            }
+            buffer.lazySet(offset, null);
+            consumerIndex.lazySet(index + 1);
+            return element;
+        }
+
+        int size() {
+            long size = producerIndex.get() - consumerIndex.get();
+            return (int) Math.max(0, Math.min(size, capacity));
+        }
+
+        int capacity() {
+            return capacity;
+        }
+    }
+
+    /**
+     * The pending tasks in the order of their first submission, indexed by id. The tasks are kept in an array
+     * deque, and their positions in it in an open-addressing hash table with linear probing, so that a task can be
+     * replaced in place by a newer one with the same id. Not thread safe.
+     */
+    static final class PendingTasks<ID, T> {
+
+        private final int maxSize;
+
+        private final TaskHolder<ID, T>[] tasks;
+        private final int tasksMask;
+        private int head;
+        int size;
+
+        private final Object[] keys;
+        private final int[] positions;
+        private final int keysMask;
+
+        @SuppressWarnings("unchecked")
+        PendingTasks(int maxSize) {
+            this.maxSize = maxSize;
+            int capacity = powerOfTwoAtLeast(maxSize);
+            this.tasks = (TaskHolder<ID, T>[]) new TaskHolder<?, ?>[capacity];
+            this.tasksMask = capacity - 1;
+            // At most half full, for short probe sequences
+            int keysCapacity = powerOfTwoAtLeast(maxSize * 2);
+            this.keys = new Object[keysCapacity];
+            this.positions = new int[keysCapacity];
+            this.keysMask = keysCapacity - 1;
+        }
+
+        boolean isFull() {
+            return size >= maxSize;
+        }
+
+        boolean contains(ID id) {
+            return keys[indexOf(id)] != null;
+        }
+
+        /**
+         * Replaces the pending task with the same id, keeping its position.
+         *
+         * @return false if there is no pending task with the same id.
+         */
+        boolean replace(TaskHolder<ID, T> holder) {
+            int index = indexOf(holder.getId());
+            if (keys[index] == null) {
+                return false;
+            }
+            tasks[positions[index]] = holder;
+            return true;
+        }
+
+        /**
+         * Must only be called when there is no pending task with the same id, and the queue is not full.
+         */
+        void addLast(TaskHolder<ID, T> holder) {
+            add(holder, (head + size) & tasksMask);
+        }
+
+        /**
+         * Must only be called when there is no pending task with the same id, and the queue is not full.
+         */
+        void addFirst(TaskHolder<ID, T> holder) {
+            head = (head - 1) & tasksMask;
+            add(holder, head);
+        }
+
+        TaskHolder<ID, T> peekFirst() {
+            return size == 0 ? null : tasks[head];
+        }
+
+        TaskHolder<ID, T> pollFirst() {
+            if (size == 0) {
+                return null;
+            }
+            TaskHolder<ID, T> holder = tasks[head];
+            tasks[head] = null;
+            head = (head + 1) & tasksMask;
+            size--;
+            removeKeyAt(indexOf(holder.getId()));
+            return holder;
+        }
+
+        private void add(TaskHolder<ID, T> holder, int position) {
+            tasks[position] = holder;
+            size++;
+            int index = indexOf(holder.getId());
+            keys[index] = holder.getId();
+            positions[index] = position;
+        }
+
+        /**
+         * @return the index of the key, or of the free slot where it belongs.
+         */
+        private int indexOf(Object key) {
+            int index = hash(key) & keysMask;
+            Object current;
+            while ((current = keys[index]) != null && !current.equals(key)) {
+                index = (index + 1) & keysMask;
+            }
+            return index;
+        }
+
+        /**
+         * Removes the key by shifting back the keys that follow it in its probe sequence, so that no tombstones
+         * are needed.
+         */
+        private void removeKeyAt(int index) {
+            int next = index;
+            while (true) {
+                next = (next + 1) & keysMask;
+                Object key = keys[next];
+                if (key == null) {
+                    break;
+                }
+                int home = hash(key) & keysMask;
+                boolean reachable = index <= next ? (index < home && home <= next) : (index < home || home <= next);
+                if (!reachable) {
+                    keys[index] = key;
+                    positions[index] = positions[next];
+                    index = next;
+                }
+            }
+            keys[index] = null;
+        }
+
+        private static int hash(Object key) {
+            int h = key.hashCode() * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private static int powerOfTwoAtLeast(int value) {
+        int capacity = 1;
+        while (capacity < value) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -57,4 +57,56 @@ public class TaskDispatchers {
             }
         };
     }
+
+    /**
+     * Creates a batching dispatcher with the same semantics as
+     * {@link #createBatchingTaskDispatcher(String, int, int, int, long, long, long, TaskProcessor)}, but which keeps
+     * up to windowSize batches in flight at once, and sends the next batch as soon as the window has room rather
+     * than when a worker is done with its previous one. Each batch is acknowledged and retried on its own.
+     */
+    public static <ID, T> TaskDispatcher<ID, T> createWindowedBatchingTaskDispatcher(String id,
+                                                                                     int maxBufferSize,
+                                                                                     int workloadSize,
+                                                                                     int windowSize,
+                                                                                     long maxBatchingDelay,
+                                                                                     long congestionRetryDelayMs,
+                                                                                     long networkFailureRetryMs,
+                                                                                     TaskProcessor<T> taskProcessor) {
+        final AcceptorExecutor<ID, T> acceptorExecutor = new AcceptorExecutor<>(
+                id, maxBufferSize, workloadSize, maxBatchingDelay, congestionRetryDelayMs, networkFailureRetryMs
+        );
+        final TaskExecutors<ID, T> taskExecutor = TaskExecutors.windowedBatchExecutors(id, windowSize, taskProcessor, acceptorExecutor);
+        return new TaskDispatcher<ID, T>() {
+            @Override
+            public void process(ID id, T task, long expiryTime) {
+                acceptorExecutor.process(id, task, expiryTime);
+            }
+
+            @Override
+            public void shutdown() {
+                acceptorExecutor.shutdown();
+                taskExecutor.shutdown();
+            }
+        };
+    }
+
+    /**
+     * Creates a batching dispatcher with the same semantics as
+     * {@link #createBatchingTaskDispatcher(String, int, int, int, long, long, long, TaskProcessor)}, but which hands
+     * the tasks to the workers through a lock-free ring buffer rather than an acceptor thread, and dispatches a
+     * batch as soon as it is full rather than only once its oldest task has waited for the batching delay.
+     * See {@link RingBufferTaskDispatcher}.
+     */
+    public static <ID, T> TaskDispatcher<ID, T> createRingBufferBatchingTaskDispatcher(String id,
+                                                                                       int maxBufferSize,
+                                                                                       int workloadSize,
+                                                                                       int workerCount,
+                                                                                       long maxBatchingDelay,
+                                                                                       long congestionRetryDelayMs,
+                                                                                       long networkFailureRetryMs,
+                                                                                       TaskProcessor<T> taskProcessor) {
+        return new RingBufferTaskDispatcher<>(
+                id, maxBufferSize, workloadSize, workerCount, maxBatchingDelay, congestionRetryDelayMs, networkFailureRetryMs, taskProcessor
+        );
+    }
 }
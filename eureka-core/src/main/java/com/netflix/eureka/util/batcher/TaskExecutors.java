@@ -5,8 +5,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
 import com.netflix.servo.annotations.DataSourceType;
@@ -79,6 +83,23 @@ class TaskExecutors<ID, T> {
         return new TaskExecutors<>(idx -> new BatchWorkerRunnable<>("TaskBatchingWorker-" + name + '-' + idx, isShutdown, metrics, processor, acceptorExecutor), workerCount, isShutdown);
     }
 
+    /**
+     * Creates executors that keep up to windowSize batches in flight at once. A single thread takes the batches
+     * from the {@link AcceptorExecutor} as long as the window has room, and hands each of them to a sender
+     * thread, so the next batch goes out without waiting for the previous ones to be acknowledged. Each batch is
+     * acknowledged, and handed back to the {@link AcceptorExecutor} for a retry, on its own, as with
+     * {@link #batchExecutors(String, int, TaskProcessor, AcceptorExecutor)}.
+     */
+    static <ID, T> TaskExecutors<ID, T> windowedBatchExecutors(final String name,
+                                                               final int windowSize,
+                                                               final TaskProcessor<T> processor,
+                                                               final AcceptorExecutor<ID, T> acceptorExecutor) {
+        final AtomicBoolean isShutdown = new AtomicBoolean();
+        final TaskExecutorMetrics metrics = new TaskExecutorMetrics(name);
+        registeredMonitors.put(name, metrics);
+        return new TaskExecutors<>(idx -> new WindowedBatchWorkerRunnable<>("TaskBatchingWorker-" + name + '-' + idx, windowSize, isShutdown, metrics, processor, acceptorExecutor), 1, isShutdown);
+    }
+
     static class TaskExecutorMetrics {
 
         @Monitor(name = METRIC_REPLICATION_PREFIX + "numberOfSuccessfulExecutions", description = "Number of successful task executions", type = DataSourceType.COUNTER)
@@ -185,20 +206,7 @@ class TaskExecutors<ID, T> {
                 while (!isShutdown.get()) {
                     List<TaskHolder<ID, T>> holders = getWork();
                     metrics.registerExpiryTimes(holders);
-
-                    List<T> tasks = getTasksOf(holders);
-                    ProcessingResult result = processor.process(tasks);
-                    switch (result) {
-                        case Success:
-                            break;
-                        case Congestion:
-                        case TransientError:
-                            taskDispatcher.reprocess(holders, result);
-                            break;
-                        case PermanentError:
-                            logger.warn("Discarding {} tasks of {} due to permanent error", holders.size(), workerName);
-                    }
-                    metrics.registerTaskResult(result, tasks.size());
+                    process(holders);
                 }
             } catch (InterruptedException e) {
                 // Ignore
@@ -208,7 +216,23 @@ class TaskExecutors<ID, T> {
             }
         }
 
-        private List<TaskHolder<ID, T>> getWork() throws InterruptedException {
+        void process(List<TaskHolder<ID, T>> holders) {
+            List<T> tasks = getTasksOf(holders);
+            ProcessingResult result = processor.process(tasks);
+            switch (result) {
+                case Success:
+                    break;
+                case Congestion:
+                case TransientError:
+                    taskDispatcher.reprocess(holders, result);
+                    break;
+                case PermanentError:
+                    logger.warn("Discarding {} tasks of {} due to permanent error", holders.size(), workerName);
+            }
+            metrics.registerTaskResult(result, tasks.size());
+        }
+
+        List<TaskHolder<ID, T>> getWork() throws InterruptedException {
             BlockingQueue<List<TaskHolder<ID, T>>> workQueue = taskDispatcher.requestWorkItems();
             List<TaskHolder<ID, T>> result;
             do {
@@ -226,6 +250,59 @@ class TaskExecutors<ID, T> {
         }
     }
 
+    static class WindowedBatchWorkerRunnable<ID, T> extends BatchWorkerRunnable<ID, T> {
+
+        private final Semaphore window;
+        private final ExecutorService senders;
+
+        WindowedBatchWorkerRunnable(String workerName,
+                                    int windowSize,
+                                    AtomicBoolean isShutdown,
+                                    TaskExecutorMetrics metrics,
+                                    TaskProcessor<T> processor,
+                                    AcceptorExecutor<ID, T> acceptorExecutor) {
+            super(workerName, isShutdown, metrics, processor, acceptorExecutor);
+            this.window = new Semaphore(windowSize);
+            AtomicInteger senderIndex = new AtomicInteger();
+            this.senders = Executors.newFixedThreadPool(windowSize, runnable -> {
+                Thread thread = new Thread(runnable, workerName + "-sender-" + senderIndex.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!isShutdown.get()) {
+                    window.acquire();
+                    List<TaskHolder<ID, T>> holders = getWork();
+                    if (holders.isEmpty()) {
+                        window.release();
+                        continue;
+                    }
+                    metrics.registerExpiryTimes(holders);
+                    senders.execute(() -> {
+                        try {
+                            process(holders);
+                        } catch (Throwable e) {
+                            logger.warn("Discovery WorkerThread error", e);
+                        } finally {
+                            window.release();
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                // Ignore
+            } catch (Throwable e) {
+                // Safe-guard, so we never exit this loop in an uncontrolled way.
+                logger.warn("Discovery WorkerThread error", e);
+            } finally {
+                senders.shutdownNow();
+            }
+        }
+    }
+
     static class SingleTaskWorkerRunnable<ID, T> extends WorkerRunnable<ID, T> {
 
         SingleTaskWorkerRunnable(String workerName,
@@ -11,8 +11,13 @@ import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.converters.EurekaJacksonCodec;
 import com.netflix.discovery.shared.transport.ClusterSampleData;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
+import com.netflix.discovery.shared.transport.PresetDictionaryEncoding;
 import com.netflix.eureka.DefaultEurekaServerConfig;
 import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.cluster.protocol.ReplicationBinaryCodec;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
 import com.netflix.eureka.resources.DefaultServerCodecs;
 import com.netflix.eureka.resources.ServerCodecs;
@@ -23,12 +28,15 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.mockserver.client.server.MockServerClient;
 import org.mockserver.junit.MockServerRule;
+import org.mockserver.verify.VerificationTimes;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
 import static org.mockserver.model.Header.header;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
@@ -136,6 +144,106 @@ public class JerseyReplicationClientTest {
         assertThat(response.getEntity(), is(notNullValue()));
     }
 
+    @Test
+    public void testHeartbeatReplicationWithPresetDictionaryEncodedResponseBody() throws Exception {
+        InstanceInfo remoteInfo = new InstanceInfo(this.instanceInfo);
+        remoteInfo.setStatus(InstanceStatus.DOWN);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        EurekaJacksonCodec.getInstance().writeTo(remoteInfo, bos);
+        byte[] responseBody = PresetDictionaryEncoding.compress(bos.toByteArray());
+
+        serverMockClient.when(
+                request()
+                        .withMethod("PUT")
+                        .withHeader(header(PeerEurekaNode.HEADER_REPLICATION, "true"))
+                        .withHeader(header("Accept-Encoding", PresetDictionaryEncoding.ENCODING + ",gzip"))
+                        .withPath("/eureka/v2/apps/" + this.instanceInfo.getAppName() + '/' + this.instanceInfo.getId())
+        ).respond(
+                response()
+                        .withStatusCode(Status.CONFLICT.getStatusCode())
+                        .withHeader(header("Content-Type", MediaType.APPLICATION_JSON))
+                        .withHeader(header("Content-Encoding", PresetDictionaryEncoding.ENCODING))
+                        .withBody(responseBody)
+        );
+
+        EurekaHttpResponse<InstanceInfo> response = replicationClient.sendHeartBeat(this.instanceInfo.getAppName(), this.instanceInfo.getId(), this.instanceInfo, null);
+        assertThat(response.getStatusCode(), is(equalTo(Status.CONFLICT.getStatusCode())));
+        assertThat(response.getEntity().getStatus(), is(equalTo(InstanceStatus.DOWN)));
+    }
+
+    @Test
+    public void testBatchReplicationInBinaryEncoding() throws Exception {
+        ReplicationList replicationList = new ReplicationList(
+                ClusterSampleData.newReplicationInstanceOf(Action.Heartbeat, instanceInfo));
+        ReplicationListResponse batchResponse = new ReplicationListResponse();
+        batchResponse.addResponse(ClusterSampleData.newReplicationInstanceResponse(true));
+
+        serverMockClient.when(
+                request()
+                        .withMethod("POST")
+                        .withHeader(header("Content-Type", ReplicationBinaryCodec.MEDIA_TYPE_NAME))
+                        .withPath("/eureka/v2/" + PeerEurekaNode.BATCH_URL_PATH)
+        ).respond(
+                response()
+                        .withStatusCode(200)
+                        .withHeader(header("Content-Type", ReplicationBinaryCodec.MEDIA_TYPE_NAME))
+                        .withBody(ReplicationBinaryCodec.getInstance().toBytes(batchResponse))
+        );
+
+        JerseyReplicationClient binaryClient = createBinaryReplicationClient();
+        try {
+            EurekaHttpResponse<ReplicationListResponse> response = binaryClient.submitBatchUpdates(replicationList);
+            assertThat(response.getStatusCode(), is(equalTo(200)));
+            assertThat(response.getEntity(), is(equalTo(batchResponse)));
+        } finally {
+            binaryClient.shutdown();
+        }
+    }
+
+    @Test
+    public void testBatchReplicationFallsBackToJsonWhenBinaryEncodingIsNotSupported() throws Exception {
+        ReplicationList replicationList = new ReplicationList(
+                ClusterSampleData.newReplicationInstanceOf(Action.Heartbeat, instanceInfo));
+        ReplicationListResponse batchResponse = new ReplicationListResponse();
+        batchResponse.addResponse(ClusterSampleData.newReplicationInstanceResponse(false));
+
+        serverMockClient.when(
+                request()
+                        .withMethod("POST")
+                        .withHeader(header("Content-Type", ReplicationBinaryCodec.MEDIA_TYPE_NAME))
+                        .withPath("/eureka/v2/" + PeerEurekaNode.BATCH_URL_PATH)
+        ).respond(
+                response().withStatusCode(Status.UNSUPPORTED_MEDIA_TYPE.getStatusCode())
+        );
+        serverMockClient.when(
+                request()
+                        .withMethod("POST")
+                        .withHeader(header("Content-Type", MediaType.APPLICATION_JSON))
+                        .withPath("/eureka/v2/" + PeerEurekaNode.BATCH_URL_PATH)
+        ).respond(
+                response()
+                        .withStatusCode(200)
+                        .withHeader(header("Content-Type", MediaType.APPLICATION_JSON))
+                        .withBody(EurekaJacksonCodec.getInstance().writeToString(batchResponse))
+        );
+
+        JerseyReplicationClient binaryClient = createBinaryReplicationClient();
+        try {
+            for (int i = 0; i < 2; i++) {
+                EurekaHttpResponse<ReplicationListResponse> response = binaryClient.submitBatchUpdates(replicationList);
+                assertThat(response.getStatusCode(), is(equalTo(200)));
+                assertThat(response.getEntity(), is(equalTo(batchResponse)));
+            }
+            // Once turned down, the binary encoding is not tried again
+            serverMockClient.verify(
+                    request().withHeader(header("Content-Type", ReplicationBinaryCodec.MEDIA_TYPE_NAME)),
+                    VerificationTimes.once()
+            );
+        } finally {
+            binaryClient.shutdown();
+        }
+    }
+
     @Test
     public void testAsgStatusUpdateReplication() throws Exception {
         serverMockClient.when(
@@ -181,6 +289,14 @@ public class JerseyReplicationClientTest {
         assertThat(response.getStatusCode(), is(equalTo(204)));
     }
 
+    private JerseyReplicationClient createBinaryReplicationClient() {
+        EurekaServerConfig binaryConfig = spy(new DefaultEurekaServerConfig());
+        doReturn(true).when(binaryConfig).shouldUseBinaryReplicationCodec();
+        return JerseyReplicationClient.createReplicationClient(
+                binaryConfig, serverCodecs, "http://localhost:" + serverMockRule.getHttpPort() + "/eureka/v2"
+        );
+    }
+
     private static byte[] toGzippedJson(InstanceInfo remoteInfo) throws IOException {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         GZIPOutputStream gos = new GZIPOutputStream(bos);
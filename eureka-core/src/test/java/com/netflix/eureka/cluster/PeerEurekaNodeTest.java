@@ -22,6 +22,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.timeout;
@@ -110,6 +111,48 @@ public class PeerEurekaNodeTest {
         verify(registry, timeout(1000).times(1)).register(instanceInfoFromPeer, true);
     }
 
+    @Test
+    public void testHeartbeatDigestReplication() throws Throwable {
+        createPeerEurekaNode().heartbeats(HeartbeatDigest.newBuilder().add(instanceInfo, null).build());
+
+        ReplicationInstance replicationInstance = expectSingleBatchRequest();
+        assertThat(replicationInstance.getAction(), is(equalTo(Action.Heartbeat)));
+        assertThat(replicationInstance.getId(), is(equalTo(instanceInfo.getId())));
+        assertThat(replicationInstance.getLastDirtyTimestamp(), is(equalTo(instanceInfo.getLastDirtyTimestamp())));
+        assertThat(replicationInstance.getInstanceInfo(), is(nullValue()));
+    }
+
+    @Test
+    public void testHeartbeatDigestReplicationFailure() throws Throwable {
+        httpReplicationClient.withNetworkStatusCode(200, 200);
+        httpReplicationClient.withBatchReply(404); // Not found, to trigger registration
+        createPeerEurekaNode().heartbeats(HeartbeatDigest.newBuilder().add(instanceInfo, null).build());
+
+        // Heartbeat replied with an error
+        ReplicationInstance replicationInstance = expectSingleBatchRequest();
+        assertThat(replicationInstance.getAction(), is(equalTo(Action.Heartbeat)));
+
+        // Second, registration task is scheduled
+        replicationInstance = expectSingleBatchRequest();
+        assertThat(replicationInstance.getAction(), is(equalTo(Action.Register)));
+        assertThat(replicationInstance.getInstanceInfo(), is(equalTo(instanceInfo)));
+    }
+
+    @Test
+    public void testHeartbeatDigestWithInstanceInfoFromPeer() throws Throwable {
+        InstanceInfo instanceInfoFromPeer = ClusterSampleData.newInstanceInfo(2);
+
+        httpReplicationClient.withNetworkStatusCode(200);
+        httpReplicationClient.withBatchReply(409);
+        httpReplicationClient.withInstanceInfo(instanceInfoFromPeer);
+
+        // InstanceInfo in response from peer will trigger local registry call
+        createPeerEurekaNode().heartbeats(HeartbeatDigest.newBuilder().add(instanceInfo, null).build());
+        expectRequestType(RequestType.Batch);
+
+        verify(registry, timeout(1000).times(1)).register(instanceInfoFromPeer, true);
+    }
+
     @Test
     public void testAsgStatusUpdate() throws Throwable {
         createPeerEurekaNode().statusUpdate(instanceInfo.getASGName(), ASGStatus.DISABLED);
@@ -0,0 +1,104 @@
+package com.netflix.eureka.cluster.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.converters.EurekaJacksonCodec;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.shared.transport.ClusterSampleData;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.DefaultEurekaServerConfig;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ReplicationBinaryCodecTest {
+
+    private final ReplicationBinaryCodec codec = ReplicationBinaryCodec.getInstance();
+
+    @Test
+    public void testReplicationListEncoding() throws Exception {
+        ReplicationList replicationList = new ReplicationList();
+        for (Action action : Action.values()) {
+            replicationList.addReplicationInstance(
+                    ClusterSampleData.newReplicationInstanceOf(action, ClusterSampleData.newInstanceInfo(1)));
+        }
+        replicationList.addReplicationInstance(new ReplicationInstance(
+                "app", "id", null, "SOME_CUSTOM_STATUS", null, null, null));
+
+        ReplicationList decodedValue = codec.decode(
+                new ByteArrayInputStream(codec.toBytes(replicationList)), ReplicationList.class);
+
+        assertThat(decodedValue, is(equalTo(replicationList)));
+        for (int i = 0; i < replicationList.getReplicationList().size(); i++) {
+            assertFullyEqual(decodedValue.getReplicationList().get(i), replicationList.getReplicationList().get(i));
+        }
+    }
+
+    @Test
+    public void testReplicationListResponseEncoding() throws Exception {
+        ReplicationListResponse replicationListResponse = new ReplicationListResponse();
+        replicationListResponse.addResponse(ClusterSampleData.newReplicationInstanceResponse(false));
+        replicationListResponse.addResponse(new ReplicationInstanceResponse(409, ClusterSampleData.newInstanceInfo(2)));
+
+        String text = codec.encode(replicationListResponse);
+        ReplicationListResponse decodedValue = codec.decode(text, ReplicationListResponse.class);
+
+        assertThat(decodedValue, is(equalTo(replicationListResponse)));
+        assertThat(decodedValue.getResponseList().get(1).getResponseEntity().getLastDirtyTimestamp(),
+                is(equalTo(replicationListResponse.getResponseList().get(1).getResponseEntity().getLastDirtyTimestamp())));
+    }
+
+    @Test
+    public void testHeartbeatBatchIsSeveralTimesSmallerThanJson() throws Exception {
+        ReplicationList replicationList = new ReplicationList();
+        Iterator<InstanceInfo> instances = InstanceInfoGenerator.newBuilder(100, 10).build().serviceIterator();
+        while (instances.hasNext()) {
+            InstanceInfo instance = instances.next();
+            replicationList.addReplicationInstance(new ReplicationInstance(instance.getAppName(), instance.getId(),
+                    instance.getLastDirtyTimestamp(), null, instance.getStatus().name(), null, Action.Heartbeat));
+        }
+
+        int jsonSize = new EurekaJacksonCodec().writeToString(replicationList).length();
+        int binarySize = codec.toBytes(replicationList).length;
+
+        assertThat(binarySize * 3 < jsonSize, is(true));
+    }
+
+    @Test
+    public void testCodecIsRegisteredWithServerCodecs() throws Exception {
+        new DefaultServerCodecs(new DefaultEurekaServerConfig());
+        assertThat(CodecWrappers.getCodec(codec.codecName()), is(sameInstance((Object) codec)));
+        assertThat(codec.support(ReplicationBinaryCodec.MEDIA_TYPE), is(true));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOtherContentIsRejected() throws Exception {
+        codec.fromBytes("{\"replicationList\":[]}".getBytes(), ReplicationList.class);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedContentIsRejected() throws Exception {
+        ReplicationList replicationList = new ReplicationList(ClusterSampleData.newReplicationInstance());
+        byte[] bytes = codec.toBytes(replicationList);
+        byte[] truncated = new byte[bytes.length / 2];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        codec.fromBytes(truncated, ReplicationList.class);
+    }
+
+    private static void assertFullyEqual(ReplicationInstance actual, ReplicationInstance expected) {
+        assertThat(actual.getAppName(), is(equalTo(expected.getAppName())));
+        assertThat(actual.getId(), is(equalTo(expected.getId())));
+        assertThat(actual.getLastDirtyTimestamp(), is(equalTo(expected.getLastDirtyTimestamp())));
+        assertThat(actual.getOverriddenStatus(), is(equalTo(expected.getOverriddenStatus())));
+        assertThat(actual.getStatus(), is(equalTo(expected.getStatus())));
+        assertThat(actual.getAction(), is(equalTo(expected.getAction())));
+    }
+}
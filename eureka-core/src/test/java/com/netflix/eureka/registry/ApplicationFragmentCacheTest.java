@@ -0,0 +1,102 @@
+package com.netflix.eureka.registry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import com.netflix.appinfo.EurekaAccept;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.AbstractTester;
+import com.netflix.eureka.Version;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import com.netflix.eureka.resources.ServerCodecs;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+public class ApplicationFragmentCacheTest extends AbstractTester {
+
+    private ServerCodecs serverCodecs;
+    private ApplicationFragmentCache fragmentCache;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        serverCodecs = new DefaultServerCodecs(serverConfig);
+        fragmentCache = new ApplicationFragmentCache(serverConfig, serverCodecs);
+        registerInstanceLocally(createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME));
+        registerInstanceLocally(createRemoteInstance(REMOTE_REGION_INSTANCE_1_HOSTNAME));
+        registerInstanceLocally(createRemoteInstance(REMOTE_REGION_INSTANCE_2_HOSTNAME));
+    }
+
+    @Test
+    public void testAssembledPayloadMatchesFullEncoding() throws Exception {
+        for (Key.KeyType type : Key.KeyType.values()) {
+            for (EurekaAccept accept : EurekaAccept.values()) {
+                verifyAssembledPayload(allAppsKey(type, accept));
+            }
+        }
+    }
+
+    @Test
+    public void testChangedApplicationIsEncodedAgain() throws Exception {
+        for (Key.KeyType type : Key.KeyType.values()) {
+            verifyAssembledPayload(allAppsKey(type, EurekaAccept.full));
+        }
+
+        registerInstanceLocally(createLocalInstanceWithIdAndStatus(
+                LOCAL_REGION_INSTANCE_2_HOSTNAME, "second", InstanceStatus.UP));
+        fragmentCache.invalidate(LOCAL_REGION_APP_NAME);
+
+        for (Key.KeyType type : Key.KeyType.values()) {
+            verifyAssembledPayload(allAppsKey(type, EurekaAccept.full));
+        }
+    }
+
+    @Test
+    public void testLocateXmlApplicationsIgnoresNestedElements() throws Exception {
+        String xml = "<?xml version=\"1.0\"?><applications><apps__hashcode>UP_1_</apps__hashcode>"
+                + "<application><name>A</name><metadata><application a=\"x>y\"/></metadata></application>"
+                + "<application><name>B</name></application></applications>";
+        int[] offsets = ApplicationFragmentCache.locateApplications(Key.KeyType.XML, xml);
+
+        assertThat(offsets.length, is(equalTo(4)));
+        assertThat(xml.substring(offsets[0], offsets[1]),
+                is(equalTo("<application><name>A</name><metadata><application a=\"x>y\"/></metadata></application>")));
+        assertThat(xml.substring(offsets[2], offsets[3]), is(equalTo("<application><name>B</name></application>")));
+    }
+
+    private void verifyAssembledPayload(Key key) throws Exception {
+        long generation = fragmentCache.getGeneration();
+        Applications apps = registry.getApplications();
+        ApplicationFragmentCache.Payload payload = fragmentCache.assemble(key, apps, generation);
+
+        assertThat(payload, is(notNullValue()));
+        String expected = serverCodecs.getEncoder(key.getType(), key.getEurekaAccept()).encode(apps);
+        assertThat(payload.getPayload(), is(equalTo(expected)));
+        assertThat(gunzip(payload.getGzipped()), is(equalTo(expected)));
+    }
+
+    private static Key allAppsKey(Key.KeyType type, EurekaAccept accept) {
+        return new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS, type, Version.V2, accept);
+    }
+
+    private static String gunzip(byte[] gzipped) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                out.write(buffer, 0, count);
+            }
+            return new String(out.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.netflix.eureka.registry;
+
+import java.util.Collections;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.eureka.AbstractTester;
+import com.netflix.eureka.cluster.HeartbeatDigest;
+import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HeartbeatDigestReplicationTest extends AbstractTester {
+
+    private final PeerEurekaNode peerNode = mock(PeerEurekaNode.class);
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        // Long enough for the digests to be only replicated by the test
+        ConfigurationManager.getConfigInstance().setProperty("eureka.heartbeatReplicationDigestIntervalMs", "600000");
+        super.setUp();
+        when(serverContext.getPeerEurekaNodes().getPeerEurekaNodes())
+                .thenReturn(Collections.singletonList(peerNode));
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        ConfigurationManager.getConfigInstance().clearProperty("eureka.heartbeatReplicationDigestIntervalMs");
+    }
+
+    @Test
+    public void testRenewalsAreReplicatedInDigests() throws Throwable {
+        InstanceInfo first = createLocalInstanceWithIdAndStatus(
+                LOCAL_REGION_INSTANCE_1_HOSTNAME, "first", InstanceInfo.InstanceStatus.UP);
+        InstanceInfo second = createLocalInstanceWithIdAndStatus(
+                LOCAL_REGION_INSTANCE_2_HOSTNAME, "second", InstanceInfo.InstanceStatus.UP);
+        registry.register(first, false);
+        registry.register(second, false);
+
+        registry.renew(LOCAL_REGION_APP_NAME, first.getId(), false);
+        registry.renew(LOCAL_REGION_APP_NAME, first.getId(), false);
+        registry.renew(LOCAL_REGION_APP_NAME, second.getId(), false);
+        // Replicated renewals are not replicated again
+        registry.renew(LOCAL_REGION_APP_NAME, second.getId(), true);
+        assertThat(registry.getNumOfPendingHeartbeatReplications(), is(equalTo(2)));
+
+        registry.replicateHeartbeatDigest();
+
+        ArgumentCaptor<HeartbeatDigest> digestCaptor = ArgumentCaptor.forClass(HeartbeatDigest.class);
+        verify(peerNode, times(1)).heartbeats(digestCaptor.capture());
+        verify(peerNode, never()).heartbeat(anyString(), anyString(), any(InstanceInfo.class),
+                any(InstanceInfo.InstanceStatus.class), anyBoolean());
+
+        HeartbeatDigest digest = digestCaptor.getValue();
+        assertThat(digest.size(), is(equalTo(2)));
+        for (int i = 0; i < digest.size(); i++) {
+            ReplicationInstance heartbeat = digest.toReplicationList().getReplicationList().get(i);
+            assertThat(heartbeat.getId(), is(equalTo(digest.getInstances().get(i).getId())));
+            assertThat(heartbeat.getLastDirtyTimestamp(), is(equalTo(digest.getInstances().get(i).getLastDirtyTimestamp())));
+            assertThat(heartbeat.getInstanceInfo(), is(nullValue()));
+        }
+
+        // Nothing was renewed since the previous digest
+        registry.replicateHeartbeatDigest();
+        verify(peerNode, times(1)).heartbeats(any(HeartbeatDigest.class));
+    }
+
+    @Test
+    public void testCancelledInstancesAreLeftOut() throws Throwable {
+        InstanceInfo instance = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+        registry.register(instance, false);
+        registry.renew(LOCAL_REGION_APP_NAME, instance.getId(), false);
+        registry.cancel(LOCAL_REGION_APP_NAME, instance.getId(), false);
+
+        registry.replicateHeartbeatDigest();
+
+        verify(peerNode, never()).heartbeats(any(HeartbeatDigest.class));
+    }
+}
@@ -7,6 +7,7 @@ import java.util.List;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.config.ConfigurationManager;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
 import com.netflix.eureka.AbstractTester;
@@ -256,6 +257,136 @@ public class InstanceRegistryTest extends AbstractTester {
         verifyLocalInstanceStatus(myInstance.getId(), InstanceStatus.OUT_OF_SERVICE);
     }
 
+    @Test
+    public void testLocalApplicationsSnapshotReusedUntilChanged() throws Exception {
+        InstanceInfo myInstance = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+        registerInstanceLocally(myInstance);
+
+        Applications first = registry.getApplicationsFromLocalRegionOnly();
+        Assert.assertSame("Unchanged registry should return the same snapshot",
+                first, registry.getApplicationsFromLocalRegionOnly());
+        Assert.assertEquals("UP_1_", first.getAppsHashCode());
+
+        registry.statusUpdate(LOCAL_REGION_APP_NAME, myInstance.getId(), InstanceStatus.OUT_OF_SERVICE, "0", false);
+        Applications second = registry.getApplicationsFromLocalRegionOnly();
+        Assert.assertNotSame("Status change should publish a new snapshot", first, second);
+        Assert.assertEquals("OUT_OF_SERVICE_1_", second.getAppsHashCode());
+
+        registry.cancel(LOCAL_REGION_APP_NAME, myInstance.getId(), false);
+        Applications third = registry.getApplicationsFromLocalRegionOnly();
+        Assert.assertNull("Cancelled application should be gone from the snapshot",
+                third.getRegisteredApplications(LOCAL_REGION_APP_NAME));
+    }
+
+    @Test
+    public void testLocalApplicationsSnapshotFollowsRenewals() throws Exception {
+        InstanceInfo myInstance = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+        registerInstanceLocally(myInstance);
+
+        Applications first = registry.getApplicationsFromLocalRegionOnly();
+        long registeredRenewal = first.getRegisteredApplications(LOCAL_REGION_APP_NAME)
+                .getByInstanceId(myInstance.getId()).getLeaseInfo().getRenewalTimestamp();
+
+        Thread.sleep(10);
+        registry.renew(LOCAL_REGION_APP_NAME, myInstance.getId(), false);
+        Applications second = registry.getApplicationsFromLocalRegionOnly();
+        Assert.assertSame("A renewal should not publish a new snapshot", first, second);
+        long renewed = second.getRegisteredApplications(LOCAL_REGION_APP_NAME)
+                .getByInstanceId(myInstance.getId()).getLeaseInfo().getRenewalTimestamp();
+        Assert.assertTrue("Renewal timestamp was not refreshed", renewed > registeredRenewal);
+    }
+
+    @Test
+    public void testVipIndexFollowsRegistrations() throws Exception {
+        InstanceInfo myInstance = new InstanceInfo.Builder(createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME))
+                .setVIPAddress("vip1,vip2")
+                .setSecureVIPAddress("svip1")
+                .build();
+        registerInstanceLocally(myInstance);
+
+        assertThat(vipInstanceCount(registry.getApplicationsByVipAddress("vip1")), is(1));
+        assertThat(vipInstanceCount(registry.getApplicationsByVipAddress("vip2")), is(1));
+        assertThat(vipInstanceCount(registry.getApplicationsBySecureVipAddress("svip1")), is(1));
+        assertThat(vipInstanceCount(registry.getApplicationsByVipAddress("svip1")), is(0));
+        Assert.assertEquals("UP_1_", registry.getApplicationsByVipAddress("vip1").getAppsHashCode());
+
+        InstanceInfo changedVip = new InstanceInfo.Builder(new InstanceInfo(myInstance))
+                .setVIPAddress("vip3")
+                .build();
+        registry.register(changedVip, false);
+        assertThat(vipInstanceCount(registry.getApplicationsByVipAddress("vip1")), is(0));
+        assertThat(vipInstanceCount(registry.getApplicationsByVipAddress("vip3")), is(1));
+        assertThat(vipInstanceCount(registry.getApplicationsBySecureVipAddress("svip1")), is(1));
+
+        // The builder changes the registered instance in place, the index entries must still be removed
+        new InstanceInfo.Builder(changedVip).setVIPAddress("vip4").setSecureVIPAddress("svip2").build();
+        registry.register(changedVip, false);
+        assertThat(vipInstanceCount(registry.getApplicationsByVipAddress("vip3")), is(0));
+        assertThat(vipInstanceCount(registry.getApplicationsByVipAddress("vip4")), is(1));
+        assertThat(vipInstanceCount(registry.getApplicationsBySecureVipAddress("svip1")), is(0));
+        assertThat(vipInstanceCount(registry.getApplicationsBySecureVipAddress("svip2")), is(1));
+
+        registry.cancel(LOCAL_REGION_APP_NAME, myInstance.getId(), false);
+        assertThat(vipInstanceCount(registry.getApplicationsByVipAddress("vip4")), is(0));
+        assertThat(vipInstanceCount(registry.getApplicationsBySecureVipAddress("svip2")), is(0));
+    }
+
+    @Test
+    public void testGetInstancesByIdFollowsRegistrations() throws Exception {
+        InstanceInfo myInstance = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+        registerInstanceLocally(myInstance);
+
+        List<InstanceInfo> instances = registry.getInstancesById(myInstance.getId(), false);
+        assertThat(instances.size(), is(1));
+        Assert.assertEquals(LOCAL_REGION_APP_NAME, instances.get(0).getAppName());
+
+        registry.register(new InstanceInfo(myInstance), false);
+        assertThat(registry.getInstancesById(myInstance.getId(), false).size(), is(1));
+
+        registry.cancel(LOCAL_REGION_APP_NAME, myInstance.getId(), false);
+        assertThat(registry.getInstancesById(myInstance.getId(), false).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testGetApplicationDeltasSinceReturnsOnlyLaterChanges() throws Exception {
+        ConfigurationManager.getConfigInstance().setProperty("eureka.remoteRegion.disable.transparent.fallback", "true");
+        try {
+            Assert.assertTrue(registry.isDeltaSinceVersionSupported());
+            registerInstanceLocally(createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME));
+            long fullVersion = registry.getApplicationsWithDeltaVersion().getVersion();
+
+            InstanceInfo second = createLocalInstanceWithIdAndStatus(
+                    LOCAL_REGION_INSTANCE_2_HOSTNAME, "second", InstanceStatus.UP);
+            registerInstanceLocally(second);
+
+            Applications delta = registry.getApplicationDeltasSince(fullVersion);
+            Assert.assertNotNull(delta);
+            assertThat(delta.getVersion() > fullVersion, is(true));
+            Application app = delta.getRegisteredApplications(LOCAL_REGION_APP_NAME);
+            assertThat(app.getInstances().size(), is(1));
+            Assert.assertEquals(second.getId(), app.getInstances().get(0).getId());
+            Assert.assertEquals("UP_2_", delta.getAppsHashCode());
+
+            Applications empty = registry.getApplicationDeltasSince(delta.getVersion());
+            Assert.assertNotNull(empty);
+            assertThat(empty.getRegisteredApplications().isEmpty(), is(true));
+            Assert.assertEquals(delta.getVersion(), empty.getVersion());
+
+            Assert.assertNull("Versions not handed out by the registry are too old",
+                    registry.getApplicationDeltasSince(1L));
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("eureka.remoteRegion.disable.transparent.fallback");
+        }
+    }
+
+    private static int vipInstanceCount(Applications applications) {
+        int count = 0;
+        for (Application application : applications.getRegisteredApplications()) {
+            count += application.getInstancesAsIsFromEureka().size();
+        }
+        return count;
+    }
+
     @Test
     public void testEvictionTaskCompensationTime() throws Exception {
         long evictionTaskPeriodNanos = serverConfig.getEvictionIntervalTimerInMs() * 1000000;
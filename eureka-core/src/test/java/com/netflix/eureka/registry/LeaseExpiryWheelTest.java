@@ -0,0 +1,93 @@
+package com.netflix.eureka.registry;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.lease.Lease;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LeaseExpiryWheelTest {
+
+    private final LeaseExpiryWheel<InstanceInfo> wheel = new LeaseExpiryWheel<>(1000, 16);
+
+    @Test
+    public void testLeaseIsPolledOnceExpired() throws Exception {
+        Lease<InstanceInfo> lease = new Lease<>(InstanceInfoGenerator.takeOne(), 5);
+        wheel.schedule(lease);
+        long expiration = lease.getExpirationTimestamp();
+
+        assertThat(wheel.pollExpired(expiration).isEmpty(), is(true));
+        assertThat(wheel.pollExpired(expiration + 2000), is(equalTo(Collections.singletonList(lease))));
+        assertThat(wheel.size(), is(equalTo(0)));
+        assertThat(wheel.pollExpired(expiration + 3000).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testRenewedLeaseIsMovedInsteadOfPolled() throws Exception {
+        Lease<InstanceInfo> lease = new Lease<>(InstanceInfoGenerator.takeOne(), 5);
+        wheel.schedule(lease);
+        long firstExpiration = lease.getExpirationTimestamp();
+        lease.renew();
+        long renewedExpiration = lease.getExpirationTimestamp();
+
+        assertThat(wheel.pollExpired(firstExpiration + 2000).isEmpty(), is(true));
+        assertThat(wheel.size(), is(equalTo(1)));
+        assertThat(wheel.pollExpired(renewedExpiration + 2000), is(equalTo(Collections.singletonList(lease))));
+    }
+
+    @Test
+    public void testLeaseBeyondOneRevolution() throws Exception {
+        // 40 seconds is more than the 16 second revolution of the wheel
+        Lease<InstanceInfo> lease = new Lease<>(InstanceInfoGenerator.takeOne(), 40);
+        wheel.schedule(lease);
+        long expiration = lease.getExpirationTimestamp();
+
+        for (long now = System.currentTimeMillis(); now < expiration; now += 1000) {
+            assertThat(wheel.pollExpired(now).isEmpty(), is(true));
+        }
+        assertThat(wheel.pollExpired(expiration + 2000), is(equalTo(Collections.singletonList(lease))));
+    }
+
+    @Test
+    public void testDueLeaseIsRescheduledForNextPoll() throws Exception {
+        Lease<InstanceInfo> lease = new Lease<>(InstanceInfoGenerator.takeOne(), 5);
+        long afterExpiration = lease.getExpirationTimestamp() + 2000;
+        wheel.pollExpired(afterExpiration);
+
+        wheel.schedule(lease);
+        assertThat(wheel.pollExpired(afterExpiration + 1000), is(equalTo(Collections.singletonList(lease))));
+    }
+
+    @Test
+    public void testLeasesScheduledWhilePollingAreNotSkipped() throws Exception {
+        final InstanceInfo instance = InstanceInfoGenerator.takeOne();
+        final int leaseCount = 20000;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        // Leases with no duration are due right away, so each goes to the next slot to be polled
+        Thread scheduler = new Thread(() -> {
+            for (int i = 0; i < leaseCount; i++) {
+                wheel.schedule(new Lease<>(instance, 0));
+            }
+            scheduled.set(true);
+        });
+        scheduler.start();
+
+        long now = System.currentTimeMillis();
+        int polled = 0;
+        while (!scheduled.get()) {
+            now += 1000;
+            polled += wheel.pollExpired(now).size();
+        }
+        scheduler.join();
+        polled += wheel.pollExpired(now + 1000).size();
+
+        assertThat(polled, is(equalTo(leaseCount)));
+        assertThat(wheel.size(), is(equalTo(0)));
+    }
+}
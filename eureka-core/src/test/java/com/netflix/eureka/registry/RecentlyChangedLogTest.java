@@ -0,0 +1,127 @@
+package com.netflix.eureka.registry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.lease.Lease;
+import com.netflix.eureka.registry.RecentlyChangedLog.RecentlyChangedItem;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RecentlyChangedLogTest {
+
+    private final RecentlyChangedLog log = new RecentlyChangedLog();
+    private final Lease<InstanceInfo> lease = new Lease<>(InstanceInfoGenerator.takeOne(), 90);
+
+    @Test
+    public void testAppendAssignsConsecutiveVersions() throws Exception {
+        assertThat(log.append(lease), is(equalTo(1L)));
+        assertThat(log.append(lease), is(equalTo(2L)));
+        assertThat(log.append(lease), is(equalTo(3L)));
+
+        assertThat(log.getLatestVersion(), is(equalTo(3L)));
+        assertThat(log.size(), is(equalTo(3)));
+        assertThat(versionsOf(log.iterator(1, 3)), is(equalTo(versions(2, 3))));
+        assertThat(versionsOf(log.iterator(0, 2)), is(equalTo(versions(1, 2))));
+    }
+
+    @Test
+    public void testTrimMovesWatermark() throws Exception {
+        log.append(lease);
+        log.append(lease);
+        Thread.sleep(5);
+        long cutoff = System.currentTimeMillis();
+        Thread.sleep(5);
+        log.append(lease);
+
+        assertThat(log.trimOlderThan(cutoff), is(equalTo(2L)));
+        assertThat(log.getWatermark(), is(equalTo(2L)));
+        assertThat(log.size(), is(equalTo(1)));
+        assertThat(versionsOf(log.iterator(0, log.getLatestVersion())), is(equalTo(versions(3))));
+    }
+
+    @Test
+    public void testClearKeepsVersionsIncreasing() throws Exception {
+        log.append(lease);
+        log.append(lease);
+        log.clear();
+
+        assertThat(log.size(), is(equalTo(0)));
+        assertThat(log.iterator(0, log.getLatestVersion()).hasNext(), is(false));
+        assertThat(log.append(lease), is(equalTo(3L)));
+    }
+
+    @Test
+    public void testConcurrentAppendsHaveNoGaps() throws Exception {
+        final int threads = 8;
+        final int appendsPerThread = 10000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int j = 0; j < appendsPerThread; j++) {
+                            log.append(lease);
+                        }
+                        latch.countDown();
+                    }
+                });
+            }
+            latch.await(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long expectedVersion = 0;
+        Iterator<RecentlyChangedItem> it = log.iterator(0, log.getLatestVersion());
+        while (it.hasNext()) {
+            assertThat(it.next().getVersion(), is(equalTo(++expectedVersion)));
+        }
+        assertThat(expectedVersion, is(equalTo((long) threads * appendsPerThread)));
+    }
+
+    @Test
+    public void testDeltaVersionsOnlyRoundTripOnTheSameLog() throws Exception {
+        long version = log.append(lease);
+        long deltaVersion = log.toDeltaVersion(version);
+
+        assertThat(log.fromDeltaVersion(deltaVersion), is(equalTo(version)));
+        assertThat(log.fromDeltaVersion(version), is(equalTo(-1L)));
+        assertThat(log.fromDeltaVersion(-deltaVersion), is(equalTo(-1L)));
+
+        RecentlyChangedLog other = new RecentlyChangedLog();
+        other.append(lease);
+        long otherDeltaVersion = other.toDeltaVersion(other.getLatestVersion());
+        if (otherDeltaVersion != deltaVersion) {
+            assertThat(log.fromDeltaVersion(otherDeltaVersion), is(equalTo(-1L)));
+        }
+    }
+
+    private static List<Long> versionsOf(Iterator<RecentlyChangedItem> it) {
+        List<Long> result = new ArrayList<>();
+        while (it.hasNext()) {
+            result.add(it.next().getVersion());
+        }
+        return result;
+    }
+
+    private static List<Long> versions(long... versions) {
+        List<Long> result = new ArrayList<>();
+        for (long version : versions) {
+            result.add(version);
+        }
+        return result;
+    }
+}
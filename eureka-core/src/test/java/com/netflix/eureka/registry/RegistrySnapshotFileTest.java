@@ -0,0 +1,128 @@
+package com.netflix.eureka.registry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.EurekaEntityComparators;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.AbstractTester;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import com.netflix.eureka.resources.ServerCodecs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RegistrySnapshotFileTest extends AbstractTester {
+
+    private File snapshotFile;
+    private ServerCodecs serverCodecs;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        snapshotFile = File.createTempFile("registry-snapshot-", ".bin");
+        snapshotFile.deleteOnExit();
+        serverCodecs = new DefaultServerCodecs(serverConfig);
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        snapshotFile.delete();
+        super.tearDown();
+    }
+
+    @Test
+    public void testRegistryIsRestoredFromSnapshotOnSyncUp() throws Exception {
+        InstanceInfo myInstance = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+        registerInstanceLocally(myInstance);
+        registry.statusUpdate(LOCAL_REGION_APP_NAME, myInstance.getId(), InstanceStatus.OUT_OF_SERVICE, "0", false);
+        registry.writeRegistrySnapshot(new RegistrySnapshotFile(snapshotFile));
+
+        doReturn(snapshotFile.getPath()).when(serverConfig).getRegistrySnapshotFile();
+        EurekaClient peerClient = mock(EurekaClient.class);
+        when(peerClient.getApplications()).thenReturn(new Applications());
+        PeerAwareInstanceRegistryImpl restarted = new PeerAwareInstanceRegistryImpl(
+                serverConfig, new DefaultEurekaClientConfig(), serverCodecs, peerClient);
+        restarted.initializedResponseCache();
+        try {
+            assertThat(restarted.syncUp(), is(equalTo(1)));
+
+            InstanceInfo restored = restarted.getInstanceByAppAndId(LOCAL_REGION_APP_NAME, myInstance.getId(), false);
+            assertThat(restored, is(notNullValue()));
+            assertThat(restored.getStatus(), is(equalTo(InstanceStatus.OUT_OF_SERVICE)));
+            assertThat(restarted.overriddenInstanceStatusesSnapshot().get(myInstance.getId()),
+                    is(equalTo(InstanceStatus.OUT_OF_SERVICE)));
+
+            // The snapshot is only restored once; later sync ups only copy from the peers
+            restarted.clearRegistry();
+            assertThat(restarted.syncUp(), is(equalTo(0)));
+        } finally {
+            restarted.getResponseCache().stop();
+        }
+    }
+
+    @Test
+    public void testSnapshotOlderThanMaxAgeIsIgnored() throws Exception {
+        registerInstanceLocally(createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME));
+        registry.writeRegistrySnapshot(new RegistrySnapshotFile(snapshotFile));
+
+        doReturn(snapshotFile.getPath()).when(serverConfig).getRegistrySnapshotFile();
+        doReturn(-1L).when(serverConfig).getRegistrySnapshotMaxAgeMs();
+        EurekaClient peerClient = mock(EurekaClient.class);
+        when(peerClient.getApplications()).thenReturn(new Applications());
+        PeerAwareInstanceRegistryImpl restarted = new PeerAwareInstanceRegistryImpl(
+                serverConfig, new DefaultEurekaClientConfig(), serverCodecs, peerClient);
+        restarted.initializedResponseCache();
+        try {
+            assertThat(restarted.syncUp(), is(equalTo(0)));
+        } finally {
+            restarted.getResponseCache().stop();
+        }
+    }
+
+    @Test
+    public void testInstancesRoundTripThroughSnapshot() throws Exception {
+        List<InstanceInfo> instances = new ArrayList<>();
+        Iterator<InstanceInfo> it = InstanceInfoGenerator.newBuilder(20, 4).withMetaData(true).build().serviceIterator();
+        while (it.hasNext()) {
+            instances.add(it.next());
+        }
+        InstanceInfo outOfService = instances.get(0);
+        RegistrySnapshotFile file = new RegistrySnapshotFile(snapshotFile);
+        file.write(42L, instances, Collections.singletonMap(outOfService.getId(), InstanceStatus.OUT_OF_SERVICE));
+
+        RegistrySnapshotFile.Snapshot snapshot = file.read();
+        assertThat(snapshot.getDeltaVersion(), is(equalTo(42L)));
+        assertThat(snapshot.getInstances().size(), is(equalTo(instances.size())));
+        for (int i = 1; i < instances.size(); i++) {
+            assertThat(EurekaEntityComparators.equal(snapshot.getInstances().get(i), instances.get(i)), is(true));
+        }
+        assertThat(snapshot.getInstances().get(0).getOverriddenStatus(), is(equalTo(InstanceStatus.OUT_OF_SERVICE)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidSnapshotIsRejected() throws Exception {
+        Files.write(snapshotFile.toPath(), new byte[]{1, 2, 3});
+        new RegistrySnapshotFile(snapshotFile).read();
+    }
+}
@@ -0,0 +1,134 @@
+package com.netflix.eureka.registry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.appinfo.MyDataCenterInstanceConfig;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.DefaultEurekaServerConfig;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the throughput of registry writes as the number of writing threads grows, with each thread writing to
+ * its own application and with all threads writing to the same application. The writes are made as replicated
+ * writes, so the registry does not need any peers.
+ *
+ * <p>
+ * Run with {@link #main(String[])}, which repeats the benchmarks for 1 to 64 threads.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistryWriteContentionBenchmark {
+
+    private static final int APP_COUNT = 64;
+    private static final int INSTANCES_PER_APP = 64;
+
+    @State(Scope.Benchmark)
+    public static class RegistryState {
+        PeerAwareInstanceRegistryImpl registry;
+        Application[] apps;
+        final AtomicInteger threadCounter = new AtomicInteger();
+
+        @Setup
+        public void setUp() {
+            // Keep the recently changed log short, the benchmarks append millions of changes
+            ConfigurationManager.getConfigInstance().setProperty("eureka.retentionTimeInMSInDeltaQueue", "1000");
+            ConfigurationManager.getConfigInstance().setProperty("eureka.deltaRetentionTimerIntervalInMs", "1000");
+
+            // The server monitors are registered with the data center of the local instance
+            new ApplicationInfoManager(new MyDataCenterInstanceConfig(), InstanceInfoGenerator.takeOne());
+
+            EurekaServerConfig serverConfig = new DefaultEurekaServerConfig();
+            registry = new PeerAwareInstanceRegistryImpl(serverConfig, new DefaultEurekaClientConfig(),
+                    new DefaultServerCodecs(serverConfig), null);
+            registry.initializedResponseCache();
+
+            Applications applications = InstanceInfoGenerator
+                    .newBuilder(APP_COUNT * INSTANCES_PER_APP, APP_COUNT).build().toApplications();
+            List<Application> registeredApps = applications.getRegisteredApplications();
+            apps = registeredApps.toArray(new Application[registeredApps.size()]);
+            for (Application app : apps) {
+                for (InstanceInfo instance : app.getInstances()) {
+                    registry.register(instance, 90, true);
+                }
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            registry.getResponseCache().stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class WriterState {
+        InstanceInfo[] ownAppInstances;
+        InstanceInfo sharedAppInstance;
+        int next;
+
+        @Setup
+        public void setUp(RegistryState registryState) {
+            int threadIndex = registryState.threadCounter.getAndIncrement();
+            List<InstanceInfo> instances = registryState.apps[threadIndex % APP_COUNT].getInstances();
+            ownAppInstances = instances.toArray(new InstanceInfo[instances.size()]);
+            sharedAppInstance = registryState.apps[0].getInstances().get(threadIndex % INSTANCES_PER_APP);
+        }
+
+        // Every instance alternates between the two statuses, so each update is an actual change
+        InstanceStatus nextStatus(int round) {
+            return round % 2 == 0 ? InstanceStatus.OUT_OF_SERVICE : InstanceStatus.UP;
+        }
+    }
+
+    @Benchmark
+    public boolean statusUpdateDistinctApps(RegistryState registryState, WriterState writerState) {
+        int next = writerState.next++;
+        InstanceInfo instance = writerState.ownAppInstances[next % INSTANCES_PER_APP];
+        return registryState.registry.statusUpdate(instance.getAppName(), instance.getId(),
+                writerState.nextStatus(next / INSTANCES_PER_APP), null, true);
+    }
+
+    @Benchmark
+    public boolean statusUpdateSameApp(RegistryState registryState, WriterState writerState) {
+        InstanceInfo instance = writerState.sharedAppInstance;
+        return registryState.registry.statusUpdate(instance.getAppName(), instance.getId(),
+                writerState.nextStatus(writerState.next++), null, true);
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            Options options = new OptionsBuilder()
+                    .include(RegistryWriteContentionBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.netflix.eureka.registry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+
+import com.netflix.appinfo.EurekaAccept;
+import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.eureka.AbstractTester;
+import com.netflix.eureka.Version;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class ResponseCacheKeysFileTest extends AbstractTester {
+
+    private File keysFile;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        keysFile = File.createTempFile("response-cache-keys-", ".txt");
+        keysFile.deleteOnExit();
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        keysFile.delete();
+        super.tearDown();
+    }
+
+    @Test
+    public void testKeysRequestedBeforeRestartAreWarmedUp() throws Exception {
+        registerInstanceLocally(createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME));
+        Key appKey = new Key(Key.EntityType.Application, LOCAL_REGION_APP_NAME,
+                Key.KeyType.XML, Version.V1, EurekaAccept.compact);
+        Key regionsKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS,
+                Key.KeyType.JSON, Version.V2, EurekaAccept.full, new String[]{REMOTE_REGION_NAME});
+        Key sinceKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS_DELTA,
+                Key.KeyType.JSON, Version.V2, EurekaAccept.full, 0L);
+        ResponseCache responseCache = registry.getResponseCache();
+        responseCache.getGZIP(appKey);
+        responseCache.getGZIP(regionsKey);
+        responseCache.getGZIP(sinceKey);
+
+        Collection<Key> requestedKeys = responseCache.getRequestedKeys();
+        assertThat(requestedKeys.size(), is(equalTo(2)));
+        new ResponseCacheKeysFile(keysFile).write(requestedKeys);
+
+        doReturn(true).when(serverConfig).shouldWarmUpResponseCache();
+        doReturn(Collections.singleton(ResponseCacheImpl.ALL_APPS)).when(serverConfig)
+                .getResponseCacheWarmUpEntities();
+        doReturn(keysFile.getPath()).when(serverConfig).getResponseCacheKeysFile();
+        PeerAwareInstanceRegistryImpl restarted = new PeerAwareInstanceRegistryImpl(
+                serverConfig, new DefaultEurekaClientConfig(), new DefaultServerCodecs(serverConfig),
+                mock(EurekaClient.class));
+        restarted.initializedResponseCache();
+        try {
+            restarted.warmUpResponseCache();
+
+            // All 8 variants of the configured entry, and the 2 keys learned from the previous run
+            Collection<Key> warmedUpKeys = restarted.getResponseCache().getRequestedKeys();
+            assertThat(warmedUpKeys.size(), is(equalTo(10)));
+            assertThat(warmedUpKeys.contains(appKey), is(true));
+            assertThat(warmedUpKeys.contains(regionsKey), is(true));
+            assertThat(((ResponseCacheImpl) restarted.getResponseCache()).getReadOnlySize(), is(equalTo(10)));
+        } finally {
+            restarted.getResponseCache().stop();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidKeysFileIsRejected() throws Exception {
+        Files.write(keysFile.toPath(), "Application\tJSON\tV2\tfull\t\tALL_APPS\n".getBytes());
+        new ResponseCacheKeysFile(keysFile).read();
+    }
+}
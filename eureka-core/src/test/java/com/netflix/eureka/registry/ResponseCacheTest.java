@@ -1,7 +1,14 @@
 package com.netflix.eureka.registry;
 
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 import com.netflix.appinfo.EurekaAccept;
 import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.shared.transport.PresetDictionaryEncoding;
 import com.netflix.eureka.AbstractTester;
 import com.netflix.eureka.DefaultEurekaServerConfig;
 import com.netflix.eureka.EurekaServerConfig;
@@ -27,19 +34,8 @@ public class ResponseCacheTest extends AbstractTester {
     @Before
     public void setUp() throws Exception {
         super.setUp();
-        // create a new registry that is sync'ed up with the default registry in the AbstractTester,
-        // but disable transparent fetch to the remote for gets
-        EurekaServerConfig serverConfig = spy(new DefaultEurekaServerConfig());
-        doReturn(true).when(serverConfig).disableTransparentFallbackToOtherRegion();
-
-        testRegistry = new PeerAwareInstanceRegistryImpl(
-                serverConfig,
-                new DefaultEurekaClientConfig(),
-                new DefaultServerCodecs(serverConfig),
-                client
-        );
-        testRegistry.init(serverContext.getPeerEurekaNodes());
-        testRegistry.syncUp();
+        testRegistry = createRegistry(serverConfig -> {
+        });
     }
 
     @Test
@@ -54,6 +50,185 @@ public class ResponseCacheTest extends AbstractTester {
         Assert.assertNull("Cache after invalidate did not return null for write view.", cache.get(key, true));
     }
 
+    @Test
+    public void testDeltaIsKeptInPresetDictionaryEncoding() throws Exception {
+        ResponseCacheImpl cache = (ResponseCacheImpl) testRegistry.getResponseCache();
+        Key deltaKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS_DELTA,
+                Key.KeyType.JSON, Version.V2, EurekaAccept.full);
+
+        // The preset dictionary encoding is only computed once a request accepts it
+        Assert.assertNotNull(cache.get(deltaKey));
+        Assert.assertEquals(0L, getPresetDictionaryCompressions(cache));
+
+        CachedPayload payload = cache.getPresetDictionaryPayload(deltaKey, null);
+        Assert.assertNotNull(payload);
+        Assert.assertEquals(cache.get(deltaKey),
+                new String(PresetDictionaryEncoding.decompress((byte[]) payload.getEntity())));
+        Assert.assertNotEquals(cache.getPayload(deltaKey, true, null).getEntityTag(), payload.getEntityTag());
+        Assert.assertTrue(cache.getPresetDictionaryPayload(deltaKey, payload.getEntityTag()).isNotModified());
+        Assert.assertNotNull(cache.getPresetDictionaryPayload(deltaKey, null));
+        Assert.assertEquals(1L, getPresetDictionaryCompressions(cache));
+
+        Key appKey = new Key(Key.EntityType.Application, REMOTE_REGION_APP_NAME,
+                Key.KeyType.JSON, Version.V2, EurekaAccept.full);
+        Assert.assertNull(cache.getPresetDictionaryPayload(appKey, null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMetricsCountLookupsGenerationsAndStaleness() throws Exception {
+        ResponseCacheImpl cache = (ResponseCacheImpl) testRegistry.getResponseCache();
+        Key key = new Key(Key.EntityType.Application, REMOTE_REGION_APP_NAME,
+                Key.KeyType.XML, Version.V2, EurekaAccept.compact);
+        String response = cache.get(key, true);
+        Assert.assertNotNull("Cache get returned null.", response);
+        cache.get(key, true);
+        cache.get(key, false);
+
+        Map<String, Object> metrics = null;
+        for (Map<String, Object> keyMetrics : (List<Map<String, Object>>) cache.getMetricsSnapshot().get("keys")) {
+            if ("Application".equals(keyMetrics.get("payload")) && "XML".equals(keyMetrics.get("type"))
+                    && "compact".equals(keyMetrics.get("accept"))) {
+                metrics = keyMetrics;
+            }
+        }
+        Assert.assertNotNull("No metrics for the key.", metrics);
+        Assert.assertEquals(1L, metrics.get("misses"));
+        Assert.assertEquals(1L, metrics.get("readOnlyHits"));
+        Assert.assertEquals(1L, metrics.get("readWriteHits"));
+        Assert.assertEquals(1L, ((Map<String, Object>) metrics.get("generationMicros")).get("count"));
+        Assert.assertEquals((long) response.getBytes().length, metrics.get("payloadBytes"));
+
+        // The read only cache keeps the invalidated payload until its next update
+        Assert.assertEquals(0, cache.getReadOnlyStaleSize());
+        testRegistry.cancel(REMOTE_REGION_APP_NAME, REMOTE_REGION_INSTANCE_1_HOSTNAME, true);
+        Assert.assertEquals(1, cache.getReadOnlyStaleSize());
+    }
+
+    @Test
+    public void testEncodingsShareOneRegistrySnapshot() throws Exception {
+        ResponseCacheImpl cache = (ResponseCacheImpl) testRegistry.getResponseCache();
+        long taken = getRegistrySnapshots(cache, "taken");
+        long reused = getRegistrySnapshots(cache, "reused");
+
+        String[] regions = {REMOTE_REGION};
+        for (Key.KeyType type : Key.KeyType.values()) {
+            for (Version version : Version.values()) {
+                for (EurekaAccept accept : EurekaAccept.values()) {
+                    Key key = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS, type, version, accept,
+                            regions);
+                    Assert.assertNotNull(cache.get(key, false));
+                }
+            }
+        }
+        Assert.assertEquals(taken + 1, getRegistrySnapshots(cache, "taken"));
+        Assert.assertEquals(reused + 7, getRegistrySnapshots(cache, "reused"));
+
+        // A change ends the cycle, and the data is taken again for the next key
+        testRegistry.cancel(REMOTE_REGION_APP_NAME, REMOTE_REGION_INSTANCE_1_HOSTNAME, true);
+        Key key = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS, Key.KeyType.JSON, Version.V2,
+                EurekaAccept.full, regions);
+        Assert.assertNotNull(cache.get(key, false));
+        Assert.assertEquals(taken + 2, getRegistrySnapshots(cache, "taken"));
+    }
+
+    @Test
+    public void testBackgroundRegenerationServesPreviousPayloadUntilReplaced() throws Exception {
+        PeerAwareInstanceRegistry registry = createRegistry(
+                serverConfig -> doReturn(true).when(serverConfig).shouldRegenerateResponseCacheInBackground());
+        ResponseCacheImpl cache = (ResponseCacheImpl) registry.getResponseCache();
+        try {
+            Key key = new Key(Key.EntityType.Application, REMOTE_REGION_APP_NAME,
+                    Key.KeyType.JSON, Version.V1, EurekaAccept.full);
+            String response = cache.get(key, true);
+            Assert.assertNotNull("Cache get returned null.", response);
+
+            // The read only view is updated when the regeneration completes, without waiting for its timer
+            registry.register(createRemoteInstance(REMOTE_REGION_INSTANCE_2_HOSTNAME), false);
+            Assert.assertNotNull("Cache did not keep serving the previous payload.", cache.get(key, true));
+
+            cache.awaitRegenerations();
+            Assert.assertTrue("Cache was not regenerated.",
+                    cache.get(key, true).contains(REMOTE_REGION_INSTANCE_2_HOSTNAME));
+        } finally {
+            cache.stop();
+        }
+    }
+
+    @Test
+    public void testCoalescedInvalidationsAreAppliedTogether() throws Exception {
+        // Long enough for the timer not to tick during the test
+        PeerAwareInstanceRegistry registry = createRegistry(
+                serverConfig -> doReturn(60000L).when(serverConfig).getResponseCacheInvalidationCoalescingMs());
+        ResponseCacheImpl cache = (ResponseCacheImpl) registry.getResponseCache();
+        try {
+            cache.flushInvalidations();
+            Key key = new Key(Key.EntityType.Application, REMOTE_REGION_APP_NAME,
+                    Key.KeyType.JSON, Version.V1, EurekaAccept.full);
+            Assert.assertNotNull("Cache get returned null.", cache.get(key, false));
+
+            registry.cancel(REMOTE_REGION_APP_NAME, REMOTE_REGION_INSTANCE_1_HOSTNAME, true);
+            Assert.assertEquals(1, cache.getPendingInvalidations());
+            Assert.assertNotNull("Cache was invalidated before the timer tick.", cache.get(key, false));
+
+            cache.flushInvalidations();
+            Assert.assertEquals(0, cache.getPendingInvalidations());
+            Assert.assertNull("Cache was not invalidated on the timer tick.", cache.get(key, false));
+        } finally {
+            cache.stop();
+        }
+    }
+
+    @Test
+    public void testOffHeapPayloadsAreStreamedAndReleased() throws Exception {
+        PeerAwareInstanceRegistry registry = createRegistry(
+                serverConfig -> doReturn(true).when(serverConfig).shouldUseOffHeapResponseCache());
+        ResponseCacheImpl cache = (ResponseCacheImpl) registry.getResponseCache();
+        try {
+            Key key = new Key(Key.EntityType.Application, REMOTE_REGION_APP_NAME,
+                    Key.KeyType.JSON, Version.V1, EurekaAccept.full);
+            String response = cache.get(key);
+            Assert.assertNotNull("Cache get returned null.", response);
+            Assert.assertTrue("Payload is not held off heap.", cache.getOffHeapBytes() > 0);
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ((StreamingOutput) cache.getPayload(key, false, null).getEntity()).write(output);
+            Assert.assertEquals(response, new String(output.toByteArray()));
+
+            output.reset();
+            ((StreamingOutput) cache.getPayload(key, true, null).getEntity()).write(output);
+            Assert.assertArrayEquals(cache.getGZIP(key), output.toByteArray());
+        } finally {
+            cache.stop();
+        }
+        Assert.assertEquals("Off-heap payloads were not released.", 0, cache.getOffHeapBytes());
+    }
+
+    @Test
+    public void testUnwrittenOffHeapPayloadsHoldNoReference() throws Exception {
+        PeerAwareInstanceRegistry registry = createRegistry(serverConfig -> {
+            doReturn(true).when(serverConfig).shouldUseOffHeapResponseCache();
+            doReturn(false).when(serverConfig).shouldUseReadOnlyResponseCache();
+        });
+        ResponseCacheImpl cache = (ResponseCacheImpl) registry.getResponseCache();
+        try {
+            Key key = new Key(Key.EntityType.Application, REMOTE_REGION_APP_NAME,
+                    Key.KeyType.JSON, Version.V1, EurekaAccept.full);
+            String response = cache.get(key);
+            StreamingOutput entity = (StreamingOutput) cache.getPayload(key, false, null).getEntity();
+
+            cache.invalidate(key);
+            Assert.assertEquals("Unwritten entity kept the payload.", 0, cache.getOffHeapBytes());
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            entity.write(output);
+            Assert.assertEquals(response, new String(output.toByteArray()));
+        } finally {
+            cache.stop();
+        }
+        Assert.assertEquals("Off-heap payloads were not released.", 0, cache.getOffHeapBytes());
+    }
+
     @Test
     public void testInvalidateWithRemoteRegion() throws Exception {
         ResponseCacheImpl cache = (ResponseCacheImpl) testRegistry.getResponseCache();
@@ -91,4 +266,35 @@ public class ResponseCacheTest extends AbstractTester {
         Assert.assertNull("Cache after invalidate did not return null.", cache.get(key1, true));
         Assert.assertNull("Cache after invalidate did not return null.", cache.get(key2, true));
     }
+
+    /**
+     * Creates a new registry that is sync'ed up with the default registry in the AbstractTester, but with
+     * transparent fetch to the remote for gets disabled and the given overrides of the server configuration.
+     */
+    private PeerAwareInstanceRegistry createRegistry(Consumer<EurekaServerConfig> configOverrides) throws Exception {
+        EurekaServerConfig serverConfig = spy(new DefaultEurekaServerConfig());
+        doReturn(true).when(serverConfig).disableTransparentFallbackToOtherRegion();
+        configOverrides.accept(serverConfig);
+
+        PeerAwareInstanceRegistry registry = new PeerAwareInstanceRegistryImpl(
+                serverConfig,
+                new DefaultEurekaClientConfig(),
+                new DefaultServerCodecs(serverConfig),
+                client
+        );
+        registry.init(serverContext.getPeerEurekaNodes());
+        registry.syncUp();
+        return registry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long getRegistrySnapshots(ResponseCacheImpl cache, String result) {
+        return (Long) ((Map<String, Object>) cache.getMetricsSnapshot().get("registrySnapshots")).get(result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long getPresetDictionaryCompressions(ResponseCacheImpl cache) {
+        Map<String, Object> compression = (Map<String, Object>) cache.getMetricsSnapshot().get("compressionMicros");
+        return (Long) ((Map<String, Object>) compression.get(PresetDictionaryEncoding.ENCODING)).get("count");
+    }
 }
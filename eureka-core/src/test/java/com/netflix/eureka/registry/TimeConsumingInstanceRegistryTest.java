@@ -47,11 +47,11 @@ public class TimeConsumingInstanceRegistryTest extends AbstractTester {
      * At this time isLeaseExpirationEnabled=false, getNumOfRenewsPerMinThreshold=
      * (50*2 + 1(initial value))*85%=86</li>
      * <li>(2). 45 out of the 50 instances send heartbeats to local registry.</li>
-     * <li>(3). Check registry status, isLeaseExpirationEnabled=false, getNumOfRenewsInLastMin=0,
+     * <li>(3). Check registry status, isLeaseExpirationEnabled=false, getNumOfRenewsInLastMin=45,
      * getNumOfRenewsPerMinThreshold=86, registeredInstancesNumberOfMYLOCALAPP=50</li>
      * <li>(4). 45 out of the 50 instances send heartbeats to local registry.</li>
-     * <li>(5). Accumulate one minutes data, and from now on, isLeaseExpirationEnabled=true,
-     * getNumOfRenewsInLastMin=90. Because lease expiration is enabled, and lease for 5 instance are expired,
+     * <li>(5). The renewals are counted in 10 second buckets over the last minute, so from (4) on,
+     * isLeaseExpirationEnabled=true, getNumOfRenewsInLastMin=90. Because lease expiration is enabled, and lease for 5 instance are expired,
      * so when eviction thread is working, the 5 instances will be marked as deleted.</li>
      * <li>(6). 45 out of the 50 instances send heartbeats to local registry.</li>
      * <li>(7). Check registry status, isLeaseExpirationEnabled=true, getNumOfRenewsInLastMin=90,
@@ -124,7 +124,7 @@ public class TimeConsumingInstanceRegistryTest extends AbstractTester {
                 public void execute() {
                     System.out.println("checking on 40s");
                     Preconditions.checkState(Boolean.FALSE.equals(registry.isLeaseExpirationEnabled()), "Lease expiration should be disabled");
-                    Preconditions.checkState(registry.getNumOfRenewsInLastMin() == 0, "Renewals in last min should be 0");
+                    Preconditions.checkState(registry.getNumOfRenewsInLastMin() == 45, "Renewals in last min should be 45");
                     Preconditions.checkState(registry.getApplication(LOCAL_REGION_APP_NAME).getInstances().size() == 50,
                         "There should be 50 instances in application - MYLOCAPP");
                 }
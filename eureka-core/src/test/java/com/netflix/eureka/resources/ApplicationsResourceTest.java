@@ -2,21 +2,28 @@ package com.netflix.eureka.resources;
 
 import com.netflix.appinfo.EurekaAccept;
 import com.netflix.appinfo.InstanceInfo;
+import com.netflix.config.ConfigurationManager;
 import com.netflix.discovery.util.EurekaEntityComparators;
 import com.netflix.discovery.converters.wrappers.CodecWrappers;
 import com.netflix.discovery.converters.wrappers.DecoderWrapper;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.transport.PresetDictionaryEncoding;
 import com.netflix.discovery.util.InstanceInfoGenerator;
 import com.netflix.eureka.AbstractTester;
 import com.netflix.eureka.Version;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 /**
@@ -126,4 +133,98 @@ public class ApplicationsResourceTest extends AbstractTester {
             }
         }
     }
+
+    @Test
+    public void testFullAppsGetIsNotModifiedForMatchingEntityTag() throws Exception {
+        Response response = applicationsResource.getContainers(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                null,  // uriInfo
+                null,  // remote regions
+                null  // if-none-match
+        );
+        assertThat(response.getStatus(), is(Response.Status.OK.getStatusCode()));
+        EntityTag entityTag = (EntityTag) response.getMetadata().getFirst(HttpHeaders.ETAG);
+        assertThat(entityTag, is(notNullValue()));
+
+        Response notModified = applicationsResource.getContainers(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                null,  // uriInfo
+                null,  // remote regions
+                entityTag.toString()
+        );
+        assertThat(notModified.getStatus(), is(Response.Status.NOT_MODIFIED.getStatusCode()));
+        assertThat(notModified.getEntity(), is(nullValue()));
+
+        Response gzipped = applicationsResource.getContainers(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                "gzip", // encoding
+                EurekaAccept.full.name(),
+                null,  // uriInfo
+                null,  // remote regions
+                entityTag.toString()
+        );
+        // the compressed representation has its own entity tag
+        assertThat(gzipped.getStatus(), is(Response.Status.OK.getStatusCode()));
+        assertThat(gzipped.getMetadata().getFirst(HttpHeaders.ETAG), is(not((Object) entityTag)));
+    }
+
+    @Test
+    public void testDeltaIsServedInPresetDictionaryEncodingWhenAccepted() throws Exception {
+        Response response = applicationsResource.getContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                PresetDictionaryEncoding.ENCODING + ", gzip", // encoding
+                EurekaAccept.full.name(),
+                null,  // uriInfo
+                null,  // remote regions
+                null,  // if-none-match
+                null  // since
+        );
+        assertThat(response.getStatus(), is(Response.Status.OK.getStatusCode()));
+        assertThat(response.getMetadata().getFirst("Content-Encoding"), is((Object) PresetDictionaryEncoding.ENCODING));
+
+        String json = new String(PresetDictionaryEncoding.decompress((byte[]) response.getEntity()));
+        DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
+        Applications decoded = decoder.decode(json, Applications.class);
+        assertThat(decoded, is(notNullValue()));
+    }
+
+    @Test
+    public void testDeltaSinceUnknownVersionIsGone() throws Exception {
+        ConfigurationManager.getConfigInstance().setProperty("eureka.remoteRegion.disable.transparent.fallback", "true");
+        try {
+            Response response = applicationsResource.getContainerDifferential(
+                    Version.V2.name(),
+                    MediaType.APPLICATION_JSON,
+                    null, // encoding
+                    EurekaAccept.full.name(),
+                    null,  // uriInfo
+                    null,  // remote regions
+                    null,  // if-none-match
+                    "1"  // a version this server never handed out
+            );
+            assertThat(response.getStatus(), is(Response.Status.GONE.getStatusCode()));
+
+            Response malformed = applicationsResource.getContainerDifferential(
+                    Version.V2.name(),
+                    MediaType.APPLICATION_JSON,
+                    null, // encoding
+                    EurekaAccept.full.name(),
+                    null,  // uriInfo
+                    null,  // remote regions
+                    null,  // if-none-match
+                    "latest"
+            );
+            assertThat(malformed.getStatus(), is(Response.Status.BAD_REQUEST.getStatusCode()));
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("eureka.remoteRegion.disable.transparent.fallback");
+        }
+    }
 }
@@ -0,0 +1,48 @@
+package com.netflix.eureka.resources;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.transport.Heartbeat;
+import com.netflix.discovery.shared.transport.HeartbeatList;
+import com.netflix.discovery.shared.transport.HeartbeatListResponse;
+import com.netflix.eureka.AbstractTester;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class HeartbeatResourceTest extends AbstractTester {
+
+    private HeartbeatResource heartbeatResource;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        heartbeatResource = new HeartbeatResource(serverContext);
+    }
+
+    @Test
+    public void testBatchHeartbeatReturnsResultPerInstance() throws Exception {
+        InstanceInfo registered = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+        registerInstanceLocally(registered);
+        InstanceInfo unknown = createLocalInstanceWithIdAndStatus(
+                LOCAL_REGION_INSTANCE_2_HOSTNAME, "unknown", InstanceInfo.InstanceStatus.UP);
+
+        HeartbeatList heartbeats = new HeartbeatList();
+        heartbeats.addHeartbeat(Heartbeat.of(registered, null));
+        heartbeats.addHeartbeat(Heartbeat.of(unknown, null));
+
+        Response response = heartbeatResource.batchHeartbeat(null, heartbeats);
+        assertThat(response.getStatus(), is(equalTo(Status.OK.getStatusCode())));
+
+        HeartbeatListResponse batchResponse = (HeartbeatListResponse) response.getEntity();
+        assertThat(batchResponse.getResponseList().size(), is(equalTo(2)));
+        assertThat(batchResponse.getResponseList().get(0).getStatusCode(), is(equalTo(Status.OK.getStatusCode())));
+        assertThat(batchResponse.getResponseList().get(1).getStatusCode(), is(equalTo(Status.NOT_FOUND.getStatusCode())));
+    }
+}
@@ -2,11 +2,15 @@ package com.netflix.eureka.resources;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.shared.transport.ClusterSampleData;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerContext;
+import com.netflix.eureka.cluster.PeerEurekaNodes;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
 import com.netflix.eureka.cluster.protocol.ReplicationInstance;
 import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
@@ -33,6 +37,7 @@ public class PeerReplicationResourceTest {
 
     private final ApplicationResource applicationResource = mock(ApplicationResource.class);
     private final InstanceResource instanceResource = mock(InstanceResource.class);
+    private final AtomicInteger applicationResourceCount = new AtomicInteger();
 
     private EurekaServerContext serverContext;
     private PeerReplicationResource peerReplicationResource;
@@ -43,17 +48,7 @@ public class PeerReplicationResourceTest {
     public void setUp() {
         serverContext = mock(EurekaServerContext.class);
         when(serverContext.getServerConfig()).thenReturn(mock(EurekaServerConfig.class));
-        peerReplicationResource = new PeerReplicationResource(serverContext) {
-            @Override
-            ApplicationResource createApplicationResource(ReplicationInstance instanceInfo) {
-                return applicationResource;
-            }
-
-            @Override
-            InstanceResource createInstanceResource(ReplicationInstance instanceInfo, ApplicationResource applicationResource) {
-                return instanceResource;
-            }
-        };
+        peerReplicationResource = createPeerReplicationResource();
     }
 
     @Test
@@ -133,6 +128,54 @@ public class PeerReplicationResourceTest {
         );
     }
 
+    @Test
+    public void testBatchAppliedByApplication() throws Exception {
+        ExecutorService batchExecutor = Executors.newFixedThreadPool(2);
+        try {
+            PeerEurekaNodes peerEurekaNodes = mock(PeerEurekaNodes.class);
+            when(peerEurekaNodes.getReplicationBatchExecutor()).thenReturn(batchExecutor);
+            when(serverContext.getPeerEurekaNodes()).thenReturn(peerEurekaNodes);
+            peerReplicationResource = createPeerReplicationResource();
+            when(instanceResource.renewLease(anyString(), anyString(), anyString(), anyString())).thenReturn(Response.ok().build());
+            when(instanceResource.cancelLease(anyString())).thenReturn(Response.status(Status.NOT_FOUND).build());
+
+            InstanceInfo otherInstanceInfo = ClusterSampleData.newInstanceInfo(1);
+            assertThat(otherInstanceInfo.getAppName().equals(instanceInfo.getAppName()), is(false));
+            ReplicationList replicationList = new ReplicationList();
+            replicationList.addReplicationInstance(newReplicationInstanceOf(Action.Heartbeat, instanceInfo));
+            replicationList.addReplicationInstance(newReplicationInstanceOf(Action.Cancel, otherInstanceInfo));
+            replicationList.addReplicationInstance(newReplicationInstanceOf(Action.Heartbeat, otherInstanceInfo));
+            replicationList.addReplicationInstance(newReplicationInstanceOf(Action.Cancel, instanceInfo));
+            Response response = peerReplicationResource.batchReplication(replicationList);
+
+            // The responses are in the order of the batch, whatever thread each application was applied on
+            ReplicationListResponse entity = (ReplicationListResponse) response.getEntity();
+            assertThat(entity.getResponseList().size(), is(equalTo(4)));
+            assertThat(entity.getResponseList().get(0).getStatusCode(), is(equalTo(200)));
+            assertThat(entity.getResponseList().get(1).getStatusCode(), is(equalTo(404)));
+            assertThat(entity.getResponseList().get(2).getStatusCode(), is(equalTo(200)));
+            assertThat(entity.getResponseList().get(3).getStatusCode(), is(equalTo(404)));
+            assertThat(applicationResourceCount.get(), is(equalTo(2)));
+        } finally {
+            batchExecutor.shutdownNow();
+        }
+    }
+
+    private PeerReplicationResource createPeerReplicationResource() {
+        return new PeerReplicationResource(serverContext) {
+            @Override
+            ApplicationResource createApplicationResource(ReplicationInstance instanceInfo) {
+                applicationResourceCount.incrementAndGet();
+                return applicationResource;
+            }
+
+            @Override
+            InstanceResource createInstanceResource(ReplicationInstance instanceInfo, ApplicationResource applicationResource) {
+                return instanceResource;
+            }
+        };
+    }
+
     private static void assertStatusOkReply(Response httpResponse) {
         assertStatus(httpResponse, 200);
     }
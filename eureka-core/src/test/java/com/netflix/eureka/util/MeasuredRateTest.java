@@ -0,0 +1,67 @@
+package com.netflix.eureka.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MeasuredRateTest {
+
+    private long now = 1_000_000;
+    private MeasuredRate rate;
+
+    @Before
+    public void setUp() throws Exception {
+        rate = new MeasuredRate(60_000) {
+            @Override
+            long currentTimeMillis() {
+                return now;
+            }
+        };
+        rate.start();
+    }
+
+    @Test
+    public void testCurrentBucketIsNotReportedUntilComplete() throws Exception {
+        increment(5);
+        assertThat(rate.getCount(), is(equalTo(0L)));
+
+        now += 10_000;
+        assertThat(rate.getCount(), is(equalTo(5L)));
+    }
+
+    @Test
+    public void testCountSlidesOneBucketAtATime() throws Exception {
+        for (int i = 1; i <= 6; i++) {
+            increment(i);
+            now += 10_000;
+        }
+        assertThat(rate.getCount(), is(equalTo(21L)));
+
+        // The oldest bucket drops out while its slot is reused
+        increment(100);
+        now += 10_000;
+        assertThat(rate.getCount(), is(equalTo(120L)));
+
+        now += 50_000;
+        assertThat(rate.getCount(), is(equalTo(100L)));
+        now += 10_000;
+        assertThat(rate.getCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void testStoppedRateReportsNothing() throws Exception {
+        increment(3);
+        now += 10_000;
+        rate.stop();
+        assertThat(rate.getCount(), is(equalTo(0L)));
+    }
+
+    private void increment(int times) {
+        for (int i = 0; i < times; i++) {
+            rate.increment();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.eureka.util.batcher.RingBufferTaskDispatcher.PendingTasks;
+import com.netflix.eureka.util.batcher.RingBufferTaskDispatcher.TaskRingBuffer;
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+import org.junit.After;
+import org.junit.Test;
+
+import static com.netflix.eureka.util.batcher.RecordingProcessor.successfulTaskHolder;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class RingBufferTaskDispatcherTest {
+
+    private static final long SERVER_UNAVAILABLE_SLEEP_TIME_MS = 1000;
+    private static final long RETRY_SLEEP_TIME_MS = 100;
+
+    private static final int MAX_BUFFER_SIZE = 1000;
+    private static final int WORK_LOAD_SIZE = 2;
+
+    private final RecordingProcessor processor = new RecordingProcessor();
+
+    private RingBufferTaskDispatcher<Integer, ProcessingResult> dispatcher;
+
+    @After
+    public void tearDown() throws Exception {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testFullBatchIsDispatchedWithoutBatchingDelay() throws Exception {
+        dispatcher = createDispatcher(WORK_LOAD_SIZE, 60 * 1000);
+
+        dispatcher.process(1, ProcessingResult.Success, System.currentTimeMillis() + 60 * 1000);
+        dispatcher.process(2, ProcessingResult.Success, System.currentTimeMillis() + 60 * 1000);
+
+        processor.expectSuccesses(2);
+    }
+
+    @Test
+    public void testPartialBatchIsDispatchedAfterBatchingDelay() throws Exception {
+        dispatcher = createDispatcher(WORK_LOAD_SIZE, 10);
+
+        dispatcher.process(1, ProcessingResult.Success, System.currentTimeMillis() + 60 * 1000);
+
+        processor.expectSuccesses(1);
+    }
+
+    @Test
+    public void testNewerTaskOverridesPendingTaskWithSameId() throws Exception {
+        dispatcher = createDispatcher(WORK_LOAD_SIZE, 200);
+
+        dispatcher.process(1, ProcessingResult.PermanentError, System.currentTimeMillis() + 60 * 1000);
+        dispatcher.process(1, ProcessingResult.Success, System.currentTimeMillis() + 60 * 1000);
+
+        processor.expectSuccesses(1);
+        assertThat(processor.permanentErrorTasks.isEmpty(), is(true));
+        assertThat(dispatcher.overriddenTasks, is(equalTo(1L)));
+    }
+
+    @Test
+    public void testTransientErrorIsReprocessed() throws Exception {
+        dispatcher = createDispatcher(WORK_LOAD_SIZE, 10);
+
+        dispatcher.process(1, ProcessingResult.TransientError, System.currentTimeMillis() + 60 * 1000);
+
+        processor.expectTransientErrors(2);
+        assertThat(dispatcher.getReplayedTasks() > 0, is(true));
+    }
+
+    @Test
+    public void testExpiredTaskIsDiscarded() throws Exception {
+        dispatcher = createDispatcher(WORK_LOAD_SIZE, 10);
+
+        dispatcher.process(1, ProcessingResult.Success, System.currentTimeMillis() - 1);
+        dispatcher.process(2, ProcessingResult.Success, System.currentTimeMillis() + 60 * 1000);
+
+        processor.expectSuccesses(1);
+        assertThat(processor.completedTasks.poll(100, TimeUnit.MILLISECONDS), is(nullValue()));
+        assertThat(dispatcher.expiredTasks, is(equalTo(1L)));
+    }
+
+    @Test
+    public void testTasksAreDistributedAcrossAllWorkerThreads() throws Exception {
+        final int threadCount = 3;
+        // Each batch is held until every worker has one, so that no worker can take two of them
+        final CountDownLatch allWorkersBusy = new CountDownLatch(threadCount);
+        final Set<Thread> workerThreads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        TaskProcessor<Boolean> blockingProcessor = new TaskProcessor<Boolean>() {
+            @Override
+            public ProcessingResult process(Boolean task) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ProcessingResult process(List<Boolean> tasks) {
+                workerThreads.add(Thread.currentThread());
+                allWorkersBusy.countDown();
+                try {
+                    allWorkersBusy.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return ProcessingResult.Success;
+            }
+        };
+        RingBufferTaskDispatcher<Integer, Boolean> dispatcher = new RingBufferTaskDispatcher<>(
+                "TEST", MAX_BUFFER_SIZE, WORK_LOAD_SIZE, threadCount, 60 * 1000,
+                SERVER_UNAVAILABLE_SLEEP_TIME_MS, RETRY_SLEEP_TIME_MS, blockingProcessor
+        );
+        try {
+            for (int i = 0; i < threadCount * WORK_LOAD_SIZE; i++) {
+                dispatcher.process(i, true, System.currentTimeMillis() + 60 * 1000);
+            }
+            assertThat(allWorkersBusy.await(30, TimeUnit.SECONDS), is(true));
+            assertThat(workerThreads.size(), is(equalTo(threadCount)));
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testRingBufferKeepsTheOrderOfEachProducer() throws Exception {
+        final int producerCount = 4;
+        final int tasksPerProducer = 10000;
+        final TaskRingBuffer<int[]> ringBuffer = new TaskRingBuffer<>(64);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < tasksPerProducer; i++) {
+                    while (!ringBuffer.offer(new int[]{producer, i})) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            producers.add(thread);
+        }
+        startLatch.countDown();
+
+        int[] nextExpected = new int[producerCount];
+        int received = 0;
+        long deadline = System.currentTimeMillis() + 30 * 1000;
+        while (received < producerCount * tasksPerProducer && System.currentTimeMillis() < deadline) {
+            int[] element = ringBuffer.poll();
+            if (element != null) {
+                assertThat(element[1], is(equalTo(nextExpected[element[0]])));
+                nextExpected[element[0]]++;
+                received++;
+            }
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertThat(received, is(equalTo(producerCount * tasksPerProducer)));
+        assertThat(ringBuffer.poll(), is(nullValue()));
+    }
+
+    @Test
+    public void testRingBufferRejectsElementsWhenFull() throws Exception {
+        TaskRingBuffer<Integer> ringBuffer = new TaskRingBuffer<>(3);
+        for (int i = 0; i < ringBuffer.capacity(); i++) {
+            assertThat(ringBuffer.offer(i), is(true));
+        }
+        assertThat(ringBuffer.offer(-1), is(false));
+        assertThat(ringBuffer.poll(), is(equalTo(0)));
+        assertThat(ringBuffer.offer(-1), is(true));
+        assertThat(ringBuffer.size(), is(equalTo(ringBuffer.capacity())));
+    }
+
+    @Test
+    public void testPendingTasksKeepOrderAndIndexThroughRemovals() throws Exception {
+        int maxSize = 100;
+        PendingTasks<Integer, ProcessingResult> pendingTasks = new PendingTasks<>(maxSize);
+
+        // Several rounds, so that the deque wraps around and the hash table removes colliding keys
+        int next = 0;
+        int first = 0;
+        for (int round = 0; round < 10; round++) {
+            while (!pendingTasks.isFull()) {
+                pendingTasks.addLast(successfulTaskHolder(next++));
+            }
+            for (int i = 0; i < maxSize / 2 + round; i++) {
+                assertThat(pendingTasks.pollFirst().getId(), is(equalTo(first++)));
+            }
+            for (int id = 0; id < next; id++) {
+                assertThat(pendingTasks.contains(id), is(id >= first));
+            }
+        }
+
+        TaskHolder<Integer, ProcessingResult> newer = successfulTaskHolder(first);
+        assertThat(pendingTasks.replace(newer), is(true));
+        assertThat(pendingTasks.replace(successfulTaskHolder(next)), is(false));
+        assertThat(pendingTasks.peekFirst(), is(sameInstance(newer)));
+
+        TaskHolder<Integer, ProcessingResult> reprocessed = successfulTaskHolder(first - 1);
+        pendingTasks.addFirst(reprocessed);
+        assertThat(pendingTasks.pollFirst(), is(sameInstance(reprocessed)));
+        assertThat(pendingTasks.pollFirst(), is(sameInstance(newer)));
+    }
+
+    private RingBufferTaskDispatcher<Integer, ProcessingResult> createDispatcher(int workloadSize, long maxBatchingDelay) {
+        return new RingBufferTaskDispatcher<>(
+                "TEST", MAX_BUFFER_SIZE, workloadSize, 1, maxBatchingDelay,
+                SERVER_UNAVAILABLE_SLEEP_TIME_MS, RETRY_SLEEP_TIME_MS, processor
+        );
+    }
+}
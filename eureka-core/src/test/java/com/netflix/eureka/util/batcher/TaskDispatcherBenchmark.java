@@ -0,0 +1,139 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the batching dispatcher of {@link TaskDispatchers#createBatchingTaskDispatcher} with the
+ * {@link RingBufferTaskDispatcher}, configured as for peer replication: the time from submitting a full batch of
+ * tasks until the processor gets all of them, and the throughput of task submissions from several threads.
+ *
+ * <p>
+ * Run with {@link #main(String[])}.
+ * </p>
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskDispatcherBenchmark {
+
+    private static final int MAX_BUFFER_SIZE = 10000;
+    private static final int BATCH_SIZE = 250;
+    private static final int WORKER_COUNT = 20;
+    private static final long MAX_BATCHING_DELAY_MS = 500;
+    private static final long SERVER_UNAVAILABLE_SLEEP_TIME_MS = 1000;
+    private static final long RETRY_SLEEP_TIME_MS = 100;
+
+    // Submitters cycle over a fixed set of ids, as the replication of the renewals of a fixed set of instances
+    private static final int SUBMITTED_IDS_PER_THREAD = 1000;
+
+    @State(Scope.Benchmark)
+    public static class DispatcherState {
+
+        @Param({"acceptor", "ringBuffer"})
+        String dispatcherType;
+
+        TaskDispatcher<Integer, Integer> dispatcher;
+        final CountingProcessor processor = new CountingProcessor();
+        final AtomicInteger nextId = new AtomicInteger();
+        final AtomicInteger threadCounter = new AtomicInteger();
+
+        @Setup
+        public void setUp() {
+            if ("acceptor".equals(dispatcherType)) {
+                dispatcher = TaskDispatchers.createBatchingTaskDispatcher("benchmark", MAX_BUFFER_SIZE, BATCH_SIZE,
+                        WORKER_COUNT, MAX_BATCHING_DELAY_MS, SERVER_UNAVAILABLE_SLEEP_TIME_MS, RETRY_SLEEP_TIME_MS, processor);
+            } else {
+                dispatcher = TaskDispatchers.createRingBufferBatchingTaskDispatcher("benchmark", MAX_BUFFER_SIZE, BATCH_SIZE,
+                        WORKER_COUNT, MAX_BATCHING_DELAY_MS, SERVER_UNAVAILABLE_SLEEP_TIME_MS, RETRY_SLEEP_TIME_MS, processor);
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            dispatcher.shutdown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SubmitterState {
+        int firstId;
+        int next;
+
+        @Setup
+        public void setUp(DispatcherState dispatcherState) {
+            firstId = dispatcherState.threadCounter.getAndIncrement() * SUBMITTED_IDS_PER_THREAD;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long batchLatency(DispatcherState state) {
+        long expected = state.processor.processedTasks.get() + BATCH_SIZE;
+        long expiryTime = System.currentTimeMillis() + 60 * 1000;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int id = state.nextId.getAndIncrement();
+            state.dispatcher.process(id, id, expiryTime);
+        }
+        long processed;
+        while ((processed = state.processor.processedTasks.get()) < expected) {
+            LockSupport.parkNanos(10000);
+        }
+        return processed;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Threads(4)
+    public void submit(DispatcherState dispatcherState, SubmitterState submitterState) {
+        int id = submitterState.firstId + submitterState.next++ % SUBMITTED_IDS_PER_THREAD;
+        dispatcherState.dispatcher.process(id, id, Long.MAX_VALUE);
+    }
+
+    static class CountingProcessor implements TaskProcessor<Integer> {
+
+        final AtomicLong processedTasks = new AtomicLong();
+
+        @Override
+        public ProcessingResult process(Integer task) {
+            processedTasks.incrementAndGet();
+            return ProcessingResult.Success;
+        }
+
+        @Override
+        public ProcessingResult process(List<Integer> tasks) {
+            processedTasks.addAndGet(tasks.size());
+            return ProcessingResult.Success;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(TaskDispatcherBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
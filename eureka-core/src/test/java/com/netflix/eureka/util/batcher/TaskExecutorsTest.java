@@ -18,7 +18,9 @@ package com.netflix.eureka.util.batcher;
 
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
 
 import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
 import org.junit.After;
@@ -29,6 +31,9 @@ import static com.netflix.eureka.util.batcher.RecordingProcessor.permanentErrorT
 import static com.netflix.eureka.util.batcher.RecordingProcessor.successfulTaskHolder;
 import static com.netflix.eureka.util.batcher.RecordingProcessor.transientErrorTaskHolder;
 import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.timeout;
@@ -121,4 +126,55 @@ public class TaskExecutorsTest {
         processor.expectPermanentErrors(2);
         verify(acceptorExecutor, never()).reprocess(taskHolderBatch, ProcessingResult.TransientError);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testWindowedBatchesAreSentBeforePreviousOnesAreAcknowledged() throws Exception {
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch acknowledge = new CountDownLatch(1);
+        final CountDownLatch processed = new CountDownLatch(3);
+        TaskProcessor<ProcessingResult> blockingProcessor = new TaskProcessor<ProcessingResult>() {
+            @Override
+            public ProcessingResult process(ProcessingResult task) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ProcessingResult process(List<ProcessingResult> tasks) {
+                started.countDown();
+                try {
+                    acknowledge.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                processed.countDown();
+                return ProcessingResult.Success;
+            }
+        };
+        taskExecutors = TaskExecutors.windowedBatchExecutors("TEST", 2, blockingProcessor, acceptorExecutor);
+        taskBatchQueue.add(asList(successfulTaskHolder(1)));
+        taskBatchQueue.add(asList(successfulTaskHolder(2)));
+        taskBatchQueue.add(asList(successfulTaskHolder(3)));
+
+        // Both batches of the window are in flight together, and the third one waits for room in it
+        assertTrue("Batches were not sent concurrently", started.await(30, TimeUnit.SECONDS));
+        assertThat(taskBatchQueue.size(), is(1));
+
+        acknowledge.countDown();
+        assertTrue("Not all batches were processed", processed.await(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testWindowedBatchWithTransientErrorIsRetriedOnItsOwn() throws Exception {
+        taskExecutors = TaskExecutors.windowedBatchExecutors("TEST", 2, processor, acceptorExecutor);
+
+        List<TaskHolder<Integer, ProcessingResult>> successfulBatch = asList(successfulTaskHolder(1), successfulTaskHolder(2));
+        List<TaskHolder<Integer, ProcessingResult>> failedBatch = asList(transientErrorTaskHolder(3), transientErrorTaskHolder(4));
+        taskBatchQueue.add(successfulBatch);
+        taskBatchQueue.add(failedBatch);
+
+        processor.expectSuccesses(2);
+        processor.expectTransientErrors(2);
+        verify(acceptorExecutor, timeout(500).times(1)).reprocess(failedBatch, ProcessingResult.TransientError);
+        verify(acceptorExecutor, never()).reprocess(successfulBatch, ProcessingResult.TransientError);
+    }
+}
@@ -41,8 +41,8 @@ public class EurekaInjectorCreator {
                                     params.put(PackagesResourceConfig.PROPERTY_PACKAGES, "com.sun.jersey");
                                     params.put(PackagesResourceConfig.PROPERTY_PACKAGES, "com.netflix");
                                     params.put("com.sun.jersey.config.property.WebPageContentRegex", "/(flex|images|js|css|jsp)/.*");
-                                    params.put("com.sun.jersey.spi.container.ContainerRequestFilters", "com.sun.jersey.api.container.filter.GZIPContentEncodingFilter");
-                                    params.put("com.sun.jersey.spi.container.ContainerResponseFilters", "com.sun.jersey.api.container.filter.GZIPContentEncodingFilter");
+                                    params.put("com.sun.jersey.spi.container.ContainerRequestFilters", "com.netflix.eureka.PresetDictionaryContentEncodingFilter;com.sun.jersey.api.container.filter.GZIPContentEncodingFilter");
+                                    params.put("com.sun.jersey.spi.container.ContainerResponseFilters", "com.netflix.eureka.PresetDictionaryContentEncodingFilter;com.sun.jersey.api.container.filter.GZIPContentEncodingFilter");
                                     filter("/*").through(GuiceContainer.class, params);
                                     bind(GuiceContainer.class).asEagerSingleton();
                                 }
@@ -20,6 +20,7 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.UriBuilder;
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.netflix.appinfo.InstanceInfo;
@@ -35,6 +36,7 @@ import static com.netflix.discovery.shared.transport.EurekaHttpResponse.anEureka
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -114,6 +116,20 @@ public abstract class EurekaHttpClientCompatibilityTestSuite {
         verifyResponseOkWithEntity(updated, httpResponse);
     }
 
+    @Test
+    public void testBatchHeartbeatRequest() throws Exception {
+        InstanceInfo instance = InstanceInfoGenerator.takeOne();
+        HeartbeatList heartbeats = new HeartbeatList();
+        heartbeats.addHeartbeat(Heartbeat.of(instance, InstanceStatus.OUT_OF_SERVICE));
+        HeartbeatListResponse batchResponse = new HeartbeatListResponse();
+        batchResponse.addResponse(new HeartbeatResponse(404, null));
+        when(requestHandler.sendHeartBeats(heartbeats)).thenReturn(createResponse(batchResponse));
+
+        EurekaHttpResponse<HeartbeatListResponse> httpResponse = getEurekaHttpClient().sendHeartBeats(heartbeats);
+        assertThat(httpResponse.getStatusCode(), is(equalTo(200)));
+        assertThat(httpResponse.getEntity(), is(equalTo(batchResponse)));
+    }
+
     @Test
     public void testStatusUpdateRequest() throws Exception {
         InstanceInfo instance = InstanceInfoGenerator.takeOne();
@@ -160,6 +176,33 @@ public abstract class EurekaHttpClientCompatibilityTestSuite {
         verifyResponseOkWithEntity(delta, httpResponse);
     }
 
+    @Test
+    public void testGetDeltaSinceRequest() throws Exception {
+        Applications delta = InstanceInfoGenerator.newBuilder(2, 1).build().takeDelta(2);
+        when(requestHandler.getDeltaSince(42L)).thenReturn(createResponse(delta));
+
+        EurekaHttpResponse<Applications> httpResponse = getEurekaHttpClient().getDeltaSince(42L);
+        verifyResponseOkWithEntity(delta, httpResponse);
+    }
+
+    @Test
+    public void testGetDeltaSendsEntityTagOfPreviousDelta() throws Exception {
+        Applications delta = InstanceInfoGenerator.newBuilder(2, 1).build().takeDelta(2);
+        EurekaHttpResponse<Applications> taggedResponse = anEurekaHttpResponse(200, delta)
+                .headers(HttpHeaders.CONTENT_TYPE, "application/json")
+                .headers(HttpHeaders.ETAG, "\"delta-1\"")
+                .build();
+        when(requestHandler.getDelta()).thenReturn(taggedResponse, anEurekaHttpResponse(304, Applications.class).build());
+
+        EurekaHttpClient eurekaHttpClient = getEurekaHttpClient();
+        verifyResponseOkWithEntity(delta, eurekaHttpClient.getDelta());
+        EurekaHttpResponse<Applications> httpResponse = eurekaHttpClient.getDelta();
+
+        assertThat(httpResponse.getStatusCode(), is(equalTo(304)));
+        assertThat(getHeader(observedHttpRequests.get(0), HttpHeaders.IF_NONE_MATCH), is(nullValue()));
+        assertThat(getHeader(observedHttpRequests.get(1), HttpHeaders.IF_NONE_MATCH), is(equalTo("\"delta-1\"")));
+    }
+
     @Test
     public void testGetInstanceRequest() throws Exception {
         InstanceInfo instance = InstanceInfoGenerator.takeOne();
@@ -238,6 +281,15 @@ public abstract class EurekaHttpClientCompatibilityTestSuite {
         assertThat(observedHttpRequests.get(0).getHeaders().containsKey(HttpHeaders.AUTHORIZATION), is(true));
     }
 
+    private static String getHeader(EurekaHttpRequest request, String name) {
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
     private static void verifyResponseOkWithEntity(Applications original, EurekaHttpResponse<Applications> httpResponse) {
         assertThat(httpResponse.getStatusCode(), is(equalTo(200)));
         assertThat(httpResponse.getEntity(), is(notNullValue()));
@@ -118,6 +118,8 @@ public class SimpleEurekaHttpServer {
                         handleSecureVipsGET(httpExchange);
                     } else if (path.startsWith("/v2/instances")) {
                         handleInstanceGET(httpExchange);
+                    } else if (path.startsWith("/v2/heartbeats")) {
+                        handleHeartbeatsPost(httpExchange);
                     }
                 } catch (Exception e) {
                     logger.error("HttpServer error", e);
@@ -138,7 +140,12 @@ public class SimpleEurekaHttpServer {
             httpResponse = regions == null ? requestHandler.getApplications() : requestHandler.getApplications(regions);
         } else if (path.matches("/v2/apps/delta[/]?")) {
             String regions = getQueryParam(httpExchange, "regions");
-            httpResponse = regions == null ? requestHandler.getDelta() : requestHandler.getDelta(regions);
+            String since = getQueryParam(httpExchange, "since");
+            if (since != null) {
+                httpResponse = requestHandler.getDeltaSince(Long.parseLong(since));
+            } else {
+                httpResponse = regions == null ? requestHandler.getDelta() : requestHandler.getDelta(regions);
+            }
         } else if ((matcher = Pattern.compile("/v2/apps/([^/]+)/([^/]+)").matcher(path)).matches()) {
             httpResponse = requestHandler.getInstance(matcher.group(1), matcher.group(2));
         } else {
@@ -241,6 +248,15 @@ public class SimpleEurekaHttpServer {
         }
     }
 
+    private void handleHeartbeatsPost(HttpExchange httpExchange) throws IOException {
+        if (httpExchange.getRequestURI().getPath().matches("/v2/heartbeats/batch(/)?")) {
+            HeartbeatList heartbeats = decoder.decode(httpExchange.getRequestBody(), HeartbeatList.class);
+            mapResponse(httpExchange, requestHandler.sendHeartBeats(heartbeats));
+        } else {
+            httpExchange.sendResponseHeaders(HttpServletResponse.SC_NOT_FOUND, 0);
+        }
+    }
+
     private EurekaHttpRequest mapToEurekaHttpRequest(HttpExchange httpExchange) {
         Headers exchangeHeaders = httpExchange.getRequestHeaders();
         Map<String, String> headers = new HashMap<>();